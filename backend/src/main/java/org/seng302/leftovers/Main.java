@@ -29,11 +29,13 @@ package org.seng302.leftovers;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.seng302.leftovers.persistence.SliceableJpaRepository;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -43,6 +45,7 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
  * configuration.
  */
 @SpringBootApplication
+@EnableJpaRepositories(repositoryBaseClass = SliceableJpaRepository.class)
 public class Main{
   private static final Logger logger = LogManager.getLogger(Main.class.getName());
 
@@ -20,12 +20,19 @@ import org.seng302.leftovers.persistence.BusinessRepository;
 import org.seng302.leftovers.persistence.ImageRepository;
 import org.seng302.leftovers.persistence.UserRepository;
 import org.seng302.leftovers.service.ImageService;
+import org.seng302.leftovers.service.search.BusinessLocationIndex;
+import org.seng302.leftovers.service.search.ResultCountCache;
+import org.seng302.leftovers.service.search.SaleListingResultCache;
+import org.seng302.leftovers.service.search.SearchArea;
 import org.seng302.leftovers.service.search.SearchPageConstructor;
+import org.seng302.leftovers.service.search.SearchPlanCache;
 import org.seng302.leftovers.service.search.SearchSpecConstructor;
 import org.seng302.leftovers.tools.AuthenticationTokenManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
@@ -48,15 +55,25 @@ public class BusinessController {
     private final BusinessRepository businessRepository;
     private final UserRepository userRepository;
     private final ImageService imageService;
+    private final ResultCountCache resultCountCache;
+    private final BusinessLocationIndex businessLocationIndex;
+    private final SaleListingResultCache saleListingResultCache;
+    private final SearchPlanCache searchPlanCache;
     private static final Logger logger = LogManager.getLogger(BusinessController.class.getName());
 
-    private static final Set<String> VALID_BUSINESS_ORDERINGS = Set.of("created", "name", "location", "businessType", "points");
+    private static final Set<String> VALID_BUSINESS_ORDERINGS = Set.of("created", "name", "location", "businessType", "points", "distance");
 
     @Autowired
-    public BusinessController(BusinessRepository businessRepository, UserRepository userRepository, ImageService imageService) {
+    public BusinessController(BusinessRepository businessRepository, UserRepository userRepository, ImageService imageService,
+                              ResultCountCache resultCountCache, BusinessLocationIndex businessLocationIndex,
+                              SaleListingResultCache saleListingResultCache, SearchPlanCache searchPlanCache) {
         this.businessRepository = businessRepository;
         this.userRepository = userRepository;
         this.imageService = imageService;
+        this.resultCountCache = resultCountCache;
+        this.businessLocationIndex = businessLocationIndex;
+        this.saleListingResultCache = saleListingResultCache;
+        this.searchPlanCache = searchPlanCache;
     }
 
     /**
@@ -128,6 +145,8 @@ public class BusinessController {
             }
 
             businessRepository.save(business);
+            // Changing only the images of the business does not notify its entity listeners
+            saleListingResultCache.invalidate();
         } catch (Exception e) {
             logger.error(e.getMessage());
             throw e;
@@ -267,16 +286,27 @@ public class BusinessController {
     }
 
     /**
-     * Searches for businesses matching a search query and/or business type. Results are paginated
+     * Searches for businesses matching a search query, business type and/or search area. Results are paginated
      * The query string can contain AND and OR operators to refine the search.
      * Searching performs partial matches by default. Using quotation marks performs exact matches.
+     * The search area is matched by the BusinessLocationIndex when it can answer it, and otherwise by the database.
      * @param request The HTTP Request
      * @param searchQuery The search term
      * @param page Page number to display
      * @param resultsPerPage Number of results per page
-     * @param orderBy Order by term. Can be one of "created", "name", "location", "businessType"
+     * @param orderBy Order by term. Can be one of "created", "name", "location", "businessType", "points", or
+     *                "distance" if a latitude and longitude are given
      * @param reverse Boolean. Reverse ordering of results
      * @param businessTypeString Type of business. Can by one of "Accommodation and Food Services", "Retail Trade","Charitable organisation", "Non-profit organisation".
+     * @param includeCount Whether to count the total number of results. Defaults to true. If false, the results only
+     *                     say whether there is a next page.
+     * @param latitude Latitude of the centre of the search area
+     * @param longitude Longitude of the centre of the search area
+     * @param radius Maximum distance in kilometres of results from the centre of the search area
+     * @param north Northern edge of the bounding box of the search area
+     * @param south Southern edge of the bounding box of the search area
+     * @param east Eastern edge of the bounding box of the search area
+     * @param west Western edge of the bounding box of the search area
      * @return A JSON object containing the total count and paginated results.
      */
     @GetMapping("/businesses/search")
@@ -285,7 +315,15 @@ public class BusinessController {
                                 @RequestParam(required = false) Integer resultsPerPage,
                                 @RequestParam(required = false) String orderBy,
                                 @RequestParam(required = false) Boolean reverse,
-                                @RequestParam(required = false, name = "businessType") String businessTypeString) {
+                                @RequestParam(required = false, name = "businessType") String businessTypeString,
+                                @RequestParam(required = false) Boolean includeCount,
+                                @RequestParam(required = false) Double latitude,
+                                @RequestParam(required = false) Double longitude,
+                                @RequestParam(required = false) Double radius,
+                                @RequestParam(required = false) Double north,
+                                @RequestParam(required = false) Double south,
+                                @RequestParam(required = false) Double east,
+                                @RequestParam(required = false) Double west) {
 
         AuthenticationTokenManager.checkAuthenticationToken(request);
         logger.info("Performing Business search for query \"{}\" and type \"{}\"", searchQuery, businessTypeString);
@@ -296,6 +334,7 @@ public class BusinessController {
         } catch (IllegalArgumentException e) {
             throw new ValidationResponseException("Invalid business type provided");
         }
+        SearchArea area = SearchArea.fromParameters(latitude, longitude, radius, north, south, east, west);
 
         Sort.Direction direction = SearchPageConstructor.getSortDirection(reverse);
         if (orderBy == null) {
@@ -305,18 +344,51 @@ public class BusinessController {
             logger.error("Invalid 'orderBy' parameter {} used", orderBy);
             throw new ValidationResponseException("Invalid business ordering");
         }
+        boolean orderByDistance = orderBy.equals("distance");
+        if (orderByDistance && (area == null || !area.hasCentre())) {
+            throw new ValidationResponseException("Ordering by distance requires a latitude and longitude");
+        }
 
         List<Sort.Order> sortOrder;
-        if (orderBy.equals("location")) {
+        if (orderByDistance) {
+            // Applied by the index or by the distance specification
+            sortOrder = List.of();
+        } else if (orderBy.equals("location")) {
             sortOrder = List.of(new Sort.Order(direction, "address.country").ignoreCase(), new Sort.Order(direction, "address.city").ignoreCase());
         } else {
             sortOrder = List.of(new Sort.Order(direction, orderBy).ignoreCase());
         }
 
         PageRequest pageRequest = SearchPageConstructor.getPageRequest(page, resultsPerPage, Sort.by(sortOrder));
-        Specification<Business> specification = SearchSpecConstructor.constructSpecificationFromBusinessSearch(searchQuery, businessType);
+        boolean countTotal = !Boolean.FALSE.equals(includeCount);
+        if (area == null) {
+            Specification<Business> specification = SearchSpecConstructor.constructSpecificationFromBusinessSearch(searchQuery, businessType, searchPlanCache);
+            Slice<Business> results = resultCountCache.findPage(businessRepository, specification, pageRequest,
+                    countTotal, searchQuery, businessType);
+            return new ResultPageDTO<>(results.map(BusinessResponseDTO::withoutAdmins));
+        }
+
+        Optional<List<Long>> businessIds = businessLocationIndex.findBusinessIds(area);
+        if (businessIds.isPresent() && orderByDistance && searchQuery == null && businessType == null) {
+            // The index already has the businesses in order of distance, so only the businesses on the page are loaded
+            Page<Long> pageIds = BusinessLocationIndex.getPage(businessIds.get(), pageRequest, direction);
+            Page<Business> results = SearchPageConstructor.orderLikePage(pageIds,
+                    businessRepository.findAllById(pageIds.getContent()), Business::getId);
+            Slice<Business> slice = countTotal ? results : new SliceImpl<>(results.getContent(), pageRequest, results.hasNext());
+            return new ResultPageDTO<>(slice.map(BusinessResponseDTO::withoutAdmins));
+        }
 
-        Page<Business> results = businessRepository.findAll(specification, pageRequest);
+        Specification<Business> specification = businessIds
+                .map(ids -> SearchSpecConstructor.<Business>constructSpecificationFromBusinessIds(null, ids))
+                .orElseGet(() -> SearchSpecConstructor.constructSpecificationFromArea(null, area));
+        if (searchQuery != null || businessType != null) {
+            specification = specification.and(SearchSpecConstructor.constructSpecificationFromBusinessSearch(searchQuery, businessType, searchPlanCache));
+        }
+        if (orderByDistance) {
+            specification = specification.and(SearchSpecConstructor.constructSpecificationOrderedByDistance(null, area, direction));
+        }
+        Slice<Business> results = resultCountCache.findPage(businessRepository, specification, pageRequest,
+                countTotal, searchQuery, businessType, area);
         return new ResultPageDTO<>(results.map(BusinessResponseDTO::withoutAdmins));
     }
 }
@@ -22,11 +22,15 @@ import org.seng302.leftovers.persistence.SearchMarketplaceCardHelper;
 import org.seng302.leftovers.persistence.UserRepository;
 import org.seng302.leftovers.persistence.event.ExpiryEventRepository;
 import org.seng302.leftovers.service.CardService;
+import org.seng302.leftovers.service.search.MarketplaceCardKeywordIndex;
+import org.seng302.leftovers.service.search.ResultCountCache;
 import org.seng302.leftovers.service.search.SearchPageConstructor;
 import org.seng302.leftovers.tools.AuthenticationTokenManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.util.Streamable;
@@ -35,9 +39,11 @@ import org.springframework.web.bind.annotation.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * This controller handles requests involving marketplace cards
@@ -52,17 +58,22 @@ public class CardController {
     private final UserRepository userRepository;
     private final ExpiryEventRepository expiryEventRepository;
     private final CardService cardService;
+    private final MarketplaceCardKeywordIndex marketplaceCardKeywordIndex;
+    private final ResultCountCache resultCountCache;
     private final Logger logger = LogManager.getLogger(CardController.class.getName());
 
     @Autowired
     public CardController(MarketplaceCardRepository marketplaceCardRepository, KeywordRepository keywordRepository,
                           UserRepository userRepository, ExpiryEventRepository expiryEventRepository,
-                          CardService cardService) {
+                          CardService cardService, MarketplaceCardKeywordIndex marketplaceCardKeywordIndex,
+                          ResultCountCache resultCountCache) {
         this.marketplaceCardRepository = marketplaceCardRepository;
         this.keywordRepository = keywordRepository;
         this.userRepository = userRepository;
         this.expiryEventRepository = expiryEventRepository;
         this.cardService = cardService;
+        this.marketplaceCardKeywordIndex = marketplaceCardKeywordIndex;
+        this.resultCountCache = resultCountCache;
     }
 
     /**
@@ -139,6 +150,9 @@ public class CardController {
 
             // Save result
             marketplaceCardRepository.save(card);
+            // Hibernate does not update the card itself if only its keywords changed, so the indexing listener is not
+            // called for that change
+            marketplaceCardKeywordIndex.putWhenCommitted(card);
         } catch (Exception e) {
             logger.error(e.getMessage());
             throw e;
@@ -331,6 +345,8 @@ public class CardController {
      * @param resultsPerPage Maximum number of results to retrieve
      * @param reverse Indicates which way the results will be ordered. They will be in descending order if it is true,
      *                or ascending if it is false or null.
+     * @param includeCount Whether to count the total number of matching cards. Defaults to true. If false, the results
+     *                     only say whether there is a next page.
      * @return A page of Marketplace cards DTOs
      */
     @GetMapping("/cards/search")
@@ -341,7 +357,8 @@ public class CardController {
                                                                  @RequestParam(required = false) String orderBy,
                                                                  @RequestParam(required = false) Integer page,
                                                                  @RequestParam(required = false) Integer resultsPerPage,
-                                                                 @RequestParam(required = false) Boolean reverse) {
+                                                                 @RequestParam(required = false) Boolean reverse,
+                                                                 @RequestParam(required = false) Boolean includeCount) {
         logger.info("Searching cards with section=\"{}\" and keywordsIds={}", sectionString, keywordIds);
         try {
             AuthenticationTokenManager.checkAuthenticationToken(request);
@@ -355,11 +372,32 @@ public class CardController {
 
             PageRequest pageRequest = generatePageRequest(orderBy, page, resultsPerPage, reverse);
 
-            Specification<MarketplaceCard> spec =
-                    SearchMarketplaceCardHelper.cardHasKeywords(keywords, union)
-                    .and(SearchMarketplaceCardHelper.cardIsInSection(section));
-
-            Page<MarketplaceCard> results = marketplaceCardRepository.findAll(spec, pageRequest);
+            boolean countTotal = !Boolean.FALSE.equals(includeCount);
+            Set<Long> keywordIdSet = keywords.stream().map(Keyword::getID).collect(Collectors.toSet());
+
+            Slice<MarketplaceCard> results;
+            Optional<BitSet> matchingIds = marketplaceCardKeywordIndex.findMatchingIds(section, keywordIdSet, union);
+            if (matchingIds.isEmpty()) {
+                // The keyword index has not been built yet
+                Specification<MarketplaceCard> spec =
+                        SearchMarketplaceCardHelper.cardHasKeywords(keywords, union)
+                        .and(SearchMarketplaceCardHelper.cardIsInSection(section));
+                results = resultCountCache.findPage(marketplaceCardRepository, spec, pageRequest, countTotal,
+                        section, keywordIdSet, union);
+            } else {
+                Optional<Page<Long>> pageIds = marketplaceCardKeywordIndex.getPage(matchingIds.get(), pageRequest);
+                if (pageIds.isPresent()) {
+                    // Only the cards on the page are loaded, and the total is already known from the index
+                    Page<MarketplaceCard> page = SearchPageConstructor.orderLikePage(pageIds.get(),
+                            marketplaceCardRepository.findAllById(pageIds.get().getContent()), MarketplaceCard::getID);
+                    results = countTotal ? page : new SliceImpl<>(page.getContent(), pageRequest, page.hasNext());
+                } else {
+                    // Orderings by the card creator are applied by the database
+                    results = resultCountCache.findPage(marketplaceCardRepository,
+                            SearchMarketplaceCardHelper.cardIdIn(matchingIds.get()), pageRequest, countTotal,
+                            section, keywordIdSet, union);
+                }
+            }
 
             return new ResultPageDTO<>(results.map(MarketplaceCardResponseDTO::new));
         } catch (Exception exception) {
@@ -19,6 +19,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
@@ -57,6 +58,7 @@ public class ConversationController {
      * @param body Consists of senderId and message content
      */
     @PostMapping("/cards/{cardId}/conversations/{buyerId}")
+    @Transactional
     public ResponseEntity<Void> postMarketplaceCardMessage(HttpServletRequest request, @PathVariable Long cardId, @PathVariable Long buyerId, @Valid @RequestBody SendMessageDTO body) {
         AuthenticationTokenManager.checkAuthenticationToken(request);
 
@@ -87,7 +89,7 @@ public class ConversationController {
 
         var message = new Message(conversation, sender, content);
         message = messageRepository.save(message);
-        messageService.notifyConversationParticipants(message, buyer, card.getCreator());
+        messageService.queueConversationNotification(message);
         return new ResponseEntity<>(HttpStatus.CREATED);
     }
 
@@ -5,20 +5,35 @@ import lombok.ToString;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.seng302.leftovers.dto.WrappedValueDTO;
+import org.seng302.leftovers.dto.event.BulkEventResultDTO;
+import org.seng302.leftovers.dto.event.BulkEventUpdateDTO;
+import org.seng302.leftovers.dto.event.EventCursor;
 import org.seng302.leftovers.dto.event.EventDTO;
+import org.seng302.leftovers.dto.event.EventFilterDTO;
+import org.seng302.leftovers.dto.event.EventPageDTO;
+import org.seng302.leftovers.dto.event.EventRetentionStatsDTO;
 import org.seng302.leftovers.dto.event.EventStatus;
 import org.seng302.leftovers.dto.event.EventTag;
+import org.seng302.leftovers.dto.event.FeedSummaryDTO;
+import org.seng302.leftovers.dto.event.GlobalMessageJobDTO;
 import org.seng302.leftovers.entities.User;
 import org.seng302.leftovers.entities.event.Event;
-import org.seng302.leftovers.entities.event.GlobalMessageEvent;
 import org.seng302.leftovers.exceptions.DoesNotExistResponseException;
 import org.seng302.leftovers.exceptions.InsufficientPermissionResponseException;
 import org.seng302.leftovers.exceptions.ValidationResponseException;
 import org.seng302.leftovers.persistence.UserRepository;
 import org.seng302.leftovers.persistence.event.EventRepository;
+import org.seng302.leftovers.service.EventRetentionService;
+import org.seng302.leftovers.service.EventStreamService;
+import org.seng302.leftovers.service.FeedService;
+import org.seng302.leftovers.service.FeedSummaryService;
+import org.seng302.leftovers.service.GlobalMessageService;
 import org.seng302.leftovers.tools.AuthenticationTokenManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -27,6 +42,8 @@ import javax.validation.constraints.NotNull;
 import java.time.Instant;
 import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -37,14 +54,35 @@ import java.util.stream.Collectors;
 public class EventController {
     private static final Logger LOGGER = LogManager.getLogger(EventController.class);
 
+    private static final int DEFAULT_FEED_PAGE_SIZE = 15;
+    private static final int MAX_FEED_PAGE_SIZE = 100;
+
     private final UserRepository userRepository;
 
     private final EventRepository eventRepository;
 
+    private final EventStreamService eventStreamService;
+
+    private final GlobalMessageService globalMessageService;
+
+    private final FeedService feedService;
+
+    private final FeedSummaryService feedSummaryService;
+
+    private final EventRetentionService eventRetentionService;
+
     @Autowired
-    public EventController(UserRepository userRepository, EventRepository eventRepository) {
+    public EventController(UserRepository userRepository, EventRepository eventRepository,
+                           EventStreamService eventStreamService, GlobalMessageService globalMessageService,
+                           FeedService feedService, FeedSummaryService feedSummaryService,
+                           EventRetentionService eventRetentionService) {
         this.userRepository = userRepository;
         this.eventRepository = eventRepository;
+        this.eventStreamService = eventStreamService;
+        this.globalMessageService = globalMessageService;
+        this.feedService = feedService;
+        this.feedSummaryService = feedSummaryService;
+        this.eventRetentionService = eventRetentionService;
     }
 
     /**
@@ -105,13 +143,158 @@ public class EventController {
         }
     }
 
+    /**
+     * Gets a single page of the events associated with a user, ordered from newest to oldest. Pages are addressed by
+     * an opaque cursor rather than a page number, so fetching a page costs the same regardless of how many events the
+     * user has. The first page is returned when no cursor is given, and each page contains the cursor for the next.
+     * For a successful response the client must first be authenticated as the user or as an admin.
+     * @param userId User to get newsfeed events for.
+     * @param cursor Cursor returned with the previous page, or null for the first page.
+     * @param resultsPerPage Number of events per page. Defaults to 15 and is capped at 100.
+     * @return Page of events and the cursor for the next page
+     */
+    @GetMapping("/users/{userId}/feed/page")
+    public EventPageDTO getEventPage(@PathVariable long userId,
+                                     @RequestParam(required = false) String cursor,
+                                     @RequestParam(required = false) Integer resultsPerPage,
+                                     HttpServletRequest request) {
+        try {
+            LOGGER.info("Retrieving page of newsfeed events for user (id={}, cursor={})", userId, cursor);
+            AuthenticationTokenManager.checkAuthenticationToken(request);
+            if (!AuthenticationTokenManager.sessionCanSeePrivate(request, userId)) {
+                throw new InsufficientPermissionResponseException("Cannot retrieve events associated with another user");
+            }
+
+            EventCursor after = cursor != null ? EventCursor.decode(cursor) : null;
+            int pageSize = getFeedPageSize(resultsPerPage);
+
+            User user = userRepository.findById(userId).orElseThrow(() -> new DoesNotExistResponseException(User.class));
+
+            // Fetch one extra event to find out whether there is another page without needing a count query
+            PageRequest limit = PageRequest.of(0, pageSize + 1);
+            List<Event> events;
+            if (after != null) {
+                events = eventRepository.findEventPageForUserAfter(user, after.getCreated(), after.getId(), limit);
+            } else {
+                events = eventRepository.findEventPageForUser(user, limit);
+            }
+
+            EventCursor nextCursor = null;
+            if (events.size() > pageSize) {
+                events = events.subList(0, pageSize);
+                nextCursor = EventCursor.after(events.get(pageSize - 1));
+            }
+            return new EventPageDTO(events.stream().map(Event::asDTO).collect(Collectors.toList()), nextCursor);
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Normalises the requested number of events per newsfeed page. Uses the default when the value is null or less
+     * than one, and caps the value at the maximum page size.
+     * @param resultsPerPage Requested number of events per page or null
+     * @return Number of events to return per page
+     */
+    private int getFeedPageSize(Integer resultsPerPage) {
+        if (resultsPerPage == null || resultsPerPage < 1) {
+            return DEFAULT_FEED_PAGE_SIZE;
+        }
+        return Math.min(resultsPerPage, MAX_FEED_PAGE_SIZE);
+    }
+
+    /**
+     * Opens a server-sent event stream which receives every newsfeed event for the user as soon as it is created or
+     * modified. Each streamed event has its last modified date and its id as its stream id, so a client which
+     * reconnects with the Last-Event-ID header will first be sent every event after the last one it received, including
+     * events modified at the same moment. A client can instead give a date with the modifiedSince parameter on its
+     * first connection, and will first be sent every event modified after that moment. For a successful response the
+     * client must first be authenticated as the user or as an admin.
+     * @param userId User to stream newsfeed events for.
+     * @param lastEventId The id of the last streamed event received by the client, if it is reconnecting
+     * @param modifiedSince Alternative to lastEventId for clients which cannot set request headers
+     * @return Emitter for the opened stream
+     */
+    @GetMapping(value = "/users/{userId}/feed/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@PathVariable long userId,
+                                   @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                   @RequestParam(required = false) String modifiedSince,
+                                   HttpServletRequest request) {
+        try {
+            LOGGER.info("Opening newsfeed event stream for user (id={}, lastEventId={})", userId, lastEventId);
+            AuthenticationTokenManager.checkAuthenticationToken(request);
+            if (!AuthenticationTokenManager.sessionCanSeePrivate(request, userId)) {
+                throw new InsufficientPermissionResponseException("Cannot stream events associated with another user");
+            }
+
+            String resumeFrom = lastEventId != null ? lastEventId : modifiedSince;
+            StreamPosition position = resumeFrom != null ? StreamPosition.parse(resumeFrom) : null;
+
+            User user = userRepository.findById(userId).orElseThrow(() -> new DoesNotExistResponseException(User.class));
+
+            if (position == null) {
+                return eventStreamService.subscribe(userId);
+            }
+            // The stream is subscribed before the missed events are read so that nothing modified in between is lost
+            return eventStreamService.subscribe(userId, () -> eventRepository.findEventsForUserModifiedFrom(user, position.lastModified)
+                    .stream()
+                    .filter(position::isBefore)
+                    .map(Event::asDTO)
+                    .collect(Collectors.toList()));
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Position in a newsfeed stream which a client is resuming from. Streamed events are ordered by their last modified
+     * date and then their id.
+     */
+    private static class StreamPosition {
+        private static final Pattern STREAM_EVENT_ID = Pattern.compile("(.+):(\\d+)");
+
+        private final Instant lastModified;
+        private final Long id;
+
+        private StreamPosition(Instant lastModified, Long id) {
+            this.lastModified = lastModified;
+            this.id = id;
+        }
+
+        /**
+         * Parses the id of the last streamed event the client received, or a date given by the client. When only a date
+         * is given, the client is resumed after every event modified at that moment.
+         * @param resumeFrom Stream event id made of a last modified date and an event id separated by a colon, or a date
+         * @return Position the client is resuming from
+         */
+        private static StreamPosition parse(String resumeFrom) {
+            Matcher matcher = STREAM_EVENT_ID.matcher(resumeFrom);
+            if (matcher.matches()) {
+                return new StreamPosition(convertModifiedSinceStringToInstant(matcher.group(1)), Long.parseLong(matcher.group(2)));
+            }
+            return new StreamPosition(convertModifiedSinceStringToInstant(resumeFrom), null);
+        }
+
+        /**
+         * Checks whether an event comes after this position in the stream, and so has not been received by the client
+         * @param event Event to check
+         * @return True if the event should be sent to the client
+         */
+        private boolean isBefore(Event event) {
+            int compare = event.getLastModified().compareTo(lastModified);
+            return compare > 0 || (compare == 0 && id != null && event.getId() > id);
+        }
+    }
+
     /**
      * Convert the string representation of the modifiedSince date to filter events by to an instant if it is in a valid
      * format. Throw a response status exception if it is not in a valid format.
      * @param modifiedSince A string to be converted to an instant.
      * @return An instant derived from the modifiedSince string.
      */
-    private Instant convertModifiedSinceStringToInstant(String modifiedSince) {
+    private static Instant convertModifiedSinceStringToInstant(String modifiedSince) {
         try {
             return Instant.parse(modifiedSince);
         } catch (DateTimeParseException e) {
@@ -132,11 +315,14 @@ public class EventController {
 
     /**
      * Posts a message to all users of the application.
+     * The messages are sent by a background job, so this responds with 202 as soon as the job has been queued.
+     * The progress of the job can be polled with GET /events/globalmessage/{jobId}.
      * This endpoint is only available to admin accounts
      * @param messageInfo Object containing message to send
+     * @return The queued job
      */
     @PostMapping("/events/globalmessage")
-    public void postDemoEvent(@RequestBody @Valid SendGlobalMessageRequestDTO messageInfo, HttpServletRequest request, HttpServletResponse response) {
+    public GlobalMessageJobDTO postDemoEvent(@RequestBody @Valid SendGlobalMessageRequestDTO messageInfo, HttpServletRequest request, HttpServletResponse response) {
         LOGGER.info("Posting a message to all users");
 
         try {
@@ -145,10 +331,57 @@ public class EventController {
                 throw new InsufficientPermissionResponseException("Insufficient permissions to send global message");
             }
 
-            userRepository.findAll()
-                    .forEach(user -> eventRepository.save(new GlobalMessageEvent(user, messageInfo.getMessage())));
+            var job = globalMessageService.startJob(messageInfo.getMessage());
+
+            response.setStatus(202);
+            return new GlobalMessageJobDTO(job);
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the progress of a job started by POST /events/globalmessage.
+     * This endpoint is only available to admin accounts
+     * @param jobId ID of the job
+     * @return Current progress of the job
+     */
+    @GetMapping("/events/globalmessage/{jobId}")
+    public GlobalMessageJobDTO getGlobalMessageJob(@PathVariable long jobId, HttpServletRequest request) {
+        LOGGER.info("Retrieving progress of global message job (jobId={})", jobId);
+
+        try {
+            AuthenticationTokenManager.checkAuthenticationToken(request);
+            if (!AuthenticationTokenManager.sessionIsAdmin(request)) {
+                throw new InsufficientPermissionResponseException("Insufficient permissions to view global message jobs");
+            }
+
+            var job = globalMessageService.getJob(jobId)
+                    .orElseThrow(() -> new DoesNotExistResponseException(GlobalMessageService.GlobalMessageJob.class));
+            return new GlobalMessageJobDTO(job);
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage());
+            throw e;
+        }
+    }
 
-            response.setStatus(201);
+    /**
+     * Gets the retention rules and metrics of the job which archives old events: the number of runs and events
+     * archived since the application started, and how many events the last run archived and how long it took.
+     * This endpoint is only available to admin accounts
+     * @return Retention rules and metrics
+     */
+    @GetMapping("/events/retention")
+    public EventRetentionStatsDTO getEventRetentionStats(HttpServletRequest request) {
+        LOGGER.info("Retrieving event retention metrics");
+
+        try {
+            AuthenticationTokenManager.checkAuthenticationToken(request);
+            if (!AuthenticationTokenManager.sessionIsAdmin(request)) {
+                throw new InsufficientPermissionResponseException("Insufficient permissions to view event retention metrics");
+            }
+            return new EventRetentionStatsDTO(eventRetentionService);
         } catch (Exception e) {
             LOGGER.error(e.getMessage());
             throw e;
@@ -232,4 +465,120 @@ public class EventController {
             throw e;
         }
     }
+
+    /**
+     * PUT endpoint for marking many events on a user's feed as read with a single update. The events are selected by
+     * the optional filter in the request body, and every event on the feed is marked as read if there is no body.
+     * For a successful response the client must first be authenticated as the user or as an admin.
+     * @param userId User whose feed to change
+     * @param body Filter selecting the events to mark as read
+     * @return Number of events marked as read
+     */
+    @PutMapping("/users/{userId}/feed/read")
+    public BulkEventResultDTO markEventsAsRead(@PathVariable long userId, @RequestBody(required = false) EventFilterDTO body, HttpServletRequest request) {
+        LOGGER.info("Requested bulk update of events to be marked as read (userId={}, filter={})", userId, body);
+        try {
+            User user = getFeedOwner(userId, request, "Current user does not have permission to mark these events as read");
+            return new BulkEventResultDTO(feedService.markAsRead(user, body != null ? body : new EventFilterDTO()));
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * PUT endpoint for setting the tag of many events on a user's feed with a single update
+     * @param userId User whose feed to change
+     * @param body New tag, and the filter selecting the events to change
+     * @return Number of events changed
+     */
+    @PutMapping("/users/{userId}/feed/tag")
+    public BulkEventResultDTO setEventTags(@PathVariable long userId, @Valid @RequestBody BulkEventUpdateDTO<EventTag> body, HttpServletRequest request) {
+        LOGGER.info("Requested bulk update of event tags (userId={}, update={})", userId, body);
+        try {
+            User user = getFeedOwner(userId, request, "Current user does not have permission to modify these events");
+            return new BulkEventResultDTO(feedService.setTag(user, body, body.getValue()));
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * PUT endpoint for changing the status of many events on a user's feed with a single update. The status of an
+     * archived event cannot be changed, so archived events are left unchanged.
+     * @param userId User whose feed to change
+     * @param body New status, and the filter selecting the events to change
+     * @return Number of events changed
+     */
+    @PutMapping("/users/{userId}/feed/status")
+    public BulkEventResultDTO updateEventStatuses(@PathVariable long userId, @Valid @RequestBody BulkEventUpdateDTO<EventStatus> body, HttpServletRequest request) {
+        LOGGER.info("Requested bulk update of event statuses (userId={}, update={})", userId, body);
+        try {
+            User user = getFeedOwner(userId, request, "Current user does not have permission to modify these events");
+            return new BulkEventResultDTO(feedService.setStatus(user, body, body.getValue()));
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes many events from a user's feed with a single delete. The events are selected by the filter in the
+     * request body, and an empty filter deletes every event on the feed.
+     * @param userId User whose feed to change
+     * @param body Filter selecting the events to delete
+     * @return Number of events deleted
+     */
+    @DeleteMapping("/users/{userId}/feed")
+    public BulkEventResultDTO deleteEvents(@PathVariable long userId, @RequestBody EventFilterDTO body, HttpServletRequest request) {
+        LOGGER.info("Request to bulk delete events from feed (userId={}, filter={})", userId, body);
+        try {
+            User user = getFeedOwner(userId, request, "Current user does not have permission to delete these events");
+            return new BulkEventResultDTO(feedService.delete(user, body));
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * GET endpoint for the counts of the events on a user's feed: in total, unread, per tag and per status. The counts
+     * are kept up to date in memory, so this does not count the user's events on every request.
+     * For a successful response the client must first be authenticated as the user or as an admin.
+     * @param userId User to get the feed summary of
+     * @return Counts of the events on the user's feed
+     */
+    @GetMapping("/users/{userId}/feed/summary")
+    public FeedSummaryDTO getFeedSummary(@PathVariable long userId, HttpServletRequest request) {
+        LOGGER.info("Retrieving newsfeed summary for user (id={})", userId);
+        try {
+            AuthenticationTokenManager.checkAuthenticationToken(request);
+            if (!AuthenticationTokenManager.sessionCanSeePrivate(request, userId)) {
+                throw new InsufficientPermissionResponseException("Cannot retrieve the feed summary of another user");
+            }
+            if (!userRepository.existsById(userId)) {
+                throw new DoesNotExistResponseException(User.class);
+            }
+            return feedSummaryService.getSummary(userId);
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Checks that the request is authenticated as the given user or as an admin, then gets the user
+     * @param userId ID of the user whose feed is being changed
+     * @param request The HTTP request
+     * @param permissionMessage Message for the exception thrown if the request does not have permission
+     * @return The user whose feed is being changed
+     */
+    private User getFeedOwner(long userId, HttpServletRequest request, String permissionMessage) {
+        AuthenticationTokenManager.checkAuthenticationToken(request);
+        if (!AuthenticationTokenManager.sessionCanSeePrivate(request, userId)) {
+            throw new InsufficientPermissionResponseException(permissionMessage);
+        }
+        return userRepository.findById(userId).orElseThrow(() -> new DoesNotExistResponseException(User.class));
+    }
 }
@@ -13,11 +13,12 @@ import org.seng302.leftovers.exceptions.ValidationResponseException;
 import org.seng302.leftovers.persistence.BusinessRepository;
 import org.seng302.leftovers.persistence.InventoryItemRepository;
 import org.seng302.leftovers.persistence.ProductRepository;
+import org.seng302.leftovers.service.search.ResultCountCache;
 import org.seng302.leftovers.service.search.SearchPageConstructor;
 import org.seng302.leftovers.service.search.SearchSpecConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.web.bind.annotation.*;
@@ -32,6 +33,7 @@ public class InventoryController {
     private final BusinessRepository businessRepository;
     private final InventoryItemRepository inventoryItemRepository;
     private final ProductRepository productRepository;
+    private final ResultCountCache resultCountCache;
     private static final Logger logger = LogManager.getLogger(InventoryController.class.getName());
 
     private static final Set<String> VALID_ORDERINGS = Set.of("productCode", "name", "description", "manufacturer", "recommendedRetailPrice", "created", "quantity", "pricePerItem", "totalPrice", "manufactured", "sellBy", "bestBefore", "expires");
@@ -39,10 +41,11 @@ public class InventoryController {
 
     @Autowired
     public InventoryController(BusinessRepository businessRepository, InventoryItemRepository inventoryItemRepository,
-            ProductRepository productRepository) {
+            ProductRepository productRepository, ResultCountCache resultCountCache) {
         this.businessRepository = businessRepository;
         this.inventoryItemRepository = inventoryItemRepository;
         this.productRepository = productRepository;
+        this.resultCountCache = resultCountCache;
     }
 
     /**
@@ -131,6 +134,9 @@ public class InventoryController {
      * @param businessId The id of the business to retrieve the inventory from.
      * @param request    The HTTP request, used to authenticate the user's
      *                   permissions.
+     * @param includeCount Whether to count the total number of inventory items.
+     *                   Defaults to true. If false, the results only say whether
+     *                   there is a next page.
      * @return Array of JSON representations of sorted and paginated items in the 
      * business's inventory.
      */
@@ -140,7 +146,8 @@ public class InventoryController {
                                                                 @RequestParam(required = false) String orderBy,
                                                                 @RequestParam(required = false) Integer page,
                                                                 @RequestParam(required = false) Integer resultsPerPage,
-                                                                @RequestParam(required = false) Boolean reverse) {
+                                                                @RequestParam(required = false) Boolean reverse,
+                                                                @RequestParam(required = false) Boolean includeCount) {
         try {
             logger.info("Getting inventory item for business (businessId={}).", businessId);
             Business business = businessRepository.getBusinessById(businessId);
@@ -152,7 +159,8 @@ public class InventoryController {
         PageRequest pageRequest = SearchPageConstructor.getPageRequest(page, resultsPerPage, Sort.by(sortOrder));
 
         Specification<InventoryItem> specification = SearchSpecConstructor.constructSpecificationFromInventoryItemsFilter(business);
-        Page<InventoryItem> result = inventoryItemRepository.findAll(specification, pageRequest);
+        Slice<InventoryItem> result = resultCountCache.findPage(inventoryItemRepository, specification, pageRequest,
+                !Boolean.FALSE.equals(includeCount), business.getId());
 
             return new ResultPageDTO<>(result.map(InventoryItemResponseDTO::new));
 
@@ -18,14 +18,17 @@ import org.seng302.leftovers.persistence.KeywordRepository;
 import org.seng302.leftovers.persistence.UserRepository;
 import org.seng302.leftovers.persistence.event.CreateKeywordEventRepository;
 import org.seng302.leftovers.service.KeywordService;
+import org.seng302.leftovers.service.search.KeywordPrefixIndex;
 import org.seng302.leftovers.service.search.SearchSpecConstructor;
 import org.seng302.leftovers.tools.AuthenticationTokenManager;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import javax.validation.Valid;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -38,13 +41,16 @@ public class KeywordController {
     private final CreateKeywordEventRepository createKeywordEventRepository;
     private final KeywordService keywordService;
     private final UserRepository userRepository;
+    private final KeywordPrefixIndex keywordPrefixIndex;
 
     public KeywordController(KeywordRepository keywordRepository, KeywordService keywordService,
-                             CreateKeywordEventRepository createKeywordEventRepository, UserRepository userRepository) {
+                             CreateKeywordEventRepository createKeywordEventRepository, UserRepository userRepository,
+                             KeywordPrefixIndex keywordPrefixIndex) {
         this.keywordRepository = keywordRepository;
         this.createKeywordEventRepository = createKeywordEventRepository;
         this.keywordService = keywordService;
         this.userRepository = userRepository;
+        this.keywordPrefixIndex = keywordPrefixIndex;
     }
 
 
@@ -52,35 +58,77 @@ public class KeywordController {
     /**
      * REST GET method to retrieve keywords partially matching a search term by name
      * When the search term is omitted, or left blank, all keywords are returned.
+     * Keywords starting with the search term are returned before keywords which only contain it, so that the results
+     * can be used to autocomplete a keyword as it is typed. Once the KeywordPrefixIndex has been built the keywords
+     * are found from the index instead of the database.
      * @param request the HTTP request
      * @param searchQuery The term to search for
+     * @param limit Maximum number of keywords to return, or null to return every matching keyword
      * @return List of all the keyword entities
      */
     @GetMapping("/keywords/search")
-    public List<KeywordDTO> searchKeywords(HttpServletRequest request, @RequestParam(required = false) String searchQuery) {
-        AuthenticationTokenManager.checkAuthenticationToken(request);
-        logger.info("Searching for keywords with query: {}", searchQuery);
-        if (searchQuery==null || searchQuery.isBlank()) {
-            return getAllKeywords();
+    public List<KeywordDTO> searchKeywords(HttpServletRequest request, @RequestParam(required = false) String searchQuery,
+                                           @RequestParam(required = false) Integer limit) {
+        try {
+            AuthenticationTokenManager.checkAuthenticationToken(request);
+            logger.info("Searching for keywords with query: {}", searchQuery);
+            if (limit != null && limit <= 0) {
+                throw new ValidationResponseException("Limit must be a positive number");
+            }
+            if (searchQuery==null || searchQuery.isBlank()) {
+                return limitTo(keywordPrefixIndex.findAll().orElseGet(this::getAllKeywords), limit);
+            }
+
+            Optional<List<KeywordDTO>> indexedKeywords = keywordPrefixIndex.search(searchQuery, limit);
+            if (indexedKeywords.isPresent()) {
+                return indexedKeywords.get();
+            }
+            var specification = SearchSpecConstructor.constructKeywordSpecificationFromSearchQuery(searchQuery);
+            var keywords = keywordRepository.findAll(specification).stream()
+                    .map(KeywordDTO::new)
+                    .sorted(Comparator.comparing((KeywordDTO keyword) -> !startsWithIgnoreCase(keyword.getName(), searchQuery))
+                            .thenComparing(KeywordPrefixIndex.BY_NAME))
+                    .collect(Collectors.toList());
+            return limitTo(keywords, limit);
+        } catch (Exception e) {
+            logger.error(e.getMessage());
+            throw e;
         }
+    }
 
-        var specification = SearchSpecConstructor.constructKeywordSpecificationFromSearchQuery(searchQuery);
-        var keywords = keywordRepository.findAll(specification);
+    /**
+     * Checks whether a keyword name starts with a search term, ignoring case
+     * @param name Name of the keyword
+     * @param searchQuery Search term
+     * @return True if the name starts with the search term
+     */
+    private static boolean startsWithIgnoreCase(String name, String searchQuery) {
+        return name.regionMatches(true, 0, searchQuery, 0, searchQuery.length());
+    }
 
-        return keywords.stream().map(KeywordDTO::new).collect(Collectors.toList());
+    /**
+     * Returns at most the given number of keywords from the start of a list
+     * @param keywords Keywords to limit
+     * @param limit Maximum number of keywords, or null to return every keyword
+     * @return The first keywords in the list
+     */
+    private static List<KeywordDTO> limitTo(List<KeywordDTO> keywords, Integer limit) {
+        if (limit == null || keywords.size() <= limit) {
+            return keywords;
+        }
+        return keywords.subList(0, limit);
     }
 
     /**
-     * Returns a Array containing all of the keywords in the system
+     * Returns a Array containing all of the keywords in the system, in the same order as the KeywordPrefixIndex.
+     * The keywords are sorted again after they are loaded, as the database orders names by its own collation.
      * @return Array of all keywords currently in the system as DTOs
      */
     private List<KeywordDTO> getAllKeywords() {
-        try {
-            return keywordRepository.findByOrderByNameAsc().stream().map(KeywordDTO::new).collect(Collectors.toList());
-        } catch (Exception e) {
-            logger.error(e.getMessage());
-            throw e;
-        }
+        return keywordRepository.findByOrderByNameAsc().stream()
+                .map(KeywordDTO::new)
+                .sorted(KeywordPrefixIndex.BY_NAME)
+                .collect(Collectors.toList());
     }
 
     /**
@@ -129,6 +177,7 @@ public class KeywordController {
      * @return CreateKeywordResponseDTO with the created keyword id
      */
     @PostMapping("/keywords")
+    @Transactional
     public CreateKeywordResponseDTO addKeyword(HttpServletRequest request, HttpServletResponse response, @RequestBody @Valid CreateKeywordDTO keywordInfo) {
         try {
             String name = keywordInfo.getName();
@@ -143,7 +192,7 @@ public class KeywordController {
 
             User creator = findUserFromRequest(request);
             keyword = keywordRepository.save(keyword);
-            keywordService.sendNewKeywordEvent(keyword, creator);
+            keywordService.queueNewKeywordEvent(keyword, creator);
 
             response.setStatus(201);
             return new CreateKeywordResponseDTO(keyword.getID());
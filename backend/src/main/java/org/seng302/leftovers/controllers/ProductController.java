@@ -17,12 +17,16 @@ import org.seng302.leftovers.persistence.BusinessRepository;
 import org.seng302.leftovers.persistence.ImageRepository;
 import org.seng302.leftovers.persistence.ProductRepository;
 import org.seng302.leftovers.service.ImageService;
+import org.seng302.leftovers.service.search.ResultCountCache;
+import org.seng302.leftovers.service.search.SaleListingResultCache;
 import org.seng302.leftovers.service.search.SearchPageConstructor;
+import org.seng302.leftovers.service.search.SearchPlanCache;
 import org.seng302.leftovers.service.search.SearchSpecConstructor;
 import org.seng302.leftovers.tools.AuthenticationTokenManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
@@ -49,13 +53,21 @@ public class ProductController {
     private final BusinessRepository businessRepository;
     private final ImageService imageService;
     private final ImageRepository imageRepository;
+    private final ResultCountCache resultCountCache;
+    private final SaleListingResultCache saleListingResultCache;
+    private final SearchPlanCache searchPlanCache;
     private static final Logger logger = LogManager.getLogger(ProductController.class.getName());
     @Autowired
-    public ProductController(ProductRepository productRepository, BusinessRepository businessRepository, ImageService imageService, ImageRepository imageRepository) {
+    public ProductController(ProductRepository productRepository, BusinessRepository businessRepository, ImageService imageService,
+                             ImageRepository imageRepository, ResultCountCache resultCountCache,
+                             SaleListingResultCache saleListingResultCache, SearchPlanCache searchPlanCache) {
         this.productRepository = productRepository;
         this.businessRepository = businessRepository;
         this.imageService = imageService;
         this.imageRepository = imageRepository;
+        this.resultCountCache = resultCountCache;
+        this.saleListingResultCache = saleListingResultCache;
+        this.searchPlanCache = searchPlanCache;
     }
 
     private static final Set<String> VALID_ORDERINGS = Set.of("name", "description", "manufacturer","recommendedRetailPrice", "created", "productCode");
@@ -97,6 +109,8 @@ public class ProductController {
      * @param searchBy field of product to search
      * @param reverse most or least relevant
      * @param orderBy field to sort results by
+     * @param includeCount whether to count the total number of products. Defaults to true. If false, the results only
+     *                     say whether there is a next page
      * @return List of products
      */
     @GetMapping("/businesses/{id}/products/search")
@@ -107,7 +121,8 @@ public class ProductController {
                                                                      @RequestParam(required = false) Integer resultsPerPage,
                                                                      @RequestParam(required = false) List<String> searchBy,
                                                                      @RequestParam(required = false) Boolean reverse,
-                                                                     @RequestParam(required = false) String orderBy
+                                                                     @RequestParam(required = false) String orderBy,
+                                                                     @RequestParam(required = false) Boolean includeCount
                                               ) {
         logger.info("Get catalogue by business id.");
         AuthenticationTokenManager.checkAuthenticationToken(request);
@@ -128,9 +143,10 @@ public class ProductController {
         business.checkSessionPermissions(request);
         List<Sort.Order> sortOrder = getSortOrder(orderBy, reverse);
         PageRequest pageablePage = SearchPageConstructor.getPageRequest(page, resultsPerPage, Sort.by(sortOrder));
-        Specification<Product> prodSpec = SearchSpecConstructor.constructSpecificationFromProductSearch(business, searchQuery, searchSet);
+        Specification<Product> prodSpec = SearchSpecConstructor.constructSpecificationFromProductSearch(business, searchQuery, searchSet, searchPlanCache);
 
-        Page<Product> catalogue = productRepository.findAll(prodSpec, pageablePage);
+        Slice<Product> catalogue = resultCountCache.findPage(productRepository, prodSpec, pageablePage,
+                !Boolean.FALSE.equals(includeCount), business.getId(), searchQuery, searchSet);
         return new ResultPageDTO<>(catalogue.map(ProductResponseDTO::new));
     }
 
@@ -256,6 +272,8 @@ public class ProductController {
 
         product.removeImage(image);
         productRepository.save(product);
+        // Only the images collection changed, which does not notify the entity listeners of the product
+        saleListingResultCache.invalidate();
     }
 
     /**
@@ -282,6 +300,8 @@ public class ProductController {
 
             product.addImage(image);
             productRepository.save(product);
+            // Only the images collection changed, which does not notify the entity listeners of the product
+            saleListingResultCache.invalidate();
 
             return new ResponseEntity<>(HttpStatus.CREATED);
         } catch (Exception e) {
@@ -320,6 +340,8 @@ public class ProductController {
         images.add(0, image); // append to the start of the list
         product.setImages(images); // apply the changes
         productRepository.save(product);
+        // Only the images collection changed, which does not notify the entity listeners of the product
+        saleListingResultCache.invalidate();
         logger.info(() -> String.format("Set Image %d of product \"%s\" as the primary image", image.getID(), product.getName()));
     }
 }
@@ -0,0 +1,76 @@
+package org.seng302.leftovers.controllers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.leftovers.dto.stats.QueryStatsDTO;
+import org.seng302.leftovers.exceptions.InsufficientPermissionResponseException;
+import org.seng302.leftovers.service.QueryStatsService;
+import org.seng302.leftovers.tools.AuthenticationTokenManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Controller exposing the latencies of endpoints, repository methods and searches to admins
+ */
+@RestController
+public class QueryStatsController {
+    private static final Logger logger = LogManager.getLogger(QueryStatsController.class);
+
+    private final QueryStatsService queryStatsService;
+
+    @Autowired
+    public QueryStatsController(QueryStatsService queryStatsService) {
+        this.queryStatsService = queryStatsService;
+    }
+
+    /**
+     * REST GET method to retrieve the percentile latencies of every endpoint, repository method and type of
+     * specification, the most frequently prepared SQL statements and the metrics of the search caches.
+     * This endpoint is only accessible to system admins
+     * @param request The HTTP request
+     * @return The query statistics
+     */
+    @GetMapping("/admin/query-stats")
+    public QueryStatsDTO getQueryStats(HttpServletRequest request) {
+        try {
+            logger.info("Getting query statistics");
+            checkIsAdmin(request);
+            return queryStatsService.getStats();
+        } catch (Exception e) {
+            logger.error(e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * REST DELETE method to reset the query statistics, for example before measuring the effect of a change.
+     * This endpoint is only accessible to system admins
+     * @param request The HTTP request
+     */
+    @DeleteMapping("/admin/query-stats")
+    public void resetQueryStats(HttpServletRequest request) {
+        try {
+            logger.info("Resetting query statistics");
+            checkIsAdmin(request);
+            queryStatsService.clear();
+        } catch (Exception e) {
+            logger.error(e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Checks that the request is from a logged in system admin
+     * @param request The HTTP request
+     */
+    private void checkIsAdmin(HttpServletRequest request) {
+        AuthenticationTokenManager.checkAuthenticationToken(request);
+        if (!AuthenticationTokenManager.sessionIsAdmin(request)) {
+            throw new InsufficientPermissionResponseException("Only admin users can access query statistics");
+        }
+    }
+}
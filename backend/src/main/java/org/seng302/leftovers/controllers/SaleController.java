@@ -1,5 +1,6 @@
 package org.seng302.leftovers.controllers;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -11,23 +12,35 @@ import org.seng302.leftovers.dto.ResultPageDTO;
 import org.seng302.leftovers.dto.saleitem.*;
 import org.seng302.leftovers.entities.*;
 import org.seng302.leftovers.entities.event.InterestEvent;
-import org.seng302.leftovers.entities.event.InterestPurchasedEvent;
-import org.seng302.leftovers.entities.event.PurchasedEvent;
 import org.seng302.leftovers.exceptions.DoesNotExistResponseException;
 import org.seng302.leftovers.exceptions.InsufficientPermissionResponseException;
 import org.seng302.leftovers.exceptions.ValidationResponseException;
 import org.seng302.leftovers.persistence.*;
-import org.seng302.leftovers.persistence.event.EventRepository;
 import org.seng302.leftovers.persistence.event.InterestEventRepository;
 import org.seng302.leftovers.service.ReportService;
+import org.seng302.leftovers.service.SalesExportService;
+import org.seng302.leftovers.service.SalesRollupService;
+import org.seng302.leftovers.service.search.BusinessLocationIndex;
+import org.seng302.leftovers.service.search.ResultCountCache;
+import org.seng302.leftovers.service.search.SaleItemSearchIndex;
+import org.seng302.leftovers.service.search.SaleListingFacetService;
+import org.seng302.leftovers.service.search.SaleListingResultCache;
+import org.seng302.leftovers.service.search.SearchArea;
 import org.seng302.leftovers.service.search.SearchPageConstructor;
+import org.seng302.leftovers.service.search.SearchPlanCache;
 import org.seng302.leftovers.service.search.SearchSpecConstructor;
 import org.seng302.leftovers.tools.AuthenticationTokenManager;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -38,6 +51,8 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 public class SaleController {
@@ -50,8 +65,16 @@ public class SaleController {
     private final InventoryItemRepository inventoryItemRepository;
     private final InterestEventRepository interestEventRepository;
     private final BoughtSaleItemRepository boughtSaleItemRepository;
-    private final EventRepository eventRepository;
+    private final OutboxEntryRepository outboxEntryRepository;
     private final ReportService reportService;
+    private final SalesRollupService salesRollupService;
+    private final SalesExportService salesExportService;
+    private final SaleItemSearchIndex saleItemSearchIndex;
+    private final ResultCountCache resultCountCache;
+    private final SaleListingFacetService saleListingFacetService;
+    private final BusinessLocationIndex businessLocationIndex;
+    private final SaleListingResultCache saleListingResultCache;
+    private final SearchPlanCache searchPlanCache;
     private final ObjectMapper objectMapper;
 
     public SaleController(UserRepository userRepository,
@@ -60,8 +83,16 @@ public class SaleController {
                           InventoryItemRepository inventoryItemRepository,
                           InterestEventRepository interestEventRepository,
                           BoughtSaleItemRepository boughtSaleItemRepository,
-                          EventRepository eventRepository,
+                          OutboxEntryRepository outboxEntryRepository,
                           ReportService reportService,
+                          SalesRollupService salesRollupService,
+                          SalesExportService salesExportService,
+                          SaleItemSearchIndex saleItemSearchIndex,
+                          ResultCountCache resultCountCache,
+                          SaleListingFacetService saleListingFacetService,
+                          BusinessLocationIndex businessLocationIndex,
+                          SaleListingResultCache saleListingResultCache,
+                          SearchPlanCache searchPlanCache,
                           ObjectMapper objectMapper) {
         this.userRepository = userRepository;
         this.businessRepository = businessRepository;
@@ -69,8 +100,16 @@ public class SaleController {
         this.inventoryItemRepository = inventoryItemRepository;
         this.interestEventRepository = interestEventRepository;
         this.boughtSaleItemRepository = boughtSaleItemRepository;
-        this.eventRepository = eventRepository;
+        this.outboxEntryRepository = outboxEntryRepository;
         this.reportService = reportService;
+        this.salesRollupService = salesRollupService;
+        this.salesExportService = salesExportService;
+        this.saleItemSearchIndex = saleItemSearchIndex;
+        this.resultCountCache = resultCountCache;
+        this.saleListingFacetService = saleListingFacetService;
+        this.businessLocationIndex = businessLocationIndex;
+        this.saleListingResultCache = saleListingResultCache;
+        this.searchPlanCache = searchPlanCache;
         this.objectMapper = objectMapper;
     }
 
@@ -126,6 +165,10 @@ public class SaleController {
         if (orderBy.equals("businessLocation")) {
             return List.of(new Sort.Order(direction, "inventoryItem.product.business.address.country"), new Sort.Order(direction, "inventoryItem.product.business.address.city"));
         }
+        if (orderBy.equals("distance")) {
+            // Applied by the distance specification
+            return List.of();
+        }
         return (List.of(getSaleItemOrder(orderBy, direction)));
     }
 
@@ -171,6 +214,8 @@ public class SaleController {
      *
      * @param id      the id of the business
      * @param request the HTTP request
+     * @param includeCount Whether to count the total number of sale items. Defaults to true. If false, the results
+     *                     only say whether there is a next page.
      * @return List of sale items the business is listing
      */
     @GetMapping("/businesses/{id}/listings")
@@ -179,7 +224,8 @@ public class SaleController {
                                                                       @RequestParam(required = false) String orderBy,
                                                                       @RequestParam(required = false) Integer page,
                                                                       @RequestParam(required = false) Integer resultsPerPage,
-                                                                      @RequestParam(required = false) Boolean reverse) {
+                                                                      @RequestParam(required = false) Boolean reverse,
+                                                                      @RequestParam(required = false) Boolean includeCount) {
         try {
             AuthenticationTokenManager.checkAuthenticationToken(request);
             logger.info("Getting sales item for business (businessId={}).", id);
@@ -191,7 +237,8 @@ public class SaleController {
             PageRequest pageRequest = SearchPageConstructor.getPageRequest(page, resultsPerPage, Sort.by(sortOrder));
 
             Specification<SaleItem> specification = SearchSpecConstructor.constructSpecificationFromSaleItemsFilter(business);
-            Page<SaleItem> result = saleItemRepository.findAll(specification, pageRequest);
+            Slice<SaleItem> result = resultCountCache.findPage(saleItemRepository, specification, pageRequest,
+                    !Boolean.FALSE.equals(includeCount), business.getId());
 
             return new ResultPageDTO<>(result.map(SaleItemResponseDTO::new));
 
@@ -204,12 +251,15 @@ public class SaleController {
 
     /**
      * REST GET method to return sale items that match search criteria
-     * Takes SaleListingSearchDTO with all params
+     * Takes SaleListingSearchDTO with all params. If any facets are requested, the number of sale items matching the
+     * search with each value of those facets is also returned. If a search area is given, only sale items sold by
+     * businesses in the area are returned, which are found with the BusinessLocationIndex when it can answer the search.
+     * Result pages are cached by the SaleListingResultCache until a sale listing changes.
      * @return JSON page of sale items
      */
     @GetMapping("/businesses/listings/search")
-    public ResultPageDTO<SaleItemResponseDTO> searchSaleItems(HttpServletRequest request,
-                                                              SaleListingSearchExternalDTO saleSearchDTO) {
+    public SaleListingSearchResultDTO searchSaleItems(HttpServletRequest request,
+                                                      SaleListingSearchExternalDTO saleSearchDTO) {
         try {
             // Check auth
             logger.info("Get sale items to match parameters.");
@@ -221,11 +271,51 @@ public class SaleController {
 
             // Create page
             PageRequest pageablePage = SearchPageConstructor.getPageRequest(saleSearchDTO.getPage(), saleSearchDTO.getResultsPerPage(), Sort.by(sortOrder));
-            Specification<SaleItem> specification = SearchSpecConstructor.constructSaleListingSpecificationForSearch(
-                    new SaleListingSearchDTO(saleSearchDTO));
-            Page<SaleItem> result = saleItemRepository.findAll(specification, pageablePage);
 
-            return new ResultPageDTO<>(result.map(SaleItemResponseDTO::new));
+            SearchArea area = SearchArea.fromParameters(saleSearchDTO.getLatitude(), saleSearchDTO.getLongitude(),
+                    saleSearchDTO.getRadius(), saleSearchDTO.getNorth(), saleSearchDTO.getSouth(),
+                    saleSearchDTO.getEast(), saleSearchDTO.getWest());
+            boolean orderByDistance = "distance".equals(saleSearchDTO.getOrderBy());
+            if (orderByDistance && (area == null || !area.hasCentre())) {
+                throw new ValidationResponseException("Ordering by distance requires a latitude and longitude");
+            }
+
+            Set<SaleListingFacet> facetOptions;
+            try {
+                facetOptions = objectMapper.convertValue(Optional.ofNullable(saleSearchDTO.getFacets()).orElse(List.of()),
+                        new TypeReference<>() {});
+            } catch (IllegalArgumentException e) {
+                throw new ValidationResponseException("Invalid facet provided");
+            }
+
+            SaleListingSearchDTO searchDTO = new SaleListingSearchDTO(saleSearchDTO);
+            boolean countTotal = !Boolean.FALSE.equals(saleSearchDTO.getIncludeCount());
+            return saleListingResultCache.get(searchDTO, area, pageablePage, orderByDistance ? direction : null,
+                    facetOptions, countTotal, () -> {
+                // Resolve the search queries with the search index when it can answer them, so the database only
+                // filters and pages the matching sale items
+                Specification<SaleItem> specification = saleItemSearchIndex.findMatchingIds(searchDTO)
+                        .map(matchingIds -> SearchSpecConstructor.constructSaleListingSpecificationForSearch(searchDTO, matchingIds))
+                        .orElseGet(() -> SearchSpecConstructor.constructSaleListingSpecificationForSearch(searchDTO, searchPlanCache));
+                if (area != null) {
+                    specification = specification.and(businessLocationIndex.findBusinessIds(area)
+                            .map(businessIds -> SearchSpecConstructor.<SaleItem>constructSpecificationFromBusinessIds(
+                                    SearchSpecConstructor.SALE_ITEM_BUSINESS_PATH, businessIds))
+                            .orElseGet(() -> SearchSpecConstructor.constructSpecificationFromArea(
+                                    SearchSpecConstructor.SALE_ITEM_BUSINESS_PATH, area)));
+                }
+                if (orderByDistance) {
+                    specification = specification.and(SearchSpecConstructor.constructSpecificationOrderedByDistance(
+                            SearchSpecConstructor.SALE_ITEM_BUSINESS_PATH, area, direction));
+                }
+                Slice<SaleItem> result = resultCountCache.findPage(saleItemRepository, specification, pageablePage,
+                        countTotal, searchDTO, area);
+
+                // Facets are counted over every matching sale item, with the same specification as the page
+                SaleListingFacetsDTO facets = saleListingFacetService.countFacets(specification, facetOptions);
+
+                return new SaleListingSearchResultDTO(result.map(SaleItemResponseDTO::new), facets);
+            });
         } catch (Exception error) {
             logger.error(error.getMessage());
             throw error;
@@ -270,6 +360,8 @@ public class SaleController {
             interestEventRepository.save(interestEvent);
 
             saleItemRepository.save(saleItem);
+            // Only the interested users collection changed, which does not notify the entity listeners of the sale item
+            saleListingResultCache.invalidate();
         } catch (Exception e) {
             logger.error(e.getMessage());
             throw e;
@@ -301,6 +393,7 @@ public class SaleController {
      * @param body The body of the request, used for getting the purchaser ID.
      */
     @PostMapping("listings/{id}/purchase")
+    @Transactional
     public void purchaseSaleItem(@PathVariable long id,
                                  HttpServletRequest request,
                                  @Valid @RequestBody PurchaseSaleItemDTO body) {
@@ -318,15 +411,16 @@ public class SaleController {
 
             var boughtSaleItem = new BoughtSaleItem(saleItem, purchaser);
             boughtSaleItemRepository.save(boughtSaleItem);
+            salesRollupService.recordSale(boughtSaleItem);
+
+            // Notifications are sent by the OutboxService. The interested users are recorded now since the sale
+            // item is about to be deleted. Does not notify the purchaser that they were interested in the sale item
+            List<Long> interestedUserIds = saleItem.getInterestedUsers().stream()
+                    .filter(user -> user != purchaser)
+                    .map(User::getUserID)
+                    .collect(Collectors.toList());
+            outboxEntryRepository.save(OutboxEntry.purchase(boughtSaleItem, interestedUserIds));
 
-            InterestPurchasedEvent interestPurchasedEvent;
-            for (User user : saleItem.getInterestedUsers()) {
-                // Does not create this event for the purchaser only
-                if (user != purchaser) {
-                    interestPurchasedEvent = new InterestPurchasedEvent(user, boughtSaleItem);
-                    eventRepository.save(interestPurchasedEvent);
-                }
-            }
             saleItemRepository.delete(saleItem);
 
             var inventoryItem = saleItem.getInventoryItem();
@@ -337,9 +431,6 @@ public class SaleController {
                 inventoryItemRepository.save(inventoryItem);
             }
 
-            PurchasedEvent purchasedEvent = new PurchasedEvent(purchaser, boughtSaleItem);
-            eventRepository.save(purchasedEvent);
-
             logger.info("Sale item (id={}) has been purchased for user (id={})", saleItem.getId(), purchaser.getUserID());
         } catch (Exception e) {
             logger.error(e.getMessage());
@@ -450,14 +541,103 @@ public class SaleController {
                 throw new ValidationResponseException("Invalid arguments");
             }
 
-            LocalDate startDate = requestParams.getStartDate()
-                    .orElse(LocalDateTime.ofInstant(business.getCreated(), Clock.systemDefaultZone().getZone()).toLocalDate());
-            LocalDate endDate = requestParams.getEndDate()
-                    .orElse(LocalDate.now());
+            var range = getReportRange(business, requestParams.getStartDate(), requestParams.getEndDate());
+
+            return reportService.generateReport(business, range.start, range.end, requestParams.getGranularity());
+        } catch (Exception error) {
+            logger.error(error.getMessage());
+            throw error;
+        }
+    }
+
+    /**
+     * Gets the dates a report or export of a business's sales covers
+     * @param business The business the report is for
+     * @param startDate The start date of the report. If empty, is the creation date of the business
+     * @param endDate The end date of the report. If empty, is the current date
+     * @return The range of dates covered
+     */
+    private ReportService.DateRange getReportRange(Business business, Optional<LocalDate> startDate, Optional<LocalDate> endDate) {
+        LocalDate start = startDate
+                .orElse(LocalDateTime.ofInstant(business.getCreated(), Clock.systemDefaultZone().getZone()).toLocalDate());
+        LocalDate end = endDate.orElse(LocalDate.now());
+
+        if (start.isAfter(end)) throw new ValidationResponseException("The end date cannot be before the start date");
+        return new ReportService.DateRange(start, end);
+    }
+
+    /**
+     * Object representing the parameters passed to GET /businesses/:id/reports/export before type conversion
+     */
+    @Getter
+    @Setter
+    @ToString
+    private static class SalesExportRequestParamsExternal {
+        /**
+         * The start date of the export. If null, is the creation of the business
+         */
+        private String startDate;
+
+        /**
+         * The end date of the export. If null, is the current date
+         */
+        private String endDate;
 
-           if (startDate.isAfter(endDate)) throw new ValidationResponseException("The end date cannot be before the start date");
+        /**
+         * A string representing the file format
+         */
+        private String format = "csv";
+    }
 
-           return  reportService.generateReport(business, startDate, endDate, requestParams.getGranularity());
+    /**
+     * Object representing the parameters passed to GET /businesses/:id/reports/export after type conversion
+     */
+    @Getter
+    @ToString
+    private static class SalesExportRequestParams {
+        private Optional<LocalDate> startDate;
+        private Optional<LocalDate> endDate;
+        private SalesExportFormat format;
+    }
+
+    /**
+     * Exports every sale item a business sold within a given date range as a CSV or NDJSON file. The export is
+     * streamed to the response as the sale items are read, so it can cover any number of sale items.
+     *
+     * @param businessId ID of the business to export the sales of
+     * @param requestParamsExternal Collection of parameters for the export
+     * @return Response which writes the export
+     */
+    @GetMapping("/businesses/{id}/reports/export")
+    public ResponseEntity<StreamingResponseBody> exportSalesForBusiness(
+            HttpServletRequest request,
+            @PathVariable("id") Long businessId,
+            SalesExportRequestParamsExternal requestParamsExternal) {
+        AuthenticationTokenManager.checkAuthenticationToken(request);
+        try {
+            logger.info("Exporting sales for business with id {}", businessId);
+            Business business = businessRepository.getBusinessById(businessId);
+
+            business.checkSessionPermissions(request);
+
+            SalesExportRequestParams requestParams;
+            try {
+                requestParams = objectMapper.convertValue(requestParamsExternal, SalesExportRequestParams.class);
+            } catch (IllegalArgumentException e) {
+                throw new ValidationResponseException("Invalid arguments");
+            }
+            if (requestParams.getFormat() == null) throw new ValidationResponseException("Invalid arguments");
+
+            var range = getReportRange(business, requestParams.getStartDate(), requestParams.getEndDate());
+            var format = requestParams.getFormat();
+            String fileName = String.format("sales-%d-%s-%s.%s", businessId, range.start, range.end, format.getFileExtension());
+
+            StreamingResponseBody body = outputStream -> salesExportService.exportSales(businessId,
+                    range.startInstant(), range.endInstant(), format, outputStream);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(format.getContentType()))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                    .body(body);
         } catch (Exception error) {
             logger.error(error.getMessage());
             throw error;
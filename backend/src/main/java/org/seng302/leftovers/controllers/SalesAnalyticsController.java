@@ -0,0 +1,132 @@
+package org.seng302.leftovers.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.leftovers.dto.analytics.SalesAnalyticsDTO;
+import org.seng302.leftovers.dto.analytics.SalesAnalyticsDimension;
+import org.seng302.leftovers.dto.analytics.SalesAnalyticsMetric;
+import org.seng302.leftovers.exceptions.InsufficientPermissionResponseException;
+import org.seng302.leftovers.exceptions.ValidationResponseException;
+import org.seng302.leftovers.service.analytics.SalesAnalyticsService;
+import org.seng302.leftovers.tools.AuthenticationTokenManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Controller exposing the sales of every business, grouped by product, business type or region, to admins
+ */
+@RestController
+public class SalesAnalyticsController {
+    private static final Logger logger = LogManager.getLogger(SalesAnalyticsController.class);
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final SalesAnalyticsService salesAnalyticsService;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public SalesAnalyticsController(SalesAnalyticsService salesAnalyticsService, ObjectMapper objectMapper) {
+        this.salesAnalyticsService = salesAnalyticsService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Object representing the parameters passed to GET /admin/analytics/sales before type conversion
+     */
+    @Getter
+    @Setter
+    @ToString
+    private static class SalesAnalyticsRequestParamsExternal {
+        /**
+         * The first date of sales to include. If null, sales are included from the first sale
+         */
+        private String startDate;
+
+        /**
+         * The last date of sales to include. If null, sales are included up to the latest sale
+         */
+        private String endDate;
+
+        /**
+         * A string representing what to group the sales by
+         */
+        private String groupBy = "businessType";
+
+        /**
+         * A string representing the total to rank the groups by
+         */
+        private String orderBy = "revenue";
+
+        /**
+         * The maximum number of groups to return
+         */
+        private String limit = "10";
+    }
+
+    /**
+     * Object representing the parameters passed to GET /admin/analytics/sales after type conversion
+     */
+    @Getter
+    @ToString
+    private static class SalesAnalyticsRequestParams {
+        private Optional<LocalDate> startDate;
+        private Optional<LocalDate> endDate;
+        private SalesAnalyticsDimension groupBy;
+        private SalesAnalyticsMetric orderBy;
+        private Integer limit;
+    }
+
+    /**
+     * REST GET method to group the sales of every business by product, business type or region, and retrieve the
+     * groups with the highest totals. The sales are totalled from a snapshot which is refreshed periodically, so the
+     * most recent sales may not be included yet.
+     * This endpoint is only accessible to system admins
+     * @param request The HTTP request
+     * @param requestParamsExternal Collection of parameters for the analytics
+     * @return The groups with the highest totals
+     */
+    @GetMapping("/admin/analytics/sales")
+    public SalesAnalyticsDTO getSalesAnalytics(HttpServletRequest request,
+                                               SalesAnalyticsRequestParamsExternal requestParamsExternal) {
+        try {
+            logger.info("Getting sales analytics");
+            AuthenticationTokenManager.checkAuthenticationToken(request);
+            if (!AuthenticationTokenManager.sessionIsAdmin(request)) {
+                throw new InsufficientPermissionResponseException("Only admin users can access sales analytics");
+            }
+
+            SalesAnalyticsRequestParams requestParams;
+            try {
+                requestParams = objectMapper.convertValue(requestParamsExternal, SalesAnalyticsRequestParams.class);
+            } catch (IllegalArgumentException e) {
+                throw new ValidationResponseException("Invalid arguments");
+            }
+            if (requestParams.getGroupBy() == null || requestParams.getOrderBy() == null || requestParams.getLimit() == null) {
+                throw new ValidationResponseException("Invalid arguments");
+            }
+            if (requestParams.getLimit() < 1 || requestParams.getLimit() > MAX_LIMIT) {
+                throw new ValidationResponseException("The limit must be between 1 and " + MAX_LIMIT);
+            }
+            LocalDate startDate = requestParams.getStartDate().orElse(null);
+            LocalDate endDate = requestParams.getEndDate().orElse(null);
+            if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+                throw new ValidationResponseException("The end date cannot be before the start date");
+            }
+
+            return salesAnalyticsService.groupSales(requestParams.getGroupBy(), requestParams.getOrderBy(),
+                    requestParams.getLimit(), startDate, endDate);
+        } catch (Exception e) {
+            logger.error(e.getMessage());
+            throw e;
+        }
+    }
+}
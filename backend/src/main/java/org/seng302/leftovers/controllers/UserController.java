@@ -14,14 +14,14 @@ import org.seng302.leftovers.exceptions.DoesNotExistResponseException;
 import org.seng302.leftovers.exceptions.InsufficientPermissionResponseException;
 import org.seng302.leftovers.persistence.ImageRepository;
 import org.seng302.leftovers.persistence.UserRepository;
+import org.seng302.leftovers.service.search.ResultCountCache;
 import org.seng302.leftovers.service.search.SearchPageConstructor;
+import org.seng302.leftovers.service.search.SearchPlanCache;
 import org.seng302.leftovers.service.search.SearchQueryParser;
 import org.seng302.leftovers.service.search.SearchSpecConstructor;
 import org.seng302.leftovers.tools.AuthenticationTokenManager;
 import org.seng302.leftovers.tools.PasswordAuthenticator;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.web.bind.annotation.*;
@@ -37,12 +37,17 @@ public class UserController {
     private static final List<String> USER_ORDER_BY_OPTIONS = List.of("userID", "firstName", "middleName", "lastName", "nickname", "email");
     private final UserRepository userRepository;
     private final ImageRepository imageRepository;
+    private final ResultCountCache resultCountCache;
+    private final SearchPlanCache searchPlanCache;
     private static final Logger logger = LogManager.getLogger(UserController.class.getName());
 
-    public UserController(UserRepository userRepository, ImageRepository imageRepository) {
+    public UserController(UserRepository userRepository, ImageRepository imageRepository, ResultCountCache resultCountCache,
+                          SearchPlanCache searchPlanCache) {
 
         this.userRepository = userRepository;
         this.imageRepository = imageRepository;
+        this.resultCountCache = resultCountCache;
+        this.searchPlanCache = searchPlanCache;
     }
 
     /**
@@ -181,6 +186,8 @@ public class UserController {
      * @param resultsPerPage The number of results that should be in the returned list (defaults to 15).
      * @param orderBy The name of the attribute to order the search results by.
      * @param reverse String representation of boolean indicating whether results should be in reverse order.
+     * @param includeCount Whether to count the total number of matching users. Defaults to true. If false, the results
+     *                     only say whether there is a next page.
      * @return List of matching Users
      */
     @GetMapping("/users/search")
@@ -189,19 +196,22 @@ public class UserController {
                                                             @RequestParam(required = false) Integer page,
                                                             @RequestParam(required = false) Integer resultsPerPage,
                                                             @RequestParam(required = false) String orderBy,
-                                                            @RequestParam(required = false) Boolean reverse) {
+                                                            @RequestParam(required = false) Boolean reverse,
+                                                            @RequestParam(required = false) Boolean includeCount) {
 
         AuthenticationTokenManager.checkAuthenticationToken(session); // Check user auth
 
         logger.info(() -> String.format("Performing search for \"%s\"", searchQuery));
-        Page<User> results;
+        boolean countTotal = !Boolean.FALSE.equals(includeCount);
+        Slice<User> results;
         if (orderBy == null || orderBy.equals("relevance")) {
-            var users = SearchQueryParser.getSearchResultsOrderedByRelevance(searchQuery, userRepository, reverse);
-            results = new PageImpl<>(SearchPageConstructor.getPageInResults(users, page, resultsPerPage), Pageable.unpaged(), users.size());
+            results = SearchQueryParser.getSearchResultPageOrderedByRelevance(searchQuery, userRepository, resultCountCache,
+                    page, resultsPerPage, reverse, countTotal, searchPlanCache);
         } else {
-            Specification<User> spec = SearchSpecConstructor.constructUserSpecificationFromSearchQuery(searchQuery);
+            Specification<User> spec = SearchSpecConstructor.constructUserSpecificationFromSearchQuery(searchQuery, searchPlanCache);
             Sort userSort = getSort(orderBy, reverse);
-            results = userRepository.findAll(spec, SearchPageConstructor.getPageRequest(page, resultsPerPage, userSort));
+            results = resultCountCache.findPage(userRepository, spec, SearchPageConstructor.getPageRequest(page, resultsPerPage, userSort),
+                    countTotal, SearchPlanCache.normalise(searchQuery));
         }
 
         return new ResultPageDTO<>(
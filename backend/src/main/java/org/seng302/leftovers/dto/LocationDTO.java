@@ -21,6 +21,8 @@ public class LocationDTO {
     protected String streetNumber;
     protected String postcode;
     protected String district;
+    protected Double latitude;
+    protected Double longitude;
 
     /**
      * Converts a Location to its JSON form
@@ -37,6 +39,8 @@ public class LocationDTO {
             this.streetName = location.getStreetName();
             this.streetNumber = location.getStreetNumber();
             this.postcode = location.getPostCode();
+            this.latitude = location.getLatitude();
+            this.longitude = location.getLongitude();
         }
     }
 
@@ -58,6 +62,7 @@ public class LocationDTO {
                 .atStreetNumber(streetNumber)
                 .withPostCode(postcode)
                 .atDistrict(district)
+                .atCoordinates(latitude, longitude)
                 .build();
     }
 }
@@ -1,32 +1,40 @@
 package org.seng302.leftovers.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import javax.validation.constraints.NotNull;
 import java.util.List;
 
 /**
  * Data Transfer Object for fetching a page of results.
+ * A page fetched without counting the results has no count, and instead says whether there is a next page.
  * @param <T> Page transfer element type DTO.
  */
 @Getter
 @ToString
 @EqualsAndHashCode
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class ResultPageDTO<T> {
-    @NotNull
     private Long count;
+    private Boolean hasNext;
     @NotNull
     private List<T> results;
 
     /**
-     * Convert a Page of DTOs into a DTO
+     * Convert a Page or Slice of DTOs into a DTO
      * @param resultPage Page of DTOs
      */
-    public ResultPageDTO(Page<T> resultPage) {
-        count = resultPage.getTotalElements();
+    public ResultPageDTO(Slice<T> resultPage) {
+        if (resultPage instanceof Page) {
+            count = ((Page<T>) resultPage).getTotalElements();
+        } else {
+            hasNext = resultPage.hasNext();
+        }
         results = resultPage.getContent();
     }
 }
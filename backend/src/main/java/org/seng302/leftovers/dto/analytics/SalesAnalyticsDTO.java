@@ -0,0 +1,25 @@
+package org.seng302.leftovers.dto.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A DTO containing the groups of sales with the highest totals across every business, along with the number of sales
+ * in the snapshot they were totalled from and when it was last refreshed
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class SalesAnalyticsDTO {
+    private SalesAnalyticsDimension groupBy;
+    private SalesAnalyticsMetric orderBy;
+    private long snapshotSales;
+    private Instant refreshedAt;
+    private List<SalesAnalyticsGroupDTO> groups;
+}
@@ -0,0 +1,15 @@
+package org.seng302.leftovers.dto.analytics;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Enum representing what the sales of every business can be grouped by in the sales analytics
+ */
+public enum SalesAnalyticsDimension {
+    @JsonProperty("product")
+    PRODUCT,
+    @JsonProperty("businessType")
+    BUSINESS_TYPE,
+    @JsonProperty("region")
+    REGION
+}
@@ -0,0 +1,32 @@
+package org.seng302.leftovers.dto.analytics;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.seng302.leftovers.dto.business.BusinessType;
+
+import java.math.BigDecimal;
+
+/**
+ * A DTO containing the totals of the sales in one group of the sales analytics. Only the fields identifying the
+ * group, which depend on what the sales were grouped by, are included along with the totals.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SalesAnalyticsGroupDTO {
+    private Long productId;
+    private String productName;
+    private BusinessType businessType;
+    private String country;
+    private String region;
+
+    private long listingsSold;
+    private long quantitySold;
+    private BigDecimal totalRevenue;
+    private Double averageDaysToSell;
+}
@@ -0,0 +1,17 @@
+package org.seng302.leftovers.dto.analytics;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Enum representing the totals the groups of the sales analytics can be ranked by, highest first
+ */
+public enum SalesAnalyticsMetric {
+    @JsonProperty("revenue")
+    REVENUE,
+    @JsonProperty("quantitySold")
+    QUANTITY_SOLD,
+    @JsonProperty("listingsSold")
+    LISTINGS_SOLD,
+    @JsonProperty("averageDaysToSell")
+    AVERAGE_DAYS_TO_SELL
+}
@@ -31,4 +31,16 @@ public class KeywordDTO {
         this.name = keyword.getName();
     }
 
+    /**
+     * Constructs a DTO from the fields of a keyword
+     * @param id ID of the keyword
+     * @param name Name of the keyword
+     * @param created Time the keyword was created
+     */
+    public KeywordDTO(long id, String name, Instant created) {
+        this.id = id;
+        this.name = name;
+        this.created = created;
+    }
+
 }
@@ -0,0 +1,17 @@
+package org.seng302.leftovers.dto.event;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A DTO representing the result of a bulk change to a user's newsfeed
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class BulkEventResultDTO {
+    private int count;
+}
@@ -0,0 +1,26 @@
+package org.seng302.leftovers.dto.event;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * A DTO representing a JSON object with the shape:
+ * {
+ *     "value": New value of type T,
+ *     "eventIds": [Optional event ids],
+ *     "tag": Optional tag,
+ *     "status": Optional status
+ * }
+ * The value is applied to every event selected by the filter fields.
+ * @param <T> Type of the new value
+ */
+@Getter
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+public class BulkEventUpdateDTO<T> extends EventFilterDTO {
+    @NotNull
+    private T value;
+}
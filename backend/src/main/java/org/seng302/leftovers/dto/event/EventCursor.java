@@ -0,0 +1,72 @@
+package org.seng302.leftovers.dto.event;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.seng302.leftovers.entities.event.Event;
+import org.seng302.leftovers.exceptions.ValidationResponseException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position in a user's newsfeed, identified by the creation date and id of the last event on a page.
+ * Clients receive this as an opaque string which they pass back to fetch the following page.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class EventCursor {
+    private final Instant created;
+    private final Long id;
+
+    /**
+     * Creates a cursor which points to the given newsfeed position
+     * @param created Creation date of the last event on the page
+     * @param id ID of the last event on the page
+     */
+    public EventCursor(Instant created, Long id) {
+        this.created = created;
+        this.id = id;
+    }
+
+    /**
+     * Creates a cursor which points to the position directly after the given event
+     * @param event Last event on the page
+     * @return Cursor for the following page
+     */
+    public static EventCursor after(Event event) {
+        return new EventCursor(event.getCreated(), event.getId());
+    }
+
+    /**
+     * Converts this cursor into the opaque string form given to clients
+     * @return Encoded cursor
+     */
+    public String encode() {
+        String raw = created.getEpochSecond() + ":" + created.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses a cursor string previously created by encode
+     * @param encoded Encoded cursor
+     * @return Decoded cursor
+     * @throws ValidationResponseException If the string is not a valid cursor
+     */
+    public static EventCursor decode(String encoded) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Cursor must have three parts");
+            }
+            Instant created = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return new EventCursor(created, Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new ValidationResponseException("The cursor parameter is not valid");
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.seng302.leftovers.dto.event;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * A DTO selecting a set of events on a user's newsfeed for a bulk change.
+ * Each field that is present narrows the selection, and an empty filter selects every event on the feed.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventFilterDTO {
+    private List<Long> eventIds;
+    private EventTag tag;
+    private EventStatus status;
+}
@@ -0,0 +1,27 @@
+package org.seng302.leftovers.dto.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * A DTO representing a page of a user's newsfeed.
+ * nextCursor is null when there are no more events after this page.
+ */
+@Getter
+@ToString
+public class EventPageDTO {
+    private List<EventDTO> results;
+    private String nextCursor;
+
+    /**
+     * Creates a newsfeed page
+     * @param results Events on this page
+     * @param nextCursor Cursor for the following page, or null if this is the last page
+     */
+    public EventPageDTO(List<EventDTO> results, EventCursor nextCursor) {
+        this.results = results;
+        this.nextCursor = nextCursor == null ? null : nextCursor.encode();
+    }
+}
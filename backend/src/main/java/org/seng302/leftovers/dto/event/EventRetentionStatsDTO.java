@@ -0,0 +1,61 @@
+package org.seng302.leftovers.dto.event;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.seng302.leftovers.service.EventRetentionService;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * A DTO representing the configuration and metrics of the job which archives old events
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class EventRetentionStatsDTO {
+    private List<String> rules;
+    private long totalRuns;
+    private long totalArchived;
+    private RunDTO lastRun;
+
+    /**
+     * A DTO representing the outcome of a single run of the retention job
+     */
+    @Getter
+    @ToString
+    @EqualsAndHashCode
+    public static class RunDTO {
+        private Instant started;
+        private long durationMillis;
+        private long archived;
+        private Map<String, Long> archivedByType;
+        private boolean limitReached;
+
+        /**
+         * Converts a retention run into its JSON form
+         * @param run Run to serialise
+         */
+        public RunDTO(EventRetentionService.RetentionRun run) {
+            this.started = run.getStarted();
+            this.durationMillis = run.getDuration().toMillis();
+            this.archived = run.getArchived();
+            this.archivedByType = run.getArchivedByType();
+            this.limitReached = run.isLimitReached();
+        }
+    }
+
+    /**
+     * Converts the state of the retention service into its JSON form
+     * @param service Retention service to serialise
+     */
+    public EventRetentionStatsDTO(EventRetentionService service) {
+        this.rules = service.getRules().stream().map(EventRetentionService.Rule::toString).collect(Collectors.toList());
+        this.totalRuns = service.getTotalRuns();
+        this.totalArchived = service.getTotalArchived();
+        this.lastRun = service.getLastRun().map(RunDTO::new).orElse(null);
+    }
+}
@@ -0,0 +1,35 @@
+package org.seng302.leftovers.dto.event;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Map;
+
+/**
+ * A DTO representing the number of events on a user's newsfeed, in total, unread, with each tag and with each status.
+ * Every tag and status is included, with a count of zero if the user has no events with it.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class FeedSummaryDTO {
+    private long total;
+    private long unread;
+    private Map<EventTag, Long> tags;
+    private Map<EventStatus, Long> statuses;
+
+    /**
+     * Creates a feed summary
+     * @param total Total number of events
+     * @param unread Number of events which have not been read
+     * @param tags Number of events with each tag
+     * @param statuses Number of events with each status
+     */
+    public FeedSummaryDTO(long total, long unread, Map<EventTag, Long> tags, Map<EventStatus, Long> statuses) {
+        this.total = total;
+        this.unread = unread;
+        this.tags = tags;
+        this.statuses = statuses;
+    }
+}
@@ -0,0 +1,36 @@
+package org.seng302.leftovers.dto.event;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.seng302.leftovers.service.GlobalMessageService;
+
+import java.time.Instant;
+
+/**
+ * A DTO representing the progress of a job sending a global message to all users
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class GlobalMessageJobDTO {
+    private long id;
+    private String message;
+    private Instant created;
+    private GlobalMessageService.JobStatus status;
+    private long totalUsers;
+    private long notifiedUsers;
+
+    /**
+     * Converts a global message job into its JSON form
+     * @param job Job to serialise
+     */
+    public GlobalMessageJobDTO(GlobalMessageService.GlobalMessageJob job) {
+        this.id = job.getId();
+        this.message = job.getMessage();
+        this.created = job.getCreated();
+        this.status = job.getStatus();
+        this.totalUsers = job.getTotalUsers();
+        this.notifiedUsers = job.getNotifiedUsers();
+    }
+}
@@ -3,6 +3,7 @@ package org.seng302.leftovers.dto.saleitem;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 import org.seng302.leftovers.entities.BoughtSaleItem;
+import org.seng302.leftovers.persistence.SalesAggregate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -66,4 +67,32 @@ public class BoughtSaleItemRecord {
         uniqueBuyers = buyerIds.size();
         uniqueProducts = productIds.size();
     }
+
+    /**
+     * Construct a new Record from the totals of the BoughtSaleItems purchased over a period, which gives the same
+     * statistics as constructing it from the BoughtSaleItems themselves
+     * @param startDate Date this record begins (inclusive)
+     * @param endDate Date this record ends (inclusive)
+     * @param aggregate Totals of the BoughtSaleItems purchased over the period, or null if there were none
+     */
+    public BoughtSaleItemRecord(LocalDate startDate, LocalDate endDate, SalesAggregate aggregate) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+
+        if (aggregate == null || aggregate.getListingsSold() == 0) {
+            uniqueListingsSold = 0;
+            uniqueBuyers = 0;
+            uniqueProducts = 0;
+            averageDaysToSell = null;
+            averageLikeCount = null;
+            return;
+        }
+        uniqueListingsSold = (int) aggregate.getListingsSold();
+        uniqueBuyers = (int) aggregate.getUniqueBuyers();
+        uniqueProducts = (int) aggregate.getUniqueProducts();
+        totalQuantitySold = (int) aggregate.getQuantitySold();
+        totalPriceSold = aggregate.getTotalPrice();
+        averageLikeCount = (double) aggregate.getTotalLikes() / uniqueListingsSold;
+        averageDaysToSell = (double) aggregate.getTotalSecondsToSell() / (uniqueListingsSold * 60 * 60 * 24);
+    }
 }
@@ -0,0 +1,17 @@
+package org.seng302.leftovers.dto.saleitem;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * DTO representing a property which sale listing search results can be counted by
+ */
+public enum SaleListingFacet {
+    @JsonProperty("businessType")
+    BUSINESS_TYPE,
+
+    @JsonProperty("price")
+    PRICE,
+
+    @JsonProperty("closes")
+    CLOSES
+}
@@ -0,0 +1,24 @@
+package org.seng302.leftovers.dto.saleitem;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.Map;
+
+/**
+ * A DTO containing the number of sale listing search results with each value of the requested facets. Facets which
+ * were not requested are not included.
+ */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SaleListingFacetsDTO {
+    private Map<String, Long> businessType;
+    private Map<String, Long> price;
+    private Map<String, Long> closes;
+}
@@ -29,4 +29,13 @@ public class SaleListingSearchExternalDTO {
     private BigDecimal priceUpper;
     private String closeLower;
     private String closeUpper;
+    private Boolean includeCount;
+    private List<String> facets;
+    private Double latitude;
+    private Double longitude;
+    private Double radius;
+    private Double north;
+    private Double south;
+    private Double east;
+    private Double west;
 }
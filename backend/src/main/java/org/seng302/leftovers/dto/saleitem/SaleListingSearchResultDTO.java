@@ -0,0 +1,29 @@
+package org.seng302.leftovers.dto.saleitem;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.seng302.leftovers.dto.ResultPageDTO;
+import org.springframework.data.domain.Slice;
+
+/**
+ * A DTO representing a page of sale listing search results, along with the counts of all the results by each of the
+ * requested facets
+ */
+@Getter
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SaleListingSearchResultDTO extends ResultPageDTO<SaleItemResponseDTO> {
+    private final SaleListingFacetsDTO facets;
+
+    /**
+     * @param resultPage Page of sale items
+     * @param facets Counts of all the results by facet, or null if no facets were requested
+     */
+    public SaleListingSearchResultDTO(Slice<SaleItemResponseDTO> resultPage, SaleListingFacetsDTO facets) {
+        super(resultPage);
+        this.facets = facets;
+    }
+}
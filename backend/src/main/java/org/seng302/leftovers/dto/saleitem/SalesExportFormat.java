@@ -0,0 +1,35 @@
+package org.seng302.leftovers.dto.saleitem;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Enum representing the file formats sales can be exported as
+ */
+public enum SalesExportFormat {
+    @JsonProperty("csv")
+    CSV("text/csv", "csv"),
+    @JsonProperty("ndjson")
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String fileExtension;
+
+    SalesExportFormat(String contentType, String fileExtension) {
+        this.contentType = contentType;
+        this.fileExtension = fileExtension;
+    }
+
+    /**
+     * @return The media type of exports in this format
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return The extension of the file name exports in this format are downloaded as
+     */
+    public String getFileExtension() {
+        return fileExtension;
+    }
+}
@@ -0,0 +1,70 @@
+package org.seng302.leftovers.dto.saleitem;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A DTO representing one purchased sale item in a sales export
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class SalesExportRow {
+    /**
+     * Column names of the CSV form of the rows, in the order written by toCsv
+     */
+    public static final List<String> CSV_COLUMNS = List.of("id", "saleDate", "listingDate", "productCode",
+            "productName", "quantity", "price", "interestCount");
+
+    private Long id;
+    @JsonFormat(shape=JsonFormat.Shape.STRING)
+    private Instant saleDate;
+    @JsonFormat(shape=JsonFormat.Shape.STRING)
+    private Instant listingDate;
+    private String productCode;
+    private String productName;
+    private Integer quantity;
+    private BigDecimal price;
+    private Integer interestCount;
+
+    /**
+     * @return The CSV header line, without a line ending
+     */
+    public static String csvHeader() {
+        return String.join(",", CSV_COLUMNS);
+    }
+
+    /**
+     * Converts the row into a CSV line, in the order of CSV_COLUMNS. Product names which a spreadsheet would run as
+     * a formula are prefixed with a quote so that they are shown as text.
+     * @return The CSV line, without a line ending
+     */
+    public String toCsv() {
+        String name = !productName.isEmpty() && "=+-@".indexOf(productName.charAt(0)) >= 0 ? "'" + productName : productName;
+        return Stream.of(id, saleDate, listingDate, productCode, name, quantity, price.toPlainString(), interestCount)
+                .map(value -> escapeCsv(String.valueOf(value)))
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * Escapes a CSV field by quoting it if it contains a separator, quote or line break
+     * @param value Value of the field
+     * @return The escaped field
+     */
+    static String escapeCsv(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
@@ -0,0 +1,21 @@
+package org.seng302.leftovers.dto.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A DTO containing the metrics of a search cache
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class CacheStatsDTO {
+    private int size;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private double hitRatio;
+}
@@ -0,0 +1,29 @@
+package org.seng302.leftovers.dto.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * A DTO containing the latencies of an endpoint, repository method or type of specification. Percentiles are
+ * calculated over the most recent calls, while the count, total and maximum cover every call since startup.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class OperationStatsDTO {
+    private String name;
+    private long count;
+    private double totalMs;
+    private double meanMs;
+    private double p50Ms;
+    private double p95Ms;
+    private double p99Ms;
+    private double maxMs;
+    private long rows;
+    private List<String> fingerprints;
+}
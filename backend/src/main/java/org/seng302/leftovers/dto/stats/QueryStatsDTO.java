@@ -0,0 +1,26 @@
+package org.seng302.leftovers.dto.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * A DTO containing the latencies of every endpoint, repository method and type of specification, the most frequently
+ * prepared SQL statements, and the metrics of the search caches
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class QueryStatsDTO {
+    private long slowQueryThresholdMs;
+    private List<OperationStatsDTO> endpoints;
+    private List<OperationStatsDTO> repositoryMethods;
+    private List<OperationStatsDTO> specifications;
+    private List<StatementStatsDTO> statements;
+    private CacheStatsDTO searchPlanCache;
+    private CacheStatsDTO saleListingResultCache;
+}
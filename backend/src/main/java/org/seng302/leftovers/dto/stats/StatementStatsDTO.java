@@ -0,0 +1,19 @@
+package org.seng302.leftovers.dto.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A DTO containing the number of times SQL statements with a fingerprint have been prepared
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class StatementStatsDTO {
+    private String fingerprint;
+    private String sql;
+    private long count;
+}
@@ -1,5 +1,7 @@
 package org.seng302.leftovers.entities;
 
+import org.seng302.leftovers.persistence.ReportCacheListener;
+
 import javax.persistence.*;
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -8,6 +10,7 @@ import java.time.Instant;
  * Entity that represents a sale item that has been sold
  */
 @Entity
+@EntityListeners(ReportCacheListener.class)
 public class BoughtSaleItem {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -4,6 +4,10 @@ import org.seng302.leftovers.dto.business.BusinessType;
 import org.seng302.leftovers.dto.business.Rank;
 import org.seng302.leftovers.exceptions.InsufficientPermissionResponseException;
 import org.seng302.leftovers.exceptions.ValidationResponseException;
+import org.seng302.leftovers.persistence.BusinessLocationIndexingListener;
+import org.seng302.leftovers.persistence.NameDictionaryListener;
+import org.seng302.leftovers.persistence.SaleItemIndexingListener;
+import org.seng302.leftovers.persistence.SaleListingCacheListener;
 import org.seng302.leftovers.tools.AuthenticationTokenManager;
 
 import javax.persistence.*;
@@ -17,6 +21,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+@EntityListeners({SaleItemIndexingListener.class, BusinessLocationIndexingListener.class, NameDictionaryListener.class,
+        SaleListingCacheListener.class})
 @Entity
 public class Business implements ImageAttachment {
 
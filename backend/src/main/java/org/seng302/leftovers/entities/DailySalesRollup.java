@@ -0,0 +1,227 @@
+package org.seng302.leftovers.entities;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.seng302.leftovers.tools.DistinctCountSketch;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Entity holding the totals of the sale items a business sold on one day, so that sales reports can be generated
+ * from at most one row per day instead of from every sale item. Days are in the system time zone, the same as the
+ * date ranges of reports.
+ *
+ * The buyers and products of the day are kept as DistinctCountSketches, which can be merged to count the unique
+ * buyers and products of a period from the rollups of its days.
+ */
+@Entity
+@Table(uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"business_id", "sale_day"})
+})
+public class DailySalesRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "business_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Business business;
+
+    @Column(name = "sale_day", nullable = false)
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private long listingsSold = 0;
+
+    @Column(nullable = false)
+    private long quantitySold = 0;
+
+    @Column(nullable = false)
+    private BigDecimal totalPrice = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    private long totalLikes = 0;
+
+    @Column(nullable = false)
+    private long totalSecondsToSell = 0;
+
+    @Lob
+    @Column(name = "buyer_sketch")
+    private byte[] buyerSketch;
+
+    @Lob
+    @Column(name = "product_sketch")
+    private byte[] productSketch;
+
+    /**
+     * Creates a rollup of a day without any sales
+     * @param business Business which made the sales
+     * @param day Day the sales were made on
+     */
+    public DailySalesRollup(Business business, LocalDate day) {
+        this.business = business;
+        this.day = day;
+        this.buyerSketch = new DistinctCountSketch().toBytes();
+        this.productSketch = new DistinctCountSketch().toBytes();
+    }
+
+    /**
+     * Creates a rollup of a day from the totals of its sales
+     * @param business Business which made the sales
+     * @param day Day the sales were made on
+     * @param listingsSold Number of sale items sold
+     * @param quantitySold Total quantity of the sale items sold
+     * @param totalPrice Total price of the sale items sold
+     * @param totalLikes Total number of likes the sale items had when they were sold
+     * @param totalSecondsToSell Total number of seconds between the sale items being listed and sold
+     * @param buyers Sketch of the users who bought the sale items
+     * @param products Sketch of the products of the sale items
+     */
+    public DailySalesRollup(Business business, LocalDate day, long listingsSold, long quantitySold,
+                            BigDecimal totalPrice, long totalLikes, long totalSecondsToSell,
+                            DistinctCountSketch buyers, DistinctCountSketch products) {
+        this(business, day);
+        this.listingsSold = listingsSold;
+        this.quantitySold = quantitySold;
+        this.totalPrice = totalPrice;
+        this.totalLikes = totalLikes;
+        this.totalSecondsToSell = totalSecondsToSell;
+        this.buyerSketch = buyers.toBytes();
+        this.productSketch = products.toBytes();
+    }
+
+    /**
+     * Empty constructor required by JPA
+     */
+    protected DailySalesRollup() {}
+
+    /**
+     * Gets the day in the system time zone which an instant falls on
+     * @param instant Instant to find the day of
+     * @return Day of the instant
+     */
+    public static LocalDate dayOf(Instant instant) {
+        return instant.atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    /**
+     * Adds a sale item which has been sold on this day to the totals
+     * @param item Sale item which has been sold
+     */
+    public void addSale(BoughtSaleItem item) {
+        addSale(item.getQuantity(), item.getPrice(), item.getInterestCount(), item.getListingDate(), item.getSaleDate(),
+                item.getBuyer().getUserID(), item.getProduct().getID());
+    }
+
+    /**
+     * Adds a sale item which has been sold on this day to the totals
+     * @param quantity Quantity of the sale item
+     * @param price Price of the sale item
+     * @param likes Number of likes the sale item had when it was sold
+     * @param listingDate Date and time the sale item was listed
+     * @param saleDate Date and time the sale item was sold
+     * @param buyerId ID of the user who bought the sale item
+     * @param productId ID of the product of the sale item
+     */
+    public void addSale(int quantity, BigDecimal price, int likes, Instant listingDate, Instant saleDate,
+                        long buyerId, long productId) {
+        listingsSold++;
+        quantitySold += quantity;
+        totalPrice = totalPrice.add(price);
+        totalLikes += likes;
+        totalSecondsToSell += ChronoUnit.SECONDS.between(listingDate, saleDate);
+
+        DistinctCountSketch buyers = getBuyerSketch();
+        buyers.add(buyerId);
+        buyerSketch = buyers.toBytes();
+        DistinctCountSketch products = getProductSketch();
+        products.add(productId);
+        productSketch = products.toBytes();
+    }
+
+    /**
+     * Gets the id (will be unique among DailySalesRollups)
+     * @return DailySalesRollup id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the business which made the sales
+     * @return Business which made the sales
+     */
+    public Business getBusiness() {
+        return business;
+    }
+
+    /**
+     * Gets the day the sales were made on
+     * @return Day of the sales
+     */
+    public LocalDate getDay() {
+        return day;
+    }
+
+    /**
+     * Gets the number of sale items sold
+     * @return Number of sale items sold
+     */
+    public long getListingsSold() {
+        return listingsSold;
+    }
+
+    /**
+     * Gets the total quantity of the sale items sold
+     * @return Total quantity sold
+     */
+    public long getQuantitySold() {
+        return quantitySold;
+    }
+
+    /**
+     * Gets the total price of the sale items sold
+     * @return Total price
+     */
+    public BigDecimal getTotalPrice() {
+        return totalPrice;
+    }
+
+    /**
+     * Gets the total number of likes the sale items had when they were sold
+     * @return Total likes
+     */
+    public long getTotalLikes() {
+        return totalLikes;
+    }
+
+    /**
+     * Gets the total number of seconds between the sale items being listed and sold
+     * @return Total seconds to sell
+     */
+    public long getTotalSecondsToSell() {
+        return totalSecondsToSell;
+    }
+
+    /**
+     * Gets a sketch of the users who bought the sale items
+     * @return Sketch of the buyers, which can be changed without changing the rollup
+     */
+    public DistinctCountSketch getBuyerSketch() {
+        return DistinctCountSketch.fromBytes(buyerSketch);
+    }
+
+    /**
+     * Gets a sketch of the products of the sale items
+     * @return Sketch of the products, which can be changed without changing the rollup
+     */
+    public DistinctCountSketch getProductSketch() {
+        return DistinctCountSketch.fromBytes(productSketch);
+    }
+}
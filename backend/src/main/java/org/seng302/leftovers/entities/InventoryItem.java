@@ -4,6 +4,7 @@ import lombok.NoArgsConstructor;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 import org.seng302.leftovers.exceptions.ValidationResponseException;
+import org.seng302.leftovers.persistence.SaleListingCacheListener;
 
 import javax.persistence.*;
 import java.math.BigDecimal;
@@ -13,6 +14,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.Objects;
 
 @NoArgsConstructor
+@EntityListeners(SaleListingCacheListener.class)
 @Entity
 public class InventoryItem {
 
@@ -4,6 +4,7 @@ import lombok.NoArgsConstructor;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 import org.seng302.leftovers.exceptions.ValidationResponseException;
+import org.seng302.leftovers.persistence.KeywordIndexingListener;
 
 import javax.persistence.*;
 import java.time.Instant;
@@ -12,6 +13,7 @@ import java.util.List;
 
 @NoArgsConstructor
 @Entity
+@EntityListeners(KeywordIndexingListener.class)
 public class Keyword {
 
     @Id
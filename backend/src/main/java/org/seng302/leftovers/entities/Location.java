@@ -4,6 +4,9 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import org.seng302.leftovers.exceptions.ValidationResponseException;
+import org.seng302.leftovers.persistence.BusinessLocationIndexingListener;
+import org.seng302.leftovers.persistence.SaleItemIndexingListener;
+import org.seng302.leftovers.persistence.SaleListingCacheListener;
 
 import javax.persistence.*;
 import java.util.Arrays;
@@ -12,7 +15,9 @@ import java.util.List;
 @Data // generate setters and getters for all fields (lombok pre-processor)
 @NoArgsConstructor // generate a no-args constructor needed by JPA (lombok pre-processor)
 @ToString // generate a toString method
+@EntityListeners({SaleItemIndexingListener.class, BusinessLocationIndexingListener.class, SaleListingCacheListener.class})
 @Entity // declare this class as a JPA entity (that can be mapped to a SQL table)
+@Table(indexes = @Index(name = "location_coordinates_index", columnList = "latitude, longitude"))
 public class Location {
     private static final String NAME_REGEX = "[ \\p{L}-'.]+";
     private static final String STREET_NAME_REGEX = "[ \\p{L}-'.\\d]+";
@@ -41,6 +46,12 @@ public class Location {
     @Column(name="district")
     private String district;
 
+    @Column(name="latitude")
+    private Double latitude;
+
+    @Column(name="longitude")
+    private Double longitude;
+
     /**
      * Converts the address string into a location object
      * @param address
@@ -84,6 +95,9 @@ public class Location {
         if (!checkValidDistrict(location.getDistrict())) {
             return false;
         }
+        if (!checkValidCoordinates(location.getLatitude(), location.getLongitude())) {
+            return false;
+        }
         return checkValidPostCode(location.getPostCode());
     }
 
@@ -173,6 +187,22 @@ public class Location {
         return district == null || district.isEmpty() || (district.length() <= 100 && district.matches("[ \\p{L}0-9.'-]+"));
     }
 
+    /**
+     * Checks the coordinates of the location are valid
+     * Coordinates are optional, as they are only known for addresses selected from the address autocomplete. If they
+     * are given, both must be given, the latitude must be between -90 and 90 degrees and the longitude must be
+     * between -180 and 180 degrees.
+     * @param latitude latitude of the location in degrees
+     * @param longitude longitude of the location in degrees
+     * @return true if the coordinates are valid, false otherwise
+     */
+    public boolean checkValidCoordinates(Double latitude, Double longitude) {
+        if (latitude == null || longitude == null) {
+            return latitude == null && longitude == null;
+        }
+        return latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180;
+    }
+
     public Long getId() {
         return id;
     }
@@ -205,6 +235,21 @@ public class Location {
         return district;
     }
 
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return true if the latitude and longitude of the location are known
+     */
+    public boolean hasCoordinates() {
+        return latitude != null && longitude != null;
+    }
+
     public void setId(Long id) {
         this.id = id;
     }
@@ -266,6 +311,16 @@ public class Location {
         }
     }
 
+    public void setCoordinates(Double latitude, Double longitude) {
+        if (checkValidCoordinates(latitude, longitude)) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+        } else {
+            throw new ValidationResponseException("The latitude must be between -90 and 90 degrees and the longitude " +
+                    "must be between -180 and 180 degrees, and either both or neither must be given.");
+        }
+    }
+
     /**
      * This class uses the builder pattern to construct an instance of the Location class
      */
@@ -278,6 +333,8 @@ public class Location {
         private String streetNumber;
         private String postCode;
         private String district;
+        private Double latitude;
+        private Double longitude;
 
         /**
          * Set the builder's country.
@@ -352,6 +409,18 @@ public class Location {
             return this;
         }
 
+        /**
+         * Set the builder's coordinates.
+         * @param latitude Latitude of the location in degrees, or null if not known.
+         * @param longitude Longitude of the location in degrees, or null if not known.
+         * @return Builder with coordinates set.
+         */
+        public Builder atCoordinates(Double latitude, Double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            return this;
+        }
+
         /**
          * Construct an instance of the Location class.
          * @return Location with parameters of Builder.
@@ -365,6 +434,7 @@ public class Location {
             location.setStreetNumber(this.streetNumber);
             location.setPostCode(this.postCode);
             location.setDistrict(this.district);
+            location.setCoordinates(this.latitude, this.longitude);
             return location;
         }
 
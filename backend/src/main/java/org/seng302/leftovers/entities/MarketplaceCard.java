@@ -3,6 +3,7 @@ package org.seng302.leftovers.entities;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.seng302.leftovers.exceptions.ValidationResponseException;
+import org.seng302.leftovers.persistence.MarketplaceCardIndexingListener;
 
 import javax.persistence.*;
 import java.time.Duration;
@@ -14,6 +15,7 @@ import java.util.List;
 import java.util.Objects;
 
 @Entity
+@EntityListeners(MarketplaceCardIndexingListener.class)
 public class MarketplaceCard {
     private static final Duration DISPLAY_PERIOD = Duration.ofDays(14);
 
@@ -0,0 +1,175 @@
+package org.seng302.leftovers.entities;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Entity that represents a notification which still needs to be sent. Outbox entries are saved as part of the request
+ * that causes the notification, and are later turned into newsfeed events by the OutboxService, so that notifying
+ * many users does not slow down the request.
+ */
+@Entity
+@Table(indexes = @Index(name = "outbox_entry_attempts_index", columnList = "attempts, id"))
+public class OutboxEntry {
+
+    /**
+     * The kind of notification that an outbox entry represents
+     */
+    public enum Type {
+        /**
+         * A sale item has been purchased. The subject is the BoughtSaleItem and the recipients are the users who were
+         * interested in the sale item, since the sale item itself no longer exists.
+         */
+        PURCHASE,
+        /**
+         * A keyword has been created. The subject is the Keyword and the actor is the user who created it.
+         */
+        NEW_KEYWORD,
+        /**
+         * A message has been sent in a conversation. The subject is the Message.
+         */
+        NEW_MESSAGE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Type type;
+
+    @Column(name = "subject_id", nullable = false)
+    private Long subjectId;
+
+    @Column(name = "actor_id")
+    private Long actorId;
+
+    @Lob
+    @Column(name = "recipient_ids")
+    private String recipientIds;
+
+    @Column(nullable = false)
+    private Instant created = Instant.now();
+
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    protected OutboxEntry() {} // Required by JPA
+
+    /**
+     * Constructs an outbox entry
+     * @param type The kind of notification to send
+     * @param subjectId ID of the entity the notification is about
+     * @param actorId ID of the user that caused the notification, or null if not needed
+     * @param recipientIds IDs of the users to notify, or null if the recipients are found when the entry is processed
+     */
+    private OutboxEntry(Type type, Long subjectId, Long actorId, Collection<Long> recipientIds) {
+        this.type = type;
+        this.subjectId = subjectId;
+        this.actorId = actorId;
+        if (recipientIds != null) {
+            this.recipientIds = recipientIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        }
+    }
+
+    /**
+     * Creates an outbox entry for notifying the buyer of a purchase, and the other users who were interested in the
+     * sale item that it was bought from
+     * @param boughtSaleItem Record of the purchase
+     * @param interestedUserIds IDs of the users that were interested in the sale item, not including the buyer
+     * @return New outbox entry
+     */
+    public static OutboxEntry purchase(BoughtSaleItem boughtSaleItem, Collection<Long> interestedUserIds) {
+        return new OutboxEntry(Type.PURCHASE, boughtSaleItem.getId(), boughtSaleItem.getBuyer().getUserID(), interestedUserIds);
+    }
+
+    /**
+     * Creates an outbox entry for notifying the system administrators of a new keyword
+     * @param keyword Keyword that has been created
+     * @param creator User that created the keyword
+     * @return New outbox entry
+     */
+    public static OutboxEntry newKeyword(Keyword keyword, User creator) {
+        return new OutboxEntry(Type.NEW_KEYWORD, keyword.getID(), creator.getUserID(), null);
+    }
+
+    /**
+     * Creates an outbox entry for notifying both participants of a conversation of a new message
+     * @param message Message that has been sent
+     * @return New outbox entry
+     */
+    public static OutboxEntry newMessage(Message message) {
+        return new OutboxEntry(Type.NEW_MESSAGE, message.getId(), null, null);
+    }
+
+    /**
+     * Gets the id (will be unique among outbox entries, and increases in the order entries were saved)
+     * @return Outbox entry id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the kind of notification this entry represents
+     * @return Outbox entry type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the ID of the entity that the notification is about
+     * @return Subject ID
+     */
+    public Long getSubjectId() {
+        return subjectId;
+    }
+
+    /**
+     * Gets the ID of the user that caused the notification
+     * @return Actor ID, or null if the entry type does not have an actor
+     */
+    public Long getActorId() {
+        return actorId;
+    }
+
+    /**
+     * Gets the IDs of the users to notify that were recorded when the entry was created
+     * @return Recipient IDs, empty if there are none recorded
+     */
+    public List<Long> getRecipientIds() {
+        if (recipientIds == null || recipientIds.isEmpty()) return List.of();
+        return Arrays.stream(recipientIds.split(","))
+                .map(Long::valueOf)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the moment this entry was created
+     * @return Creation date and time
+     */
+    public Instant getCreated() {
+        return created;
+    }
+
+    /**
+     * Gets the number of times processing this entry has failed
+     * @return Number of failed attempts
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Records that an attempt to process this entry has failed
+     */
+    public void incrementAttempts() {
+        attempts++;
+    }
+}
@@ -1,6 +1,9 @@
 package org.seng302.leftovers.entities;
 
 import org.seng302.leftovers.exceptions.ValidationResponseException;
+import org.seng302.leftovers.persistence.NameDictionaryListener;
+import org.seng302.leftovers.persistence.SaleItemIndexingListener;
+import org.seng302.leftovers.persistence.SaleListingCacheListener;
 
 import javax.persistence.*;
 import java.math.BigDecimal;
@@ -11,6 +14,7 @@ import java.util.List;
 @Table(uniqueConstraints={
         @UniqueConstraint(columnNames = {"product_code", "business_id"})
 })
+@EntityListeners({SaleItemIndexingListener.class, NameDictionaryListener.class, SaleListingCacheListener.class})
 @Entity
 public class Product implements ImageAttachment {
     // Product code must only contain uppercase letters, numbers and dashes
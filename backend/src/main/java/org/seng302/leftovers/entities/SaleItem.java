@@ -5,6 +5,8 @@ import org.hibernate.annotations.Formula;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 import org.seng302.leftovers.exceptions.ValidationResponseException;
+import org.seng302.leftovers.persistence.SaleItemIndexingListener;
+import org.seng302.leftovers.persistence.SaleListingCacheListener;
 
 import javax.persistence.*;
 import java.math.BigDecimal;
@@ -20,6 +22,7 @@ import static java.time.temporal.ChronoUnit.DAYS;
  * inventory entry that will be sold at a given price
  */
 @NoArgsConstructor
+@EntityListeners({SaleItemIndexingListener.class, SaleListingCacheListener.class})
 @Entity
 public class SaleItem {
 
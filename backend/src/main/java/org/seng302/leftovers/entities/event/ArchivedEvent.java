@@ -0,0 +1,113 @@
+package org.seng302.leftovers.entities.event;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.seng302.leftovers.dto.event.EventStatus;
+import org.seng302.leftovers.dto.event.EventTag;
+import org.seng302.leftovers.entities.User;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * Compact record of an event which has been removed from a user's newsfeed by the EventRetentionService.
+ * Only the columns shared by every event are kept, along with the type of the event, so that old events can still be
+ * counted and audited without their rows slowing down the newsfeed queries.
+ */
+@Entity
+@Table(indexes = @Index(name = "archived_event_user_index", columnList = "event_user, created"))
+public class ArchivedEvent {
+    @Id
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "event_user", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User notifiedUser;
+
+    @Column(name = "event_type", nullable = false, length = 64)
+    private String eventType;
+
+    @Enumerated(EnumType.ORDINAL)
+    @Column(nullable = false)
+    private EventTag eventTag;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EventStatus eventStatus;
+
+    @Column(nullable = false)
+    private boolean isRead;
+
+    @Column(nullable = false)
+    private Instant created;
+
+    @Column(nullable = false)
+    private Instant lastModified;
+
+    @Column(nullable = false)
+    private Instant archived;
+
+    protected ArchivedEvent() {} // Required by JPA
+
+    /**
+     * Creates the archived record of an event
+     * @param id ID of the event being archived, which is kept as the ID of the record
+     * @param notifiedUser User that the event notified
+     * @param eventType Entity name of the event, e.g. GlobalMessageEvent
+     * @param eventTag Tag of the event
+     * @param eventStatus Status of the event
+     * @param isRead Whether the event had been read
+     * @param created When the event was created
+     * @param lastModified When the event was last modified
+     * @param archived When the event was archived
+     */
+    public ArchivedEvent(Long id, User notifiedUser, String eventType, EventTag eventTag, EventStatus eventStatus,
+                         boolean isRead, Instant created, Instant lastModified, Instant archived) {
+        this.id = id;
+        this.notifiedUser = notifiedUser;
+        this.eventType = eventType;
+        this.eventTag = eventTag;
+        this.eventStatus = eventStatus;
+        this.isRead = isRead;
+        this.created = created;
+        this.lastModified = lastModified;
+        this.archived = archived;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public User getNotifiedUser() {
+        return notifiedUser;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public EventTag getTag() {
+        return eventTag;
+    }
+
+    public EventStatus getStatus() {
+        return eventStatus;
+    }
+
+    public boolean isRead() {
+        return isRead;
+    }
+
+    public Instant getCreated() {
+        return created;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    public Instant getArchived() {
+        return archived;
+    }
+}
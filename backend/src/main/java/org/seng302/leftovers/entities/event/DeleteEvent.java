@@ -8,11 +8,14 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.Index;
+import javax.persistence.Table;
 
 /**
  * This class is used for notifying users when their marketplace card has been deleted.
  */
 @Entity
+@Table(indexes = @Index(name = "delete_event_feed_index", columnList = "event_user, created, id"))
 @EqualsAndHashCode(callSuper = false)
 public class DeleteEvent extends Event {
 
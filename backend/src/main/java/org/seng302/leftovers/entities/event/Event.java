@@ -5,15 +5,19 @@ import org.seng302.leftovers.dto.event.EventStatus;
 import org.seng302.leftovers.dto.event.EventTag;
 import org.seng302.leftovers.entities.User;
 import org.seng302.leftovers.exceptions.ValidationResponseException;
+import org.seng302.leftovers.persistence.event.EventPublishingListener;
+import org.seng302.leftovers.persistence.event.FeedCountingListener;
 
 import javax.persistence.*;
 import java.time.Instant;
+import java.util.Objects;
 
 /**
  * Abstract event entity for some component that will appear on a user's newsfeed
  */
 @Entity
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
+@EntityListeners({EventPublishingListener.class, FeedCountingListener.class})
 public abstract class Event {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -40,6 +44,9 @@ public abstract class Event {
     @Column(nullable = false)
     private boolean isRead = false;
 
+    @Transient
+    private CountedState savedState;
+
     protected Event() {} // Required by JPA
 
     /**
@@ -154,4 +161,72 @@ public abstract class Event {
     protected void onUpdate() {
         lastModified = Instant.now();
     }
+
+    /**
+     * Gets the properties of this event which are counted in the feed summary
+     * @return Current counted state of the event
+     */
+    public CountedState getCountedState() {
+        return new CountedState(isRead, eventTag, eventStatus);
+    }
+
+    /**
+     * Gets the properties of this event which are counted in the feed summary, as they were when the event was last
+     * loaded from or saved to the database
+     * @return Saved counted state of the event, or null if the event has never been saved
+     */
+    public CountedState getSavedCountedState() {
+        return savedState;
+    }
+
+    /**
+     * Remembers the counted state of the event each time it is loaded or saved, so that the change made by the next
+     * update can be worked out. Entity listeners run before this method, so they still see the previous state.
+     */
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    protected void rememberSavedState() {
+        savedState = getCountedState();
+    }
+
+    /**
+     * The properties of an event which are counted in the feed summary
+     */
+    public static final class CountedState {
+        private final boolean read;
+        private final EventTag tag;
+        private final EventStatus status;
+
+        public CountedState(boolean read, EventTag tag, EventStatus status) {
+            this.read = read;
+            this.tag = tag;
+            this.status = status;
+        }
+
+        public boolean isRead() {
+            return read;
+        }
+
+        public EventTag getTag() {
+            return tag;
+        }
+
+        public EventStatus getStatus() {
+            return status;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CountedState)) return false;
+            CountedState other = (CountedState) o;
+            return read == other.read && tag == other.tag && status == other.status;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(read, tag, status);
+        }
+    }
 }
@@ -5,13 +5,16 @@ import org.seng302.leftovers.dto.event.ExpiryEventDTO;
 import org.seng302.leftovers.entities.MarketplaceCard;
 
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.OneToOne;
+import javax.persistence.Table;
 
 /**
  * This class is used for notifying users when their marketplace card is about to expire.
  */
 @Entity
+@Table(indexes = @Index(name = "expiry_event_feed_index", columnList = "event_user, created, id"))
 @EqualsAndHashCode(callSuper = false)
 public class ExpiryEvent extends Event {
 
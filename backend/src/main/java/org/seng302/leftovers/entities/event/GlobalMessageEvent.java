@@ -7,11 +7,14 @@ import org.seng302.leftovers.exceptions.ValidationResponseException;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
 
 /**
  * Event for a message sent by an administrator to a user
  */
 @Entity
+@Table(indexes = @Index(name = "global_message_event_feed_index", columnList = "event_user, created, id"))
 @EqualsAndHashCode(callSuper = false)
 public class GlobalMessageEvent extends Event {
     @Column(nullable = false, name="global_message")
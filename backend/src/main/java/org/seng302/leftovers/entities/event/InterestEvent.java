@@ -8,13 +8,16 @@ import org.seng302.leftovers.entities.User;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
 
 /**
  * Event for a message sent by an administrator to a user
  */
 @Entity
+@Table(indexes = @Index(name = "interest_event_feed_index", columnList = "event_user, created, id"))
 public class InterestEvent extends Event {
 
     @ManyToOne
@@ -7,14 +7,17 @@ import org.seng302.leftovers.entities.User;
 
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
 
 /**
  * Represents the event that is sent to users who liked the item that the item has been purchased and is not available
  * anymore.
  */
 @Entity
+@Table(indexes = @Index(name = "interest_purchased_event_feed_index", columnList = "event_user, created, id"))
 public class InterestPurchasedEvent extends Event{
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "bought_sale_item_id", nullable = false)
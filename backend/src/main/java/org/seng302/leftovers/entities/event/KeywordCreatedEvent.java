@@ -6,14 +6,17 @@ import org.seng302.leftovers.entities.Keyword;
 import org.seng302.leftovers.entities.User;
 
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToOne;
+import javax.persistence.Table;
 
 /**
  * Event which is sent to system administrators to notify them of the creation of a new keyword.
  */
 @Entity
+@Table(indexes = @Index(name = "keyword_created_event_feed_index", columnList = "event_user, created, id"))
 @EqualsAndHashCode(callSuper = false)
 public class KeywordCreatedEvent extends Event {
 
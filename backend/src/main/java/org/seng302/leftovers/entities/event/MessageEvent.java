@@ -17,7 +17,8 @@ import java.time.Instant;
  * Event which is sent to participants in a conversation when a new message is added to that conversation.
  */
 @Entity
-@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"conversation_id", "participant_type"}))
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"conversation_id", "participant_type"}),
+        indexes = @Index(name = "message_event_feed_index", columnList = "event_user, created, id"))
 @EqualsAndHashCode(callSuper = false)
 public class MessageEvent extends Event {
 
@@ -7,13 +7,16 @@ import org.seng302.leftovers.entities.User;
 
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
 
 /**
  * Represents the event that is sent to users who purchase a sale item
  */
 @Entity
+@Table(indexes = @Index(name = "purchased_event_feed_index", columnList = "event_user, created, id"))
 public class PurchasedEvent extends Event{
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name="brought_sale_item_id", nullable = false)
@@ -0,0 +1,49 @@
+package org.seng302.leftovers.middleware;
+
+import org.seng302.leftovers.service.QueryStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Times every request handled by a controller, and records the latency with the QueryStatsService under the HTTP
+ * method and path pattern of the endpoint, so that requests for different ids are grouped together
+ */
+@Component
+public class EndpointTimingInterceptor implements HandlerInterceptor, WebMvcConfigurer {
+    private static final String START_ATTRIBUTE = EndpointTimingInterceptor.class.getName() + ".start";
+
+    private final QueryStatsService queryStatsService;
+
+    @Autowired
+    public EndpointTimingInterceptor(QueryStatsService queryStatsService) {
+        this.queryStatsService = queryStatsService;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (start == null || pattern == null) {
+            return;
+        }
+        queryStatsService.recordEndpoint(request.getMethod() + " " + pattern, System.nanoTime() - (long) start);
+    }
+}
@@ -0,0 +1,34 @@
+package org.seng302.leftovers.persistence;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Applies changes to in memory copies of the database, such as the search indexes, caches and newsfeed counters,
+ * once the transaction that made the change has committed. This means the copies never include a change which is
+ * then rolled back, and a query run before the commit cannot overwrite the change with what it read from before it.
+ *
+ * This is mostly used by JPA entity listeners. Those listeners are created by Hibernate through the Spring bean
+ * container while the entity manager is being built. The beans they update depend on the entity manager, so the
+ * listeners take an ObjectProvider and look the beans up when first used.
+ */
+public final class AfterCommit {
+    private AfterCommit() {}
+
+    /**
+     * Runs a change once the current transaction has committed, or immediately if there is no transaction
+     * @param change Change to apply
+     */
+    public static void run(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+}
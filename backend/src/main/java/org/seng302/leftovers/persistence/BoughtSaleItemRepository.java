@@ -4,5 +4,6 @@ import org.seng302.leftovers.entities.BoughtSaleItem;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.CrudRepository;
 
-public interface BoughtSaleItemRepository extends CrudRepository<BoughtSaleItem, Long>, JpaSpecificationExecutor<BoughtSaleItem> {
+public interface BoughtSaleItemRepository extends CrudRepository<BoughtSaleItem, Long>, JpaSpecificationExecutor<BoughtSaleItem>,
+        SalesAggregateRepository {
 }
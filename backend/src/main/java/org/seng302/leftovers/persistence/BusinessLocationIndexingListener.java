@@ -0,0 +1,61 @@
+package org.seng302.leftovers.persistence;
+
+import org.seng302.leftovers.entities.Business;
+import org.seng302.leftovers.entities.Location;
+import org.seng302.leftovers.service.search.BusinessLocationIndex;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.util.function.Consumer;
+
+/**
+ * JPA entity listener which keeps the BusinessLocationIndex up to date as businesses are created, moved to a new
+ * address, or deleted, and as the coordinates of their addresses change.
+ * Changes are applied once committed, see {@link AfterCommit}.
+ */
+public class BusinessLocationIndexingListener {
+    private final ObjectProvider<BusinessLocationIndex> businessLocationIndex;
+
+    public BusinessLocationIndexingListener(ObjectProvider<BusinessLocationIndex> businessLocationIndex) {
+        this.businessLocationIndex = businessLocationIndex;
+    }
+
+    /**
+     * Adds a newly created business to the index, or moves a changed business in the index
+     * @param entity Entity that has been inserted or updated
+     */
+    @PostPersist
+    @PostUpdate
+    public void onSaved(Object entity) {
+        if (entity instanceof Business) {
+            Business business = (Business) entity;
+            record(index -> index.put(business));
+        } else if (entity instanceof Location) {
+            Location location = (Location) entity;
+            record(index -> index.updateLocation(location));
+        }
+    }
+
+    /**
+     * Removes a deleted business from the index
+     * @param entity Entity that has been deleted
+     */
+    @PostRemove
+    public void onDeleted(Object entity) {
+        if (entity instanceof Business) {
+            long businessId = ((Business) entity).getId();
+            record(index -> index.remove(businessId));
+        }
+    }
+
+    /**
+     * Applies a change to the index once the transaction that made it has committed
+     * @param change Change to apply to the index
+     */
+    private void record(Consumer<BusinessLocationIndex> change) {
+        BusinessLocationIndex index = businessLocationIndex.getObject();
+        AfterCommit.run(() -> change.accept(index));
+    }
+}
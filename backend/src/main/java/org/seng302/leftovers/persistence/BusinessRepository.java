@@ -2,17 +2,29 @@ package org.seng302.leftovers.persistence;
 
 import org.seng302.leftovers.entities.Business;
 import org.seng302.leftovers.exceptions.DoesNotExistResponseException;
-import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
 import java.util.Optional;
 
 @Repository
-public interface BusinessRepository extends CrudRepository<Business, Long>, JpaSpecificationExecutor<Business> {
+public interface BusinessRepository extends CrudRepository<Business, Long>, SliceSpecificationExecutor<Business> {
     Business findByName(@Param("name") String name);
 
+    /**
+     * Gets a business and locks it until the transaction ends, so that changes to the data kept for the business
+     * (e.g. its daily sales rollups) are made one transaction at a time
+     * @param id The id of the business to lock
+     * @return The business, or empty if it does not exist
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Business b where b.id = :id")
+    Optional<Business> findByIdForUpdate(@Param("id") Long id);
+
     /**
      * Gets a business from the database matching a given Business Id
      * Performs sanity checks to ensure the business is not null
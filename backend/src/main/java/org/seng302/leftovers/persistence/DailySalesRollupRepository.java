@@ -0,0 +1,36 @@
+package org.seng302.leftovers.persistence;
+
+import org.seng302.leftovers.entities.Business;
+import org.seng302.leftovers.entities.DailySalesRollup;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface DailySalesRollupRepository extends CrudRepository<DailySalesRollup, Long> {
+
+    /**
+     * Finds the rollup of the sales a business made on a day, and locks it until the transaction ends. Locking reads
+     * see the latest committed rollup, so a rollup created by another transaction since this one started is found
+     * rather than created again.
+     * @param business Business which made the sales
+     * @param day Day the sales were made on
+     * @return The rollup, or empty if the business has not made any sales on the day
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<DailySalesRollup> findByBusinessAndDay(Business business, LocalDate day);
+
+    /**
+     * Finds the rollups of the days a business made sales on within a range of days
+     * @param businessId ID of the business which made the sales
+     * @param start First day of the range (inclusive)
+     * @param end Last day of the range (inclusive)
+     * @return Rollups of the days with sales, ordered by day
+     */
+    @Query("select r from DailySalesRollup r where r.business.id = :businessId and r.day >= :start and r.day <= :end order by r.day")
+    List<DailySalesRollup> findDaysForBusiness(Long businessId, LocalDate start, LocalDate end);
+}
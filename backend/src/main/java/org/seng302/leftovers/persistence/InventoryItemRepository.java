@@ -5,7 +5,6 @@ import org.seng302.leftovers.entities.InventoryItem;
 import org.seng302.leftovers.entities.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -16,7 +15,7 @@ import java.util.Optional;
 
 
 @Repository
-public interface InventoryItemRepository extends CrudRepository<InventoryItem, Long>, JpaSpecificationExecutor<InventoryItem> {
+public interface InventoryItemRepository extends CrudRepository<InventoryItem, Long>, SliceSpecificationExecutor<InventoryItem> {
 
     /**
      * Finds all the inventory items for a given business
@@ -0,0 +1,53 @@
+package org.seng302.leftovers.persistence;
+
+import org.seng302.leftovers.dto.card.KeywordDTO;
+import org.seng302.leftovers.entities.Keyword;
+import org.seng302.leftovers.service.search.KeywordPrefixIndex;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.util.function.Consumer;
+
+/**
+ * JPA entity listener which keeps the KeywordPrefixIndex up to date as keywords are created, renamed and deleted.
+ * Changes are applied once committed, see {@link AfterCommit}.
+ */
+public class KeywordIndexingListener {
+    private final ObjectProvider<KeywordPrefixIndex> keywordPrefixIndex;
+
+    public KeywordIndexingListener(ObjectProvider<KeywordPrefixIndex> keywordPrefixIndex) {
+        this.keywordPrefixIndex = keywordPrefixIndex;
+    }
+
+    /**
+     * Adds a newly created keyword to the index, or updates the name of a changed keyword
+     * @param keyword Keyword that has been inserted or updated
+     */
+    @PostPersist
+    @PostUpdate
+    public void onKeywordSaved(Keyword keyword) {
+        var entry = new KeywordDTO(keyword);
+        record(index -> index.put(entry));
+    }
+
+    /**
+     * Removes a deleted keyword from the index
+     * @param keyword Keyword that has been deleted
+     */
+    @PostRemove
+    public void onKeywordDeleted(Keyword keyword) {
+        long keywordId = keyword.getID();
+        record(index -> index.remove(keywordId));
+    }
+
+    /**
+     * Applies a change to the index once the transaction that made it has committed
+     * @param change Change to apply to the index
+     */
+    private void record(Consumer<KeywordPrefixIndex> change) {
+        KeywordPrefixIndex index = keywordPrefixIndex.getObject();
+        AfterCommit.run(() -> change.accept(index));
+    }
+}
@@ -0,0 +1,43 @@
+package org.seng302.leftovers.persistence;
+
+import org.seng302.leftovers.entities.MarketplaceCard;
+import org.seng302.leftovers.service.search.MarketplaceCardKeywordIndex;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * JPA entity listener which keeps the MarketplaceCardKeywordIndex up to date as cards are created, changed, renewed,
+ * and deleted or expired. Hibernate does not update a card when only its keywords change, so this listener is not
+ * called for those changes, and code which changes only the keywords of a card has to reindex it itself.
+ * Instances are created by Hibernate through the Spring bean container while the entity manager is being built. The
+ * MarketplaceCardKeywordIndex depends on the entity manager, so it is looked up when first used.
+ */
+public class MarketplaceCardIndexingListener {
+    private final ObjectProvider<MarketplaceCardKeywordIndex> marketplaceCardKeywordIndex;
+
+    public MarketplaceCardIndexingListener(ObjectProvider<MarketplaceCardKeywordIndex> marketplaceCardKeywordIndex) {
+        this.marketplaceCardKeywordIndex = marketplaceCardKeywordIndex;
+    }
+
+    /**
+     * Adds a newly created card to the index, or updates the indexed fields of a changed card
+     * @param card Card that has been inserted or updated
+     */
+    @PostPersist
+    @PostUpdate
+    public void onCardSaved(MarketplaceCard card) {
+        marketplaceCardKeywordIndex.getObject().putWhenCommitted(card);
+    }
+
+    /**
+     * Removes a deleted card from the index
+     * @param card Card that has been deleted
+     */
+    @PostRemove
+    public void onCardDeleted(MarketplaceCard card) {
+        marketplaceCardKeywordIndex.getObject().removeWhenCommitted(card.getID());
+    }
+}
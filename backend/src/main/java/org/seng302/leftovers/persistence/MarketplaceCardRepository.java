@@ -6,7 +6,6 @@ import org.seng302.leftovers.entities.User;
 import org.seng302.leftovers.exceptions.DoesNotExistResponseException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -18,7 +17,7 @@ import java.time.Instant;
 import java.util.List;
 
 @Repository
-public interface MarketplaceCardRepository extends CrudRepository<MarketplaceCard, Long>, JpaSpecificationExecutor<MarketplaceCard> {
+public interface MarketplaceCardRepository extends CrudRepository<MarketplaceCard, Long>, SliceSpecificationExecutor<MarketplaceCard> {
     /**
      * Finds all the marketplace cards created by a given user
      * @param user User that the cards belong to
@@ -0,0 +1,58 @@
+package org.seng302.leftovers.persistence;
+
+import org.seng302.leftovers.entities.Business;
+import org.seng302.leftovers.entities.Product;
+import org.seng302.leftovers.service.search.NameDictionaryService;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * JPA entity listener which keeps the product and business name dictionaries up to date as products and businesses
+ * are created, renamed or deleted. Changes are applied once committed, see {@link AfterCommit}.
+ */
+public class NameDictionaryListener {
+    private final ObjectProvider<NameDictionaryService> nameDictionaryService;
+
+    public NameDictionaryListener(ObjectProvider<NameDictionaryService> nameDictionaryService) {
+        this.nameDictionaryService = nameDictionaryService;
+    }
+
+    /**
+     * Adds the name of a newly created product or business to its dictionary, or replaces the previous name of a
+     * changed product or business
+     * @param entity Entity that has been inserted or updated
+     */
+    @PostPersist
+    @PostUpdate
+    public void onSaved(Object entity) {
+        if (entity instanceof Product) {
+            Product product = (Product) entity;
+            long productId = product.getID();
+            String name = product.getName();
+            AfterCommit.run(() -> nameDictionaryService.getObject().getProductNames().put(productId, name));
+        } else if (entity instanceof Business) {
+            Business business = (Business) entity;
+            long businessId = business.getId();
+            String name = business.getName();
+            AfterCommit.run(() -> nameDictionaryService.getObject().getBusinessNames().put(businessId, name));
+        }
+    }
+
+    /**
+     * Removes the name of a deleted product or business from its dictionary
+     * @param entity Entity that has been deleted
+     */
+    @PostRemove
+    public void onDeleted(Object entity) {
+        if (entity instanceof Product) {
+            long productId = ((Product) entity).getID();
+            AfterCommit.run(() -> nameDictionaryService.getObject().getProductNames().remove(productId));
+        } else if (entity instanceof Business) {
+            long businessId = ((Business) entity).getId();
+            AfterCommit.run(() -> nameDictionaryService.getObject().getBusinessNames().remove(businessId));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.seng302.leftovers.persistence;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.*;
+
+/**
+ * A specification which is labelled with the name of the method that constructed it, so that the query stats can
+ * tell apart searches of the same entity. Specifications are usually combined with others before they reach a
+ * repository, so the name cannot be read from the specification passed to the repository. Instead each named
+ * specification notes its name on the current thread when it is turned into a predicate, which happens during the
+ * repository call, and the repository timing interceptor collects the names noted during the call.
+ * @param <T> Entity the specification finds
+ */
+public final class NamedSpecification<T> implements Specification<T> {
+    private static final ThreadLocal<Deque<Set<String>>> appliedNames = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final String name;
+    private final Specification<T> specification;
+
+    private NamedSpecification(String name, Specification<T> specification) {
+        this.name = name;
+        this.specification = specification;
+    }
+
+    /**
+     * Labels a specification with a name
+     * @param name Name of the method which constructed the specification
+     * @param specification Specification to label, which may be null to match every entity
+     * @param <T> Entity the specification finds
+     * @return The named specification
+     */
+    public static <T> Specification<T> named(String name, Specification<T> specification) {
+        return new NamedSpecification<>(name, specification);
+    }
+
+    /**
+     * @return Name of the method which constructed the specification
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Predicate toPredicate(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
+        for (Set<String> names : appliedNames.get()) {
+            names.add(name);
+        }
+        return specification == null ? null : specification.toPredicate(root, query, criteriaBuilder);
+    }
+
+    /**
+     * Starts collecting the names of the specifications applied on this thread. Must be followed by a call to
+     * stopRecording on the same thread.
+     */
+    static void startRecording() {
+        appliedNames.get().push(new TreeSet<>());
+    }
+
+    /**
+     * Stops the most recently started collection of names
+     * @return Names of the specifications applied since the collection was started, in alphabetical order
+     */
+    static Set<String> stopRecording() {
+        return appliedNames.get().pop();
+    }
+}
@@ -0,0 +1,37 @@
+package org.seng302.leftovers.persistence;
+
+import org.seng302.leftovers.entities.OutboxEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository class for persisting and accessing OutboxEntry data from the database.
+ */
+@Repository
+public interface OutboxEntryRepository extends CrudRepository<OutboxEntry, Long> {
+
+    /**
+     * Finds the oldest outbox entries which have failed fewer than the given number of times
+     * @param maxAttempts Only entries with fewer failed attempts than this are returned
+     * @param pageable Limits the number of entries returned
+     * @return Entries that still need to be processed, in the order they were saved
+     */
+    @Query("select o from OutboxEntry o where o.attempts < :maxAttempts order by o.id")
+    List<OutboxEntry> findPendingEntries(int maxAttempts, Pageable pageable);
+
+    /**
+     * Finds the oldest outbox entries which have failed at least the given number of times and were created before the
+     * given time
+     * @param maxAttempts Only entries with at least this many failed attempts are returned
+     * @param cutoff Only entries created before this are returned
+     * @param pageable Limits the number of entries returned
+     * @return Entries that have been given up on, in the order they were saved
+     */
+    @Query("select o from OutboxEntry o where o.attempts >= :maxAttempts and o.created < :cutoff order by o.id")
+    List<OutboxEntry> findFailedEntriesCreatedBefore(int maxAttempts, Instant cutoff, Pageable pageable);
+}
@@ -5,7 +5,6 @@ import org.seng302.leftovers.entities.Product;
 import org.seng302.leftovers.exceptions.DoesNotExistResponseException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -14,7 +13,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends PagingAndSortingRepository<Product, Long>, JpaSpecificationExecutor<Product> {
+public interface ProductRepository extends PagingAndSortingRepository<Product, Long>, SliceSpecificationExecutor<Product> {
 
         /**
          *
@@ -0,0 +1,147 @@
+package org.seng302.leftovers.persistence;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.seng302.leftovers.service.QueryStatsService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.BaseStream;
+
+/**
+ * Instruments every repository and SQL statement for the QueryStatsService.
+ * Every call of a repository method is timed by an interceptor added to the repository proxy, and Hibernate passes
+ * every SQL statement it prepares to a statement inspector, which fingerprints the statement and attributes it to the
+ * repository calls running on the same thread.
+ *
+ * Only repository calls are timed. Work which runs its queries on a Hibernate Session or StatelessSession opened
+ * directly from the SessionFactory, such as the sale listing facets, the search index rebuilds, bulk newsfeed updates,
+ * the sales export and the sales analytics snapshot, does not appear among the repository methods or specifications,
+ * although its SQL statements are still counted by the statement inspector.
+ */
+@Configuration
+public class QueryStatsConfiguration {
+
+    /**
+     * Registers a statement inspector which records every SQL statement prepared by Hibernate
+     * @param queryStatsService Service to record statements with
+     * @return Customizer adding the statement inspector to the Hibernate properties
+     */
+    @Bean
+    public HibernatePropertiesCustomizer statementInspectorCustomizer(ObjectProvider<QueryStatsService> queryStatsService) {
+        StatementInspector inspector = sql -> {
+            queryStatsService.getObject().recordStatement(sql);
+            return sql;
+        };
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+    }
+
+    /**
+     * Adds a timing interceptor to every repository as it is created. This is static so that it can be registered
+     * before the repositories are created, and looks up the QueryStatsService when the first call is timed.
+     * @param queryStatsService Service to record the calls with
+     * @return Bean post processor customizing every repository factory
+     */
+    @Bean
+    public static BeanPostProcessor repositoryTimingPostProcessor(ObjectProvider<QueryStatsService> queryStatsService) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                                    proxyFactory.addAdvice(timingInterceptor(repositoryInformation, queryStatsService))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Creates an interceptor which times every call of a repository method. Calls which are passed a specification
+     * are also recorded under the type of entity the specification finds, followed by the names of the
+     * NamedSpecifications applied during the call.
+     * @param repositoryInformation Repository being intercepted
+     * @param queryStatsService Service to record the calls with
+     * @return The interceptor
+     */
+    private static MethodInterceptor timingInterceptor(RepositoryInformation repositoryInformation,
+                                                       ObjectProvider<QueryStatsService> queryStatsService) {
+        String repositoryName = repositoryInformation.getRepositoryInterface().getSimpleName();
+        String domainType = repositoryInformation.getDomainType().getSimpleName();
+        return invocation -> {
+            if (invocation.getMethod().getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            String operation = repositoryName + "." + invocation.getMethod().getName();
+            boolean usesSpecification = Arrays.stream(invocation.getArguments()).anyMatch(Specification.class::isInstance);
+            if (!usesSpecification) {
+                try (var query = queryStatsService.getObject().startQuery(operation, null)) {
+                    Object result = invocation.proceed();
+                    query.setRows(countRows(result));
+                    return result;
+                }
+            }
+            try (var query = queryStatsService.getObject().startQuery(operation, domainType)) {
+                NamedSpecification.startRecording();
+                try {
+                    Object result = invocation.proceed();
+                    query.setRows(countRows(result));
+                    return result;
+                } finally {
+                    query.setSpecificationType(specificationType(domainType, NamedSpecification.stopRecording()));
+                }
+            }
+        };
+    }
+
+    /**
+     * Describes the specifications used by a repository call
+     * @param domainType Name of the entity the specifications find
+     * @param names Names of the NamedSpecifications applied during the call
+     * @return The entity name, followed by the specification names if there are any
+     */
+    static String specificationType(String domainType, Collection<String> names) {
+        if (names.isEmpty()) {
+            return domainType;
+        }
+        return domainType + " " + String.join("+", names);
+    }
+
+    /**
+     * Counts the rows returned by a repository method. Streams are not counted, as that would consume them.
+     * @param result Value returned by the method
+     * @return Number of entities or values returned
+     */
+    static long countRows(Object result) {
+        if (result == null) {
+            return 0;
+        } else if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        } else if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        } else if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        } else if (result instanceof Iterable) {
+            long rows = 0;
+            for (Object ignored : (Iterable<?>) result) {
+                rows++;
+            }
+            return rows;
+        } else if (result instanceof BaseStream) {
+            return 0;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,43 @@
+package org.seng302.leftovers.persistence;
+
+import org.seng302.leftovers.entities.BoughtSaleItem;
+import org.seng302.leftovers.entities.DailySalesRollup;
+import org.seng302.leftovers.service.ReportBucketCache;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.time.LocalDate;
+
+/**
+ * JPA entity listener which invalidates the ReportBucketCache records of a business whenever one of its sales in a
+ * closed period is created, changed or deleted.
+ */
+public class ReportCacheListener {
+    private final ObjectProvider<ReportBucketCache> reportBucketCache;
+
+    public ReportCacheListener(ObjectProvider<ReportBucketCache> reportBucketCache) {
+        this.reportBucketCache = reportBucketCache;
+    }
+
+    /**
+     * Invalidates the cached records of the sale's business once the transaction which changed the sale has
+     * committed, if the sale was made before the day the transaction committed on. Checking when the transaction
+     * commits catches a sale which is committed just after its period has closed.
+     * @param item Sale that has been inserted, updated or deleted
+     */
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChanged(BoughtSaleItem item) {
+        ReportBucketCache cache = reportBucketCache.getObject();
+        long businessId = item.getProduct().getBusiness().getId();
+        LocalDate saleDay = DailySalesRollup.dayOf(item.getSaleDate());
+        AfterCommit.run(() -> {
+            if (saleDay.isBefore(LocalDate.now())) {
+                cache.invalidate(businessId);
+            }
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package org.seng302.leftovers.persistence;
+
+import org.seng302.leftovers.entities.Business;
+import org.seng302.leftovers.entities.Location;
+import org.seng302.leftovers.entities.Product;
+import org.seng302.leftovers.entities.SaleItem;
+import org.seng302.leftovers.service.search.SaleItemSearchIndex;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * JPA entity listener which keeps the SaleItemSearchIndex up to date with the sale items, and with the products,
+ * businesses and locations whose text is searched along with them.
+ * Changes are applied once committed, see {@link AfterCommit}.
+ */
+public class SaleItemIndexingListener {
+    private final ObjectProvider<SaleItemSearchIndex> saleItemSearchIndex;
+
+    public SaleItemIndexingListener(ObjectProvider<SaleItemSearchIndex> saleItemSearchIndex) {
+        this.saleItemSearchIndex = saleItemSearchIndex;
+    }
+
+    /**
+     * Adds a newly created sale item to the index
+     * @param entity Entity that has been inserted
+     */
+    @PostPersist
+    public void onCreated(Object entity) {
+        if (entity instanceof SaleItem) {
+            long saleItemId = ((SaleItem) entity).getId();
+            record(index -> index.index(List.of(saleItemId)));
+        }
+    }
+
+    /**
+     * Updates the indexed text of any sale item affected by a change to an entity
+     * @param entity Entity that has been updated
+     */
+    @PostUpdate
+    public void onUpdated(Object entity) {
+        if (entity instanceof SaleItem) {
+            long saleItemId = ((SaleItem) entity).getId();
+            record(index -> index.index(List.of(saleItemId)));
+        } else if (entity instanceof Product) {
+            record(index -> index.updateProduct((Product) entity));
+        } else if (entity instanceof Business) {
+            record(index -> index.updateBusiness((Business) entity));
+        } else if (entity instanceof Location) {
+            record(index -> index.updateLocation((Location) entity));
+        }
+    }
+
+    /**
+     * Removes a deleted sale item, or the sale items of a deleted product, from the index
+     * @param entity Entity that has been deleted
+     */
+    @PostRemove
+    public void onDeleted(Object entity) {
+        if (entity instanceof SaleItem) {
+            long saleItemId = ((SaleItem) entity).getId();
+            record(index -> index.remove(saleItemId));
+        } else if (entity instanceof Product) {
+            long productId = ((Product) entity).getID();
+            record(index -> index.removeProduct(productId));
+        }
+    }
+
+    /**
+     * Applies a change to the index once the transaction that made it has committed
+     * @param change Change to apply to the index
+     */
+    private void record(Consumer<SaleItemSearchIndex> change) {
+        SaleItemSearchIndex index = saleItemSearchIndex.getObject();
+        AfterCommit.run(() -> change.accept(index));
+    }
+}
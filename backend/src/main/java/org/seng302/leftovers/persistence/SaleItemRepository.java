@@ -4,14 +4,13 @@ import org.seng302.leftovers.entities.Business;
 import org.seng302.leftovers.entities.SaleItem;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface SaleItemRepository extends CrudRepository<SaleItem, Long>, JpaSpecificationExecutor<SaleItem> {
+public interface SaleItemRepository extends CrudRepository<SaleItem, Long>, SliceSpecificationExecutor<SaleItem> {
 
     /**
      * Finds all the sale items for a given business
@@ -0,0 +1,35 @@
+package org.seng302.leftovers.persistence;
+
+import org.seng302.leftovers.service.search.SaleListingResultCache;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * JPA entity listener which invalidates the SaleListingResultCache whenever a sale item, or the inventory item,
+ * product, business or address shown with it, is created, changed or deleted. Hibernate does not update an entity
+ * when only one of its collections changes, such as the images of a product or business or the interested users of a
+ * sale item, so the code which makes those changes invalidates the cache itself.
+ */
+public class SaleListingCacheListener {
+    private final ObjectProvider<SaleListingResultCache> saleListingResultCache;
+
+    public SaleListingCacheListener(ObjectProvider<SaleListingResultCache> saleListingResultCache) {
+        this.saleListingResultCache = saleListingResultCache;
+    }
+
+    /**
+     * Invalidates the cached search results once the transaction which changed the entity has committed, so that a
+     * search run before the commit cannot cache the results from before the change under the new version
+     * @param entity Entity that has been inserted, updated or deleted
+     */
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChanged(Object entity) {
+        SaleListingResultCache cache = saleListingResultCache.getObject();
+        AfterCommit.run(cache::invalidate);
+    }
+}
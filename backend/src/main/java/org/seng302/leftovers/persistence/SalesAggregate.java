@@ -0,0 +1,28 @@
+package org.seng302.leftovers.persistence;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+
+/**
+ * Row of SalesAggregateRepository.aggregateSales, which is the totals of the sale items a business sold in one period.
+ * Totals are returned instead of averages so that the averages are calculated in exactly the same way as when the
+ * sale items are summed one by one.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class SalesAggregate {
+    private int period;
+    private long listingsSold;
+    private long quantitySold;
+    private BigDecimal totalPrice;
+    private long totalLikes;
+    private long totalSecondsToSell;
+    private long uniqueBuyers;
+    private long uniqueProducts;
+}
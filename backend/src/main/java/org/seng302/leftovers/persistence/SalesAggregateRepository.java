@@ -0,0 +1,21 @@
+package org.seng302.leftovers.persistence;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository fragment for summarising the sales of a business over many periods with a single query
+ */
+public interface SalesAggregateRepository {
+
+    /**
+     * Totals the sale items a business sold in each of the given periods. The sale items are assigned to their period
+     * and grouped in the database, so only one row is returned for each period, and periods without any sales are not
+     * returned at all.
+     * @param businessId ID of the business which sold the sale items
+     * @param periodStarts Start of each period (inclusive)
+     * @param periodEnds End of each period (exclusive), in the same order as the starts
+     * @return The totals of each period with sales, identified by the index of the period
+     */
+    List<SalesAggregate> aggregateSales(long businessId, List<Instant> periodStarts, List<Instant> periodEnds);
+}
@@ -0,0 +1,168 @@
+package org.seng302.leftovers.persistence;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Implementation of SalesAggregateRepository, which is included in BoughtSaleItemRepository by Spring Data.
+ * The period of each sale item is found in a derived table, so that the outer query can group by a plain column,
+ * which every database allows. Each sale date is turned into its offset in whole seconds from the start of the first
+ * period, so the query only binds the start of the first period however many periods there are, and the period starts
+ * and ends are taken to the second. When every period is the same length and starts a whole number of lengths after
+ * the first, such as days without a daylight saving change, the period is found by dividing the offset by the length.
+ * Otherwise the sale items are joined to a small derived table of the period offsets. Times are found with
+ * TIMESTAMPDIFF, which both H2 and MariaDB support.
+ */
+public class SalesAggregateRepositoryImpl implements SalesAggregateRepository {
+    private final EntityManager entityManager;
+
+    public SalesAggregateRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<SalesAggregate> aggregateSales(long businessId, List<Instant> periodStarts, List<Instant> periodEnds) {
+        if (periodStarts.isEmpty() && periodEnds.isEmpty()) {
+            return List.of();
+        }
+        Buckets buckets = Buckets.of(periodStarts, periodEnds);
+        Query query = createBucketQuery("count(*), sum(t.quantity), sum(t.price), sum(t.like_count), " +
+                        "sum(t.seconds_to_sell), count(distinct t.buyer), count(distinct t.product_id)",
+                "b.quantity, b.price, b.like_count, b.buyer, b.product_id, " +
+                        "timestampdiff(SECOND, b.listing_date, b.sale_date) as seconds_to_sell",
+                businessId, buckets);
+
+        List<SalesAggregate> aggregates = new ArrayList<>();
+        for (Object[] row : (List<Object[]>) query.getResultList()) {
+            Integer period = buckets.getPeriod(((Number) row[0]).longValue());
+            if (period == null) {
+                continue;
+            }
+            aggregates.add(new SalesAggregate(
+                    period,
+                    ((Number) row[1]).longValue(),
+                    ((Number) row[2]).longValue(),
+                    toBigDecimal((Number) row[3]),
+                    ((Number) row[4]).longValue(),
+                    ((Number) row[5]).longValue(),
+                    ((Number) row[6]).longValue(),
+                    ((Number) row[7]).longValue()));
+        }
+        return aggregates;
+    }
+
+    /**
+     * How the sale items are assigned to periods. The offsets of the periods are written into the query as numbers
+     * rather than bound.
+     */
+    private static final class Buckets {
+        private final Instant first;
+        private final long endOffset;
+        private final String join;
+        private final String bucket;
+        private final Map<Long, Integer> periodsByBucket;
+
+        private Buckets(Instant first, long endOffset, String join, String bucket, Map<Long, Integer> periodsByBucket) {
+            this.first = first;
+            this.endOffset = endOffset;
+            this.join = join;
+            this.bucket = bucket;
+            this.periodsByBucket = periodsByBucket;
+        }
+
+        /**
+         * Chooses how to assign sale items to the given periods
+         * @param periodStarts Start of each period (inclusive)
+         * @param periodEnds End of each period (exclusive)
+         * @return Division of the offset by the period length if the periods are on a grid, otherwise a join to a
+         * derived table of the period offsets
+         */
+        private static Buckets of(List<Instant> periodStarts, List<Instant> periodEnds) {
+            if (periodStarts.size() != periodEnds.size()) {
+                throw new IllegalArgumentException("Every period must have a start and an end");
+            }
+            Instant first = Collections.min(periodStarts).truncatedTo(ChronoUnit.SECONDS);
+            long[] starts = new long[periodStarts.size()];
+            long[] ends = new long[periodEnds.size()];
+            for (int i = 0; i < starts.length; i++) {
+                starts[i] = ChronoUnit.SECONDS.between(first, periodStarts.get(i).truncatedTo(ChronoUnit.SECONDS));
+                ends[i] = ChronoUnit.SECONDS.between(first, periodEnds.get(i).truncatedTo(ChronoUnit.SECONDS));
+            }
+            long endOffset = Arrays.stream(ends).max().orElseThrow();
+            String offset = "timestampdiff(SECOND, :first, b.sale_date)";
+
+            long length = ends[0] - starts[0];
+            Map<Long, Integer> periodsByBucket = getGridPeriods(starts, ends, length);
+            if (periodsByBucket != null) {
+                return new Buckets(first, endOffset, "", "floor(" + offset + " / " + length + ")", periodsByBucket);
+            }
+
+            StringJoiner periods = new StringJoiner(" union all ");
+            for (int i = 0; i < starts.length; i++) {
+                periods.add("select " + i + " as period_index, " + starts[i] + " as period_start, " + ends[i] + " as period_end");
+            }
+            String join = "join (" + periods + ") r on " + offset + " >= r.period_start and " + offset + " < r.period_end ";
+            return new Buckets(first, endOffset, join, "r.period_index", null);
+        }
+
+        /**
+         * Checks whether the periods are cells of a grid starting at the first period, and if so finds which cell each
+         * period is. The periods do not have to be consecutive.
+         * @param starts Offset of the start of each period
+         * @param ends Offset of the end of each period
+         * @param length Length of the first period
+         * @return Index of the period of each grid cell, or null if the periods are not on a grid
+         */
+        private static Map<Long, Integer> getGridPeriods(long[] starts, long[] ends, long length) {
+            if (length <= 0) {
+                return null;
+            }
+            Map<Long, Integer> periodsByBucket = new HashMap<>();
+            for (int i = 0; i < starts.length; i++) {
+                if (ends[i] - starts[i] != length || starts[i] % length != 0
+                        || periodsByBucket.putIfAbsent(starts[i] / length, i) != null) {
+                    return null;
+                }
+            }
+            return periodsByBucket;
+        }
+
+        /**
+         * @param bucket Bucket a row of the query was grouped by
+         * @return Index of the period of the bucket, or null if the bucket is between the requested periods
+         */
+        private Integer getPeriod(long bucket) {
+            return periodsByBucket == null ? Integer.valueOf((int) bucket) : periodsByBucket.get(bucket);
+        }
+    }
+
+    /**
+     * Creates a query grouping the sale items of a business by the period they were sold in
+     * @param aggregates Aggregate expressions over the columns of the derived table t, selected after the bucket
+     * @param columns Columns of the sale item b, or expressions using them, included in the derived table
+     * @param businessId ID of the business which sold the sale items
+     * @param buckets How the sale items are assigned to periods
+     * @return The query, with every parameter set
+     */
+    private Query createBucketQuery(String aggregates, String columns, long businessId, Buckets buckets) {
+        String sql = "select t.bucket, " + aggregates + " " +
+                "from (select " + buckets.bucket + " as bucket, " + columns + " " +
+                "from bought_sale_item b join product p on p.id = b.product_id " + buckets.join +
+                "where p.business_id = :businessId and b.sale_date >= :first and b.sale_date < :end) t " +
+                "group by t.bucket";
+
+        return entityManager.createNativeQuery(sql)
+                .setParameter("businessId", businessId)
+                .setParameter("first", buckets.first)
+                .setParameter("end", buckets.first.plusSeconds(buckets.endOffset));
+    }
+
+    private static BigDecimal toBigDecimal(Number value) {
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+}
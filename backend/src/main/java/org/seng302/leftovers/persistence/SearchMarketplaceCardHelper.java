@@ -7,7 +7,9 @@ import org.springframework.data.jpa.domain.Specification;
 import javax.persistence.criteria.Join;
 import javax.persistence.criteria.Root;
 import javax.persistence.criteria.Subquery;
+import java.util.BitSet;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Defines specifications for searching MarketplaceCard entities
@@ -45,6 +47,21 @@ public class SearchMarketplaceCardHelper {
         };
     }
 
+    /**
+     * Specification for a marketplace card with one of the given ids
+     * @param cardIds Bitmap with a bit set for the id of every card to match
+     * @return Generated specification that filters by id
+     */
+    public static Specification<MarketplaceCard> cardIdIn(BitSet cardIds) {
+        return (root, query, criteriaBuilder) -> {
+            if (cardIds.isEmpty()) {
+                return criteriaBuilder.disjunction();
+            }
+            List<Long> ids = cardIds.stream().mapToObj(id -> (long) id).collect(Collectors.toList());
+            return root.get("id").in(ids);
+        };
+    }
+
     /**
      * Specification for a marketplace card in the provided section
      * @param section Section to filter cards by
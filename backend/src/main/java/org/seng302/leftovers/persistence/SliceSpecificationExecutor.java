@@ -0,0 +1,25 @@
+package org.seng302.leftovers.persistence;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.repository.NoRepositoryBean;
+
+/**
+ * Specification executor which can fetch a page of entities without counting every entity matching the specification.
+ * Implemented for every repository by SliceableJpaRepository.
+ * @param <T> Type of entity
+ */
+@NoRepositoryBean
+public interface SliceSpecificationExecutor<T> extends JpaSpecificationExecutor<T> {
+
+    /**
+     * Finds a page of the entities matching a specification. One more entity than fits on the page is fetched to find
+     * whether there is a next page, instead of running a count query.
+     * @param spec Specification to match, or null to match every entity
+     * @param pageable Page to fetch and the order of the entities
+     * @return Slice of the matching entities
+     */
+    Slice<T> findSlice(Specification<T> spec, Pageable pageable);
+}
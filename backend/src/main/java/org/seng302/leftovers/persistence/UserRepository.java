@@ -4,7 +4,6 @@ import org.seng302.leftovers.dto.user.UserRole;
 import org.seng302.leftovers.entities.User;
 import org.seng302.leftovers.entities.event.Event;
 import org.seng302.leftovers.exceptions.DoesNotExistResponseException;
-import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -24,7 +23,7 @@ import java.util.List;
  * See https://docs.spring.io/spring-data/rest/docs/current/reference/html/
  */
 
-public interface UserRepository extends CrudRepository<User, Long>, JpaSpecificationExecutor<User> {
+public interface UserRepository extends CrudRepository<User, Long>, SliceSpecificationExecutor<User> {
 
     /**
      *
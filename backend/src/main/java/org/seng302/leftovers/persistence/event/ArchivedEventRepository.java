@@ -0,0 +1,12 @@
+package org.seng302.leftovers.persistence.event;
+
+import org.seng302.leftovers.entities.event.ArchivedEvent;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository class for accessing the records of events which have been archived by the EventRetentionService.
+ */
+@Repository
+public interface ArchivedEventRepository extends CrudRepository<ArchivedEvent, Long> {
+}
@@ -0,0 +1,16 @@
+package org.seng302.leftovers.persistence.event;
+
+import org.seng302.leftovers.dto.event.EventStatus;
+import org.seng302.leftovers.dto.event.EventTag;
+
+/**
+ * Projection for a row of EventRepository.countEventsForUsers, which is the number of events a user has with a
+ * particular combination of read flag, tag and status
+ */
+public interface EventCount {
+    Long getUserId();
+    Boolean getRead();
+    EventTag getTag();
+    EventStatus getStatus();
+    Long getTotal();
+}
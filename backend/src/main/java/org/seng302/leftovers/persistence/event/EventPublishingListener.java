@@ -0,0 +1,49 @@
+package org.seng302.leftovers.persistence.event;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.leftovers.entities.event.Event;
+import org.seng302.leftovers.persistence.AfterCommit;
+import org.seng302.leftovers.service.EventStreamService;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostUpdate;
+
+/**
+ * JPA entity listener which publishes every saved event to the EventStreamService. This means that every
+ * eventRepository.save(...) call site feeds the newsfeed streams without needing to know about them.
+ * Instances are created by Hibernate through the Spring bean container, so dependencies are constructor injected.
+ */
+public class EventPublishingListener {
+    private static final Logger logger = LogManager.getLogger(EventPublishingListener.class);
+
+    private final EventStreamService eventStreamService;
+
+    public EventPublishingListener(EventStreamService eventStreamService) {
+        this.eventStreamService = eventStreamService;
+    }
+
+    /**
+     * Publishes the event once the transaction that saved it has committed, so that subscribers are never sent an
+     * event which is then rolled back
+     * @param event Event that has been inserted or updated
+     */
+    @PostPersist
+    @PostUpdate
+    public void onEventSaved(Event event) {
+        AfterCommit.run(() -> publish(event));
+    }
+
+    /**
+     * Publishes the event to the stream service. Failures are logged rather than thrown since the event has already
+     * been saved and clients can still recover it by resuming their stream.
+     * @param event Event to publish
+     */
+    private void publish(Event event) {
+        try {
+            eventStreamService.publish(event);
+        } catch (RuntimeException e) {
+            logger.error("Failed to publish event (id={}) to newsfeed streams: {}", event.getId(), e.getMessage());
+        }
+    }
+}
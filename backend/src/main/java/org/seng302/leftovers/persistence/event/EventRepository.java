@@ -2,11 +2,13 @@ package org.seng302.leftovers.persistence.event;
 
 import org.seng302.leftovers.entities.User;
 import org.seng302.leftovers.entities.event.Event;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -22,6 +24,17 @@ public interface EventRepository extends CrudRepository<Event, Long> {
     @Query("select e from Event e where e.notifiedUser = :user and e.lastModified > :modifiedSince order by e.created desc")
     List<Event> findEventsForUser(User user, Instant modifiedSince);
 
+    /**
+     * Finds all the events for the given user which were last modified at or after the given date. The returned events
+     * will be in ascending order by their last modified date and then their id, which is the order they are sent on a
+     * newsfeed stream.
+     * @param user Only events where the notified user is this user will be returned.
+     * @param modifiedFrom Only events which were modified at or after this instant will be returned.
+     * @return List of events the user needs to be notified of.
+     */
+    @Query("select e from Event e where e.notifiedUser = :user and e.lastModified >= :modifiedFrom order by e.lastModified, e.id")
+    List<Event> findEventsForUserModifiedFrom(User user, Instant modifiedFrom);
+
     /**
      * Finds all the events for the given user. The returned events will be in descending order by their creation date.
      * @param user Only events where the notified user is this user will be returned.
@@ -29,4 +42,38 @@ public interface EventRepository extends CrudRepository<Event, Long> {
      */
     @Query("select e from Event e where e.notifiedUser = :user order by e.created desc")
     List<Event> findEventsForUser(User user);
+
+    /**
+     * Finds the most recent events for the given user, ordered by descending creation date and then descending id.
+     * Only the number of events given by the pageable's page size are fetched, and no count query is performed.
+     * @param user Only events where the notified user is this user will be returned.
+     * @param pageable Limits the number of events returned.
+     * @return First page of events the user needs to be notified of.
+     */
+    @Query("select e from Event e where e.notifiedUser = :user order by e.created desc, e.id desc")
+    List<Event> findEventPageForUser(User user, Pageable pageable);
+
+    /**
+     * Finds the events for the given user which come after the given position in the newsfeed, where events are ordered
+     * by descending creation date and then descending id. This allows the newsfeed to be paged using a keyset rather
+     * than an offset, so the cost of fetching a page does not depend on how far through the newsfeed it is.
+     * @param user Only events where the notified user is this user will be returned.
+     * @param created Creation date of the last event on the previous page.
+     * @param id ID of the last event on the previous page.
+     * @param pageable Limits the number of events returned.
+     * @return Next page of events the user needs to be notified of.
+     */
+    @Query("select e from Event e where e.notifiedUser = :user and (e.created < :created or (e.created = :created and e.id < :id)) order by e.created desc, e.id desc")
+    List<Event> findEventPageForUserAfter(User user, Instant created, Long id, Pageable pageable);
+
+    /**
+     * Counts the events of each of the given users, grouped by whether they have been read, their tag and their status.
+     * Used to build the feed summary counters without loading any events.
+     * @param userIds Only events where the notified user has one of these ids will be counted.
+     * @return Number of events for each combination of user, read flag, tag and status which has at least one event.
+     */
+    @Query("select e.notifiedUser.userID as userId, e.isRead as read, e.eventTag as tag, e.eventStatus as status, count(e) as total " +
+            "from Event e where e.notifiedUser.userID in :userIds " +
+            "group by e.notifiedUser.userID, e.isRead, e.eventTag, e.eventStatus")
+    List<EventCount> countEventsForUsers(Collection<Long> userIds);
 }
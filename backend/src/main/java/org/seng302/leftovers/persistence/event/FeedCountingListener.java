@@ -0,0 +1,64 @@
+package org.seng302.leftovers.persistence.event;
+
+import org.seng302.leftovers.entities.event.Event;
+import org.seng302.leftovers.persistence.AfterCommit;
+import org.seng302.leftovers.service.FeedSummaryService;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * JPA entity listener which records every created, changed and deleted event in the FeedSummaryService, so that each
+ * user's feed counters stay up to date without being recounted. Changes are recorded once committed, see
+ * {@link AfterCommit}.
+ */
+public class FeedCountingListener {
+    private final ObjectProvider<FeedSummaryService> feedSummaryService;
+
+    public FeedCountingListener(ObjectProvider<FeedSummaryService> feedSummaryService) {
+        this.feedSummaryService = feedSummaryService;
+    }
+
+    /**
+     * Records a newly inserted event
+     * @param event Event that has been inserted
+     */
+    @PostPersist
+    public void onEventCreated(Event event) {
+        record(event, null, event.getCountedState());
+    }
+
+    /**
+     * Records the change made by an update to an event. This runs before the event remembers its new state, so the
+     * saved state is still the state before the update.
+     * @param event Event that has been updated
+     */
+    @PostUpdate
+    public void onEventUpdated(Event event) {
+        record(event, event.getSavedCountedState(), event.getCountedState());
+    }
+
+    /**
+     * Records a deleted event
+     * @param event Event that has been deleted
+     */
+    @PostRemove
+    public void onEventDeleted(Event event) {
+        Event.CountedState saved = event.getSavedCountedState();
+        record(event, saved != null ? saved : event.getCountedState(), null);
+    }
+
+    /**
+     * Records a change to an event once the transaction that made it has committed
+     * @param event Event that has changed
+     * @param before Counted state of the event before the change, or null if it has been created
+     * @param after Counted state of the event after the change, or null if it has been deleted
+     */
+    private void record(Event event, Event.CountedState before, Event.CountedState after) {
+        long userId = event.getNotifiedUser().getUserID();
+        FeedSummaryService service = feedSummaryService.getObject();
+        AfterCommit.run(() -> service.recordChange(userId, before, after));
+    }
+}
@@ -0,0 +1,375 @@
+package org.seng302.leftovers.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.query.Query;
+import org.seng302.leftovers.dto.event.EventStatus;
+import org.seng302.leftovers.dto.event.EventTag;
+import org.seng302.leftovers.entities.User;
+import org.seng302.leftovers.entities.event.ArchivedEvent;
+import org.seng302.leftovers.entities.event.Event;
+import org.seng302.leftovers.entities.event.ExpiryEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.metamodel.EntityType;
+import java.lang.reflect.Modifier;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Service which removes old events from users' newsfeeds so that the event tables do not grow without bound.
+ * Events matching a retention rule are moved into the compact archived_event table in small batches, each in its own
+ * transaction and followed by a pause, so that the job never holds locks for long or competes with request traffic.
+ * Each run is capped at a maximum number of events, and any remaining events are archived by the next run.
+ *
+ * The rules are configured with the event-retention.rules property as a comma separated list. Each rule is a list of
+ * conditions followed by the age in days since the event was last modified, e.g. "read archived 90d". The conditions
+ * are "read", "unread" and the event status names, and a rule with several statuses matches any of them.
+ */
+@Service
+public class EventRetentionService {
+    private static final Logger logger = LogManager.getLogger(EventRetentionService.class);
+
+    private final SessionFactory sessionFactory;
+    private final FeedSummaryService feedSummaryService;
+    private final List<Rule> rules;
+    private final int batchSize;
+    private final int maxEventsPerRun;
+    private final Duration batchPause;
+    private final Clock clock;
+
+    private final AtomicLong totalRuns = new AtomicLong();
+    private final AtomicLong totalArchived = new AtomicLong();
+    private volatile RetentionRun lastRun;
+
+    @Autowired
+    public EventRetentionService(SessionFactory sessionFactory, FeedSummaryService feedSummaryService,
+                                 @Value("${event-retention.rules:read archived 90d}") String rules,
+                                 @Value("${event-retention.batch-size:500}") int batchSize,
+                                 @Value("${event-retention.max-events-per-run:50000}") int maxEventsPerRun,
+                                 @Value("${event-retention.batch-pause-ms:200}") long batchPauseMillis) {
+        this(sessionFactory, feedSummaryService, Rule.parseAll(rules), batchSize, maxEventsPerRun,
+                Duration.ofMillis(batchPauseMillis), Clock.systemUTC());
+    }
+
+    EventRetentionService(SessionFactory sessionFactory, FeedSummaryService feedSummaryService, List<Rule> rules,
+                          int batchSize, int maxEventsPerRun, Duration batchPause, Clock clock) {
+        if (batchSize <= 0 || maxEventsPerRun <= 0) {
+            throw new IllegalArgumentException("Event retention batch size and maximum events per run must be positive");
+        }
+        this.sessionFactory = sessionFactory;
+        this.feedSummaryService = feedSummaryService;
+        this.rules = List.copyOf(rules);
+        this.batchSize = batchSize;
+        this.maxEventsPerRun = maxEventsPerRun;
+        this.batchPause = batchPause;
+        this.clock = clock;
+    }
+
+    /**
+     * A rule selecting the events to archive
+     */
+    public static final class Rule {
+        private final String spec;
+        private final Duration age;
+        private final Boolean read;
+        private final Set<EventStatus> statuses;
+
+        private Rule(String spec, Duration age, Boolean read, Set<EventStatus> statuses) {
+            this.spec = spec;
+            this.age = age;
+            this.read = read;
+            this.statuses = statuses;
+        }
+
+        /**
+         * Parses a comma separated list of rules
+         * @param specs Rules to parse, e.g. "read archived 90d, read 365d"
+         * @return Parsed rules, in the order given
+         */
+        public static List<Rule> parseAll(String specs) {
+            return Arrays.stream(specs.split(","))
+                    .map(String::trim)
+                    .filter(spec -> !spec.isEmpty())
+                    .map(Rule::parse)
+                    .collect(Collectors.toList());
+        }
+
+        /**
+         * Parses a single rule, made of conditions followed by an age in days
+         * @param spec Rule to parse, e.g. "read archived 90d"
+         * @return Parsed rule
+         */
+        public static Rule parse(String spec) {
+            String[] tokens = spec.trim().toLowerCase(Locale.ROOT).split("\\s+");
+            String ageToken = tokens[tokens.length - 1];
+            if (!ageToken.matches("\\d+d")) {
+                throw new IllegalArgumentException("Event retention rule \"" + spec + "\" must end with an age in days, e.g. 90d");
+            }
+            Duration age = Duration.ofDays(Long.parseLong(ageToken.substring(0, ageToken.length() - 1)));
+
+            Boolean read = null;
+            Set<EventStatus> statuses = EnumSet.noneOf(EventStatus.class);
+            for (int i = 0; i < tokens.length - 1; i++) {
+                if (tokens[i].equals("read") || tokens[i].equals("unread")) {
+                    boolean tokenRead = tokens[i].equals("read");
+                    if (read != null && read != tokenRead) {
+                        throw new IllegalArgumentException("Event retention rule \"" + spec + "\" cannot be both read and unread");
+                    }
+                    read = tokenRead;
+                } else {
+                    statuses.add(parseStatus(tokens[i], spec));
+                }
+            }
+            return new Rule(spec.trim(), age, read, statuses);
+        }
+
+        /**
+         * Parses a status condition of a rule
+         * @param token Condition to parse
+         * @param spec Whole rule, for the error message
+         * @return Status named by the condition
+         */
+        private static EventStatus parseStatus(String token, String spec) {
+            try {
+                return EventStatus.valueOf(token.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown condition \"" + token + "\" in event retention rule \"" + spec + "\"");
+            }
+        }
+
+        public Duration getAge() {
+            return age;
+        }
+
+        public Boolean getRead() {
+            return read;
+        }
+
+        public Set<EventStatus> getStatuses() {
+            return Collections.unmodifiableSet(statuses);
+        }
+
+        /**
+         * Builds the JPQL conditions for this rule, apart from the age, with the event aliased as e
+         * @return Conditions, each starting with " and "
+         */
+        private String conditions() {
+            StringBuilder conditions = new StringBuilder();
+            if (read != null) conditions.append(" and e.isRead = :read");
+            if (!statuses.isEmpty()) conditions.append(" and e.eventStatus in (:statuses)");
+            return conditions.toString();
+        }
+
+        /**
+         * Sets the parameters used by the conditions built by conditions()
+         * @param query Query to set the parameters of
+         */
+        private void setParameters(Query<?> query) {
+            if (read != null) query.setParameter("read", read);
+            if (!statuses.isEmpty()) query.setParameterList("statuses", statuses);
+        }
+
+        @Override
+        public String toString() {
+            return spec;
+        }
+    }
+
+    /**
+     * The outcome of a single run of the retention job
+     */
+    public static class RetentionRun {
+        private final Instant started;
+        private final Duration duration;
+        private final long archived;
+        private final Map<String, Long> archivedByType;
+        private final boolean limitReached;
+
+        RetentionRun(Instant started, Duration duration, Map<String, Long> archivedByType, boolean limitReached) {
+            this.started = started;
+            this.duration = duration;
+            this.archived = archivedByType.values().stream().mapToLong(Long::longValue).sum();
+            this.archivedByType = Collections.unmodifiableMap(archivedByType);
+            this.limitReached = limitReached;
+        }
+
+        public Instant getStarted() {
+            return started;
+        }
+
+        public Duration getDuration() {
+            return duration;
+        }
+
+        public long getArchived() {
+            return archived;
+        }
+
+        public Map<String, Long> getArchivedByType() {
+            return archivedByType;
+        }
+
+        public boolean isLimitReached() {
+            return limitReached;
+        }
+    }
+
+    /**
+     * Archives the events matching the retention rules. Runs every night at 3am by default, which can be changed with
+     * the event-retention.cron property.
+     */
+    @Scheduled(cron = "${event-retention.cron:0 0 3 * * *}")
+    public void scheduledRun() {
+        run();
+    }
+
+    /**
+     * Archives the events matching the retention rules, stopping once the maximum number of events per run have been
+     * archived
+     * @return The outcome of the run
+     */
+    public synchronized RetentionRun run() {
+        Instant started = clock.instant();
+        logger.info("Starting event retention run with rules {}", rules);
+
+        Map<String, Long> archivedByType = new TreeMap<>();
+        int remaining = maxEventsPerRun;
+        try (Session session = sessionFactory.openSession()) {
+            for (Rule rule : rules) {
+                Instant cutoff = started.minus(rule.getAge());
+                for (EntityType<?> type : archivableEventTypes()) {
+                    int archived;
+                    do {
+                        archived = archiveBatch(session, type.getName(), rule, cutoff, Math.min(batchSize, remaining));
+                        remaining -= archived;
+                        archivedByType.merge(type.getName(), (long) archived, Long::sum);
+                        if (archived > 0) pause();
+                    } while (archived == batchSize && remaining > 0);
+                    if (remaining == 0) break;
+                }
+                if (remaining == 0) break;
+            }
+        } catch (RuntimeException e) {
+            logger.error("Event retention run failed: {}", e.getMessage());
+        }
+
+        RetentionRun run = new RetentionRun(started, Duration.between(started, clock.instant()), archivedByType, remaining == 0);
+        lastRun = run;
+        totalRuns.incrementAndGet();
+        totalArchived.addAndGet(run.getArchived());
+        logger.info("Event retention run archived {} events in {} ms{}", run.getArchived(), run.getDuration().toMillis(),
+                run.isLimitReached() ? ", stopping at the limit of " + maxEventsPerRun : "");
+        return run;
+    }
+
+    /**
+     * Moves a single batch of events of one type which match a rule into the archive table, in its own transaction.
+     * The feed counters of the users whose events were archived are then discarded.
+     * @param session Session to run the batch with
+     * @param entityName Entity name of the event type to archive
+     * @param rule Rule selecting the events
+     * @param cutoff Events last modified before this time are archived
+     * @param limit Maximum number of events to archive
+     * @return Number of events archived
+     */
+    private int archiveBatch(Session session, String entityName, Rule rule, Instant cutoff, int limit) {
+        Instant now = clock.instant();
+        Transaction transaction = session.beginTransaction();
+        try {
+            Query<Object[]> select = session.createQuery("select e.id, e.notifiedUser.userID, e.eventTag, e.eventStatus, " +
+                    "e.isRead, e.created, e.lastModified from " + entityName + " e " +
+                    "where e.lastModified < :cutoff" + rule.conditions() + " order by e.id", Object[].class);
+            select.setParameter("cutoff", cutoff);
+            rule.setParameters(select);
+            List<Object[]> rows = select.setMaxResults(limit).getResultList();
+            if (rows.isEmpty()) {
+                transaction.commit();
+                return 0;
+            }
+
+            List<Long> eventIds = new ArrayList<>(rows.size());
+            Set<Long> userIds = new HashSet<>();
+            for (Object[] row : rows) {
+                Long eventId = (Long) row[0];
+                Long userId = (Long) row[1];
+                eventIds.add(eventId);
+                userIds.add(userId);
+                session.persist(new ArchivedEvent(eventId, session.getReference(User.class, userId), entityName,
+                        (EventTag) row[2], (EventStatus) row[3], (Boolean) row[4],
+                        (Instant) row[5], (Instant) row[6], now));
+            }
+            session.flush();
+            session.createQuery("delete from " + entityName + " e where e.id in (:eventIds)")
+                    .setParameterList("eventIds", eventIds)
+                    .executeUpdate();
+            transaction.commit();
+            session.clear();
+
+            // Bulk deletes bypass the entity listeners, so the users' feed counters are recounted when next needed
+            userIds.forEach(feedSummaryService::invalidate);
+            return rows.size();
+        } catch (RuntimeException e) {
+            transaction.rollback();
+            session.clear();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the event types which can be archived. Expiry events are never archived, since an expiry event exists only
+     * while its card is open and removing it would cause the card's expiry to be notified again.
+     * @return Concrete event entity types, in name order
+     */
+    private List<EntityType<?>> archivableEventTypes() {
+        return sessionFactory.getMetamodel().getEntities().stream()
+                .filter(type -> Event.class.isAssignableFrom(type.getJavaType()))
+                .filter(type -> !Modifier.isAbstract(type.getJavaType().getModifiers()))
+                .filter(type -> type.getJavaType() != ExpiryEvent.class)
+                .sorted(Comparator.comparing(EntityType::getName))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Waits between batches so that the job leaves room for request traffic
+     */
+    private void pause() {
+        if (batchPause.isZero()) return;
+        try {
+            Thread.sleep(batchPause.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Event retention run interrupted", e);
+        }
+    }
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    public long getTotalRuns() {
+        return totalRuns.get();
+    }
+
+    public long getTotalArchived() {
+        return totalArchived.get();
+    }
+
+    /**
+     * Gets the outcome of the most recent run
+     * @return The last run, or empty if the job has not run since the application started
+     */
+    public Optional<RetentionRun> getLastRun() {
+        return Optional.ofNullable(lastRun);
+    }
+}
@@ -0,0 +1,289 @@
+package org.seng302.leftovers.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.leftovers.dto.event.EventDTO;
+import org.seng302.leftovers.entities.event.Event;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * In-process hub which fans out newsfeed events to the server-sent event streams of the users they notify.
+ * Events are converted to DTOs on the publishing thread and then queued on each subscribed stream. Every stream has
+ * its own queue, which is written to the stream by one of a small pool of dispatcher threads, so slow clients do not
+ * hold up the request which created the event or the streams of other users, and the events of each stream are
+ * delivered in the order they were queued. At most one task per stream is waiting for the pool, so the work queued on
+ * the pool is bounded by the number of open streams.
+ *
+ * The queue of each stream is bounded. A stream whose client falls too far behind is closed, and the client will
+ * reconnect with the id of the last event it received and be sent the events it missed from the database.
+ */
+@Service
+public class EventStreamService {
+    /**
+     * Name given to each server-sent event which carries a newsfeed event
+     */
+    public static final String STREAM_EVENT_NAME = "newsfeed";
+
+    private static final long EMITTER_TIMEOUT = 30L * 60 * 1000; // 30 minutes
+
+    private static final Logger logger = LogManager.getLogger(EventStreamService.class);
+
+    private final int maxQueuedEvents;
+    private final Map<Long, Set<Stream>> streams = new ConcurrentHashMap<>();
+    private final ExecutorService dispatcher;
+
+    @Autowired
+    public EventStreamService(@Value("${event-stream.dispatcher-threads:4}") int dispatcherThreads,
+                              @Value("${event-stream.max-queued-events:1000}") int maxQueuedEvents) {
+        this.maxQueuedEvents = maxQueuedEvents;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatcherThreads, runnable -> {
+            Thread thread = new Thread(runnable, "event-stream-dispatcher-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * An open stream and the events waiting to be sent on it
+     */
+    private final class Stream {
+        private final long userId;
+        private final SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT);
+        private final Deque<SseEmitter.SseEventBuilder> queue = new ArrayDeque<>();
+        private List<EventDTO> heldDuringReplay;
+        private boolean dispatching = false;
+        private boolean closed = false;
+
+        private Stream(long userId, boolean replaying) {
+            this.userId = userId;
+            this.heldDuringReplay = replaying ? new ArrayList<>() : null;
+        }
+
+        /**
+         * Queues a newly published event. While the missed events are being read for the stream, the event is held
+         * instead, so that it is sent after the missed events.
+         * @param event Event to send
+         */
+        private synchronized void publish(EventDTO event) {
+            if (heldDuringReplay != null) {
+                heldDuringReplay.add(event);
+            } else {
+                enqueue(toStreamEvent(event));
+            }
+        }
+
+        /**
+         * Queues the events missed by the client, followed by the events published while they were being read which
+         * are not among the missed events
+         * @param missedEvents Events missed by the client, in the order they should be received
+         */
+        private synchronized void replay(List<EventDTO> missedEvents) {
+            Set<String> replayedIds = new HashSet<>();
+            for (EventDTO event : missedEvents) {
+                replayedIds.add(toStreamEventId(event));
+                enqueue(toStreamEvent(event));
+            }
+            for (EventDTO event : heldDuringReplay) {
+                if (!replayedIds.contains(toStreamEventId(event))) {
+                    enqueue(toStreamEvent(event));
+                }
+            }
+            heldDuringReplay = null;
+        }
+
+        /**
+         * Adds an event to the queue, and starts sending the queue if it is not already being sent. If the queue is
+         * full the stream is closed instead.
+         * @param event Server-sent event to queue
+         */
+        private synchronized void enqueue(SseEmitter.SseEventBuilder event) {
+            if (closed) return;
+            if (queue.size() >= maxQueuedEvents) {
+                logger.info("Closing newsfeed stream for user (id={}) after {} events were queued", userId, queue.size());
+                close();
+                emitter.complete();
+                return;
+            }
+            queue.add(event);
+            if (!dispatching) {
+                dispatching = true;
+                dispatcher.execute(this::dispatch);
+            }
+        }
+
+        /**
+         * Sends the queued events until the queue is empty or the stream is closed
+         */
+        private void dispatch() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                synchronized (this) {
+                    event = queue.poll();
+                    if (event == null || closed) {
+                        dispatching = false;
+                        return;
+                    }
+                }
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    logger.info("Closing newsfeed stream for user (id={}) after failed send: {}", userId, e.getMessage());
+                    close();
+                }
+            }
+        }
+
+        /**
+         * Stops sending events on the stream and removes it from the hub
+         */
+        private synchronized void close() {
+            closed = true;
+            queue.clear();
+            removeStream(this);
+        }
+    }
+
+    /**
+     * Opens a new stream for the given user. The stream will receive every event published for the user until the
+     * client disconnects or the stream times out.
+     * @param userId User to subscribe to the events of
+     * @return Emitter for the new stream
+     */
+    public SseEmitter subscribe(long userId) {
+        return subscribe(userId, null);
+    }
+
+    /**
+     * Opens a new stream for the given user, which is first sent the events the client missed while it was
+     * disconnected. The stream is subscribed before the missed events are read, so no event modified in between is
+     * lost, and events published while they are being read are sent after them, unless they are one of the missed
+     * events.
+     * @param userId User to subscribe to the events of
+     * @param missedEvents Reads the events the client missed, in the order they should be received, or null if the
+     *                     client has not missed any events
+     * @return Emitter for the new stream
+     */
+    public SseEmitter subscribe(long userId, Supplier<List<EventDTO>> missedEvents) {
+        Stream stream = new Stream(userId, missedEvents != null);
+        streams.computeIfAbsent(userId, id -> new CopyOnWriteArraySet<>()).add(stream);
+        SseEmitter emitter = stream.emitter;
+        emitter.onCompletion(stream::close);
+        emitter.onTimeout(stream::close);
+        emitter.onError(error -> stream.close());
+
+        if (missedEvents != null) {
+            try {
+                stream.replay(missedEvents.get());
+            } catch (RuntimeException e) {
+                stream.close();
+                throw e;
+            }
+        }
+        logger.info("Opened newsfeed stream for user (id={})", userId);
+        return emitter;
+    }
+
+    /**
+     * Publishes an event to all the streams of the user which the event notifies. Does nothing if the user does not
+     * have any open streams.
+     * @param event Newly created or updated event
+     */
+    public void publish(Event event) {
+        long userId = event.getNotifiedUser().getUserID();
+        Set<Stream> userStreams = streams.get(userId);
+        if (userStreams == null || userStreams.isEmpty()) return;
+
+        EventDTO dto = event.asDTO();
+        for (Stream stream : userStreams) {
+            stream.publish(dto);
+        }
+    }
+
+    /**
+     * Gets the number of streams that are currently open for the given user
+     * @param userId User to count the streams of
+     * @return Number of open streams
+     */
+    public int getSubscriberCount(long userId) {
+        Set<Stream> userStreams = streams.get(userId);
+        return userStreams == null ? 0 : userStreams.size();
+    }
+
+    /**
+     * Gets the ids of every user who currently has at least one open stream
+     * @return Snapshot of the subscribed user ids
+     */
+    public Set<Long> getSubscribedUserIds() {
+        return Set.copyOf(streams.keySet());
+    }
+
+    /**
+     * Sends a comment on every open stream every 30 seconds. This stops proxies from closing idle streams and lets
+     * streams whose client has gone away be detected and removed.
+     */
+    @Scheduled(fixedRate = 30 * 1000)
+    public void sendHeartbeat() {
+        for (Set<Stream> userStreams : streams.values()) {
+            for (Stream stream : userStreams) {
+                stream.enqueue(SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    /**
+     * Stops the dispatcher threads when the application shuts down
+     */
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * Gets the id of the server-sent event which carries a newsfeed event. The id is the last modified time of the
+     * event followed by its id, which allows a reconnecting client to resume after the last event it received even
+     * when several events were modified at the same time.
+     * @param event Event to get the id of
+     * @return Last modified time and id of the event, separated by a colon
+     */
+    public static String toStreamEventId(EventDTO event) {
+        return event.getLastModified() + ":" + event.getId();
+    }
+
+    /**
+     * Builds the server-sent event which carries a newsfeed event
+     * @param event Event to send
+     * @return Server-sent event
+     */
+    private static SseEmitter.SseEventBuilder toStreamEvent(EventDTO event) {
+        return SseEmitter.event()
+                .id(toStreamEventId(event))
+                .name(STREAM_EVENT_NAME)
+                .data(event);
+    }
+
+    /**
+     * Removes a stream from the hub once it has been closed
+     * @param stream Stream to remove
+     */
+    private void removeStream(Stream stream) {
+        streams.computeIfPresent(stream.userId, (id, userStreams) -> {
+            userStreams.remove(stream);
+            return userStreams.isEmpty() ? null : userStreams;
+        });
+    }
+}
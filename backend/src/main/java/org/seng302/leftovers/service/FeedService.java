@@ -0,0 +1,189 @@
+package org.seng302.leftovers.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.query.Query;
+import org.seng302.leftovers.dto.event.EventFilterDTO;
+import org.seng302.leftovers.dto.event.EventStatus;
+import org.seng302.leftovers.dto.event.EventTag;
+import org.seng302.leftovers.entities.User;
+import org.seng302.leftovers.entities.event.Event;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Service for applying a change to many events on a user's newsfeed at once.
+ * Each change is a single bulk JPQL UPDATE or DELETE restricted to the user's events, so no events are loaded and the
+ * number of statements does not grow with the number of events changed.
+ */
+@Service
+public class FeedService {
+    private static final Logger logger = LogManager.getLogger(FeedService.class);
+
+    private final SessionFactory sessionFactory;
+    private final EventStreamService eventStreamService;
+    private final FeedSummaryService feedSummaryService;
+
+    @Autowired
+    public FeedService(SessionFactory sessionFactory, EventStreamService eventStreamService, FeedSummaryService feedSummaryService) {
+        this.sessionFactory = sessionFactory;
+        this.eventStreamService = eventStreamService;
+        this.feedSummaryService = feedSummaryService;
+    }
+
+    /**
+     * Marks every event on the user's feed that matches the filter as read
+     * @param user User whose feed to change
+     * @param filter Selects the events to change
+     * @return Number of events changed
+     */
+    public int markAsRead(User user, EventFilterDTO filter) {
+        logger.info("Marking events as read for user (id={}) matching {}", user.getUserID(), filter);
+        return update(user, filter, "e.isRead = true", Map.of(), "");
+    }
+
+    /**
+     * Sets the tag of every event on the user's feed that matches the filter
+     * @param user User whose feed to change
+     * @param filter Selects the events to change
+     * @param tag New tag for the events
+     * @return Number of events changed
+     */
+    public int setTag(User user, EventFilterDTO filter, EventTag tag) {
+        logger.info("Setting tag {} on events for user (id={}) matching {}", tag, user.getUserID(), filter);
+        return update(user, filter, "e.eventTag = :newTag", Map.of("newTag", tag), "");
+    }
+
+    /**
+     * Sets the status of every event on the user's feed that matches the filter. The status of an archived event
+     * cannot be changed, so archived events are never selected.
+     * @param user User whose feed to change
+     * @param filter Selects the events to change
+     * @param status New status for the events
+     * @return Number of events changed
+     */
+    public int setStatus(User user, EventFilterDTO filter, EventStatus status) {
+        logger.info("Setting status {} on events for user (id={}) matching {}", status, user.getUserID(), filter);
+        return update(user, filter, "e.eventStatus = :newStatus", Map.of("newStatus", status),
+                " and e.eventStatus <> :archived");
+    }
+
+    /**
+     * Deletes every event on the user's feed that matches the filter
+     * @param user User whose feed to change
+     * @param filter Selects the events to delete
+     * @return Number of events deleted
+     */
+    public int delete(User user, EventFilterDTO filter) {
+        logger.info("Deleting events for user (id={}) matching {}", user.getUserID(), filter);
+        if (selectsNothing(filter)) return 0;
+
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            Query<?> query = session.createQuery("delete from Event e where e.notifiedUser = :user" + filterConditions(filter));
+            query.setParameter("user", user);
+            setFilterParameters(query, filter);
+            int deleted = query.executeUpdate();
+            transaction.commit();
+
+            if (deleted > 0) feedSummaryService.invalidate(user.getUserID());
+            return deleted;
+        }
+    }
+
+    /**
+     * Applies an assignment to the user's events that match the filter, and updates their last modified time so that
+     * polling clients will see the change. The user's feed counters are then discarded, and events on the user's open
+     * newsfeed streams are republished.
+     * @param user User whose feed to change
+     * @param filter Selects the events to change
+     * @param assignment JPQL assignment for the change, with the event aliased as e
+     * @param parameters Parameters used in the assignment
+     * @param condition Extra JPQL condition on the events to change, or an empty string
+     * @return Number of events changed
+     */
+    private int update(User user, EventFilterDTO filter, String assignment, Map<String, Object> parameters, String condition) {
+        if (selectsNothing(filter)) return 0;
+
+        // Truncated so the modified time stored in the database matches exactly when looking the events up again
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Map<String, Object> allParameters = new HashMap<>(parameters);
+        if (!condition.isEmpty()) allParameters.put("archived", EventStatus.ARCHIVED);
+
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            Query<?> query = session.createQuery("update Event e set " + assignment + ", e.lastModified = :now " +
+                    "where e.notifiedUser = :user" + filterConditions(filter) + condition);
+            query.setParameter("now", now);
+            query.setParameter("user", user);
+            allParameters.forEach(query::setParameter);
+            setFilterParameters(query, filter);
+            int updated = query.executeUpdate();
+            transaction.commit();
+
+            if (updated > 0) {
+                feedSummaryService.invalidate(user.getUserID());
+                publishUpdatedEvents(session, user, now);
+            }
+            return updated;
+        }
+    }
+
+    /**
+     * Checks whether a filter has an empty list of event ids, in which case it cannot select any events
+     * @param filter Filter to check
+     * @return True if the filter selects no events
+     */
+    private boolean selectsNothing(EventFilterDTO filter) {
+        return filter.getEventIds() != null && filter.getEventIds().isEmpty();
+    }
+
+    /**
+     * Builds the JPQL conditions for the fields present in a filter, with the event aliased as e
+     * @param filter Filter to build the conditions for
+     * @return Conditions, each starting with " and "
+     */
+    private String filterConditions(EventFilterDTO filter) {
+        StringBuilder conditions = new StringBuilder();
+        if (filter.getEventIds() != null) conditions.append(" and e.id in (:eventIds)");
+        if (filter.getTag() != null) conditions.append(" and e.eventTag = :tag");
+        if (filter.getStatus() != null) conditions.append(" and e.eventStatus = :status");
+        return conditions.toString();
+    }
+
+    /**
+     * Sets the parameters used by the conditions built by filterConditions
+     * @param query Query to set the parameters of
+     * @param filter Filter to get the parameter values from
+     */
+    private void setFilterParameters(Query<?> query, EventFilterDTO filter) {
+        if (filter.getEventIds() != null) query.setParameterList("eventIds", filter.getEventIds());
+        if (filter.getTag() != null) query.setParameter("tag", filter.getTag());
+        if (filter.getStatus() != null) query.setParameter("status", filter.getStatus());
+    }
+
+    /**
+     * Publishes the events changed by a bulk update to the user's open newsfeed streams. Bulk updates bypass the entity
+     * listeners, so this is done explicitly. Does nothing if the user has no open streams.
+     * @param session Session to load the events with
+     * @param user User whose events were changed
+     * @param modified Last modified time given to the changed events
+     */
+    private void publishUpdatedEvents(Session session, User user, Instant modified) {
+        if (eventStreamService.getSubscriberCount(user.getUserID()) == 0) return;
+
+        session.createQuery("select e from Event e where e.notifiedUser = :user and e.lastModified = :modified order by e.id", Event.class)
+                .setParameter("user", user)
+                .setParameter("modified", modified)
+                .getResultList()
+                .forEach(eventStreamService::publish);
+    }
+}
@@ -0,0 +1,244 @@
+package org.seng302.leftovers.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.leftovers.dto.event.EventStatus;
+import org.seng302.leftovers.dto.event.EventTag;
+import org.seng302.leftovers.dto.event.FeedSummaryDTO;
+import org.seng302.leftovers.entities.event.Event;
+import org.seng302.leftovers.persistence.event.EventCount;
+import org.seng302.leftovers.persistence.event.EventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service which keeps count of the events on each user's newsfeed: in total, unread, per tag and per status.
+ * A user's counters are loaded with a single grouped count query the first time their summary is requested, and are
+ * then kept up to date as their events are created, changed and deleted, so serving the summary does not touch the
+ * database. Changes which bypass the entity listeners, such as bulk updates and database cascades, either invalidate
+ * the counters or are corrected when the counters are periodically reconciled against the event tables.
+ *
+ * Counters are loaded without holding any lock on the map of counters. A change recorded while counters are being
+ * loaded may or may not be included in the loaded counts, so loaded counters are only kept if no change was recorded
+ * for the user during the load. Otherwise the counters are loaded again the next time they are needed.
+ */
+@Service
+public class FeedSummaryService {
+    private static final int RECONCILE_CHUNK_SIZE = 1000;
+    private static final Duration IDLE_TIMEOUT = Duration.ofHours(1);
+
+    private static final Logger logger = LogManager.getLogger(FeedSummaryService.class);
+
+    private final EventRepository eventRepository;
+    private final Clock clock;
+    private final Map<Long, FeedCounters> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public FeedSummaryService(EventRepository eventRepository) {
+        this(eventRepository, Clock.systemUTC());
+    }
+
+    FeedSummaryService(EventRepository eventRepository, Clock clock) {
+        this.eventRepository = eventRepository;
+        this.clock = clock;
+    }
+
+    /**
+     * Counts of the events on a single user's newsfeed
+     */
+    static class FeedCounters {
+        private long total;
+        private long unread;
+        private final long[] tagCounts = new long[EventTag.values().length];
+        private final long[] statusCounts = new long[EventStatus.values().length];
+        private final boolean loaded;
+        private long changes;
+        private volatile Instant lastAccessed;
+
+        FeedCounters(Instant lastAccessed, boolean loaded) {
+            this.lastAccessed = lastAccessed;
+            this.loaded = loaded;
+        }
+
+        /**
+         * Records a change to one of the user's events. Placeholders which are kept while the user's counters are
+         * being loaded only count the change, so that the load can tell that it raced a change.
+         * @param before Counted state of the event before the change, or null if the event has been created
+         * @param after Counted state of the event after the change, or null if the event has been deleted
+         */
+        synchronized void recordChange(Event.CountedState before, Event.CountedState after) {
+            changes++;
+            if (!loaded) return;
+            if (before != null) add(before, -1);
+            if (after != null) add(after, 1);
+        }
+
+        /**
+         * Gets the number of changes which have been recorded in these counters
+         * @return Number of recorded changes
+         */
+        synchronized long getChanges() {
+            return changes;
+        }
+
+        /**
+         * Adds (or removes, if amount is negative) events with the given state to the counts
+         * @param state Counted state of the events
+         * @param amount Number of events to add
+         */
+        synchronized void add(Event.CountedState state, long amount) {
+            total += amount;
+            if (!state.isRead()) unread += amount;
+            tagCounts[state.getTag().ordinal()] += amount;
+            statusCounts[state.getStatus().ordinal()] += amount;
+        }
+
+        /**
+         * Converts the counts into a DTO
+         * @return Feed summary DTO
+         */
+        synchronized FeedSummaryDTO asDTO() {
+            Map<EventTag, Long> tags = new EnumMap<>(EventTag.class);
+            for (EventTag tag : EventTag.values()) {
+                tags.put(tag, tagCounts[tag.ordinal()]);
+            }
+            Map<EventStatus, Long> statuses = new EnumMap<>(EventStatus.class);
+            for (EventStatus status : EventStatus.values()) {
+                statuses.put(status, statusCounts[status.ordinal()]);
+            }
+            return new FeedSummaryDTO(total, unread, tags, statuses);
+        }
+    }
+
+    /**
+     * Gets the summary of a user's newsfeed, loading the user's counters from the database if they are not already
+     * being kept
+     * @param userId User to get the feed summary of
+     * @return Counts of the events on the user's feed
+     */
+    public FeedSummaryDTO getSummary(long userId) {
+        Instant now = clock.instant();
+        FeedCounters userCounters = counters.get(userId);
+        if (userCounters == null) {
+            FeedCounters placeholder = new FeedCounters(now, false);
+            userCounters = Objects.requireNonNullElse(counters.putIfAbsent(userId, placeholder), placeholder);
+        }
+        userCounters.lastAccessed = now;
+        if (userCounters.loaded) {
+            return userCounters.asDTO();
+        }
+
+        long changesBefore = userCounters.getChanges();
+        FeedCounters loaded = loadCounters(List.of(userId), now).get(userId);
+        replaceIfUnchanged(userId, userCounters, changesBefore, loaded);
+        return loaded.asDTO();
+    }
+
+    /**
+     * Updates the counters of a user for a single event which has been created, changed or deleted. Does nothing if
+     * the user's counters are not being kept.
+     * @param userId User that the event notifies
+     * @param before Counted state of the event before the change, or null if the event has been created
+     * @param after Counted state of the event after the change, or null if the event has been deleted
+     */
+    public void recordChange(long userId, Event.CountedState before, Event.CountedState after) {
+        if (Objects.equals(before, after)) return;
+        counters.computeIfPresent(userId, (id, userCounters) -> {
+            userCounters.recordChange(before, after);
+            return userCounters;
+        });
+    }
+
+    /**
+     * Discards the counters of a user, so that they will be reloaded from the database the next time they are needed.
+     * Used after changes to the user's events which cannot be recorded one event at a time.
+     * @param userId User to discard the counters of
+     */
+    public void invalidate(long userId) {
+        counters.remove(userId);
+    }
+
+    /**
+     * Checks whether the counters of a user are currently being kept
+     * @param userId User to check
+     * @return True if the user's counters are loaded
+     */
+    public boolean isTracked(long userId) {
+        FeedCounters userCounters = counters.get(userId);
+        return userCounters != null && userCounters.loaded;
+    }
+
+    /**
+     * Discards the counters of users who have not requested their summary recently, and replaces the counters of
+     * every other user with fresh counts from the database. This corrects any drift from changes which were not
+     * recorded, such as events deleted by database cascades. The counters of users whose events change while the
+     * fresh counts are being loaded are left until the next run. Runs every 10 minutes.
+     */
+    @Scheduled(fixedDelay = 10 * 60 * 1000)
+    public void reconcile() {
+        Instant now = clock.instant();
+        counters.entrySet().removeIf(entry -> entry.getValue().lastAccessed.plus(IDLE_TIMEOUT).isBefore(now));
+
+        List<Long> userIds = new ArrayList<>(counters.keySet());
+        for (int start = 0; start < userIds.size(); start += RECONCILE_CHUNK_SIZE) {
+            List<Long> chunk = userIds.subList(start, Math.min(start + RECONCILE_CHUNK_SIZE, userIds.size()));
+            Map<Long, FeedCounters> current = new HashMap<>();
+            Map<Long, Long> changesBefore = new HashMap<>();
+            for (Long userId : chunk) {
+                FeedCounters userCounters = counters.get(userId);
+                if (userCounters != null && userCounters.loaded) {
+                    current.put(userId, userCounters);
+                    changesBefore.put(userId, userCounters.getChanges());
+                }
+            }
+            if (current.isEmpty()) continue;
+
+            Map<Long, FeedCounters> fresh = loadCounters(current.keySet(), now);
+            for (var entry : current.entrySet()) {
+                FeedCounters reloaded = fresh.get(entry.getKey());
+                reloaded.lastAccessed = entry.getValue().lastAccessed;
+                replaceIfUnchanged(entry.getKey(), entry.getValue(), changesBefore.get(entry.getKey()), reloaded);
+            }
+        }
+        logger.info("Reconciled newsfeed counters for {} users", userIds.size());
+    }
+
+    /**
+     * Replaces the counters of a user with newly loaded counters, unless the user's counters have been replaced or
+     * discarded, or a change has been recorded for the user, since the load started. A change recorded during the load
+     * may already be included in the loaded counts, so keeping them could count the change twice.
+     * @param userId User to replace the counters of
+     * @param expected Counters (or placeholder) the user had when the load started
+     * @param changesBefore Number of changes recorded in the expected counters when the load started
+     * @param loaded Newly loaded counters
+     */
+    private void replaceIfUnchanged(long userId, FeedCounters expected, long changesBefore, FeedCounters loaded) {
+        counters.computeIfPresent(userId, (id, userCounters) ->
+                userCounters == expected && userCounters.getChanges() == changesBefore ? loaded : userCounters);
+    }
+
+    /**
+     * Loads the counters of the given users from the database with a single grouped count query
+     * @param userIds Users to load the counters of
+     * @param now Time to record as the last access of the counters
+     * @return Counters for every given user, including users with no events
+     */
+    private Map<Long, FeedCounters> loadCounters(Collection<Long> userIds, Instant now) {
+        Map<Long, FeedCounters> loaded = new HashMap<>();
+        for (Long userId : userIds) {
+            loaded.put(userId, new FeedCounters(now, true));
+        }
+        for (EventCount count : eventRepository.countEventsForUsers(userIds)) {
+            loaded.get(count.getUserId())
+                    .add(new Event.CountedState(count.getRead(), count.getTag(), count.getStatus()), count.getTotal());
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,280 @@
+package org.seng302.leftovers.service;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.seng302.leftovers.dto.event.EventStatus;
+import org.seng302.leftovers.dto.event.EventTag;
+import org.seng302.leftovers.entities.User;
+import org.seng302.leftovers.entities.event.GlobalMessageEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service for sending a global message to every user as a background job.
+ * Messages are inserted for chunks of users at a time with a single set-based INSERT ... SELECT statement per chunk,
+ * so no user entities are loaded and the number of statements does not grow with the number of users.
+ */
+@Service
+public class GlobalMessageService {
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_RETAINED_JOBS = 100;
+    private static final String SEQUENCE_NAME = "hibernate_sequence";
+
+    private static final Logger logger = LogManager.getLogger(GlobalMessageService.class);
+
+    private final SessionFactory sessionFactory;
+    private final EventStreamService eventStreamService;
+    private final FeedSummaryService feedSummaryService;
+
+    private final AtomicLong nextJobId = new AtomicLong(1);
+    private final Map<Long, GlobalMessageJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "global-message-sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public GlobalMessageService(SessionFactory sessionFactory, EventStreamService eventStreamService, FeedSummaryService feedSummaryService) {
+        this.sessionFactory = sessionFactory;
+        this.eventStreamService = eventStreamService;
+        this.feedSummaryService = feedSummaryService;
+    }
+
+    /**
+     * Status of a global message job
+     */
+    public enum JobStatus {
+        @JsonProperty("pending")
+        PENDING,
+        @JsonProperty("running")
+        RUNNING,
+        @JsonProperty("completed")
+        COMPLETED,
+        @JsonProperty("failed")
+        FAILED
+    }
+
+    /**
+     * Progress of sending a single global message to all users
+     */
+    public static class GlobalMessageJob {
+        private final long id;
+        private final String message;
+        private final Instant created = Instant.now();
+        private volatile JobStatus status = JobStatus.PENDING;
+        private volatile long totalUsers;
+        private final AtomicLong notifiedUsers = new AtomicLong();
+
+        GlobalMessageJob(long id, String message) {
+            this.id = id;
+            this.message = message;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public Instant getCreated() {
+            return created;
+        }
+
+        public JobStatus getStatus() {
+            return status;
+        }
+
+        public long getTotalUsers() {
+            return totalUsers;
+        }
+
+        public long getNotifiedUsers() {
+            return notifiedUsers.get();
+        }
+    }
+
+    /**
+     * Queues a job which will send the given message to every user
+     * @param message Message to send
+     * @return The queued job, which can be used to track progress
+     */
+    public GlobalMessageJob startJob(String message) {
+        GlobalMessageJob job = new GlobalMessageJob(nextJobId.getAndIncrement(), message);
+        jobs.put(job.getId(), job);
+        removeOldJobs();
+        executor.execute(() -> runJob(job));
+        return job;
+    }
+
+    /**
+     * Gets a previously started job
+     * @param jobId ID of the job
+     * @return The job if it exists and has not been discarded
+     */
+    public Optional<GlobalMessageJob> getJob(long jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * Stops the job thread when the application shuts down
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Sends the job's message to every user, one chunk of users at a time. Each chunk is committed separately so that
+     * progress is visible to pollers and a failure part way through does not lose the chunks already sent.
+     * @param job Job to run
+     */
+    void runJob(GlobalMessageJob job) {
+        logger.info("Sending global message (jobId={}) to all users", job.getId());
+        job.status = JobStatus.RUNNING;
+        // Truncated so the creation time stored in the database matches exactly when looking the events up again
+        Instant created = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        try (Session session = sessionFactory.openSession()) {
+            job.totalUsers = session.createQuery("select count(u) from User u", Long.class).getSingleResult();
+
+            long lastUserId = 0;
+            List<Long> chunk = nextUserIdChunk(session, lastUserId);
+            while (!chunk.isEmpty()) {
+                long chunkEnd = chunk.get(chunk.size() - 1);
+                Transaction transaction = session.beginTransaction();
+                int inserted = insertMessagesForUserRange(session, job.getMessage(), created, lastUserId, chunkEnd);
+                transaction.commit();
+
+                job.notifiedUsers.addAndGet(inserted);
+                // Bulk inserts bypass the entity listeners, so the chunk's feed counters are recounted when next needed
+                chunk.forEach(feedSummaryService::invalidate);
+                publishToSubscribers(session, job.getMessage(), created, chunk);
+                session.clear();
+
+                lastUserId = chunkEnd;
+                chunk = nextUserIdChunk(session, lastUserId);
+            }
+            job.status = JobStatus.COMPLETED;
+            logger.info("Global message (jobId={}) sent to {} users", job.getId(), job.getNotifiedUsers());
+        } catch (RuntimeException e) {
+            job.status = JobStatus.FAILED;
+            logger.error("Global message (jobId={}) failed after {} users: {}", job.getId(), job.getNotifiedUsers(), e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the ids of the next chunk of users, in ascending order
+     * @param session Session to query with
+     * @param afterUserId Only users with an id greater than this are returned
+     * @return Up to CHUNK_SIZE user ids
+     */
+    private List<Long> nextUserIdChunk(Session session, long afterUserId) {
+        return session.createQuery("select u.userID from User u where u.userID > :after order by u.userID", Long.class)
+                .setParameter("after", afterUserId)
+                .setMaxResults(CHUNK_SIZE)
+                .getResultList();
+    }
+
+    /**
+     * Inserts a global message event for every user with an id in the given range using a single statement.
+     * Event ids are taken from the same sequence Hibernate uses for events. If the database does not support
+     * sequences, falls back to persisting the events as a JDBC batch with user references rather than loaded users.
+     * @param session Session with an active transaction
+     * @param message Message to send
+     * @param created Creation time for the events
+     * @param afterUserId Exclusive lower bound of the user id range
+     * @param lastUserId Inclusive upper bound of the user id range
+     * @return Number of events inserted
+     */
+    private int insertMessagesForUserRange(Session session, String message, Instant created, long afterUserId, long lastUserId) {
+        Dialect dialect = sessionFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        if (!dialect.supportsSequences()) {
+            return persistMessagesForUserRange(session, message, afterUserId, lastUserId);
+        }
+        String nextId = dialect.getSelectSequenceNextValString(SEQUENCE_NAME);
+        return session.createNativeQuery(
+                "INSERT INTO global_message_event " +
+                        "(id, created, last_modified, event_tag, event_status, is_read, event_user, global_message) " +
+                        "SELECT " + nextId + ", :created, :created, :tag, :status, false, u.user_id, :message " +
+                        "FROM user u WHERE u.user_id > :after AND u.user_id <= :last")
+                .setParameter("created", created)
+                .setParameter("tag", EventTag.NONE.ordinal())
+                .setParameter("status", EventStatus.NORMAL.name())
+                .setParameter("message", message)
+                .setParameter("after", afterUserId)
+                .setParameter("last", lastUserId)
+                .executeUpdate();
+    }
+
+    /**
+     * Persists a global message event for every user with an id in the given range without loading the users
+     * @param session Session with an active transaction
+     * @param message Message to send
+     * @param afterUserId Exclusive lower bound of the user id range
+     * @param lastUserId Inclusive upper bound of the user id range
+     * @return Number of events persisted
+     */
+    private int persistMessagesForUserRange(Session session, String message, long afterUserId, long lastUserId) {
+        List<Long> userIds = session.createQuery("select u.userID from User u where u.userID > :after and u.userID <= :last", Long.class)
+                .setParameter("after", afterUserId)
+                .setParameter("last", lastUserId)
+                .getResultList();
+        for (Long userId : userIds) {
+            session.persist(new GlobalMessageEvent(session.getReference(User.class, userId), message));
+        }
+        session.flush();
+        return userIds.size();
+    }
+
+    /**
+     * Publishes the newly inserted events to any of the chunk's users who have an open newsfeed stream.
+     * The inserts bypass the entity listeners, so this is done explicitly.
+     * @param session Session to load the events with
+     * @param message Message that was sent
+     * @param created Creation time of the events
+     * @param chunk Ids of the users that were sent the message
+     */
+    private void publishToSubscribers(Session session, String message, Instant created, List<Long> chunk) {
+        Set<Long> subscribed = new HashSet<>(eventStreamService.getSubscribedUserIds());
+        subscribed.retainAll(chunk);
+        if (subscribed.isEmpty()) return;
+
+        session.createQuery("select e from GlobalMessageEvent e where e.notifiedUser.userID in :users " +
+                "and e.created = :created and e.globalMessage = :message order by e.id", GlobalMessageEvent.class)
+                .setParameter("users", subscribed)
+                .setParameter("created", created)
+                .setParameter("message", message)
+                .getResultList()
+                .forEach(eventStreamService::publish);
+    }
+
+    /**
+     * Discards the oldest finished jobs once more than MAX_RETAINED_JOBS are stored
+     */
+    private void removeOldJobs() {
+        if (jobs.size() <= MAX_RETAINED_JOBS) return;
+        jobs.values().stream()
+                .filter(job -> job.getStatus() == JobStatus.COMPLETED || job.getStatus() == JobStatus.FAILED)
+                .sorted(Comparator.comparing(GlobalMessageJob::getId))
+                .limit((long) jobs.size() - MAX_RETAINED_JOBS)
+                .map(GlobalMessageJob::getId)
+                .forEach(jobs::remove);
+    }
+}
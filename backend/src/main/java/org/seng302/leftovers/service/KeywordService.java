@@ -4,8 +4,10 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.seng302.leftovers.dto.user.UserRole;
 import org.seng302.leftovers.entities.Keyword;
+import org.seng302.leftovers.entities.OutboxEntry;
 import org.seng302.leftovers.entities.User;
 import org.seng302.leftovers.entities.event.KeywordCreatedEvent;
+import org.seng302.leftovers.persistence.OutboxEntryRepository;
 import org.seng302.leftovers.persistence.UserRepository;
 import org.seng302.leftovers.persistence.event.EventRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,16 +26,29 @@ public class KeywordService {
     private static final Logger logger = LogManager.getLogger(KeywordService.class);
     private final UserRepository userRepository;
     private final EventRepository eventRepository;
+    private final OutboxEntryRepository outboxEntryRepository;
 
     @Autowired
-    public KeywordService(EventRepository eventRepository, UserRepository userRepository) {
+    public KeywordService(EventRepository eventRepository, UserRepository userRepository, OutboxEntryRepository outboxEntryRepository) {
         this.eventRepository = eventRepository;
         this.userRepository = userRepository;
+        this.outboxEntryRepository = outboxEntryRepository;
+    }
+
+    /**
+     * Queues the create keyword event to be sent to the system administrators by the OutboxService. This only saves a
+     * single outbox entry, so it does not slow down the request which created the keyword.
+     * @param keyword The keyword that has been created.
+     * @param creator The user who created the keyword.
+     */
+    public void queueNewKeywordEvent(Keyword keyword, User creator) {
+        outboxEntryRepository.save(OutboxEntry.newKeyword(keyword, creator));
     }
 
     /**
      * Sends create keyword event to default global application admin and all other global application admins.
      * @param keyword The keyword that has been created.
+     * @param creator The user who created the keyword.
      */
     public void sendNewKeywordEvent(Keyword keyword, User creator) {
         List<User> adminList = userRepository.findAllByRole(UserRole.DGAA);
@@ -3,9 +3,11 @@ package org.seng302.leftovers.service;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.seng302.leftovers.entities.Message;
+import org.seng302.leftovers.entities.OutboxEntry;
 import org.seng302.leftovers.entities.User;
 import org.seng302.leftovers.entities.event.MessageEvent;
 import org.seng302.leftovers.exceptions.InternalErrorResponseException;
+import org.seng302.leftovers.persistence.OutboxEntryRepository;
 import org.seng302.leftovers.persistence.event.EventRepository;
 import org.seng302.leftovers.persistence.event.MessageEventRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,17 +24,30 @@ public class MessageService {
 
     private final EventRepository eventRepository;
     private final MessageEventRepository messageEventRepository;
+    private final OutboxEntryRepository outboxEntryRepository;
     private final Logger logger = LogManager.getLogger(MessageService.class.getName());
 
     @Autowired
-    public MessageService(EventRepository eventRepository, MessageEventRepository messageEventRepository) {
+    public MessageService(EventRepository eventRepository, MessageEventRepository messageEventRepository, OutboxEntryRepository outboxEntryRepository) {
         this.eventRepository = eventRepository;
         this.messageEventRepository = messageEventRepository;
+        this.outboxEntryRepository = outboxEntryRepository;
+    }
+
+    /**
+     * Queues a notification containing the new message to be sent to both participants in the conversation by the
+     * OutboxService. This only saves a single outbox entry, so it does not slow down the request which sent the message.
+     * @param message The message which has been added to the conversation.
+     */
+    public void queueConversationNotification(Message message) {
+        outboxEntryRepository.save(OutboxEntry.newMessage(message));
     }
 
     /**
      * Send a notification containing the new message to both participants in the conversation.
      * If the notification cannot be sent an error will be added to the log but no exception will be thrown.
+     * If a participant has already been notified of a newer message in the conversation, their notification is left
+     * unchanged, since notifications may be sent out of order.
      * @param message The message which has been added to the conversation.
      * @param buyer The participant in the conversation who is not the owner of the marketplace card.
      * @param seller The participant in the conversation who is the owner of the marketplace card.
@@ -45,6 +60,7 @@ public class MessageService {
                 Optional<MessageEvent> optional = messageEventRepository.findByNotifiedUserAndConversation(user, message.getConversation());
                 if (optional.isPresent()) {
                     messageEvent = optional.get();
+                    if (isNewer(messageEvent.getMessage(), message)) continue;
                     messageEvent.setMessage(message);
                 } else {
                     messageEvent = new MessageEvent(user, message);
@@ -56,4 +72,13 @@ public class MessageService {
         }
     }
 
+    /**
+     * Checks whether a message was sent after another message. Message ids increase in the order messages are saved.
+     * @param message Message to check
+     * @param other Message to compare against
+     * @return True if message is newer than other
+     */
+    private boolean isNewer(Message message, Message other) {
+        return message.getId() != null && other.getId() != null && message.getId() > other.getId();
+    }
 }
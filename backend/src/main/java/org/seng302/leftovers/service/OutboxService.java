@@ -0,0 +1,255 @@
+package org.seng302.leftovers.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.leftovers.entities.*;
+import org.seng302.leftovers.entities.event.InterestPurchasedEvent;
+import org.seng302.leftovers.entities.event.PurchasedEvent;
+import org.seng302.leftovers.persistence.*;
+import org.seng302.leftovers.persistence.event.EventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service which turns outbox entries into newsfeed events. Requests which cause notifications only save a single
+ * outbox entry, and this service fans the entry out into an event for each user to notify. Entries are drained in
+ * batches, with the entries of each batch processed concurrently by a bounded pool of worker threads. Each entry is
+ * processed in its own transaction and is deleted in that transaction, so an entry is only ever removed once all of
+ * its events have been saved. Entries that fail are retried on later drains, up to MAX_ATTEMPTS times.
+ *
+ * Entries which fail MAX_ATTEMPTS times are given up on, and every detail needed to send their events by hand is logged
+ * as an error. They are kept for a number of days so that they can be inspected, and are then deleted by a nightly
+ * purge so that the outbox table does not grow without bound.
+ */
+@Service
+public class OutboxService {
+    private static final int BATCH_SIZE = 100;
+    private static final int WORKER_THREADS = 4;
+    static final int MAX_ATTEMPTS = 5;
+
+    private static final Logger logger = LogManager.getLogger(OutboxService.class);
+
+    private final OutboxEntryRepository outboxEntryRepository;
+    private final BoughtSaleItemRepository boughtSaleItemRepository;
+    private final KeywordRepository keywordRepository;
+    private final MessageRepository messageRepository;
+    private final UserRepository userRepository;
+    private final EventRepository eventRepository;
+    private final KeywordService keywordService;
+    private final MessageService messageService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration failedEntryRetention;
+
+    private final ExecutorService workers;
+
+    @Autowired
+    public OutboxService(OutboxEntryRepository outboxEntryRepository,
+                         BoughtSaleItemRepository boughtSaleItemRepository,
+                         KeywordRepository keywordRepository,
+                         MessageRepository messageRepository,
+                         UserRepository userRepository,
+                         EventRepository eventRepository,
+                         KeywordService keywordService,
+                         MessageService messageService,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${outbox.failed-entry-retention-days:7}") int failedEntryRetentionDays) {
+        if (failedEntryRetentionDays < 0) {
+            throw new IllegalArgumentException("Failed outbox entry retention must not be negative");
+        }
+        this.outboxEntryRepository = outboxEntryRepository;
+        this.boughtSaleItemRepository = boughtSaleItemRepository;
+        this.keywordRepository = keywordRepository;
+        this.messageRepository = messageRepository;
+        this.userRepository = userRepository;
+        this.eventRepository = eventRepository;
+        this.keywordService = keywordService;
+        this.messageService = messageService;
+        this.transactionTemplate = transactionTemplate;
+        this.failedEntryRetention = Duration.ofDays(failedEntryRetentionDays);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // The queue never holds more than one batch, and the draining thread waits for each batch to finish
+        this.workers = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(BATCH_SIZE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "outbox-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Processes every pending outbox entry, one batch at a time. Runs every second, and a new drain does not start
+     * until the previous one has finished.
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void drainOutbox() {
+        List<OutboxEntry> batch = outboxEntryRepository.findPendingEntries(MAX_ATTEMPTS, PageRequest.of(0, BATCH_SIZE));
+        while (!batch.isEmpty()) {
+            int processed = processBatch(batch);
+            // Failed entries are left for the next drain, so that they are not retried in a tight loop
+            if (processed < batch.size()) return;
+            batch = outboxEntryRepository.findPendingEntries(MAX_ATTEMPTS, PageRequest.of(0, BATCH_SIZE));
+        }
+    }
+
+    /**
+     * Deletes the entries which have been given up on and were created more than the retention period ago. Runs every
+     * night at 3:30am by default, which can be changed with the outbox.purge-cron property.
+     * @return Number of entries deleted
+     */
+    @Scheduled(cron = "${outbox.purge-cron:0 30 3 * * *}")
+    public int purgeFailedEntries() {
+        Instant cutoff = Instant.now().minus(failedEntryRetention);
+        int purged = 0;
+        List<OutboxEntry> batch;
+        do {
+            batch = outboxEntryRepository.findFailedEntriesCreatedBefore(MAX_ATTEMPTS, cutoff, PageRequest.of(0, BATCH_SIZE));
+            outboxEntryRepository.deleteAll(batch);
+            purged += batch.size();
+        } while (batch.size() == BATCH_SIZE);
+        if (purged > 0) {
+            logger.warn("Purged {} outbox entries which were given up on before {}", purged, cutoff);
+        }
+        return purged;
+    }
+
+    /**
+     * Stops the worker threads when the application shuts down
+     */
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Processes a batch of outbox entries on the worker threads and waits for them all to finish
+     * @param batch Entries to process
+     * @return Number of entries which were processed successfully
+     */
+    int processBatch(List<OutboxEntry> batch) {
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (OutboxEntry entry : batch) {
+            tasks.add(() -> processEntry(entry));
+        }
+
+        int processed = 0;
+        try {
+            for (Future<Boolean> result : workers.invokeAll(tasks)) {
+                if (Boolean.TRUE.equals(getResult(result))) processed++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return processed;
+    }
+
+    /**
+     * Gets the result of a completed task. If the task threw an exception, it is logged and treated as a failure.
+     * @param result Completed task
+     * @return Result of the task, or false if it failed
+     * @throws InterruptedException If interrupted while waiting for the result
+     */
+    private Boolean getResult(Future<Boolean> result) throws InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            logger.error("Outbox worker failed unexpectedly: {}", e.getCause().getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Creates the events for a single outbox entry and deletes the entry, in one transaction. If this fails, the
+     * number of failed attempts recorded for the entry is increased instead.
+     * @param entry Entry to process
+     * @return True if the entry was processed successfully
+     */
+    boolean processEntry(OutboxEntry entry) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                createEvents(entry);
+                outboxEntryRepository.delete(entry);
+            });
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Failed to process outbox entry (id={}, type={}): {}", entry.getId(), entry.getType(), e.getMessage());
+            entry.incrementAttempts();
+            if (entry.getAttempts() >= MAX_ATTEMPTS) {
+                logger.error("Giving up on outbox entry (id={}, type={}, subjectId={}, actorId={}, recipientIds={}, created={}) " +
+                        "after {} attempts", entry.getId(), entry.getType(), entry.getSubjectId(), entry.getActorId(),
+                        entry.getRecipientIds(), entry.getCreated(), entry.getAttempts());
+            }
+            outboxEntryRepository.save(entry);
+            return false;
+        }
+    }
+
+    /**
+     * Creates and saves the newsfeed events for an outbox entry. If the subject of the entry has been deleted since the
+     * entry was saved, no events are created.
+     * @param entry Entry to create the events for
+     */
+    private void createEvents(OutboxEntry entry) {
+        switch (entry.getType()) {
+            case PURCHASE:
+                boughtSaleItemRepository.findById(entry.getSubjectId())
+                        .ifPresentOrElse(boughtSaleItem -> sendPurchaseEvents(boughtSaleItem, entry.getRecipientIds()),
+                                () -> logSubjectMissing(entry));
+                break;
+            case NEW_KEYWORD:
+                Optional<Keyword> keyword = keywordRepository.findById(entry.getSubjectId());
+                Optional<User> creator = userRepository.findById(entry.getActorId());
+                if (keyword.isPresent() && creator.isPresent()) {
+                    keywordService.sendNewKeywordEvent(keyword.get(), creator.get());
+                } else {
+                    logSubjectMissing(entry);
+                }
+                break;
+            case NEW_MESSAGE:
+                messageRepository.findById(entry.getSubjectId())
+                        .ifPresentOrElse(message -> {
+                            Conversation conversation = message.getConversation();
+                            messageService.notifyConversationParticipants(message, conversation.getBuyer(), conversation.getCard().getCreator());
+                        }, () -> logSubjectMissing(entry));
+                break;
+            default:
+                throw new IllegalStateException("Unknown outbox entry type " + entry.getType());
+        }
+    }
+
+    /**
+     * Notifies each user that was interested in a sale item that it has been purchased, and notifies the buyer of
+     * their purchase
+     * @param boughtSaleItem Record of the purchase
+     * @param interestedUserIds IDs of the users that were interested in the sale item
+     */
+    private void sendPurchaseEvents(BoughtSaleItem boughtSaleItem, List<Long> interestedUserIds) {
+        for (User user : userRepository.findAllById(interestedUserIds)) {
+            eventRepository.save(new InterestPurchasedEvent(user, boughtSaleItem));
+        }
+        eventRepository.save(new PurchasedEvent(boughtSaleItem.getBuyer(), boughtSaleItem));
+    }
+
+    /**
+     * Logs that an outbox entry was skipped because the entity it refers to no longer exists
+     * @param entry Entry that was skipped
+     */
+    private void logSubjectMissing(OutboxEntry entry) {
+        logger.info("Skipping outbox entry (id={}, type={}) since its subject no longer exists", entry.getId(), entry.getType());
+    }
+}
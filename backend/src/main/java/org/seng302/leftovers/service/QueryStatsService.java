@@ -0,0 +1,293 @@
+package org.seng302.leftovers.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.leftovers.dto.stats.CacheStatsDTO;
+import org.seng302.leftovers.dto.stats.OperationStatsDTO;
+import org.seng302.leftovers.dto.stats.QueryStatsDTO;
+import org.seng302.leftovers.dto.stats.StatementStatsDTO;
+import org.seng302.leftovers.service.search.SaleListingResultCache;
+import org.seng302.leftovers.service.search.SearchPlanCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Records how long each endpoint, repository method and type of specification takes, and which SQL statements are
+ * prepared, so that slow searches can be found.
+ *
+ * SQL statements are identified by a fingerprint of their normalised text, in which literals are replaced by
+ * placeholders and lists of placeholders are collapsed, so that statements which only differ by their parameters
+ * share a fingerprint. Each repository call remembers the fingerprints of the statements prepared while it runs, and
+ * calls which take longer than the slow query threshold are logged along with their statements.
+ *
+ * Percentiles are calculated over a fixed number of the most recent calls of each operation, so memory does not grow
+ * with the number of calls.
+ *
+ * Only repository calls are timed, see QueryStatsConfiguration. Queries run on sessions opened directly from the
+ * SessionFactory are only counted among the statements.
+ */
+@Service
+public class QueryStatsService {
+    private static final Logger logger = LogManager.getLogger(QueryStatsService.class);
+
+    private static final int MAX_SAMPLES = 1024;
+    private static final int MAX_FINGERPRINTS_PER_OPERATION = 10;
+    private static final int MAX_STATEMENTS = 1000;
+    private static final int MAX_STATEMENTS_REPORTED = 50;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final long slowQueryThresholdMs;
+    private final SaleListingResultCache saleListingResultCache;
+    private final SearchPlanCache searchPlanCache;
+
+    private final Map<String, LatencyStats> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, LatencyStats> repositoryMethods = new ConcurrentHashMap<>();
+    private final Map<String, LatencyStats> specifications = new ConcurrentHashMap<>();
+    private final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private final ThreadLocal<Deque<RunningQuery>> runningQueries = ThreadLocal.withInitial(ArrayDeque::new);
+
+    @Autowired
+    public QueryStatsService(@Value("${query-stats.slow-query-threshold-ms:500}") long slowQueryThresholdMs,
+                             SaleListingResultCache saleListingResultCache, SearchPlanCache searchPlanCache) {
+        this.slowQueryThresholdMs = slowQueryThresholdMs;
+        this.saleListingResultCache = saleListingResultCache;
+        this.searchPlanCache = searchPlanCache;
+    }
+
+    /**
+     * Latencies and rows returned by the calls of one operation
+     */
+    private static final class LatencyStats {
+        private final long[] samples = new long[MAX_SAMPLES];
+        private int sampleCount = 0;
+        private int nextSample = 0;
+        private long count = 0;
+        private long totalNanos = 0;
+        private long maxNanos = 0;
+        private long rows = 0;
+        private final Set<String> fingerprints = new LinkedHashSet<>();
+
+        private synchronized void record(long nanos, long rowsReturned, Collection<String> statementFingerprints) {
+            samples[nextSample] = nanos;
+            nextSample = (nextSample + 1) % MAX_SAMPLES;
+            sampleCount = Math.min(sampleCount + 1, MAX_SAMPLES);
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            rows += rowsReturned;
+            for (String fingerprint : statementFingerprints) {
+                if (fingerprints.size() >= MAX_FINGERPRINTS_PER_OPERATION) {
+                    break;
+                }
+                fingerprints.add(fingerprint);
+            }
+        }
+
+        private synchronized OperationStatsDTO toDTO(String name) {
+            long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            return new OperationStatsDTO(name, count, toMillis(totalNanos), toMillis(count == 0 ? 0 : totalNanos / count),
+                    toMillis(percentile(sorted, 0.5)), toMillis(percentile(sorted, 0.95)),
+                    toMillis(percentile(sorted, 0.99)), toMillis(maxNanos), rows, new ArrayList<>(fingerprints));
+        }
+    }
+
+    /**
+     * Normalised text of the SQL statements with a fingerprint, and the number of times they have been prepared
+     */
+    private static final class StatementStats {
+        private final String sql;
+        private final AtomicLong count = new AtomicLong();
+
+        private StatementStats(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    /**
+     * A repository call which is being timed. Closing the query records its latency.
+     */
+    public final class RunningQuery implements AutoCloseable {
+        private final String operation;
+        private String specificationType;
+        private final long start = System.nanoTime();
+        private final Set<String> fingerprints = new LinkedHashSet<>();
+        private long rows = 0;
+
+        private RunningQuery(String operation, String specificationType) {
+            this.operation = operation;
+            this.specificationType = specificationType;
+        }
+
+        /**
+         * @param rows Number of rows returned by the call
+         */
+        public void setRows(long rows) {
+            this.rows = rows;
+        }
+
+        /**
+         * @param specificationType Type of the specification the call found entities with, once it is known
+         */
+        public void setSpecificationType(String specificationType) {
+            this.specificationType = specificationType;
+        }
+
+        @Override
+        public void close() {
+            runningQueries.get().remove(this);
+            recordQuery(operation, specificationType, System.nanoTime() - start, rows, fingerprints);
+        }
+    }
+
+    /**
+     * Starts timing a repository call. The query must be closed once the call returns, which records it.
+     * @param operation Name of the repository method
+     * @param specificationType Type of the specification the call finds entities with, or null if the call does not
+     *                          use a specification
+     * @return The running query
+     */
+    public RunningQuery startQuery(String operation, String specificationType) {
+        RunningQuery query = new RunningQuery(operation, specificationType);
+        runningQueries.get().push(query);
+        return query;
+    }
+
+    /**
+     * Records an SQL statement being prepared, and adds its fingerprint to every repository call running on this
+     * thread
+     * @param sql Text of the statement
+     */
+    public void recordStatement(String sql) {
+        String normalised = normalise(sql);
+        String fingerprint = fingerprint(normalised);
+        StatementStats stats = statements.get(fingerprint);
+        if (stats == null && statements.size() < MAX_STATEMENTS) {
+            stats = statements.computeIfAbsent(fingerprint, key -> new StatementStats(normalised));
+        }
+        if (stats != null) {
+            stats.count.incrementAndGet();
+        }
+        for (RunningQuery query : runningQueries.get()) {
+            query.fingerprints.add(fingerprint);
+        }
+    }
+
+    /**
+     * Records the latency of a repository call, and logs it if it is slower than the slow query threshold
+     * @param operation Name of the repository method
+     * @param specificationType Type of the specification used by the call, or null if there is none
+     * @param nanos Time taken by the call
+     * @param rows Number of rows returned
+     * @param fingerprints Fingerprints of the statements prepared by the call
+     */
+    void recordQuery(String operation, String specificationType, long nanos, long rows, Collection<String> fingerprints) {
+        repositoryMethods.computeIfAbsent(operation, key -> new LatencyStats()).record(nanos, rows, fingerprints);
+        if (specificationType != null) {
+            specifications.computeIfAbsent(specificationType, key -> new LatencyStats()).record(nanos, rows, fingerprints);
+        }
+        if (TimeUnit.NANOSECONDS.toMillis(nanos) >= slowQueryThresholdMs) {
+            List<String> sql = fingerprints.stream()
+                    .map(fingerprint -> Optional.ofNullable(statements.get(fingerprint)).map(stats -> stats.sql).orElse(fingerprint))
+                    .collect(Collectors.toList());
+            logger.warn("Slow query {} took {}ms and returned {} rows: {}", operation,
+                    TimeUnit.NANOSECONDS.toMillis(nanos), rows, sql);
+        }
+    }
+
+    /**
+     * Records the latency of a request to an endpoint
+     * @param endpoint HTTP method and path pattern of the endpoint
+     * @param nanos Time taken to handle the request
+     */
+    public void recordEndpoint(String endpoint, long nanos) {
+        endpoints.computeIfAbsent(endpoint, key -> new LatencyStats()).record(nanos, 0, List.of());
+    }
+
+    /**
+     * @return The latencies of every operation, ordered by the total time spent in each, the most frequently prepared
+     * statements and the metrics of the search caches
+     */
+    public QueryStatsDTO getStats() {
+        List<StatementStatsDTO> statementStats = statements.entrySet().stream()
+                .map(entry -> new StatementStatsDTO(entry.getKey(), entry.getValue().sql, entry.getValue().count.get()))
+                .sorted(Comparator.comparingLong(StatementStatsDTO::getCount).reversed())
+                .limit(MAX_STATEMENTS_REPORTED)
+                .collect(Collectors.toList());
+        return new QueryStatsDTO(slowQueryThresholdMs, toDTOs(endpoints), toDTOs(repositoryMethods),
+                toDTOs(specifications), statementStats,
+                new CacheStatsDTO(searchPlanCache.size(), searchPlanCache.getHits(), searchPlanCache.getMisses(),
+                        searchPlanCache.getEvictions(), searchPlanCache.getHitRatio()),
+                new CacheStatsDTO(saleListingResultCache.size(), saleListingResultCache.getHits(),
+                        saleListingResultCache.getMisses(), saleListingResultCache.getEvictions(),
+                        saleListingResultCache.getHitRatio()));
+    }
+
+    /**
+     * Removes every recorded latency and statement
+     */
+    public void clear() {
+        endpoints.clear();
+        repositoryMethods.clear();
+        specifications.clear();
+        statements.clear();
+    }
+
+    private static List<OperationStatsDTO> toDTOs(Map<String, LatencyStats> operations) {
+        return operations.entrySet().stream()
+                .map(entry -> entry.getValue().toDTO(entry.getKey()))
+                .sorted(Comparator.comparingDouble(OperationStatsDTO::getTotalMs).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the nearest rank percentile of some sorted latencies
+     * @param sorted Latencies in ascending order
+     * @param fraction Percentile as a fraction between 0 and 1
+     * @return The latency at the percentile, or 0 if there are no latencies
+     */
+    static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    /**
+     * Normalises an SQL statement by replacing literals with placeholders, collapsing lists of placeholders and
+     * collapsing whitespace, so that statements which only differ by their parameters are the same
+     * @param sql Text of the statement
+     * @return The normalised statement
+     */
+    static String normalise(String sql) {
+        String normalised = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalised = NUMBER_LITERAL.matcher(normalised).replaceAll("?");
+        normalised = PLACEHOLDER_LIST.matcher(normalised).replaceAll("?...");
+        return WHITESPACE.matcher(normalised).replaceAll(" ").strip().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param normalisedSql Normalised text of a statement
+     * @return Short identifier of the statement
+     */
+    static String fingerprint(String normalisedSql) {
+        return String.format("%08x", normalisedSql.hashCode());
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,178 @@
+package org.seng302.leftovers.service;
+
+import lombok.EqualsAndHashCode;
+import org.seng302.leftovers.dto.saleitem.BoughtSaleItemRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded least recently used cache of the sales report records of closed periods, which are periods that ended
+ * before today. Sale items are only ever added with the current time as their sale date, so the record of a closed
+ * period does not change, and a report only needs to total the periods which are not cached and the open period
+ * containing today.
+ *
+ * Records are identified by their business and the first and last dates of their period, so the same record is used
+ * by reports with any granularity which share the period. Every cached record is tagged with the version of its
+ * business's sales it was totalled at. The version is incremented when a sale item in a closed period is changed or
+ * deleted, or is added after its period closed, after which a record totalled at an earlier version is never
+ * returned. Changes made without JPA are picked up by invalidating every business when the daily sales rollups are
+ * backfilled.
+ */
+@Component
+public class ReportBucketCache {
+    private final int maxEntries;
+    private final LinkedHashMap<Key, CachedRecord> records;
+    private final Map<Long, Long> businessVersions = new HashMap<>();
+    private long globalVersion = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    @Autowired
+    public ReportBucketCache(@Value("${report-bucket-cache.max-entries:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.records = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedRecord> eldest) {
+                if (size() > ReportBucketCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Identifies a record by its business and period
+     */
+    @EqualsAndHashCode
+    private static final class Key {
+        private final long businessId;
+        private final LocalDate start;
+        private final LocalDate end;
+
+        private Key(long businessId, LocalDate start, LocalDate end) {
+            this.businessId = businessId;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Record and the version of its business's sales it was totalled at
+     */
+    private static final class CachedRecord {
+        private final BoughtSaleItemRecord record;
+        private final long version;
+
+        private CachedRecord(BoughtSaleItemRecord record, long version) {
+            this.record = record;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Gets the current version of a business's sales. The version must be read before totalling a record, and passed
+     * to put, so that a record totalled while a change is being committed is not returned once the change has been
+     * counted.
+     * @param businessId ID of the business
+     * @return Version of the business's sales
+     */
+    public synchronized long getVersion(long businessId) {
+        // Both counters only increase, so their sum increases whenever either is incremented
+        return globalVersion + businessVersions.getOrDefault(businessId, 0L);
+    }
+
+    /**
+     * Gets the cached record of a period if it is still current
+     * @param businessId ID of the business the record is for
+     * @param start First date of the period
+     * @param end Last date of the period
+     * @return The record, or empty if it is not cached or is out of date
+     */
+    public synchronized Optional<BoughtSaleItemRecord> get(long businessId, LocalDate start, LocalDate end) {
+        CachedRecord cachedRecord = records.get(new Key(businessId, start, end));
+        if (cachedRecord != null && cachedRecord.version == getVersion(businessId)) {
+            hits++;
+            return Optional.of(cachedRecord.record);
+        }
+        misses++;
+        return Optional.empty();
+    }
+
+    /**
+     * Caches the record of a closed period
+     * @param businessId ID of the business the record is for
+     * @param start First date of the period
+     * @param end Last date of the period
+     * @param record Record of the period
+     * @param version Version of the business's sales read before the record was totalled
+     */
+    public synchronized void put(long businessId, LocalDate start, LocalDate end, BoughtSaleItemRecord record, long version) {
+        if (version == getVersion(businessId)) {
+            records.put(new Key(businessId, start, end), new CachedRecord(record, version));
+        }
+    }
+
+    /**
+     * Marks every cached record of a business as out of date. Called after a change to a sale in a closed period has
+     * been committed.
+     * @param businessId ID of the business
+     */
+    public synchronized void invalidate(long businessId) {
+        businessVersions.merge(businessId, 1L, Long::sum);
+    }
+
+    /**
+     * Marks every cached record as out of date
+     */
+    public synchronized void invalidateAll() {
+        globalVersion++;
+    }
+
+    /**
+     * Removes every record from the cache and resets the metrics
+     */
+    public synchronized void clear() {
+        records.clear();
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /**
+     * @return Number of periods which used a cached record
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Number of closed periods which had to be totalled
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return Number of records removed to keep the cache within its maximum size
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return Number of records in the cache, including any which are out of date but have not been removed yet
+     */
+    public synchronized int size() {
+        return records.size();
+    }
+}
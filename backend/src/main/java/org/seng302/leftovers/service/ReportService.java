@@ -6,16 +6,21 @@ import lombok.ToString;
 import org.seng302.leftovers.dto.saleitem.BoughtSaleItemRecord;
 import org.seng302.leftovers.dto.saleitem.ReportGranularity;
 import org.seng302.leftovers.entities.Business;
+import org.seng302.leftovers.entities.DailySalesRollup;
 import org.seng302.leftovers.persistence.BoughtSaleItemRepository;
-import org.seng302.leftovers.service.search.SearchSpecConstructor;
+import org.seng302.leftovers.persistence.DailySalesRollupRepository;
+import org.seng302.leftovers.persistence.SalesAggregate;
+import org.seng302.leftovers.tools.DistinctCountSketch;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service for generating reports
@@ -23,11 +28,20 @@ import java.util.List;
 @Service
 public class ReportService {
     private final BoughtSaleItemRepository boughtSaleItemRepository;
+    private final DailySalesRollupRepository dailySalesRollupRepository;
+    private final SalesRollupService salesRollupService;
+    private final ReportBucketCache reportBucketCache;
 
 
     @Autowired
-    public ReportService(BoughtSaleItemRepository boughtSaleItemRepository) {
+    public ReportService(BoughtSaleItemRepository boughtSaleItemRepository,
+                         DailySalesRollupRepository dailySalesRollupRepository,
+                         SalesRollupService salesRollupService,
+                         ReportBucketCache reportBucketCache) {
         this.boughtSaleItemRepository = boughtSaleItemRepository;
+        this.dailySalesRollupRepository = dailySalesRollupRepository;
+        this.salesRollupService = salesRollupService;
+        this.reportBucketCache = reportBucketCache;
     }
 
     /**
@@ -80,7 +94,9 @@ public class ReportService {
 
 
     /**
-     * Generates a list of BoughtSaleItemRecords within a given date range
+     * Generates a list of BoughtSaleItemRecords within a given date range. The records of ranges which ended before
+     * today cannot change, so they are taken from the ReportBucketCache when possible, and only the remaining ranges
+     * are totalled.
      * @param business The business to generate the report for
      * @param start Date of the start of the report
      * @param end Date of the end of the report
@@ -89,18 +105,116 @@ public class ReportService {
      */
     public List<BoughtSaleItemRecord> generateReport(Business business, LocalDate start, LocalDate end, ReportGranularity granularity) {
         var ranges = getRanges(start, end, granularity);
+        LocalDate today = LocalDate.now();
+        long version = reportBucketCache.getVersion(business.getId());
+
+        List<BoughtSaleItemRecord> records = new ArrayList<>(Collections.nCopies(ranges.size(), null));
+        List<Integer> uncachedIndexes = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            var range = ranges.get(i);
+            Optional<BoughtSaleItemRecord> cached = range.end.isBefore(today)
+                    ? reportBucketCache.get(business.getId(), range.start, range.end)
+                    : Optional.empty();
+            if (cached.isPresent()) {
+                records.set(i, cached.get());
+            } else {
+                uncachedIndexes.add(i);
+            }
+        }
 
-        List<BoughtSaleItemRecord> records = new ArrayList<>();
-
-        for (DateRange range : ranges) {
-            var specification = SearchSpecConstructor.constructBoughtSaleListingSpecificationFromBusiness(business)
-                    .and(SearchSpecConstructor.constructBoughtSaleListingSpecificationFromPeriod(range.startInstant(), range.endInstant()));
+        List<DateRange> uncachedRanges = uncachedIndexes.stream().map(ranges::get).collect(Collectors.toList());
+        List<BoughtSaleItemRecord> totalled = totalRanges(business, uncachedRanges);
+        for (int i = 0; i < uncachedRanges.size(); i++) {
+            var range = uncachedRanges.get(i);
+            records.set(uncachedIndexes.get(i), totalled.get(i));
+            if (range.end.isBefore(today)) {
+                reportBucketCache.put(business.getId(), range.start, range.end, totalled.get(i), version);
+            }
+        }
+        return records;
+    }
 
-            var items = boughtSaleItemRepository.findAll(specification);
+    /**
+     * Totals the sales of a business in each of the given ranges. Once the daily sales rollups are ready the totals
+     * of each range are added up from the rollups of its days, and the unique buyers and products are counted by
+     * merging the sketches of its days. Until then the sales in every range are totalled by a single grouped query.
+     * @param business The business to total the sales of
+     * @param ranges Date ranges in order, which do not overlap
+     * @return A BoughtSaleItemRecord for each range, in the same order
+     */
+    private List<BoughtSaleItemRecord> totalRanges(Business business, List<DateRange> ranges) {
+        if (ranges.isEmpty()) {
+            return List.of();
+        }
+        List<SalesAggregate> aggregateList;
+        if (salesRollupService.isReady()) {
+            aggregateList = aggregateRollups(business, ranges);
+        } else {
+            List<Instant> rangeStarts = new ArrayList<>();
+            List<Instant> rangeEnds = new ArrayList<>();
+            for (DateRange range : ranges) {
+                rangeStarts.add(range.startInstant());
+                rangeEnds.add(range.endInstant());
+            }
+            aggregateList = boughtSaleItemRepository.aggregateSales(business.getId(), rangeStarts, rangeEnds);
+        }
+        Map<Integer, SalesAggregate> aggregates = aggregateList.stream()
+                .collect(Collectors.toMap(SalesAggregate::getPeriod, Function.identity()));
 
-            records.add(new BoughtSaleItemRecord(range.start, range.end, items));
+        List<BoughtSaleItemRecord> records = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            var range = ranges.get(i);
+            records.add(new BoughtSaleItemRecord(range.start, range.end, aggregates.get(i)));
         }
 
         return records;
     }
+
+    /**
+     * Adds up the daily sales rollups of a business within each date range. The unique buyers and products of a
+     * range are counted by merging the sketches of its days, which is exact for ranges with up to 256 different
+     * buyers or products and an estimate for larger ranges.
+     * @param business The business to add up the rollups of
+     * @param ranges Date ranges in order, which do not overlap
+     * @return The totals of each range with sales, identified by the index of the range
+     */
+    private List<SalesAggregate> aggregateRollups(Business business, List<DateRange> ranges) {
+        if (ranges.isEmpty()) {
+            return List.of();
+        }
+        List<DailySalesRollup> days = dailySalesRollupRepository.findDaysForBusiness(business.getId(),
+                ranges.get(0).start, ranges.get(ranges.size() - 1).end);
+
+        List<SalesAggregate> aggregates = new ArrayList<>();
+        int dayIndex = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            var range = ranges.get(i);
+            long listingsSold = 0;
+            long quantitySold = 0;
+            BigDecimal totalPrice = BigDecimal.ZERO;
+            long totalLikes = 0;
+            long totalSecondsToSell = 0;
+            var buyers = new DistinctCountSketch();
+            var products = new DistinctCountSketch();
+            // The days are ordered, so the days of each range follow on from the days of the previous range
+            while (dayIndex < days.size() && !days.get(dayIndex).getDay().isAfter(range.end)) {
+                var day = days.get(dayIndex++);
+                if (day.getDay().isBefore(range.start)) {
+                    continue;
+                }
+                listingsSold += day.getListingsSold();
+                quantitySold += day.getQuantitySold();
+                totalPrice = totalPrice.add(day.getTotalPrice());
+                totalLikes += day.getTotalLikes();
+                totalSecondsToSell += day.getTotalSecondsToSell();
+                buyers.merge(day.getBuyerSketch());
+                products.merge(day.getProductSketch());
+            }
+            if (listingsSold > 0) {
+                aggregates.add(new SalesAggregate(i, listingsSold, quantitySold, totalPrice, totalLikes, totalSecondsToSell,
+                        buyers.estimate(), products.estimate()));
+            }
+        }
+        return aggregates;
+    }
 }
@@ -0,0 +1,105 @@
+package org.seng302.leftovers.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.seng302.leftovers.dto.saleitem.SalesExportFormat;
+import org.seng302.leftovers.dto.saleitem.SalesExportRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Service for exporting every sale item a business sold within a date range, for use in accounting tools.
+ *
+ * Exports are written straight to an output stream while the sale items are read from a forward only cursor, so
+ * memory use does not depend on the number of sale items sold. The sale items are read with a stateless session,
+ * which does not keep the rows it has read, and only the columns written are selected. The database sends the rows in
+ * batches of the sales-export.fetch-size property.
+ */
+@Service
+public class SalesExportService {
+    private static final Logger logger = LogManager.getLogger(SalesExportService.class);
+
+    private final SessionFactory sessionFactory;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    @Autowired
+    public SalesExportService(SessionFactory sessionFactory, ObjectMapper objectMapper,
+                              @Value("${sales-export.fetch-size:500}") int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Sales export fetch size must be positive");
+        }
+        this.sessionFactory = sessionFactory;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Writes every sale item a business sold within a range of time to an output stream, ordered by sale date. The
+     * output stream is flushed but not closed.
+     * @param businessId ID of the business which sold the sale items
+     * @param start Start of the range (inclusive)
+     * @param end End of the range (exclusive)
+     * @param format Format to write the sale items in
+     * @param outputStream Stream to write the export to
+     * @return Number of sale items exported
+     * @throws IOException If the export cannot be written to the stream
+     */
+    public long exportSales(long businessId, Instant start, Instant end, SalesExportFormat format,
+                            OutputStream outputStream) throws IOException {
+        long begin = System.currentTimeMillis();
+        long exported = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        if (format == SalesExportFormat.CSV) {
+            writer.write(SalesExportRow.csvHeader());
+            writer.write("\n");
+        }
+
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            Transaction transaction = session.beginTransaction();
+            try (ScrollableResults rows = session.createQuery("select b.id, b.saleDate, b.listingDate, p.productCode, " +
+                            "p.name, b.quantity, b.price, b.interestCount from BoughtSaleItem b join b.product p " +
+                            "where p.business.id = :businessId and b.saleDate >= :start and b.saleDate < :end " +
+                            "order by b.saleDate, b.id")
+                    .setParameter("businessId", businessId)
+                    .setParameter("start", start)
+                    .setParameter("end", end)
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (rows.next()) {
+                    Object[] row = rows.get();
+                    var exportRow = new SalesExportRow((Long) row[0], (Instant) row[1], (Instant) row[2],
+                            (String) row[3], (String) row[4], (Integer) row[5], (BigDecimal) row[6], (Integer) row[7]);
+                    writer.write(format == SalesExportFormat.CSV ? exportRow.toCsv() : objectMapper.writeValueAsString(exportRow));
+                    writer.write("\n");
+                    exported++;
+                }
+            } catch (IOException | RuntimeException e) {
+                transaction.rollback();
+                throw e;
+            }
+            transaction.commit();
+        } finally {
+            session.close();
+        }
+        writer.flush();
+
+        logger.info("Exported {} sales for business (id={}) as {} in {}ms", exported, businessId, format,
+                System.currentTimeMillis() - begin);
+        return exported;
+    }
+}
@@ -0,0 +1,183 @@
+package org.seng302.leftovers.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.seng302.leftovers.entities.BoughtSaleItem;
+import org.seng302.leftovers.entities.Business;
+import org.seng302.leftovers.entities.DailySalesRollup;
+import org.seng302.leftovers.exceptions.DoesNotExistResponseException;
+import org.seng302.leftovers.persistence.BusinessRepository;
+import org.seng302.leftovers.persistence.DailySalesRollupRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Service which keeps the DailySalesRollup of every business and day up to date, so that sales reports can be
+ * generated from the totals of each day instead of from every sale item.
+ *
+ * Each sale is added to the rollup of its day in the same transaction as the sale is saved. Rollups are changed while
+ * holding a lock on their business, so two sales of the same business on the same day cannot both create a rollup.
+ *
+ * The rollups can also be rebuilt from the sale items by a backfill job, which replaces the rollups of one business
+ * at a time, each in its own transaction. The backfill runs at startup if there are sales but no rollups (e.g. when
+ * the rollups are first added), and can also be scheduled with the sales-rollup.backfill-cron property to correct
+ * any sales saved without JPA, after which every record in the ReportBucketCache is invalidated. Until the first
+ * backfill has finished the rollups are not ready, and reports are totalled from the sale items instead.
+ */
+@Service
+public class SalesRollupService {
+    private static final Logger logger = LogManager.getLogger(SalesRollupService.class);
+
+    private final SessionFactory sessionFactory;
+    private final BusinessRepository businessRepository;
+    private final DailySalesRollupRepository dailySalesRollupRepository;
+    private final ReportBucketCache reportBucketCache;
+
+    private volatile boolean ready = false;
+
+    @Autowired
+    public SalesRollupService(SessionFactory sessionFactory, BusinessRepository businessRepository,
+                              DailySalesRollupRepository dailySalesRollupRepository,
+                              ReportBucketCache reportBucketCache) {
+        this.sessionFactory = sessionFactory;
+        this.businessRepository = businessRepository;
+        this.dailySalesRollupRepository = dailySalesRollupRepository;
+        this.reportBucketCache = reportBucketCache;
+    }
+
+    /**
+     * Adds a sale to the rollup of the business and day it was made on. This must be called in the transaction which
+     * saves the sale, so that the rollup is only changed if the sale is.
+     * @param item Sale item which has been sold
+     */
+    public void recordSale(BoughtSaleItem item) {
+        Business business = businessRepository.findByIdForUpdate(item.getProduct().getBusiness().getId())
+                .orElseThrow(() -> new DoesNotExistResponseException(Business.class));
+        LocalDate day = DailySalesRollup.dayOf(item.getSaleDate());
+        DailySalesRollup rollup = dailySalesRollupRepository.findByBusinessAndDay(business, day)
+                .orElseGet(() -> new DailySalesRollup(business, day));
+        rollup.addSale(item);
+        dailySalesRollupRepository.save(rollup);
+    }
+
+    /**
+     * Backfills the rollups once the application has started if there are sales but no rollups, or if any rollups
+     * were created before they had sketches of their buyers and products. Otherwise the rollups are already up to
+     * date, since every sale made since they were added has been recorded.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialise() {
+        boolean needsBackfill;
+        try (Session session = sessionFactory.openSession()) {
+            long rollups = session.createQuery("select count(r) from DailySalesRollup r", Long.class).getSingleResult();
+            long rollupsWithoutSketches = session.createQuery("select count(r) from DailySalesRollup r " +
+                    "where r.buyerSketch is null or r.productSketch is null", Long.class).getSingleResult();
+            long sales = session.createQuery("select count(b) from BoughtSaleItem b", Long.class).getSingleResult();
+            needsBackfill = (rollups == 0 && sales > 0) || rollupsWithoutSketches > 0;
+        }
+        if (needsBackfill) {
+            backfill();
+        } else {
+            ready = true;
+        }
+    }
+
+    /**
+     * Rebuilds every rollup from the sale items. Does not run unless a cron expression is set with the
+     * sales-rollup.backfill-cron property.
+     */
+    @Scheduled(cron = "${sales-rollup.backfill-cron:-}")
+    public void scheduledBackfill() {
+        backfill();
+    }
+
+    /**
+     * Rebuilds the rollups of every business from its sale items, one business at a time. The rollups become ready
+     * once every business has been backfilled, and the cached report records are then invalidated in case the sale
+     * items were changed without JPA.
+     * @return Number of rollups created
+     */
+    public synchronized int backfill() {
+        long start = System.currentTimeMillis();
+        int created = 0;
+        try (Session session = sessionFactory.openSession()) {
+            List<Long> businessIds = session.createQuery("select b.id from Business b order by b.id", Long.class)
+                    .getResultList();
+            for (Long businessId : businessIds) {
+                created += backfillBusiness(session, businessId);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Sales rollup backfill failed: {}", e.getMessage());
+            return created;
+        }
+        ready = true;
+        reportBucketCache.invalidateAll();
+        logger.info("Backfilled {} daily sales rollups in {}ms", created, System.currentTimeMillis() - start);
+        return created;
+    }
+
+    /**
+     * Replaces the rollups of one business with the totals of its sale items, in its own transaction
+     * @param session Session to run the backfill with
+     * @param businessId ID of the business to backfill
+     * @return Number of rollups created
+     */
+    private int backfillBusiness(Session session, long businessId) {
+        Transaction transaction = session.beginTransaction();
+        try {
+            Business business = session.createQuery("select b from Business b where b.id = :businessId", Business.class)
+                    .setParameter("businessId", businessId)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getSingleResult();
+            session.createQuery("delete from DailySalesRollup r where r.business.id = :businessId")
+                    .setParameter("businessId", businessId)
+                    .executeUpdate();
+
+            Map<LocalDate, DailySalesRollup> rollups = new TreeMap<>();
+            try (ScrollableResults rows = session.createQuery("select b.quantity, b.price, b.interestCount, " +
+                            "b.listingDate, b.saleDate, b.buyer.userID, b.product.id from BoughtSaleItem b " +
+                            "where b.product.business.id = :businessId")
+                    .setParameter("businessId", businessId)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (rows.next()) {
+                    Object[] row = rows.get();
+                    Instant saleDate = (Instant) row[4];
+                    rollups.computeIfAbsent(DailySalesRollup.dayOf(saleDate), day -> new DailySalesRollup(business, day))
+                            .addSale((Integer) row[0], (BigDecimal) row[1], (Integer) row[2], (Instant) row[3], saleDate,
+                                    (Long) row[5], (Long) row[6]);
+                }
+            }
+            rollups.values().forEach(session::persist);
+            transaction.commit();
+            session.clear();
+            return rollups.size();
+        } catch (RuntimeException e) {
+            transaction.rollback();
+            session.clear();
+            throw e;
+        }
+    }
+
+    /**
+     * @return True once the rollups have been backfilled, after which they can be used to generate reports
+     */
+    public boolean isReady() {
+        return ready;
+    }
+}
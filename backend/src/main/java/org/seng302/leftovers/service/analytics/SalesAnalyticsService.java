@@ -0,0 +1,369 @@
+package org.seng302.leftovers.service.analytics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.seng302.leftovers.dto.analytics.SalesAnalyticsDTO;
+import org.seng302.leftovers.dto.analytics.SalesAnalyticsDimension;
+import org.seng302.leftovers.dto.analytics.SalesAnalyticsGroupDTO;
+import org.seng302.leftovers.dto.analytics.SalesAnalyticsMetric;
+import org.seng302.leftovers.dto.business.BusinessType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Service which groups the sales of every business by product, business type or region, for the admin sales
+ * analytics.
+ *
+ * Queries run over the latest SalesFactSnapshot. The chunks of the snapshot are split between the threads of a
+ * fork-join pool, each of which totals its chunks into GroupTotals, and the totals of each half are added together
+ * as the tasks are joined. Dimensions with few groups are totalled into arrays indexed by the code of each group, while
+ * dimensions with many groups, such as products, are totalled into a hash table holding only the groups which have
+ * sales in the task's chunks, so each task does not allocate and add up arrays as long as the number of products.
+ * Only the groups with the highest totals are then turned into DTOs, using a heap no larger than the number of groups
+ * returned. The pool has sales-analytics.parallelism threads, or one per processor if it is not set, and is separate
+ * from the common pool so that a large query does not hold up parallel streams elsewhere.
+ */
+@Service
+public class SalesAnalyticsService {
+    private static final Logger logger = LogManager.getLogger(SalesAnalyticsService.class);
+
+    private static final int TASKS_PER_THREAD = 4;
+    private static final double SECONDS_PER_DAY = 60 * 60 * 24;
+
+    private final SalesFactStore salesFactStore;
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    @Autowired
+    public SalesAnalyticsService(SalesFactStore salesFactStore,
+                                 @Value("${sales-analytics.parallelism:0}") int parallelism) {
+        this.salesFactStore = salesFactStore;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(this.parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("sales-analytics-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Stops the threads of the fork-join pool when the application shuts down
+     */
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Totals of each group. The totals are kept in slots: when there are at most DENSE_GROUP_LIMIT groups the slot of
+     * each group is its code, otherwise slots are given out as groups are first seen and found with an open addressing
+     * hash table from the code of the group.
+     */
+    private static final class GroupTotals {
+        private static final int DENSE_GROUP_LIMIT = 1024;
+        private static final int INITIAL_SPARSE_CAPACITY = 64;
+
+        private int[] groups;
+        private int[] table;
+        private int size;
+        private long[] listingsSold;
+        private long[] quantitySold;
+        private long[] revenueCents;
+        private long[] secondsToSell;
+
+        private GroupTotals(int groupCount) {
+            int capacity;
+            if (groupCount <= DENSE_GROUP_LIMIT) {
+                capacity = groupCount;
+                size = groupCount;
+            } else {
+                capacity = INITIAL_SPARSE_CAPACITY;
+                groups = new int[capacity];
+                table = new int[capacity * 2];
+            }
+            listingsSold = new long[capacity];
+            quantitySold = new long[capacity];
+            revenueCents = new long[capacity];
+            secondsToSell = new long[capacity];
+        }
+
+        /**
+         * @return Number of slots, some of which may not have any sales
+         */
+        private int size() {
+            return size;
+        }
+
+        /**
+         * @param slot Slot of a group
+         * @return Code of the group
+         */
+        private int groupAt(int slot) {
+            return groups == null ? slot : groups[slot];
+        }
+
+        /**
+         * Finds the slot holding the totals of a group, giving the group a new slot if it does not have one yet
+         * @param group Code of the group
+         * @return Slot of the group
+         */
+        private int slotOf(int group) {
+            if (table == null) {
+                return group;
+            }
+            int mask = table.length - 1;
+            for (int i = (group * 0x9E3779B9) >>> 1 & mask; ; i = (i + 1) & mask) {
+                int slot = table[i] - 1;
+                if (slot < 0) {
+                    slot = newSlot(group);
+                    table[i] = slot + 1;
+                    if (size * 2 > table.length) {
+                        rehash();
+                    }
+                    return slot;
+                }
+                if (groups[slot] == group) {
+                    return slot;
+                }
+            }
+        }
+
+        private int newSlot(int group) {
+            if (size == groups.length) {
+                int capacity = groups.length * 2;
+                groups = Arrays.copyOf(groups, capacity);
+                listingsSold = Arrays.copyOf(listingsSold, capacity);
+                quantitySold = Arrays.copyOf(quantitySold, capacity);
+                revenueCents = Arrays.copyOf(revenueCents, capacity);
+                secondsToSell = Arrays.copyOf(secondsToSell, capacity);
+            }
+            groups[size] = group;
+            return size++;
+        }
+
+        private void rehash() {
+            table = new int[table.length * 2];
+            int mask = table.length - 1;
+            for (int slot = 0; slot < size; slot++) {
+                int i = (groups[slot] * 0x9E3779B9) >>> 1 & mask;
+                while (table[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = slot + 1;
+            }
+        }
+
+        private void addSale(int group, int quantity, long priceCents, long secondsToSell) {
+            int slot = slotOf(group);
+            this.listingsSold[slot]++;
+            this.quantitySold[slot] += quantity;
+            this.revenueCents[slot] += priceCents;
+            this.secondsToSell[slot] += secondsToSell;
+        }
+
+        private void add(GroupTotals other) {
+            for (int otherSlot = 0; otherSlot < other.size; otherSlot++) {
+                if (other.listingsSold[otherSlot] == 0) {
+                    continue;
+                }
+                int slot = slotOf(other.groupAt(otherSlot));
+                listingsSold[slot] += other.listingsSold[otherSlot];
+                quantitySold[slot] += other.quantitySold[otherSlot];
+                revenueCents[slot] += other.revenueCents[otherSlot];
+                secondsToSell[slot] += other.secondsToSell[otherSlot];
+            }
+        }
+
+        private double getMetric(SalesAnalyticsMetric metric, int slot) {
+            switch (metric) {
+                case QUANTITY_SOLD:
+                    return quantitySold[slot];
+                case LISTINGS_SOLD:
+                    return listingsSold[slot];
+                case AVERAGE_DAYS_TO_SELL:
+                    return (double) secondsToSell[slot] / listingsSold[slot];
+                default:
+                    return revenueCents[slot];
+            }
+        }
+    }
+
+    /**
+     * Totals the sales within a range of time in a range of chunks, splitting the chunks between two subtasks until
+     * there are few enough for one task
+     */
+    private static final class GroupTask extends RecursiveTask<GroupTotals> {
+        private final List<SalesFactChunk> chunks;
+        private final int from;
+        private final int to;
+        private final int chunksPerTask;
+        private final SalesAnalyticsDimension groupBy;
+        private final int groupCount;
+        private final long startSecond;
+        private final long endSecond;
+
+        private GroupTask(List<SalesFactChunk> chunks, int from, int to, int chunksPerTask,
+                          SalesAnalyticsDimension groupBy, int groupCount, long startSecond, long endSecond) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.chunksPerTask = chunksPerTask;
+            this.groupBy = groupBy;
+            this.groupCount = groupCount;
+            this.startSecond = startSecond;
+            this.endSecond = endSecond;
+        }
+
+        @Override
+        protected GroupTotals compute() {
+            if (to - from <= chunksPerTask) {
+                GroupTotals totals = new GroupTotals(groupCount);
+                for (int i = from; i < to; i++) {
+                    addChunk(chunks.get(i), totals);
+                }
+                return totals;
+            }
+            int middle = (from + to) >>> 1;
+            var left = new GroupTask(chunks, from, middle, chunksPerTask, groupBy, groupCount, startSecond, endSecond);
+            var right = new GroupTask(chunks, middle, to, chunksPerTask, groupBy, groupCount, startSecond, endSecond);
+            left.fork();
+            GroupTotals totals = right.compute();
+            totals.add(left.join());
+            return totals;
+        }
+
+        private void addChunk(SalesFactChunk chunk, GroupTotals totals) {
+            for (int row = 0; row < chunk.size; row++) {
+                long saleSecond = chunk.saleSeconds[row];
+                if (saleSecond < startSecond || saleSecond >= endSecond) {
+                    continue;
+                }
+                int group;
+                switch (groupBy) {
+                    case PRODUCT:
+                        group = chunk.productCodes[row];
+                        break;
+                    case REGION:
+                        group = chunk.regionCodes[row];
+                        break;
+                    default:
+                        group = chunk.businessTypes[row];
+                }
+                totals.addSale(group, chunk.quantities[row], chunk.priceCents[row], chunk.secondsToSell[row]);
+            }
+        }
+    }
+
+    /**
+     * Groups the sales of every business within a range of dates, and returns the groups with the highest totals
+     * @param groupBy What to group the sales by
+     * @param orderBy Total to rank the groups by, highest first
+     * @param limit Maximum number of groups to return
+     * @param startDate First date of sales to include, or null to include every sale before the end date
+     * @param endDate Last date of sales to include, or null to include every sale after the start date
+     * @return The groups with the highest totals, along with the size and refresh time of the snapshot
+     */
+    public SalesAnalyticsDTO groupSales(SalesAnalyticsDimension groupBy, SalesAnalyticsMetric orderBy, int limit,
+                                        LocalDate startDate, LocalDate endDate) {
+        long start = System.currentTimeMillis();
+        SalesFactSnapshot snapshot = salesFactStore.getSnapshot();
+        long startSecond = startDate == null ? Long.MIN_VALUE
+                : startDate.atStartOfDay(ZoneId.systemDefault()).toEpochSecond();
+        long endSecond = endDate == null ? Long.MAX_VALUE
+                : endDate.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toEpochSecond();
+
+        int groupCount;
+        switch (groupBy) {
+            case PRODUCT:
+                groupCount = snapshot.getProductCount();
+                break;
+            case REGION:
+                groupCount = snapshot.getRegionCount();
+                break;
+            default:
+                groupCount = BusinessType.values().length;
+        }
+        List<SalesFactChunk> chunks = snapshot.getChunks();
+        int chunksPerTask = Math.max(1, chunks.size() / (parallelism * TASKS_PER_THREAD));
+        GroupTotals totals = pool.invoke(new GroupTask(chunks, 0, chunks.size(), chunksPerTask, groupBy, groupCount,
+                startSecond, endSecond));
+
+        List<SalesAnalyticsGroupDTO> groups = new ArrayList<>();
+        for (int slot : topGroups(totals, orderBy, limit)) {
+            groups.add(toGroupDTO(snapshot, groupBy, totals, slot));
+        }
+        logger.info("Grouped {} sales by {} in {}ms", snapshot.size(), groupBy, System.currentTimeMillis() - start);
+        return new SalesAnalyticsDTO(groupBy, orderBy, snapshot.size(), snapshot.getRefreshedAt(), groups);
+    }
+
+    /**
+     * Finds the groups with sales which have the highest value of a metric
+     * @param totals Totals of every group
+     * @param orderBy Metric to rank the groups by
+     * @param limit Maximum number of groups to return
+     * @return Slots of the highest ranked groups, highest first, with ties ordered by the code of the group
+     */
+    private static List<Integer> topGroups(GroupTotals totals, SalesAnalyticsMetric orderBy, int limit) {
+        Comparator<Integer> ranking = Comparator.<Integer>comparingDouble(slot -> totals.getMetric(orderBy, slot))
+                .reversed()
+                .thenComparingInt(totals::groupAt);
+        // The heap holds the best groups seen so far, with the worst of them first so it can be replaced
+        PriorityQueue<Integer> best = new PriorityQueue<>(ranking.reversed());
+        for (int slot = 0; slot < totals.size(); slot++) {
+            if (totals.listingsSold[slot] == 0) {
+                continue;
+            }
+            best.add(slot);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Integer> groups = new ArrayList<>(best);
+        groups.sort(ranking);
+        return groups;
+    }
+
+    /**
+     * Converts the totals of a group into its JSON form
+     * @param snapshot Snapshot the totals were taken from, which holds the product and region of each code
+     * @param groupBy What the sales were grouped by
+     * @param totals Totals of every group
+     * @param slot Slot of the group in the totals
+     * @return The group and its totals
+     */
+    private static SalesAnalyticsGroupDTO toGroupDTO(SalesFactSnapshot snapshot, SalesAnalyticsDimension groupBy,
+                                                     GroupTotals totals, int slot) {
+        int group = totals.groupAt(slot);
+        Long productId = null;
+        String productName = null;
+        BusinessType businessType = null;
+        String country = null;
+        String region = null;
+        switch (groupBy) {
+            case PRODUCT:
+                productId = snapshot.getProductId(group);
+                productName = snapshot.getProductName(group);
+                break;
+            case REGION:
+                country = snapshot.getRegion(group).getCountry();
+                region = snapshot.getRegion(group).getRegion();
+                break;
+            default:
+                businessType = BusinessType.values()[group];
+        }
+        long listingsSold = totals.listingsSold[slot];
+        return new SalesAnalyticsGroupDTO(productId, productName, businessType, country, region, listingsSold,
+                totals.quantitySold[slot], BigDecimal.valueOf(totals.revenueCents[slot], 2),
+                totals.secondsToSell[slot] / (listingsSold * SECONDS_PER_DAY));
+    }
+}
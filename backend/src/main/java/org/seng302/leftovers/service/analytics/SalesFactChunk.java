@@ -0,0 +1,98 @@
+package org.seng302.leftovers.service.analytics;
+
+import java.util.Arrays;
+
+/**
+ * A block of up to CAPACITY sales stored as one primitive array per column, so that a query only reads the columns it
+ * needs and each column is read sequentially. Products, regions and business types are stored as codes, which index
+ * into the dictionaries of the SalesFactSnapshot the chunk belongs to. Chunks are never changed once created, so they
+ * can be shared by every snapshot which contains them and read by many threads at once.
+ */
+final class SalesFactChunk {
+    static final int CAPACITY = 4096;
+
+    final int size;
+    final long[] saleSeconds;
+    final long[] secondsToSell;
+    final int[] quantities;
+    final long[] priceCents;
+    final int[] productCodes;
+    final int[] regionCodes;
+    final byte[] businessTypes;
+
+    private SalesFactChunk(int size, long[] saleSeconds, long[] secondsToSell, int[] quantities, long[] priceCents,
+                           int[] productCodes, int[] regionCodes, byte[] businessTypes) {
+        this.size = size;
+        this.saleSeconds = saleSeconds;
+        this.secondsToSell = secondsToSell;
+        this.quantities = quantities;
+        this.priceCents = priceCents;
+        this.productCodes = productCodes;
+        this.regionCodes = regionCodes;
+        this.businessTypes = businessTypes;
+    }
+
+    /**
+     * Columns of a chunk which sales are still being added to
+     */
+    static final class Builder {
+        private int size = 0;
+        private final long[] saleSeconds = new long[CAPACITY];
+        private final long[] secondsToSell = new long[CAPACITY];
+        private final int[] quantities = new int[CAPACITY];
+        private final long[] priceCents = new long[CAPACITY];
+        private final int[] productCodes = new int[CAPACITY];
+        private final int[] regionCodes = new int[CAPACITY];
+        private final byte[] businessTypes = new byte[CAPACITY];
+
+        /**
+         * Creates a builder without any sales
+         */
+        Builder() {}
+
+        /**
+         * Creates a builder starting with the sales of a chunk which is not full
+         * @param chunk Chunk to copy the sales of
+         */
+        Builder(SalesFactChunk chunk) {
+            size = chunk.size;
+            System.arraycopy(chunk.saleSeconds, 0, saleSeconds, 0, size);
+            System.arraycopy(chunk.secondsToSell, 0, secondsToSell, 0, size);
+            System.arraycopy(chunk.quantities, 0, quantities, 0, size);
+            System.arraycopy(chunk.priceCents, 0, priceCents, 0, size);
+            System.arraycopy(chunk.productCodes, 0, productCodes, 0, size);
+            System.arraycopy(chunk.regionCodes, 0, regionCodes, 0, size);
+            System.arraycopy(chunk.businessTypes, 0, businessTypes, 0, size);
+        }
+
+        void add(long saleSecond, long secondsToSell, int quantity, long priceCents, int productCode, int regionCode,
+                 byte businessType) {
+            this.saleSeconds[size] = saleSecond;
+            this.secondsToSell[size] = secondsToSell;
+            this.quantities[size] = quantity;
+            this.priceCents[size] = priceCents;
+            this.productCodes[size] = productCode;
+            this.regionCodes[size] = regionCode;
+            this.businessTypes[size] = businessType;
+            size++;
+        }
+
+        boolean isFull() {
+            return size == CAPACITY;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Creates a chunk of the sales added so far, with columns no longer than the number of sales
+         * @return The chunk
+         */
+        SalesFactChunk build() {
+            return new SalesFactChunk(size, Arrays.copyOf(saleSeconds, size), Arrays.copyOf(secondsToSell, size),
+                    Arrays.copyOf(quantities, size), Arrays.copyOf(priceCents, size), Arrays.copyOf(productCodes, size),
+                    Arrays.copyOf(regionCodes, size), Arrays.copyOf(businessTypes, size));
+        }
+    }
+}
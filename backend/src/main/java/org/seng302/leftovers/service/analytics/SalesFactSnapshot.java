@@ -0,0 +1,280 @@
+package org.seng302.leftovers.service.analytics;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.seng302.leftovers.dto.business.BusinessType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * An immutable columnar copy of every sale, along with the business type and region of the business which sold it,
+ * so that sales across every business can be grouped without joining the sale items to their products, businesses
+ * and addresses.
+ *
+ * Sales are stored in SalesFactChunks in the order they were added, which is the order of their IDs except for sales
+ * which were committed after a sale with a higher ID. Every sale with an ID up to the settled sale ID which was in the
+ * database when the snapshot was refreshed is assumed to be in the snapshot, and the IDs of the sales above it are
+ * kept so that a refresh can tell which of them are missing. Products and regions are replaced by a code in each
+ * chunk, and the product IDs, names and regions are kept once in dictionaries. A snapshot is refreshed by creating a
+ * builder from it, which shares every full chunk with the snapshot and only copies the last chunk and the
+ * dictionaries, so queries on the old snapshot can carry on while the new one is built.
+ */
+public final class SalesFactSnapshot {
+    static final SalesFactSnapshot EMPTY = new SalesFactSnapshot(List.of(), 0, 0, 0, Collections.emptyNavigableSet(),
+            null, List.of(), List.of(), List.of(), Map.of(), Map.of());
+
+    private final List<SalesFactChunk> chunks;
+    private final long size;
+    private final long lastSaleId;
+    private final long settledSaleId;
+    private final NavigableSet<Long> recentSaleIds;
+    private final Instant refreshedAt;
+    private final List<Long> productIds;
+    private final List<String> productNames;
+    private final List<Region> regions;
+    private final Map<Long, Integer> productCodes;
+    private final Map<Region, Integer> regionCodes;
+
+    private SalesFactSnapshot(List<SalesFactChunk> chunks, long size, long lastSaleId, long settledSaleId,
+                              NavigableSet<Long> recentSaleIds, Instant refreshedAt, List<Long> productIds,
+                              List<String> productNames, List<Region> regions, Map<Long, Integer> productCodes,
+                              Map<Region, Integer> regionCodes) {
+        this.chunks = chunks;
+        this.size = size;
+        this.lastSaleId = lastSaleId;
+        this.settledSaleId = settledSaleId;
+        this.recentSaleIds = recentSaleIds;
+        this.refreshedAt = refreshedAt;
+        this.productIds = productIds;
+        this.productNames = productNames;
+        this.regions = regions;
+        this.productCodes = productCodes;
+        this.regionCodes = regionCodes;
+    }
+
+    /**
+     * The country and region of a business's address
+     */
+    @Getter
+    @ToString
+    @EqualsAndHashCode
+    public static final class Region {
+        private final String country;
+        private final String region;
+
+        public Region(String country, String region) {
+            this.country = country;
+            this.region = region;
+        }
+    }
+
+    /**
+     * @return Chunks of sales, in the order they were added
+     */
+    List<SalesFactChunk> getChunks() {
+        return chunks;
+    }
+
+    /**
+     * @return Number of sales in the snapshot
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return Highest ID of a sale in the snapshot, or 0 if it is empty
+     */
+    public long getLastSaleId() {
+        return lastSaleId;
+    }
+
+    /**
+     * @return ID up to which every sale is assumed to be in the snapshot, or to never be committed
+     */
+    public long getSettledSaleId() {
+        return settledSaleId;
+    }
+
+    /**
+     * @return IDs of the sales in the snapshot with an ID higher than the settled sale ID, in ascending order
+     */
+    NavigableSet<Long> getRecentSaleIds() {
+        return recentSaleIds;
+    }
+
+    /**
+     * @return When the snapshot was created, or null if it has never been loaded
+     */
+    public Instant getRefreshedAt() {
+        return refreshedAt;
+    }
+
+    /**
+     * @return Number of different products with sales
+     */
+    int getProductCount() {
+        return productIds.size();
+    }
+
+    /**
+     * @param productCode Code of a product in the chunks
+     * @return ID of the product
+     */
+    long getProductId(int productCode) {
+        return productIds.get(productCode);
+    }
+
+    /**
+     * @param productCode Code of a product in the chunks
+     * @return Name of the product when its first sale was loaded
+     */
+    String getProductName(int productCode) {
+        return productNames.get(productCode);
+    }
+
+    /**
+     * @return Number of different regions with sales
+     */
+    int getRegionCount() {
+        return regions.size();
+    }
+
+    /**
+     * @param regionCode Code of a region in the chunks
+     * @return The region
+     */
+    Region getRegion(int regionCode) {
+        return regions.get(regionCode);
+    }
+
+    /**
+     * Creates a builder which adds sales to this snapshot
+     * @return Builder starting with the sales of this snapshot
+     */
+    Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Builds a snapshot by adding sales with IDs higher than the settled sale ID
+     */
+    static final class Builder {
+        private final List<SalesFactChunk> chunks;
+        private SalesFactChunk.Builder lastChunk;
+        private long size;
+        private long lastSaleId;
+        private long settledSaleId;
+        private final NavigableSet<Long> recentSaleIds;
+        private final List<Long> productIds;
+        private final List<String> productNames;
+        private final List<Region> regions;
+        private final Map<Long, Integer> productCodes;
+        private final Map<Region, Integer> regionCodes;
+
+        private Builder(SalesFactSnapshot snapshot) {
+            chunks = new ArrayList<>(snapshot.chunks);
+            // The last chunk is reopened if it is not full, so refreshing often does not leave many small chunks
+            if (!chunks.isEmpty() && chunks.get(chunks.size() - 1).size < SalesFactChunk.CAPACITY) {
+                lastChunk = new SalesFactChunk.Builder(chunks.remove(chunks.size() - 1));
+            } else {
+                lastChunk = new SalesFactChunk.Builder();
+            }
+            size = snapshot.size;
+            lastSaleId = snapshot.lastSaleId;
+            settledSaleId = snapshot.settledSaleId;
+            recentSaleIds = new TreeSet<>(snapshot.recentSaleIds);
+            productIds = new ArrayList<>(snapshot.productIds);
+            productNames = new ArrayList<>(snapshot.productNames);
+            regions = new ArrayList<>(snapshot.regions);
+            productCodes = new HashMap<>(snapshot.productCodes);
+            regionCodes = new HashMap<>(snapshot.regionCodes);
+        }
+
+        /**
+         * Adds a sale to the snapshot
+         * @param saleId ID of the sale, which must be higher than the settled sale ID and not already added
+         * @param saleDate When the sale was made
+         * @param listingDate When the sale was listed
+         * @param quantity Quantity sold
+         * @param price Price the sale was made for
+         * @param productId ID of the product sold
+         * @param productName Name of the product sold
+         * @param businessType Type of the business which made the sale
+         * @param region Region of the business which made the sale
+         */
+        void addSale(long saleId, Instant saleDate, Instant listingDate, int quantity, BigDecimal price,
+                     long productId, String productName, BusinessType businessType, Region region) {
+            if (saleId <= settledSaleId || recentSaleIds.contains(saleId)) {
+                throw new IllegalArgumentException("Sale has already been added");
+            }
+            Integer productCode = productCodes.get(productId);
+            if (productCode == null) {
+                productCode = productIds.size();
+                productCodes.put(productId, productCode);
+                productIds.add(productId);
+                productNames.add(productName);
+            }
+            Integer regionCode = regionCodes.get(region);
+            if (regionCode == null) {
+                regionCode = regions.size();
+                regionCodes.put(region, regionCode);
+                regions.add(region);
+            }
+
+            if (lastChunk.isFull()) {
+                chunks.add(lastChunk.build());
+                lastChunk = new SalesFactChunk.Builder();
+            }
+            lastChunk.add(saleDate.getEpochSecond(), ChronoUnit.SECONDS.between(listingDate, saleDate), quantity,
+                    price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact(), productCode, regionCode,
+                    (byte) businessType.ordinal());
+            size++;
+            lastSaleId = Math.max(lastSaleId, saleId);
+            recentSaleIds.add(saleId);
+        }
+
+        /**
+         * @return Highest ID of a sale added so far
+         */
+        long getLastSaleId() {
+            return lastSaleId;
+        }
+
+        /**
+         * Raises the settled sale ID, after which no sales with an ID up to it can be added. Sales with an ID up to it
+         * which have not been added are assumed to never be committed.
+         * @param saleId New settled sale ID, which is ignored if it is lower than the current settled sale ID
+         */
+        void settle(long saleId) {
+            if (saleId > settledSaleId) {
+                settledSaleId = saleId;
+                recentSaleIds.headSet(saleId, true).clear();
+            }
+        }
+
+        /**
+         * Creates a snapshot of the sales added so far
+         * @param refreshedAt When the sales were loaded
+         * @return The snapshot
+         */
+        SalesFactSnapshot build(Instant refreshedAt) {
+            List<SalesFactChunk> builtChunks = new ArrayList<>(chunks);
+            if (!lastChunk.isEmpty()) {
+                builtChunks.add(lastChunk.build());
+            }
+            return new SalesFactSnapshot(Collections.unmodifiableList(builtChunks), size, lastSaleId, settledSaleId,
+                    Collections.unmodifiableNavigableSet(new TreeSet<>(recentSaleIds)), refreshedAt,
+                    Collections.unmodifiableList(new ArrayList<>(productIds)),
+                    Collections.unmodifiableList(new ArrayList<>(productNames)),
+                    Collections.unmodifiableList(new ArrayList<>(regions)),
+                    Collections.unmodifiableMap(new HashMap<>(productCodes)),
+                    Collections.unmodifiableMap(new HashMap<>(regionCodes)));
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package org.seng302.leftovers.service.analytics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.seng302.leftovers.dto.business.BusinessType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Keeps a SalesFactSnapshot of every sale for the admin sales analytics.
+ *
+ * The snapshot is loaded when the application starts and is refreshed every sales-analytics.refresh-interval-ms by
+ * reading only the sales with a higher ID than the snapshot's settled sale ID. Sale IDs are generated when a sale is
+ * inserted, so a sale can be committed after a sale with a higher ID, and the sales within the last
+ * sales-analytics.recent-id-window IDs are read again on each refresh so that any which were committed late are added.
+ * The settled sale ID then moves up to that many IDs below the highest sale ID. If a sale within the window has been
+ * deleted the snapshot is rebuilt from every sale instead. Deletions of older sales are not noticed, and neither are
+ * changes to product names and regions, which are recorded when a sale is loaded, so they are brought up to date by
+ * scheduling a rebuild with the sales-analytics.rebuild-cron property.
+ *
+ * Sales are read with a stateless session from a forward only cursor, so loading does not keep the rows it has read,
+ * and the new snapshot replaces the old one once it is complete.
+ */
+@Component
+public class SalesFactStore {
+    private static final Logger logger = LogManager.getLogger(SalesFactStore.class);
+
+    private static final String SALE_JOINS = "from BoughtSaleItem b join b.product p join p.business bus " +
+            "join bus.address a ";
+
+    private final SessionFactory sessionFactory;
+    private final int fetchSize;
+    private final long recentIdWindow;
+
+    private volatile SalesFactSnapshot snapshot = SalesFactSnapshot.EMPTY;
+
+    @Autowired
+    public SalesFactStore(SessionFactory sessionFactory, @Value("${sales-analytics.fetch-size:500}") int fetchSize,
+                          @Value("${sales-analytics.recent-id-window:1000}") long recentIdWindow) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Sales analytics fetch size must be positive");
+        }
+        if (recentIdWindow < 0) {
+            throw new IllegalArgumentException("Sales analytics recent ID window must not be negative");
+        }
+        this.sessionFactory = sessionFactory;
+        this.fetchSize = fetchSize;
+        this.recentIdWindow = recentIdWindow;
+    }
+
+    /**
+     * Loads the snapshot once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialise() {
+        scheduledRefresh();
+    }
+
+    /**
+     * Adds the sales made since the last refresh to the snapshot
+     */
+    @Scheduled(fixedDelayString = "${sales-analytics.refresh-interval-ms:60000}",
+            initialDelayString = "${sales-analytics.refresh-interval-ms:60000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            logger.error("Sales analytics refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds the snapshot from every sale. Does not run unless a cron expression is set with the
+     * sales-analytics.rebuild-cron property.
+     */
+    @Scheduled(cron = "${sales-analytics.rebuild-cron:-}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.error("Sales analytics rebuild failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Adds the sales committed since the last refresh to the snapshot, or rebuilds it if any of the recent sales in the
+     * snapshot have been deleted
+     * @return Number of sales loaded
+     */
+    public synchronized long refresh() {
+        SalesFactSnapshot current = snapshot;
+        long loaded = load(current);
+        if (loaded < 0) {
+            logger.info("Sales in the last {} IDs of the sales analytics snapshot have been deleted, rebuilding",
+                    recentIdWindow);
+            return rebuild();
+        }
+        return loaded;
+    }
+
+    /**
+     * Replaces the snapshot with one loaded from every sale
+     * @return Number of sales loaded
+     */
+    public synchronized long rebuild() {
+        return load(SalesFactSnapshot.EMPTY);
+    }
+
+    /**
+     * Replaces the snapshot with a snapshot which adds every sale with an ID higher than the settled sale ID of a base
+     * snapshot which is not already in it. The snapshot is left as it is if any of the sales in the base snapshot
+     * with an ID higher than its settled sale ID are no longer in the database.
+     * @param base Snapshot to add the sales to
+     * @return Number of sales loaded, or -1 if sales have been deleted
+     */
+    private long load(SalesFactSnapshot base) {
+        long start = System.currentTimeMillis();
+        Instant refreshedAt = Instant.now();
+        SalesFactSnapshot.Builder builder = base.toBuilder();
+        Set<Long> recentSaleIds = base.getRecentSaleIds();
+        long recentSalesFound = 0;
+        long loaded = 0;
+
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            Transaction transaction = session.beginTransaction();
+            try (ScrollableResults rows = session.createQuery("select b.id, b.saleDate, b.listingDate, b.quantity, " +
+                            "b.price, p.id, p.name, bus.businessType, a.country, a.region " + SALE_JOINS +
+                            "where b.id > :settledSaleId order by b.id")
+                    .setParameter("settledSaleId", base.getSettledSaleId())
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (rows.next()) {
+                    Object[] row = rows.get();
+                    Long saleId = (Long) row[0];
+                    if (recentSaleIds.contains(saleId)) {
+                        recentSalesFound++;
+                        continue;
+                    }
+                    builder.addSale(saleId, (Instant) row[1], (Instant) row[2], (Integer) row[3],
+                            (BigDecimal) row[4], (Long) row[5], (String) row[6], (BusinessType) row[7],
+                            new SalesFactSnapshot.Region((String) row[8], (String) row[9]));
+                    loaded++;
+                }
+            } catch (RuntimeException e) {
+                transaction.rollback();
+                throw e;
+            }
+            transaction.commit();
+        } finally {
+            session.close();
+        }
+
+        if (recentSalesFound != recentSaleIds.size()) {
+            return -1;
+        }
+        builder.settle(builder.getLastSaleId() - recentIdWindow);
+        snapshot = builder.build(refreshedAt);
+        if (loaded > 0) {
+            logger.info("Loaded {} sales into the sales analytics snapshot in {}ms", loaded,
+                    System.currentTimeMillis() - start);
+        }
+        return loaded;
+    }
+
+    /**
+     * @return The latest snapshot, which is empty until it has first been loaded
+     */
+    public SalesFactSnapshot getSnapshot() {
+        return snapshot;
+    }
+}
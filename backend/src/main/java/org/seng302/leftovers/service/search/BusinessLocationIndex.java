@@ -0,0 +1,384 @@
+package org.seng302.leftovers.service.search;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.seng302.leftovers.entities.Business;
+import org.seng302.leftovers.entities.Location;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In memory spatial index of the coordinates of every business, used to find the businesses within a radius or
+ * bounding box without comparing the coordinates of every business address in the database.
+ *
+ * The world is divided into a grid of cells of CELL_SIZE degrees of latitude and longitude, and each cell maps to the
+ * ids of the businesses located in it. An area is searched by checking only the businesses in the cells overlapping
+ * its bounding ranges, and the businesses found can be ordered by their exact distance from the centre of the area.
+ *
+ * The index is kept up to date by the BusinessLocationIndexingListener, and is rebuilt from the database at startup
+ * and every hour to pick up any changes made without JPA.
+ */
+@Service
+public class BusinessLocationIndex {
+    private static final Logger logger = LogManager.getLogger(BusinessLocationIndex.class);
+
+    /**
+     * Size of a grid cell in degrees, about 11km from north to south
+     */
+    static final double CELL_SIZE = 0.1;
+    private static final int LATITUDE_CELLS = (int) Math.round(180 / CELL_SIZE);
+    private static final int LONGITUDE_CELLS = (int) Math.round(360 / CELL_SIZE);
+
+    private static final String ENTRY_QUERY = "select b.id, a.id, a.latitude, a.longitude from Business b join b.address a " +
+            "where a.latitude is not null and a.longitude is not null";
+
+    private final SessionFactory sessionFactory;
+    private final int maxMatches;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private IndexData data = new IndexData();
+    private boolean ready = false;
+    private boolean rebuilding = false;
+    private final List<Consumer<IndexData>> changesDuringRebuild = new ArrayList<>();
+
+    @Autowired
+    public BusinessLocationIndex(SessionFactory sessionFactory,
+                                 @Value("${business-location-index.max-matches:10000}") int maxMatches) {
+        this.sessionFactory = sessionFactory;
+        this.maxMatches = maxMatches;
+    }
+
+    /**
+     * The indexed location of a single business
+     */
+    static final class Entry {
+        private final long businessId;
+        private final long locationId;
+        private final double latitude;
+        private final double longitude;
+
+        Entry(long businessId, long locationId, double latitude, double longitude) {
+            this.businessId = businessId;
+            this.locationId = locationId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        private long cell() {
+            return cellKey(latitudeCell(latitude), longitudeCell(longitude));
+        }
+    }
+
+    /**
+     * The entries and grid cells of the index. Only accessed while holding the index lock.
+     */
+    private static final class IndexData {
+        private final Map<Long, Entry> entries = new HashMap<>();
+        private final Map<Long, Set<Long>> cells = new HashMap<>();
+        private final Map<Long, Set<Long>> businessesByLocation = new HashMap<>();
+
+        private void put(Entry entry) {
+            remove(entry.businessId);
+            entries.put(entry.businessId, entry);
+            cells.computeIfAbsent(entry.cell(), key -> new HashSet<>()).add(entry.businessId);
+            businessesByLocation.computeIfAbsent(entry.locationId, key -> new HashSet<>()).add(entry.businessId);
+        }
+
+        private void remove(long businessId) {
+            Entry entry = entries.remove(businessId);
+            if (entry == null) {
+                return;
+            }
+            removeFrom(cells, entry.cell(), businessId);
+            removeFrom(businessesByLocation, entry.locationId, businessId);
+        }
+
+        private static void removeFrom(Map<Long, Set<Long>> map, long key, long businessId) {
+            Set<Long> ids = map.get(key);
+            if (ids != null) {
+                ids.remove(businessId);
+                if (ids.isEmpty()) {
+                    map.remove(key);
+                }
+            }
+        }
+    }
+
+    private static int latitudeCell(double latitude) {
+        return Math.min(LATITUDE_CELLS - 1, Math.max(0, (int) Math.floor((latitude + 90) / CELL_SIZE)));
+    }
+
+    private static int longitudeCell(double longitude) {
+        return Math.min(LONGITUDE_CELLS - 1, Math.max(0, (int) Math.floor((longitude + 180) / CELL_SIZE)));
+    }
+
+    private static long cellKey(int latitudeCell, int longitudeCell) {
+        return (long) latitudeCell * LONGITUDE_CELLS + longitudeCell;
+    }
+
+    /**
+     * Applies a change to the index. If the index is being rebuilt the change is also remembered, so that it can be
+     * applied again to the rebuilt index in case the rebuild read the businesses before the change was made.
+     * @param change Change to apply
+     */
+    private void apply(Consumer<IndexData> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(data);
+            if (rebuilding) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a business to the index at the coordinates of its address, or moves it if it is already in the index.
+     * Businesses whose address has no coordinates are removed from the index.
+     * @param business Business that has been created or changed
+     */
+    public void put(Business business) {
+        long businessId = business.getId();
+        Location address = business.getAddress();
+        if (address == null || address.getId() == null || !address.hasCoordinates()) {
+            remove(businessId);
+            return;
+        }
+        put(new Entry(businessId, address.getId(), address.getLatitude(), address.getLongitude()));
+    }
+
+    /**
+     * Adds a business to the index, or replaces its location if it is already in the index
+     * @param entry Location of the business
+     */
+    void put(Entry entry) {
+        apply(indexData -> indexData.put(entry));
+    }
+
+    /**
+     * Removes a business from the index
+     * @param businessId Id of the business to remove
+     */
+    public void remove(long businessId) {
+        apply(indexData -> indexData.remove(businessId));
+    }
+
+    /**
+     * Moves every business at a location to its new coordinates. Locations which are not the address of a business
+     * in the index are ignored.
+     * @param location Location that has changed
+     */
+    public void updateLocation(Location location) {
+        long locationId = location.getId();
+        Double latitude = location.getLatitude();
+        Double longitude = location.getLongitude();
+        boolean hasCoordinates = location.hasCoordinates();
+        apply(indexData -> {
+            Set<Long> businessIds = indexData.businessesByLocation.get(locationId);
+            if (businessIds == null) {
+                return;
+            }
+            for (Long businessId : List.copyOf(businessIds)) {
+                if (hasCoordinates) {
+                    indexData.put(new Entry(businessId, locationId, latitude, longitude));
+                } else {
+                    indexData.remove(businessId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Rebuilds the index from the address of every business in the database. Any change made while the rebuild is
+     * running is applied again to the rebuilt index.
+     */
+    @Scheduled(fixedDelay = 60 * 60 * 1000)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            rebuilding = true;
+            changesDuringRebuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            List<Entry> entries = new ArrayList<>();
+            try (Session session = sessionFactory.openSession()) {
+                for (Object[] row : session.createQuery(ENTRY_QUERY, Object[].class).getResultList()) {
+                    entries.add(new Entry((Long) row[0], (Long) row[1], (Double) row[2], (Double) row[3]));
+                }
+            }
+            replaceAll(entries);
+            logger.info("Rebuilt business location index with {} businesses in {}ms", entries.size(),
+                    System.currentTimeMillis() - start);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                changesDuringRebuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Replaces the contents of the index with the given entries, then applies any changes made since the rebuild
+     * started. After this the index is used to answer searches.
+     * @param entries Location of every business with coordinates
+     */
+    void replaceAll(Collection<Entry> entries) {
+        IndexData newData = new IndexData();
+        entries.forEach(newData::put);
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild.forEach(change -> change.accept(newData));
+            changesDuringRebuild.clear();
+            data = newData;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return True once the index has been built, after which it can be used to answer searches
+     */
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return ready;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of businesses in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return data.entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the ids of the businesses located in a search area. Only the businesses in the grid cells overlapping the
+     * area are checked, unless the area covers more cells than there are businesses in the index.
+     * The index cannot answer the search if it has not been built yet or if more than the maximum number of
+     * businesses match, in which case the area should be matched by the database instead.
+     * @param area Area to search
+     * @return Ids of the businesses in the area, ordered by their distance from the centre of the area if it has one
+     * (and then by id), or ordered by id otherwise. Empty if the index cannot answer the search.
+     */
+    public Optional<List<Long>> findBusinessIds(SearchArea area) {
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                return Optional.empty();
+            }
+            List<Entry> matches = new ArrayList<>();
+            for (Entry entry : candidates(area)) {
+                if (area.contains(entry.latitude, entry.longitude)) {
+                    matches.add(entry);
+                }
+            }
+            if (matches.size() > maxMatches) {
+                return Optional.empty();
+            }
+
+            Comparator<Entry> byId = Comparator.comparingLong(entry -> entry.businessId);
+            if (area.hasCentre()) {
+                Map<Long, Double> distances = new HashMap<>();
+                for (Entry entry : matches) {
+                    distances.put(entry.businessId, area.distanceFromCentre(entry.latitude, entry.longitude));
+                }
+                matches.sort(Comparator.<Entry>comparingDouble(entry -> distances.get(entry.businessId)).thenComparing(byId));
+            } else {
+                matches.sort(byId);
+            }
+            List<Long> result = new ArrayList<>(matches.size());
+            for (Entry entry : matches) {
+                result.add(entry.businessId);
+            }
+            return Optional.of(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the businesses which may be in an area, from the grid cells overlapping its bounding ranges. Must be
+     * called while holding the read lock.
+     * @param area Area to search
+     * @return Every business in the cells overlapping the area
+     */
+    private Collection<Entry> candidates(SearchArea area) {
+        if (!area.hasBounds()) {
+            return data.entries.values();
+        }
+        List<double[]> ranges = area.getBoundingRanges();
+        long cellCount = 0;
+        for (double[] range : ranges) {
+            cellCount += (long) (latitudeCell(range[1]) - latitudeCell(range[0]) + 1)
+                    * (longitudeCell(range[3]) - longitudeCell(range[2]) + 1);
+        }
+        if (cellCount > data.entries.size()) {
+            return data.entries.values();
+        }
+
+        List<Entry> candidates = new ArrayList<>();
+        for (double[] range : ranges) {
+            for (int latitudeCell = latitudeCell(range[0]); latitudeCell <= latitudeCell(range[1]); latitudeCell++) {
+                for (int longitudeCell = longitudeCell(range[2]); longitudeCell <= longitudeCell(range[3]); longitudeCell++) {
+                    Set<Long> businessIds = data.cells.get(cellKey(latitudeCell, longitudeCell));
+                    if (businessIds != null) {
+                        businessIds.forEach(businessId -> candidates.add(data.entries.get(businessId)));
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Finds a page of the businesses found by findBusinessIds, so that only the businesses on the page need to be
+     * loaded from the database
+     * @param businessIds Ids of the businesses in the order returned by findBusinessIds
+     * @param pageable Page to find. Any sort of the page is ignored.
+     * @param direction Ascending to keep the order of the businesses, or descending to reverse it
+     * @return Page of business ids, with the total number of businesses
+     */
+    public static Page<Long> getPage(List<Long> businessIds, Pageable pageable, Sort.Direction direction) {
+        List<Long> ordered = businessIds;
+        if (direction == Sort.Direction.DESC) {
+            ordered = new ArrayList<>(businessIds);
+            Collections.reverse(ordered);
+        }
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(ordered, pageable, ordered.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), ordered.size());
+        int to = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), ordered.size());
+        return new PageImpl<>(List.copyOf(ordered.subList(from, to)), pageable, ordered.size());
+    }
+}
@@ -0,0 +1,308 @@
+package org.seng302.leftovers.service.search;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.seng302.leftovers.dto.card.KeywordDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In memory index of every keyword, used to autocomplete keyword names as they are typed without querying the
+ * database on every keystroke.
+ *
+ * The lower case name of every keyword is kept in a prefix trie, whose children are ordered by character, so the
+ * keywords starting with a prefix are found in alphabetical order by walking down to the node for the prefix and then
+ * visiting its subtree in order, stopping once enough keywords have been found. A search returns the keywords
+ * starting with the query before the keywords which only contain it, so that the closest completions come first. The
+ * keywords which contain the query elsewhere in their name are found by checking every keyword, which is only needed
+ * when there are fewer prefix matches than the number of results requested.
+ *
+ * The index is kept up to date by the KeywordIndexingListener, and is rebuilt from the database at startup and every
+ * hour to pick up any changes made without JPA.
+ */
+@Service
+public class KeywordPrefixIndex {
+    private static final Logger logger = LogManager.getLogger(KeywordPrefixIndex.class);
+
+    /**
+     * Order of keywords by name without case sensitivity, which is the order the trie is walked in. Every list of
+     * keywords ordered by name uses this order, whether it comes from the index or the database. Names which only
+     * differ in case are ordered by their case sensitive name, and then by ID.
+     */
+    public static final Comparator<KeywordDTO> BY_NAME = Comparator
+            .comparing((KeywordDTO keyword) -> toKey(keyword.getName()))
+            .thenComparing(KeywordDTO::getName)
+            .thenComparingLong(KeywordDTO::getId);
+
+    private final SessionFactory sessionFactory;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private IndexData data = new IndexData();
+    private boolean ready = false;
+    private boolean rebuilding = false;
+    private final List<Consumer<IndexData>> changesDuringRebuild = new ArrayList<>();
+
+    @Autowired
+    public KeywordPrefixIndex(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Node of the trie, holding the keywords whose lower case name ends at the node
+     */
+    private static final class Node {
+        private final TreeMap<Character, Node> children = new TreeMap<>();
+        private final TreeSet<KeywordDTO> keywords = new TreeSet<>(BY_NAME);
+
+        private boolean isEmpty() {
+            return children.isEmpty() && keywords.isEmpty();
+        }
+    }
+
+    /**
+     * Contents of the index, which are replaced as a whole when the index is rebuilt
+     */
+    private static final class IndexData {
+        private final Node root = new Node();
+        private final Map<Long, KeywordDTO> keywordsById = new HashMap<>();
+        private final TreeSet<KeywordDTO> keywordsByName = new TreeSet<>(BY_NAME);
+
+        private void put(KeywordDTO keyword) {
+            remove(keyword.getId());
+            keywordsById.put(keyword.getId(), keyword);
+            keywordsByName.add(keyword);
+            Node node = root;
+            for (char character : toKey(keyword.getName()).toCharArray()) {
+                node = node.children.computeIfAbsent(character, key -> new Node());
+            }
+            node.keywords.add(keyword);
+        }
+
+        private void remove(long keywordId) {
+            KeywordDTO keyword = keywordsById.remove(keywordId);
+            if (keyword == null) {
+                return;
+            }
+            keywordsByName.remove(keyword);
+            String key = toKey(keyword.getName());
+            Node[] path = new Node[key.length() + 1];
+            path[0] = root;
+            for (int i = 0; i < key.length(); i++) {
+                path[i + 1] = path[i].children.get(key.charAt(i));
+            }
+            path[key.length()].keywords.remove(keyword);
+            // Remove the nodes which no longer lead to any keyword
+            for (int i = key.length(); i > 0 && path[i].isEmpty(); i--) {
+                path[i - 1].children.remove(key.charAt(i - 1));
+            }
+        }
+    }
+
+    /**
+     * Converts a keyword name or query into the form it is stored in the trie as
+     */
+    private static String toKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Applies a change to the index. If the index is being rebuilt the change is also remembered, so that it can be
+     * applied again to the rebuilt index in case the rebuild read the keywords before the change was made.
+     * @param change Change to apply
+     */
+    private void apply(Consumer<IndexData> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(data);
+            if (rebuilding) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a newly created keyword to the index, or replaces the indexed name of a renamed keyword
+     * @param keyword Keyword that has been created or changed
+     */
+    public void put(KeywordDTO keyword) {
+        apply(indexData -> indexData.put(keyword));
+    }
+
+    /**
+     * Removes a deleted keyword from the index
+     * @param keywordId Id of the keyword
+     */
+    public void remove(long keywordId) {
+        apply(indexData -> indexData.remove(keywordId));
+    }
+
+    /**
+     * Rebuilds the index from every keyword in the database, and applies any change made while the rebuild is running
+     * to the rebuilt index
+     */
+    @Scheduled(fixedDelay = 60 * 60 * 1000)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            rebuilding = true;
+            changesDuringRebuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            List<KeywordDTO> keywords = new ArrayList<>();
+            try (Session session = sessionFactory.openSession()) {
+                session.createQuery("select k.id, k.name, k.created from Keyword k", Object[].class)
+                        .getResultList()
+                        .forEach(row -> keywords.add(new KeywordDTO((Long) row[0], (String) row[1], (Instant) row[2])));
+            }
+            replaceAll(keywords);
+            logger.info("Rebuilt keyword prefix index with {} keywords in {}ms", keywords.size(),
+                    System.currentTimeMillis() - start);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                changesDuringRebuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Replaces the contents of the index with the given keywords, then applies any changes made since the rebuild
+     * started. After this the index is used to answer searches.
+     * @param keywords Every keyword
+     */
+    void replaceAll(Collection<KeywordDTO> keywords) {
+        IndexData newData = new IndexData();
+        keywords.forEach(newData::put);
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild.forEach(change -> change.accept(newData));
+            changesDuringRebuild.clear();
+            data = newData;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return True once the index has been built, after which it can be used to answer searches
+     */
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return ready;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of keywords in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return data.keywordsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds every keyword, ordered by name
+     * @return Every keyword, or empty if the index has not been built yet
+     */
+    public Optional<List<KeywordDTO>> findAll() {
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                return Optional.empty();
+            }
+            return Optional.of(new ArrayList<>(data.keywordsByName));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the keywords whose name contains the query, without case sensitivity. Keywords whose name starts with the
+     * query come first, then the keywords which contain it elsewhere, and each group is ordered by name.
+     * @param query Text typed by the user
+     * @param limit Maximum number of keywords to return, or null to return every matching keyword
+     * @return Matching keywords, or empty if the index has not been built yet
+     */
+    public Optional<List<KeywordDTO>> search(String query, Integer limit) {
+        String key = toKey(query);
+        int maxResults = limit == null ? Integer.MAX_VALUE : limit;
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                return Optional.empty();
+            }
+            List<KeywordDTO> results = new ArrayList<>();
+            Node node = data.root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.children.get(key.charAt(i));
+            }
+            if (node != null) {
+                collect(node, results, maxResults);
+            }
+            if (results.size() < maxResults) {
+                for (KeywordDTO keyword : data.keywordsByName) {
+                    String name = toKey(keyword.getName());
+                    if (name.indexOf(key, 1) >= 0 && !name.startsWith(key)) {
+                        results.add(keyword);
+                        if (results.size() >= maxResults) {
+                            break;
+                        }
+                    }
+                }
+            }
+            return Optional.of(results);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the keywords in the subtree of a node to the results in alphabetical order, until the results are full
+     * @param node Root of the subtree
+     * @param results Results to add to
+     * @param maxResults Number of results to stop at
+     */
+    private static void collect(Node node, List<KeywordDTO> results, int maxResults) {
+        Deque<Node> toVisit = new ArrayDeque<>();
+        toVisit.push(node);
+        while (!toVisit.isEmpty() && results.size() < maxResults) {
+            Node current = toVisit.pop();
+            for (KeywordDTO keyword : current.keywords) {
+                if (results.size() >= maxResults) {
+                    return;
+                }
+                results.add(keyword);
+            }
+            // Push the children in reverse so that they are visited in order
+            for (Node child : current.children.descendingMap().values()) {
+                toVisit.push(child);
+            }
+        }
+    }
+}
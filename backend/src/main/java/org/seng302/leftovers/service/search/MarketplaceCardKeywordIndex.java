@@ -0,0 +1,335 @@
+package org.seng302.leftovers.service.search;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.seng302.leftovers.entities.Keyword;
+import org.seng302.leftovers.entities.MarketplaceCard;
+import org.seng302.leftovers.persistence.AfterCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In memory index of the keywords of every marketplace card, used to filter the cards in a section by keyword without
+ * a correlated subquery over the card keywords table for every card.
+ *
+ * For each section, every keyword maps to a bitmap with a bit set for the id of each card in the section with that
+ * keyword. Searching for cards with all of the keywords intersects their bitmaps, and searching for cards with any of
+ * the keywords unions them. The fields cards can be ordered by (other than by their creator) are also kept, so that a
+ * page of the matching cards and the number of matching cards can be found without querying the database.
+ *
+ * The index is kept up to date by the MarketplaceCardIndexingListener, and by CardController when a card is modified,
+ * since changing only the keywords of a card does not call the listener. It is rebuilt from the database at startup
+ * and every hour to pick up any changes made without JPA.
+ */
+@Service
+public class MarketplaceCardKeywordIndex {
+    private static final Logger logger = LogManager.getLogger(MarketplaceCardKeywordIndex.class);
+
+    /**
+     * Comparators for the card fields which the index can order cards by
+     */
+    private static final Map<String, Comparator<CardEntry>> ORDERINGS = Map.of(
+            "lastRenewed", Comparator.comparing(entry -> entry.lastRenewed),
+            "created", Comparator.comparing(entry -> entry.created),
+            "closes", Comparator.comparing(entry -> entry.closes),
+            "title", Comparator.comparing(entry -> entry.title.toUpperCase(Locale.ROOT)));
+
+    private final SessionFactory sessionFactory;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private IndexData data = new IndexData();
+    private boolean ready = false;
+    private boolean rebuilding = false;
+    private final List<Consumer<IndexData>> changesDuringRebuild = new ArrayList<>();
+
+    @Autowired
+    public MarketplaceCardKeywordIndex(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * The indexed fields of a single marketplace card
+     */
+    static final class CardEntry {
+        private final int id;
+        private final MarketplaceCard.Section section;
+        private final Set<Long> keywordIds;
+        private final Instant created;
+        private final Instant lastRenewed;
+        private final Instant closes;
+        private final String title;
+
+        CardEntry(long id, MarketplaceCard.Section section, Set<Long> keywordIds, Instant created, Instant lastRenewed,
+                  Instant closes, String title) {
+            this.id = Math.toIntExact(id);
+            this.section = section;
+            this.keywordIds = Set.copyOf(keywordIds);
+            this.created = created;
+            this.lastRenewed = lastRenewed;
+            this.closes = closes;
+            this.title = title;
+        }
+
+        /**
+         * Reads the indexed fields of a card
+         * @param card Card to index
+         */
+        CardEntry(MarketplaceCard card) {
+            this(card.getID(), card.getSection(), toKeywordIds(card.getKeywords()), card.getCreated(),
+                    card.getLastRenewed(), card.getCloses(), card.getTitle());
+        }
+
+        private static Set<Long> toKeywordIds(List<Keyword> keywords) {
+            Set<Long> keywordIds = new HashSet<>();
+            for (Keyword keyword : keywords) {
+                keywordIds.add(keyword.getID());
+            }
+            return keywordIds;
+        }
+    }
+
+    /**
+     * The cards and bitmaps of the index. Only accessed while holding the index lock.
+     */
+    private static final class IndexData {
+        private final Map<Integer, CardEntry> cards = new HashMap<>();
+        private final Map<MarketplaceCard.Section, Map<Long, BitSet>> cardsByKeyword = new EnumMap<>(MarketplaceCard.Section.class);
+
+        private void put(CardEntry entry) {
+            remove(entry.id);
+            cards.put(entry.id, entry);
+            var sectionBitmaps = cardsByKeyword.computeIfAbsent(entry.section, key -> new HashMap<>());
+            for (Long keywordId : entry.keywordIds) {
+                sectionBitmaps.computeIfAbsent(keywordId, key -> new BitSet()).set(entry.id);
+            }
+        }
+
+        private void remove(int cardId) {
+            CardEntry entry = cards.remove(cardId);
+            if (entry == null) {
+                return;
+            }
+            var sectionBitmaps = cardsByKeyword.get(entry.section);
+            for (Long keywordId : entry.keywordIds) {
+                BitSet bitmap = sectionBitmaps.get(keywordId);
+                bitmap.clear(entry.id);
+                if (bitmap.isEmpty()) {
+                    sectionBitmaps.remove(keywordId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies a change to the index. If the index is being rebuilt the change is also remembered, so that it can be
+     * applied again to the rebuilt index in case the rebuild read the cards before the change was made.
+     * @param change Change to apply
+     */
+    private void apply(Consumer<IndexData> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(data);
+            if (rebuilding) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a card to the index, or replaces its indexed fields if it is already in the index
+     * @param entry Indexed fields of the card
+     */
+    public void put(CardEntry entry) {
+        apply(indexData -> indexData.put(entry));
+    }
+
+    /**
+     * Removes a card from the index
+     * @param cardId Id of the card to remove
+     */
+    public void remove(long cardId) {
+        int id = Math.toIntExact(cardId);
+        apply(indexData -> indexData.remove(id));
+    }
+
+    /**
+     * Adds a card to the index, or replaces its indexed fields, once the current transaction has committed. The
+     * fields are read from the card straight away.
+     * @param card Card that has been created or changed
+     */
+    public void putWhenCommitted(MarketplaceCard card) {
+        var entry = new CardEntry(card);
+        AfterCommit.run(() -> put(entry));
+    }
+
+    /**
+     * Removes a card from the index once the current transaction has committed
+     * @param cardId Id of the card that has been deleted
+     */
+    public void removeWhenCommitted(long cardId) {
+        AfterCommit.run(() -> remove(cardId));
+    }
+
+    /**
+     * Rebuilds the index from every card in the database, and applies any change made while the rebuild is running
+     * to the rebuilt index
+     */
+    @Scheduled(fixedDelay = 60 * 60 * 1000)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            rebuilding = true;
+            changesDuringRebuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            List<CardEntry> entries = new ArrayList<>();
+            try (Session session = sessionFactory.openSession()) {
+                Map<Long, Set<Long>> keywordIds = new HashMap<>();
+                session.createQuery("select c.id, k.id from MarketplaceCard c join c.keywords k", Object[].class)
+                        .getResultList()
+                        .forEach(row -> keywordIds.computeIfAbsent((Long) row[0], key -> new HashSet<>()).add((Long) row[1]));
+                session.createQuery("select c.id, c.section, c.created, c.lastRenewed, c.closes, c.title from MarketplaceCard c", Object[].class)
+                        .getResultList()
+                        .forEach(row -> entries.add(new CardEntry((Long) row[0], (MarketplaceCard.Section) row[1],
+                                keywordIds.getOrDefault((Long) row[0], Set.of()),
+                                (Instant) row[2], (Instant) row[3], (Instant) row[4], (String) row[5])));
+            }
+            replaceAll(entries);
+            logger.info("Rebuilt marketplace card keyword index with {} cards in {}ms", entries.size(),
+                    System.currentTimeMillis() - start);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                changesDuringRebuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Replaces the contents of the index with the given cards, then applies any changes made since the rebuild
+     * started. After this the index is used to answer searches.
+     * @param entries Indexed fields of every card
+     */
+    void replaceAll(Collection<CardEntry> entries) {
+        IndexData newData = new IndexData();
+        entries.forEach(newData::put);
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild.forEach(change -> change.accept(newData));
+            changesDuringRebuild.clear();
+            data = newData;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return True once the index has been built, after which it can be used to answer searches
+     */
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return ready;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the ids of the cards in a section with all, or any, of the given keywords
+     * @param section Section to search
+     * @param keywordIds Ids of the keywords to search for
+     * @param union True to match cards with any of the keywords, false to match cards with all of them
+     * @return Bitmap of the ids of the matching cards, or empty if the index has not been built yet
+     */
+    public Optional<BitSet> findMatchingIds(MarketplaceCard.Section section, Collection<Long> keywordIds, boolean union) {
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                return Optional.empty();
+            }
+            var sectionBitmaps = data.cardsByKeyword.getOrDefault(section, Map.of());
+            BitSet result = null;
+            for (Long keywordId : new HashSet<>(keywordIds)) {
+                BitSet bitmap = sectionBitmaps.getOrDefault(keywordId, new BitSet());
+                if (result == null) {
+                    result = (BitSet) bitmap.clone();
+                } else if (union) {
+                    result.or(bitmap);
+                } else {
+                    result.and(bitmap);
+                }
+            }
+            return Optional.of(result == null ? new BitSet() : result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Selects a page of the matching cards, ordered by the sort of the page request. Cards which are equal under the
+     * sort are ordered by id. The index cannot order cards by their creator, so for those orderings the page has to
+     * be selected by the database.
+     * @param matchingIds Ids of the matching cards
+     * @param pageable Page to select and the order of the cards
+     * @return Ids of the cards on the page, with the total number of matching cards, or empty if the index cannot
+     * order the cards by the requested sort
+     */
+    public Optional<Page<Long>> getPage(BitSet matchingIds, Pageable pageable) {
+        Comparator<CardEntry> comparator = null;
+        for (Sort.Order order : pageable.getSort()) {
+            Comparator<CardEntry> orderComparator = ORDERINGS.get(order.getProperty());
+            if (orderComparator == null) {
+                return Optional.empty();
+            }
+            if (order.isDescending()) {
+                orderComparator = orderComparator.reversed();
+            }
+            comparator = comparator == null ? orderComparator : comparator.thenComparing(orderComparator);
+        }
+        boolean descending = pageable.getSort().stream().findFirst().map(Sort.Order::isDescending).orElse(false);
+        Comparator<CardEntry> idComparator = Comparator.comparingInt(entry -> entry.id);
+        idComparator = descending ? idComparator.reversed() : idComparator;
+        comparator = comparator == null ? idComparator : comparator.thenComparing(idComparator);
+
+        List<CardEntry> entries = new ArrayList<>(matchingIds.cardinality());
+        lock.readLock().lock();
+        try {
+            matchingIds.stream().mapToObj(data.cards::get).filter(Objects::nonNull).forEach(entries::add);
+        } finally {
+            lock.readLock().unlock();
+        }
+        entries.sort(comparator);
+
+        int from = (int) Math.min(pageable.getOffset(), entries.size());
+        int to = Math.min(from + pageable.getPageSize(), entries.size());
+        List<Long> pageIds = new ArrayList<>(to - from);
+        for (CardEntry entry : entries.subList(from, to)) {
+            pageIds.add((long) entry.id);
+        }
+        return Optional.of(new PageImpl<>(pageIds, pageable, entries.size()));
+    }
+}
@@ -0,0 +1,355 @@
+package org.seng302.leftovers.service.search;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Dictionary of the words in the names of every product or every business, used to find the words a misspelt search
+ * term was probably meant to be, so that a search for 'choclate' or 'bakry' still finds the chocolate products and
+ * the bakeries.
+ *
+ * The words are kept in a BK-tree, in which each child of a word is stored under its Levenshtein distance from that
+ * word. By the triangle inequality, a word within distance k of a term can only be under a child whose distance is
+ * within k of the distance between the term and its parent, so a lookup only visits a small part of the tree.
+ * Each word is counted by the number of names containing it. Words cannot be removed from a BK-tree, so a word whose
+ * count drops to zero stays in the tree but is no longer returned, and the tree is rebuilt from the remaining words
+ * once more than half of the words in it have been removed.
+ *
+ * The words are also indexed by the trigrams they contain, so that checking whether a term is already part of a word
+ * only compares the term with the words sharing its rarest trigram, rather than with every word in the dictionary.
+ *
+ * The dictionary of product names and the dictionary of business names are owned by the NameDictionaryService, which
+ * rebuilds them from the database, and are kept up to date by the NameDictionaryListener.
+ */
+public class NameDictionary {
+    private static final int MAX_SIMILAR_WORDS = 10;
+    private static final int TRIGRAM_LENGTH = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Words words = new Words();
+    private boolean rebuilding = false;
+    private final List<Consumer<Words>> changesDuringRebuild = new ArrayList<>();
+
+    /**
+     * Node of the BK-tree, holding a word and its children by their distance from the word
+     */
+    private static final class Node {
+        private final String word;
+        private final Map<Integer, Node> children = new HashMap<>();
+
+        private Node(String word) {
+            this.word = word;
+        }
+    }
+
+    /**
+     * Contents of the dictionary, which are replaced as a whole when the dictionary is rebuilt
+     */
+    private static final class Words {
+        private final Map<Long, List<String>> wordsById = new HashMap<>();
+        private final Map<String, Integer> counts = new HashMap<>();
+        private final Map<String, Set<String>> wordsByTrigram = new HashMap<>();
+        private Node root = null;
+        private int treeSize = 0;
+
+        private void put(long id, String name) {
+            remove(id);
+            List<String> nameWords = toWords(name);
+            wordsById.put(id, nameWords);
+            for (String word : nameWords) {
+                if (counts.merge(word, 1, Integer::sum) == 1) {
+                    insert(word);
+                    for (String trigram : toTrigrams(word)) {
+                        wordsByTrigram.computeIfAbsent(trigram, key -> new HashSet<>()).add(word);
+                    }
+                }
+            }
+        }
+
+        private void remove(long id) {
+            List<String> nameWords = wordsById.remove(id);
+            if (nameWords == null) {
+                return;
+            }
+            for (String word : nameWords) {
+                if (counts.computeIfPresent(word, (key, count) -> count > 1 ? count - 1 : null) == null) {
+                    for (String trigram : toTrigrams(word)) {
+                        wordsByTrigram.computeIfPresent(trigram, (key, trigramWords) -> {
+                            trigramWords.remove(word);
+                            return trigramWords.isEmpty() ? null : trigramWords;
+                        });
+                    }
+                }
+            }
+            if (treeSize > 2 * counts.size()) {
+                root = null;
+                treeSize = 0;
+                counts.keySet().forEach(this::insert);
+            }
+        }
+
+        private void insert(String word) {
+            if (root == null) {
+                root = new Node(word);
+                treeSize++;
+                return;
+            }
+            Node node = root;
+            while (true) {
+                int distance = editDistance(word, node.word);
+                if (distance == 0) {
+                    return;
+                }
+                Node child = node.children.get(distance);
+                if (child == null) {
+                    node.children.put(distance, new Node(word));
+                    treeSize++;
+                    return;
+                }
+                node = child;
+            }
+        }
+
+        /**
+         * Checks whether any word in the dictionary contains a term. Every word containing the term also contains each
+         * trigram of the term, so only the words with the rarest trigram of the term need to be compared with it.
+         * @param term Lower case term of at least TRIGRAM_LENGTH characters
+         * @return True if the term is part of a word in the dictionary
+         */
+        private boolean containsSubstring(String term) {
+            Set<String> candidates = null;
+            for (String trigram : toTrigrams(term)) {
+                Set<String> trigramWords = wordsByTrigram.get(trigram);
+                if (trigramWords == null) {
+                    return false;
+                }
+                if (candidates == null || trigramWords.size() < candidates.size()) {
+                    candidates = trigramWords;
+                }
+            }
+            if (candidates == null) {
+                return false;
+            }
+            for (String word : candidates) {
+                if (word.contains(term)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Applies a change to the dictionary. If the dictionary is being rebuilt the change is also remembered, so that
+     * it can be applied again to the rebuilt dictionary in case the rebuild read the names before the change was made.
+     * @param change Change to apply
+     */
+    private void apply(Consumer<Words> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(words);
+            if (rebuilding) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the words of a name to the dictionary, replacing the words of the previous name with the same id
+     * @param id Id of the product or business
+     * @param name Name of the product or business
+     */
+    public void put(long id, String name) {
+        apply(data -> data.put(id, name));
+    }
+
+    /**
+     * Removes the words of a name from the dictionary
+     * @param id Id of the product or business whose name is removed
+     */
+    public void remove(long id) {
+        apply(data -> data.remove(id));
+    }
+
+    /**
+     * Rebuilds the dictionary from the names loaded by the given function. Any change made while the names are being
+     * loaded is applied again to the rebuilt dictionary.
+     * @param loadNames Loads every name, by the id of its product or business
+     */
+    void rebuild(Supplier<Map<Long, String>> loadNames) {
+        lock.writeLock().lock();
+        try {
+            rebuilding = true;
+            changesDuringRebuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            replaceAll(loadNames.get());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                changesDuringRebuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Replaces the contents of the dictionary with the words of the given names, then applies any changes made since
+     * the rebuild started
+     * @param names Every name, by the id of its product or business
+     */
+    void replaceAll(Map<Long, String> names) {
+        Words newWords = new Words();
+        names.forEach(newWords::put);
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild.forEach(change -> change.accept(newWords));
+            changesDuringRebuild.clear();
+            words = newWords;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of distinct words in the dictionary
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return words.counts.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the words in the dictionary which a search term may be a misspelling of. The term is only corrected if no
+     * word in the dictionary contains it, as otherwise it already matches the names containing that word. The number of
+     * typos allowed grows with the length of the term, and at most MAX_SIMILAR_WORDS words are returned so that the
+     * expanded query stays small.
+     * @param term Search term entered by the user
+     * @return Words within the maximum edit distance of the term, closest first, or an empty list if the term should
+     * not be corrected
+     */
+    public List<String> findSimilarWords(String term) {
+        String word = term.toLowerCase(Locale.ROOT);
+        int maxDistance = getMaxEditDistance(word);
+        if (maxDistance == 0 || !toWords(word).equals(List.of(word))) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (words.containsSubstring(word)) {
+                return List.of();
+            }
+            List<Map.Entry<String, Integer>> matches = new ArrayList<>();
+            Deque<Node> toVisit = new ArrayDeque<>();
+            if (words.root != null) {
+                toVisit.push(words.root);
+            }
+            while (!toVisit.isEmpty()) {
+                Node node = toVisit.pop();
+                int distance = editDistance(word, node.word);
+                if (distance <= maxDistance && words.counts.containsKey(node.word)) {
+                    matches.add(Map.entry(node.word, distance));
+                }
+                for (int childDistance = distance - maxDistance; childDistance <= distance + maxDistance; childDistance++) {
+                    Node child = node.children.get(childDistance);
+                    if (child != null) {
+                        toVisit.push(child);
+                    }
+                }
+            }
+            matches.sort(Map.Entry.<String, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+            List<String> result = new ArrayList<>();
+            for (int i = 0; i < matches.size() && i < MAX_SIMILAR_WORDS; i++) {
+                result.add(matches.get(i).getKey());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the number of typos to allow in a search term. Short terms are not corrected, as most other short words
+     * are within one edit of them.
+     * @param term Search term
+     * @return 0 for terms of up to 3 characters, 1 for terms of up to 7 characters, and 2 for longer terms
+     */
+    static int getMaxEditDistance(String term) {
+        if (term.length() <= 3) {
+            return 0;
+        } else if (term.length() <= 7) {
+            return 1;
+        }
+        return 2;
+    }
+
+    /**
+     * Finds the distinct sequences of TRIGRAM_LENGTH consecutive characters in a word
+     * @param word Lower case word
+     * @return Trigrams of the word, or no trigrams if the word is shorter than TRIGRAM_LENGTH
+     */
+    static Set<String> toTrigrams(String word) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + TRIGRAM_LENGTH <= word.length(); i++) {
+            trigrams.add(word.substring(i, i + TRIGRAM_LENGTH));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Splits a name into its lower case words
+     * @param name Name of a product or business
+     * @return Words of the name, in order
+     */
+    static List<String> toWords(String name) {
+        List<String> result = new ArrayList<>();
+        if (name == null) {
+            return result;
+        }
+        for (String word : name.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                result.add(word);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the Levenshtein distance between two words, which is the number of characters that must be inserted,
+     * deleted or substituted to change one word into the other
+     * @return Edit distance between the words
+     */
+    static int editDistance(String first, String second) {
+        int[] previous = new int[second.length() + 1];
+        int[] current = new int[second.length() + 1];
+        for (int j = 0; j <= second.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= first.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= second.length(); j++) {
+                int substitution = previous[j - 1] + (first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[second.length()];
+    }
+}
@@ -0,0 +1,103 @@
+package org.seng302.leftovers.service.search;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.seng302.leftovers.entities.Business;
+import org.seng302.leftovers.entities.Product;
+import org.seng302.leftovers.entities.SaleItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Owns the product and business name dictionaries used to correct misspelt search terms, and loads them from the
+ * database at startup and every hour, to pick up any names changed without JPA. Between rebuilds the dictionaries are
+ * kept up to date by the NameDictionaryListener.
+ */
+@Service
+public class NameDictionaryService {
+    private static final Logger logger = LogManager.getLogger(NameDictionaryService.class);
+
+    private final SessionFactory sessionFactory;
+    private final NameDictionary productNames = new NameDictionary();
+    private final NameDictionary businessNames = new NameDictionary();
+
+    @Autowired
+    public NameDictionaryService(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * @return The dictionary of the words in product names
+     */
+    public NameDictionary getProductNames() {
+        return productNames;
+    }
+
+    /**
+     * @return The dictionary of the words in business names
+     */
+    public NameDictionary getBusinessNames() {
+        return businessNames;
+    }
+
+    /**
+     * Finds the name dictionaries which can correct the spelling of the terms matched against the given fields. Only
+     * product names and business names have a dictionary.
+     * @param entityType Type of entity being searched
+     * @param fieldNames Fields which each term of the query is matched against
+     * @return Dictionary for each field which has one, by field name
+     */
+    public Map<String, NameDictionary> getNameDictionaries(Class<?> entityType, List<String> fieldNames) {
+        Map<String, NameDictionary> dictionaries = new HashMap<>();
+        for (String fieldName : fieldNames) {
+            NameDictionary dictionary = null;
+            if (entityType.equals(Product.class) && fieldName.equals("name")
+                    || entityType.equals(SaleItem.class) && fieldName.equals(SearchSpecConstructor.SALE_ITEM_PRODUCT_FIELDS.get(0))) {
+                dictionary = productNames;
+            } else if (entityType.equals(Business.class) && fieldName.equals("name")
+                    || entityType.equals(SaleItem.class) && fieldName.equals(SearchSpecConstructor.SALE_ITEM_BUSINESS_FIELDS.get(0))) {
+                dictionary = businessNames;
+            }
+            if (dictionary != null) {
+                dictionaries.put(fieldName, dictionary);
+            }
+        }
+        return dictionaries;
+    }
+
+    /**
+     * Rebuilds the product and business name dictionaries from every product and business in the database
+     */
+    @Scheduled(fixedDelay = 60 * 60 * 1000)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        productNames.rebuild(() -> loadNames("select p.id, p.name from Product p"));
+        businessNames.rebuild(() -> loadNames("select b.id, b.name from Business b"));
+        logger.info("Rebuilt name dictionaries with {} product name words and {} business name words in {}ms",
+                productNames.size(), businessNames.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Reads the names of every product or business
+     * @param query Query selecting the id and name of every product or business
+     * @return Every name, by id
+     */
+    private Map<Long, String> loadNames(String query) {
+        Map<Long, String> names = new HashMap<>();
+        try (Session session = sessionFactory.openSession()) {
+            List<Object[]> rows = session.createQuery(query, Object[].class).getResultList();
+            for (Object[] row : rows) {
+                names.put((Long) row[0], (String) row[1]);
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,170 @@
+package org.seng302.leftovers.service.search;
+
+import lombok.EqualsAndHashCode;
+import org.seng302.leftovers.persistence.SliceSpecificationExecutor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fetches pages of search results, and caches the total number of results of each search for a short time so that
+ * fetching the next page of a search does not count every result again.
+ *
+ * Counting the results of a search runs the whole specification a second time, which for searches joining several
+ * tables can cost as much as fetching the page. Clients which do not show the total, such as infinite scrolling lists,
+ * can fetch a slice instead, which only finds whether there is a next page. Other clients are given a total which may
+ * be up to the time to live out of date, except on the last page where the exact total is known.
+ */
+@Component
+public class ResultCountCache {
+    private final Duration timeToLive;
+    private final int maxEntries;
+    private final Clock clock;
+    private final LinkedHashMap<Key, CachedCount> counts;
+
+    @Autowired
+    public ResultCountCache(@Value("${result-count-cache.ttl-seconds:30}") long timeToLiveSeconds,
+                            @Value("${result-count-cache.max-entries:1024}") int maxEntries) {
+        this(Duration.ofSeconds(timeToLiveSeconds), maxEntries, Clock.systemUTC());
+    }
+
+    ResultCountCache(Duration timeToLive, int maxEntries, Clock clock) {
+        this.timeToLive = timeToLive;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.counts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedCount> eldest) {
+                return size() > ResultCountCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Identifies a search by the repository it searches and the parameters which determine the entities it matches
+     */
+    @EqualsAndHashCode
+    private static final class Key {
+        private final Object repository;
+        private final List<Object> parameters;
+
+        private Key(Object repository, Object[] parameters) {
+            this.repository = repository;
+            this.parameters = Arrays.asList(parameters);
+        }
+    }
+
+    /**
+     * Total number of results of a search, and when it expires
+     */
+    private static final class CachedCount {
+        private final long count;
+        private final Instant expires;
+
+        private CachedCount(long count, Instant expires) {
+            this.count = count;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * Finds a page of the entities matching a specification.
+     * If the total is not needed a slice is returned, which is fetched without counting the matching entities. If the
+     * total is needed and the search has been counted recently, the page is fetched as a slice and given the cached
+     * total. Otherwise the page and the total are both fetched from the database and the total is cached.
+     * @param repository Repository to search
+     * @param specification Specification the entities must match
+     * @param pageable Page to fetch and the order of the entities
+     * @param countTotal True if the total number of matching entities is needed
+     * @param countKey Parameters which determine the entities matched by the specification, not including the page or
+     *                 ordering. Searches with equal parameters share a cached total.
+     * @param <T> Type of entity
+     * @return A Page with the total number of matching entities if countTotal is true, otherwise a Slice
+     */
+    public <T> Slice<T> findPage(SliceSpecificationExecutor<T> repository, Specification<T> specification,
+                                 Pageable pageable, boolean countTotal, Object... countKey) {
+        if (!countTotal) {
+            return repository.findSlice(specification, pageable);
+        }
+
+        Key key = new Key(repository, countKey);
+        Long cachedCount = getCount(key);
+        if (cachedCount == null) {
+            Page<T> page = repository.findAll(specification, pageable);
+            putCount(key, page.getTotalElements());
+            return page;
+        }
+
+        Slice<T> slice = repository.findSlice(specification, pageable);
+        long fetched = pageable.isPaged() ? pageable.getOffset() + slice.getNumberOfElements() : slice.getNumberOfElements();
+        long total;
+        if (slice.hasNext()) {
+            // The cached total may be out of date, but cannot be less than the number of entities found so far
+            total = Math.max(cachedCount, fetched + 1);
+        } else if (slice.hasContent() || fetched == 0) {
+            // This is the last page, so the exact total is known
+            total = fetched;
+            putCount(key, total);
+        } else {
+            // The page is past the last page, so there cannot be more entities than come before it
+            total = Math.min(cachedCount, fetched);
+        }
+        return new PageImpl<>(slice.getContent(), pageable, total);
+    }
+
+    /**
+     * Gets the cached total of a search if it has not expired
+     * @param key Search to get the total of
+     * @return Total number of results, or null if there is no cached total
+     */
+    private synchronized Long getCount(Key key) {
+        CachedCount cachedCount = counts.get(key);
+        if (cachedCount == null) {
+            return null;
+        }
+        if (!clock.instant().isBefore(cachedCount.expires)) {
+            counts.remove(key);
+            return null;
+        }
+        return cachedCount.count;
+    }
+
+    /**
+     * Caches the total of a search. Nothing is cached if the time to live is not positive.
+     * @param key Search which was counted
+     * @param count Total number of results
+     */
+    private synchronized void putCount(Key key, long count) {
+        if (timeToLive.isZero() || timeToLive.isNegative()) {
+            return;
+        }
+        counts.put(key, new CachedCount(count, clock.instant().plus(timeToLive)));
+    }
+
+    /**
+     * Removes every cached total
+     */
+    public synchronized void clear() {
+        counts.clear();
+    }
+
+    /**
+     * @return Number of cached totals, including any which have expired but not been removed yet
+     */
+    public synchronized int size() {
+        return counts.size();
+    }
+}
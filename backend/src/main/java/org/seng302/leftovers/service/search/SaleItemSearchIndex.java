@@ -0,0 +1,604 @@
+package org.seng302.leftovers.service.search;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.seng302.leftovers.dto.saleitem.SaleListingSearchDTO;
+import org.seng302.leftovers.entities.Business;
+import org.seng302.leftovers.entities.Location;
+import org.seng302.leftovers.entities.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * In memory inverted index of the text fields of every sale item, used to answer the search queries of the sale
+ * listing search without a '%term%' LIKE scan over the joined sale item, product, business and location tables.
+ *
+ * Every field is broken into trigrams, and each trigram maps to the ids of the sale items with a field containing it.
+ * A search term can only be contained in a field which contains all of its trigrams, so the smallest posting list of
+ * its trigrams gives the candidates for the term, which are then checked against the stored text. Terms are combined
+ * with AND and OR exactly as they are by the SearchQueryParser, so the index matches the same sale items as the
+ * specifications built by the SearchSpecConstructor.
+ *
+ * The index is kept up to date by the SaleItemIndexingListener, and is rebuilt from the database at startup and every
+ * hour to pick up any changes made without JPA (such as sale items deleted by a cascade in the database).
+ */
+@Service
+public class SaleItemSearchIndex {
+    private static final Logger logger = LogManager.getLogger(SaleItemSearchIndex.class);
+
+    private static final int REBUILD_PAGE_SIZE = 5000;
+    private static final int PRODUCT_NAME_FIELD = SearchSpecConstructor.SALE_ITEM_BASIC_FIELDS.indexOf("inventoryItem.product.name");
+    private static final int BUSINESS_NAME_FIELD = SearchSpecConstructor.SALE_ITEM_BASIC_FIELDS.indexOf("inventoryItem.product.business.name");
+    private static final String DOCUMENT_QUERY = "select s.id, p.id, b.id, a.id, p.name, b.name, a.country, a.city, " +
+            "a.region, p.manufacturer, p.description, s.moreInfo " +
+            "from SaleItem s join s.inventoryItem i join i.product p join p.business b join b.address a ";
+
+    private final SessionFactory sessionFactory;
+    private final NameDictionaryService nameDictionaryService;
+    private final int maxMatches;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private IndexData data = new IndexData();
+    private boolean ready = false;
+    private boolean rebuilding = false;
+    private final List<Consumer<IndexData>> changesDuringRebuild = new ArrayList<>();
+
+    @Autowired
+    public SaleItemSearchIndex(SessionFactory sessionFactory, NameDictionaryService nameDictionaryService,
+                               @Value("${sale-search-index.max-matches:10000}") int maxMatches) {
+        this.sessionFactory = sessionFactory;
+        this.nameDictionaryService = nameDictionaryService;
+        this.maxMatches = maxMatches;
+    }
+
+    /**
+     * The indexed text of a single sale item. The fields are stored lower case, in the same order as
+     * SearchSpecConstructor.SALE_ITEM_BASIC_FIELDS.
+     */
+    static final class Document {
+        private final long productId;
+        private final long businessId;
+        private final long locationId;
+        private final String[] fields;
+
+        Document(long productId, long businessId, long locationId, String... fields) {
+            if (fields.length != SearchSpecConstructor.SALE_ITEM_BASIC_FIELDS.size()) {
+                throw new IllegalArgumentException("Expected a value for every indexed field");
+            }
+            this.productId = productId;
+            this.businessId = businessId;
+            this.locationId = locationId;
+            this.fields = new String[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                this.fields[i] = fields[i] == null ? null : fields[i].toLowerCase(Locale.ROOT);
+            }
+        }
+
+        /**
+         * Creates a copy of this document with some of its fields replaced
+         * @param firstField Index of the first field to replace
+         * @param values New values for the fields starting at firstField
+         * @return The changed copy
+         */
+        private Document withFields(int firstField, String... values) {
+            String[] newFields = fields.clone();
+            System.arraycopy(values, 0, newFields, firstField, values.length);
+            return new Document(productId, businessId, locationId, newFields);
+        }
+
+        /**
+         * Creates a copy of this document at a different location
+         * @param newLocationId Id of the new location
+         * @param country Country of the new location
+         * @param city City of the new location
+         * @param region Region of the new location
+         * @return The moved copy
+         */
+        private Document withLocation(long newLocationId, String country, String city, String region) {
+            String[] newFields = fields.clone();
+            newFields[2] = country;
+            newFields[3] = city;
+            newFields[4] = region;
+            return new Document(productId, businessId, newLocationId, newFields);
+        }
+
+        /**
+         * Checks whether any of the given fields contains the (lower case) term
+         * @param term Term to look for
+         * @param fieldIndexes Fields to check
+         * @return True if the term is in one of the fields
+         */
+        private boolean matches(String term, int[] fieldIndexes) {
+            for (int fieldIndex : fieldIndexes) {
+                String field = fields[fieldIndex];
+                if (field != null && field.contains(term)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return Every distinct trigram in any of the fields of this document
+         */
+        private Set<Long> trigrams() {
+            Set<Long> trigrams = new HashSet<>();
+            for (String field : fields) {
+                if (field != null) {
+                    addTrigrams(field, trigrams);
+                }
+            }
+            return trigrams;
+        }
+    }
+
+    /**
+     * The documents and posting lists of the index. Only accessed while holding the index lock.
+     */
+    private static final class IndexData {
+        private final Map<Long, Document> documents = new HashMap<>();
+        private final Map<Long, Set<Long>> postings = new HashMap<>();
+        private final Map<Long, Set<Long>> itemsByProduct = new HashMap<>();
+        private final Map<Long, Set<Long>> itemsByBusiness = new HashMap<>();
+        private final Map<Long, Set<Long>> itemsByLocation = new HashMap<>();
+
+        private void put(long saleItemId, Document document) {
+            remove(saleItemId);
+            documents.put(saleItemId, document);
+            for (Long trigram : document.trigrams()) {
+                postings.computeIfAbsent(trigram, key -> new HashSet<>()).add(saleItemId);
+            }
+            itemsByProduct.computeIfAbsent(document.productId, key -> new HashSet<>()).add(saleItemId);
+            itemsByBusiness.computeIfAbsent(document.businessId, key -> new HashSet<>()).add(saleItemId);
+            itemsByLocation.computeIfAbsent(document.locationId, key -> new HashSet<>()).add(saleItemId);
+        }
+
+        private void remove(long saleItemId) {
+            Document document = documents.remove(saleItemId);
+            if (document == null) {
+                return;
+            }
+            for (Long trigram : document.trigrams()) {
+                removeFrom(postings, trigram, saleItemId);
+            }
+            removeFrom(itemsByProduct, document.productId, saleItemId);
+            removeFrom(itemsByBusiness, document.businessId, saleItemId);
+            removeFrom(itemsByLocation, document.locationId, saleItemId);
+        }
+
+        private void updateAll(Set<Long> saleItemIds, UnaryOperator<Document> update) {
+            if (saleItemIds == null) {
+                return;
+            }
+            for (Long saleItemId : List.copyOf(saleItemIds)) {
+                put(saleItemId, update.apply(documents.get(saleItemId)));
+            }
+        }
+
+        private static void removeFrom(Map<Long, Set<Long>> map, long key, long saleItemId) {
+            Set<Long> ids = map.get(key);
+            if (ids != null) {
+                ids.remove(saleItemId);
+                if (ids.isEmpty()) {
+                    map.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds every trigram of the text to the set of trigrams, with the three characters of each trigram packed into a
+     * single long
+     * @param text Text to split into trigrams
+     * @param trigrams Set to add the trigrams to
+     */
+    private static void addTrigrams(String text, Collection<Long> trigrams) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+    }
+
+    /**
+     * Applies a change to the index. If the index is being rebuilt the change is also remembered, so that it can be
+     * applied again to the rebuilt index in case the rebuild read the sale items before the change was made.
+     * @param change Change to apply
+     */
+    private void apply(Consumer<IndexData> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(data);
+            if (rebuilding) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the sale items with the given ids to the index, or updates them if they are already in the index. The
+     * text of the sale items is read from the database, as the sale item entities may not have their product,
+     * business or address loaded.
+     * @param saleItemIds Ids of the sale items to index
+     */
+    public void index(Collection<Long> saleItemIds) {
+        if (saleItemIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Document> documents;
+        try (Session session = sessionFactory.openSession()) {
+            documents = toDocuments(session.createQuery(DOCUMENT_QUERY + "where s.id in (:ids)", Object[].class)
+                    .setParameterList("ids", saleItemIds)
+                    .getResultList());
+        }
+        apply(indexData -> {
+            for (Long saleItemId : saleItemIds) {
+                Document document = documents.get(saleItemId);
+                if (document != null) {
+                    indexData.put(saleItemId, document);
+                } else {
+                    indexData.remove(saleItemId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a sale item to the index with the given text, or replaces the text of the sale item if it is already
+     * in the index
+     * @param saleItemId Id of the sale item
+     * @param document Text of the sale item
+     */
+    void put(long saleItemId, Document document) {
+        apply(indexData -> indexData.put(saleItemId, document));
+    }
+
+    /**
+     * Removes a sale item from the index
+     * @param saleItemId Id of the sale item to remove
+     */
+    public void remove(long saleItemId) {
+        apply(indexData -> indexData.remove(saleItemId));
+    }
+
+    /**
+     * Removes every sale item of a product from the index
+     * @param productId Id of the deleted product
+     */
+    public void removeProduct(long productId) {
+        apply(indexData -> {
+            Set<Long> saleItemIds = indexData.itemsByProduct.get(productId);
+            if (saleItemIds != null) {
+                List.copyOf(saleItemIds).forEach(indexData::remove);
+            }
+        });
+    }
+
+    /**
+     * Updates the product fields of every sale item of the product
+     * @param product Product that has changed
+     */
+    public void updateProduct(Product product) {
+        long productId = product.getID();
+        String name = product.getName();
+        String manufacturer = product.getManufacturer();
+        String description = product.getDescription();
+        apply(indexData -> indexData.updateAll(indexData.itemsByProduct.get(productId), document ->
+                document.withFields(0, name).withFields(5, manufacturer, description)));
+    }
+
+    /**
+     * Updates the business name and location of every sale item sold by the business. A business can be given a new
+     * address rather than having its address changed, in which case its sale items are moved to the new location.
+     * @param business Business that has changed
+     */
+    public void updateBusiness(Business business) {
+        long businessId = business.getId();
+        String name = business.getName();
+        Location address = business.getAddress();
+        if (address == null || address.getId() == null) {
+            apply(indexData -> indexData.updateAll(indexData.itemsByBusiness.get(businessId), document ->
+                    document.withFields(1, name)));
+            return;
+        }
+        long locationId = address.getId();
+        String country = address.getCountry();
+        String city = address.getCity();
+        String region = address.getRegion();
+        apply(indexData -> indexData.updateAll(indexData.itemsByBusiness.get(businessId), document ->
+                document.withFields(1, name).withLocation(locationId, country, city, region)));
+    }
+
+    /**
+     * Updates the location fields of every sale item sold by a business at the location. Locations which are not the
+     * address of a business selling something are ignored.
+     * @param location Location that has changed
+     */
+    public void updateLocation(Location location) {
+        long locationId = location.getId();
+        String country = location.getCountry();
+        String city = location.getCity();
+        String region = location.getRegion();
+        apply(indexData -> indexData.updateAll(indexData.itemsByLocation.get(locationId), document ->
+                document.withFields(2, country, city, region)));
+    }
+
+    /**
+     * Rebuilds the index from every sale item in the database. Sale items are read a page at a time ordered by id,
+     * and any change made while the rebuild is running is applied again to the rebuilt index.
+     */
+    @Scheduled(fixedDelay = 60 * 60 * 1000)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            rebuilding = true;
+            changesDuringRebuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            Map<Long, Document> documents = new HashMap<>();
+            try (Session session = sessionFactory.openSession()) {
+                long lastId = Long.MIN_VALUE;
+                List<Object[]> page;
+                do {
+                    page = session.createQuery(DOCUMENT_QUERY + "where s.id > :lastId order by s.id", Object[].class)
+                            .setParameter("lastId", lastId)
+                            .setMaxResults(REBUILD_PAGE_SIZE)
+                            .getResultList();
+                    documents.putAll(toDocuments(page));
+                    if (!page.isEmpty()) {
+                        lastId = (Long) page.get(page.size() - 1)[0];
+                    }
+                    session.clear();
+                } while (page.size() == REBUILD_PAGE_SIZE);
+            }
+            replaceAll(documents);
+            logger.info("Rebuilt sale item search index with {} sale items in {}ms", documents.size(),
+                    System.currentTimeMillis() - start);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                changesDuringRebuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Replaces the contents of the index with the given documents, then applies any changes made since the rebuild
+     * started. After this the index is used to answer searches.
+     * @param documents Text of every sale item, by sale item id
+     */
+    void replaceAll(Map<Long, Document> documents) {
+        IndexData newData = new IndexData();
+        documents.forEach(newData::put);
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild.forEach(change -> change.accept(newData));
+            changesDuringRebuild.clear();
+            data = newData;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Converts rows of DOCUMENT_QUERY into documents
+     * @param rows Rows of the query
+     * @return Document for each row, by sale item id
+     */
+    private static Map<Long, Document> toDocuments(List<Object[]> rows) {
+        Map<Long, Document> documents = new HashMap<>();
+        for (Object[] row : rows) {
+            String[] fields = new String[row.length - 4];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = (String) row[i + 4];
+            }
+            documents.put((Long) row[0], new Document((Long) row[1], (Long) row[2], (Long) row[3], fields));
+        }
+        return documents;
+    }
+
+    /**
+     * @return True once the index has been built, after which it can be used to answer searches
+     */
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return ready;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of sale items in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return data.documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the ids of the sale items which match every search query of a sale listing search. Each query is matched
+     * against the same fields as it is by SearchSpecConstructor.constructSaleItemSpecificationFromSearchQueries.
+     * The index cannot answer the search if it has not been built yet, if there are no search queries, if a query
+     * uses LIKE wildcards or if more than the maximum number of sale items match, in which case the search queries
+     * should be matched by the database instead.
+     * @param searchDTO Sale listing search to match
+     * @return Ids of the matching sale items, or empty if the index cannot answer the search
+     */
+    public Optional<Set<Long>> findMatchingIds(SaleListingSearchDTO searchDTO) {
+        List<Map.Entry<String, List<String>>> queries = new ArrayList<>();
+        addIfNotBlank(queries, searchDTO.getBasicSearchQuery(), SearchSpecConstructor.SALE_ITEM_BASIC_FIELDS);
+        addIfNotBlank(queries, searchDTO.getBusinessSearchQuery(), SearchSpecConstructor.SALE_ITEM_BUSINESS_FIELDS);
+        addIfNotBlank(queries, searchDTO.getProductSearchQuery(), SearchSpecConstructor.SALE_ITEM_PRODUCT_FIELDS);
+        addIfNotBlank(queries, searchDTO.getLocationSearchQuery(), SearchSpecConstructor.SALE_ITEM_LOCATION_FIELDS);
+        if (queries.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<SearchQueryParser.SearchTerms> parsedQueries = new ArrayList<>();
+        List<int[]> queryFields = new ArrayList<>();
+        for (var query : queries) {
+            var searchTerms = SearchQueryParser.parseSearchTerms(SearchQueryParser.splitSearchStringIntoTerms(query.getKey()));
+            for (String term : searchTerms.getTerms()) {
+                if (term.contains("%") || term.contains("_")) {
+                    return Optional.empty();
+                }
+            }
+            parsedQueries.add(searchTerms);
+            queryFields.add(toFieldIndexes(query.getValue()));
+        }
+
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                return Optional.empty();
+            }
+            Set<Long> result = null;
+            for (int i = 0; i < parsedQueries.size() && (result == null || !result.isEmpty()); i++) {
+                Set<Long> matches = evaluate(parsedQueries.get(i), queryFields.get(i));
+                if (result == null) {
+                    result = matches;
+                } else {
+                    result.retainAll(matches);
+                }
+            }
+            if (result.size() > maxMatches) {
+                return Optional.empty();
+            }
+            return Optional.of(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a query and the fields it is matched against to the list of queries to evaluate, if it is not blank
+     * @param queries Queries to evaluate
+     * @param query Query entered by the user
+     * @param fieldNames Fields to match the query against
+     */
+    private static void addIfNotBlank(List<Map.Entry<String, List<String>>> queries, String query, List<String> fieldNames) {
+        if (query != null && !query.isBlank()) {
+            queries.add(Map.entry(query, fieldNames));
+        }
+    }
+
+    /**
+     * Converts field names into their positions in the fields of a document
+     * @param fieldNames Names of the fields, as used by the SearchSpecConstructor
+     * @return Position of each field
+     */
+    private static int[] toFieldIndexes(List<String> fieldNames) {
+        int[] indexes = new int[fieldNames.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = SearchSpecConstructor.SALE_ITEM_BASIC_FIELDS.indexOf(fieldNames.get(i));
+            if (indexes[i] < 0) {
+                throw new IllegalArgumentException("Field " + fieldNames.get(i) + " is not indexed");
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Finds the sale items matching a parsed query. The terms are combined from left to right, in the same way as
+     * the specifications for each term are combined by SearchSpecConstructor.buildCompoundSpecification.
+     * @param searchTerms Terms and predicates of the query
+     * @param fieldIndexes Fields which each term is matched against
+     * @return Ids of the matching sale items
+     */
+    private Set<Long> evaluate(SearchQueryParser.SearchTerms searchTerms, int[] fieldIndexes) {
+        List<String> terms = searchTerms.getTerms();
+        List<SearchQueryParser.PredicateType> predicateTypes = searchTerms.getPredicateTypes();
+        Set<Long> result = matchTermOrCorrections(terms.get(0).toLowerCase(Locale.ROOT), fieldIndexes);
+        for (int i = 1; i < terms.size(); i++) {
+            Set<Long> matches = matchTermOrCorrections(terms.get(i).toLowerCase(Locale.ROOT), fieldIndexes);
+            if (predicateTypes.get(i - 1) == SearchQueryParser.PredicateType.OR) {
+                result.addAll(matches);
+            } else {
+                result.retainAll(matches);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the sale items with any of the given fields containing the term, or with a product name or business name
+     * containing a word the term may be a misspelling of. The corrections come from the same name dictionaries used by
+     * SearchSpecConstructor.buildSimilarWordsSpec, so the index matches the same sale items as the database.
+     * @param term Lower case term to match
+     * @param fieldIndexes Fields to match the term against
+     * @return Ids of the matching sale items
+     */
+    private Set<Long> matchTermOrCorrections(String term, int[] fieldIndexes) {
+        Set<Long> matches = matchTerm(term, fieldIndexes);
+        for (int fieldIndex : fieldIndexes) {
+            NameDictionary dictionary;
+            if (fieldIndex == PRODUCT_NAME_FIELD) {
+                dictionary = nameDictionaryService.getProductNames();
+            } else if (fieldIndex == BUSINESS_NAME_FIELD) {
+                dictionary = nameDictionaryService.getBusinessNames();
+            } else {
+                continue;
+            }
+            for (String word : dictionary.findSimilarWords(term)) {
+                matches.addAll(matchTerm(word, new int[] {fieldIndex}));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Finds the sale items with any of the given fields containing the term. Terms of at least three characters are
+     * only checked against the sale items with every trigram of the term, using the shortest posting list of those
+     * trigrams. Shorter terms are checked against every sale item.
+     * @param term Lower case term to match
+     * @param fieldIndexes Fields to match the term against
+     * @return Ids of the matching sale items
+     */
+    private Set<Long> matchTerm(String term, int[] fieldIndexes) {
+        Collection<Long> candidates = data.documents.keySet();
+        if (term.length() >= 3) {
+            List<Long> trigrams = new ArrayList<>();
+            addTrigrams(term, trigrams);
+            for (Long trigram : trigrams) {
+                Set<Long> posting = data.postings.get(trigram);
+                if (posting == null) {
+                    return new HashSet<>();
+                }
+                if (posting.size() < candidates.size()) {
+                    candidates = posting;
+                }
+            }
+        }
+        Set<Long> matches = new HashSet<>();
+        for (Long saleItemId : candidates) {
+            if (data.documents.get(saleItemId).matches(term, fieldIndexes)) {
+                matches.add(saleItemId);
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,179 @@
+package org.seng302.leftovers.service.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.seng302.leftovers.dto.business.BusinessType;
+import org.seng302.leftovers.dto.saleitem.SaleListingFacet;
+import org.seng302.leftovers.dto.saleitem.SaleListingFacetsDTO;
+import org.seng302.leftovers.entities.SaleItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.criteria.*;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Service for counting the sale listings matching a search by business type, price and closing date, so that the
+ * counts can be shown next to the search results.
+ *
+ * Every count of every requested facet is computed by a single query over the search specification, which selects
+ * the sum of a CASE expression for each facet value, instead of running the search again for each facet value.
+ */
+@Service
+public class SaleListingFacetService {
+    /**
+     * Upper bounds (exclusive) of every price bucket except the last, which has no upper bound
+     */
+    private static final List<BigDecimal> PRICE_BUCKET_BOUNDS = List.of(
+            new BigDecimal("5"), new BigDecimal("10"), new BigDecimal("20"), new BigDecimal("50"));
+
+    private final SessionFactory sessionFactory;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+
+    @Autowired
+    public SaleListingFacetService(SessionFactory sessionFactory, ObjectMapper objectMapper) {
+        this(sessionFactory, objectMapper, Clock.systemDefaultZone());
+    }
+
+    SaleListingFacetService(SessionFactory sessionFactory, ObjectMapper objectMapper, Clock clock) {
+        this.sessionFactory = sessionFactory;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+    }
+
+    /**
+     * A single value of a facet, with the condition a sale item must meet to be counted for it
+     */
+    private static final class Bucket {
+        private final SaleListingFacet facet;
+        private final String label;
+        private final BiFunction<Root<SaleItem>, CriteriaBuilder, Predicate> condition;
+
+        private Bucket(SaleListingFacet facet, String label, BiFunction<Root<SaleItem>, CriteriaBuilder, Predicate> condition) {
+            this.facet = facet;
+            this.label = label;
+            this.condition = condition;
+        }
+    }
+
+    /**
+     * Counts the sale items matching a specification by each of the requested facets.
+     * Business types are counted by their name, prices by buckets such as "5-10" (lower bound inclusive, upper bound
+     * exclusive) and closing dates by whether the sale item closes "today", within a "week", within a "month", or
+     * "later".
+     * @param specification Specification of the sale listing search
+     * @param facets Facets to count the sale items by
+     * @return Number of matching sale items with each value of each requested facet, or null if no facets were requested
+     */
+    public SaleListingFacetsDTO countFacets(Specification<SaleItem> specification, Set<SaleListingFacet> facets) {
+        if (facets == null || facets.isEmpty()) {
+            return null;
+        }
+        List<Bucket> buckets = new ArrayList<>();
+        if (facets.contains(SaleListingFacet.BUSINESS_TYPE)) {
+            buckets.addAll(getBusinessTypeBuckets());
+        }
+        if (facets.contains(SaleListingFacet.PRICE)) {
+            buckets.addAll(getPriceBuckets());
+        }
+        if (facets.contains(SaleListingFacet.CLOSES)) {
+            buckets.addAll(getClosingDateBuckets());
+        }
+
+        Object[] counts;
+        try (Session session = sessionFactory.openSession()) {
+            CriteriaBuilder criteriaBuilder = session.getCriteriaBuilder();
+            CriteriaQuery<Object[]> query = criteriaBuilder.createQuery(Object[].class);
+            Root<SaleItem> root = query.from(SaleItem.class);
+
+            List<Selection<?>> selections = new ArrayList<>();
+            for (Bucket bucket : buckets) {
+                Expression<Integer> isInBucket = criteriaBuilder.<Integer>selectCase()
+                        .when(bucket.condition.apply(root, criteriaBuilder), 1)
+                        .otherwise(0);
+                selections.add(criteriaBuilder.sum(isInBucket));
+            }
+            query.multiselect(selections);
+            Predicate predicate = specification == null ? null : specification.toPredicate(root, query, criteriaBuilder);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+            // The specification may order the sale items, which does not apply to their counts
+            query.orderBy(List.of());
+            counts = session.createQuery(query).getSingleResult();
+        }
+
+        Map<SaleListingFacet, Map<String, Long>> facetCounts = new EnumMap<>(SaleListingFacet.class);
+        for (int i = 0; i < buckets.size(); i++) {
+            // The sums are null if no sale items match
+            long count = counts[i] == null ? 0 : ((Number) counts[i]).longValue();
+            facetCounts.computeIfAbsent(buckets.get(i).facet, key -> new LinkedHashMap<>()).put(buckets.get(i).label, count);
+        }
+        SaleListingFacetsDTO result = new SaleListingFacetsDTO();
+        result.setBusinessType(facetCounts.get(SaleListingFacet.BUSINESS_TYPE));
+        result.setPrice(facetCounts.get(SaleListingFacet.PRICE));
+        result.setCloses(facetCounts.get(SaleListingFacet.CLOSES));
+        return result;
+    }
+
+    /**
+     * @return A bucket for each business type, labelled with the name of the business type used by the API
+     */
+    private List<Bucket> getBusinessTypeBuckets() {
+        List<Bucket> buckets = new ArrayList<>();
+        for (BusinessType businessType : BusinessType.values()) {
+            buckets.add(new Bucket(SaleListingFacet.BUSINESS_TYPE, objectMapper.convertValue(businessType, String.class),
+                    (root, criteriaBuilder) -> criteriaBuilder.equal(
+                            root.get("inventoryItem").get("product").get("business").get("businessType"), businessType)));
+        }
+        return buckets;
+    }
+
+    /**
+     * @return A bucket for each price range
+     */
+    private List<Bucket> getPriceBuckets() {
+        List<Bucket> buckets = new ArrayList<>();
+        BigDecimal lower = BigDecimal.ZERO;
+        for (BigDecimal upper : PRICE_BUCKET_BOUNDS) {
+            BigDecimal bucketLower = lower;
+            buckets.add(new Bucket(SaleListingFacet.PRICE, bucketLower.toPlainString() + "-" + upper.toPlainString(),
+                    (root, criteriaBuilder) -> criteriaBuilder.and(
+                            criteriaBuilder.greaterThanOrEqualTo(root.get("price"), bucketLower),
+                            criteriaBuilder.lessThan(root.get("price"), upper))));
+            lower = upper;
+        }
+        BigDecimal lastLower = lower;
+        buckets.add(new Bucket(SaleListingFacet.PRICE, lastLower.toPlainString() + "+",
+                (root, criteriaBuilder) -> criteriaBuilder.greaterThanOrEqualTo(root.get("price"), lastLower)));
+        return buckets;
+    }
+
+    /**
+     * @return A bucket for each closing date range, relative to today. Sale items without a closing date close "later".
+     */
+    private List<Bucket> getClosingDateBuckets() {
+        LocalDate today = LocalDate.now(clock);
+        LocalDate weekEnd = today.plusDays(7);
+        LocalDate monthEnd = today.plusDays(30);
+        return List.of(
+                new Bucket(SaleListingFacet.CLOSES, "today", (root, criteriaBuilder) ->
+                        criteriaBuilder.lessThanOrEqualTo(root.get("closes"), today)),
+                new Bucket(SaleListingFacet.CLOSES, "week", (root, criteriaBuilder) -> criteriaBuilder.and(
+                        criteriaBuilder.greaterThan(root.get("closes"), today),
+                        criteriaBuilder.lessThanOrEqualTo(root.get("closes"), weekEnd))),
+                new Bucket(SaleListingFacet.CLOSES, "month", (root, criteriaBuilder) -> criteriaBuilder.and(
+                        criteriaBuilder.greaterThan(root.get("closes"), weekEnd),
+                        criteriaBuilder.lessThanOrEqualTo(root.get("closes"), monthEnd))),
+                new Bucket(SaleListingFacet.CLOSES, "later", (root, criteriaBuilder) -> criteriaBuilder.or(
+                        criteriaBuilder.isNull(root.get("closes")),
+                        criteriaBuilder.greaterThan(root.get("closes"), monthEnd))));
+    }
+}
@@ -0,0 +1,223 @@
+package org.seng302.leftovers.service.search;
+
+import lombok.EqualsAndHashCode;
+import org.seng302.leftovers.dto.business.BusinessType;
+import org.seng302.leftovers.dto.saleitem.SaleListingFacet;
+import org.seng302.leftovers.dto.saleitem.SaleListingSearchDTO;
+import org.seng302.leftovers.dto.saleitem.SaleListingSearchResultDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Bounded least recently used cache of the result pages of sale listing searches, so that a search which is repeated
+ * with the same parameters does not run its queries again.
+ *
+ * Every cached page is tagged with the version of the sale listings it was found at. The version is incremented
+ * whenever a sale item, inventory item, product, business or address is created, changed or deleted, the images of a
+ * product or business change, or the interest in a sale item changes, after which a page found at an earlier version
+ * is never returned. The version is read before a page is found, so a page found while a change is being committed is
+ * tagged with the version before the change and is not returned once the change has been counted. The closing date
+ * facet is counted relative to the current day, so pages with that facet are also keyed by the day they were found on.
+ *
+ * Memory is bounded by keeping at most the maximum number of pages, and by not caching pages with more than the
+ * maximum number of results.
+ */
+@Component
+public class SaleListingResultCache {
+    private final int maxEntries;
+    private final int maxPageSize;
+    private final LinkedHashMap<Key, CachedPage> pages;
+    private final Clock clock;
+    private long version = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    @Autowired
+    public SaleListingResultCache(@Value("${sale-listing-result-cache.max-entries:512}") int maxEntries,
+                                  @Value("${sale-listing-result-cache.max-page-size:100}") int maxPageSize) {
+        this(maxEntries, maxPageSize, Clock.systemDefaultZone());
+    }
+
+    SaleListingResultCache(int maxEntries, int maxPageSize, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.maxPageSize = maxPageSize;
+        this.clock = clock;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedPage> eldest) {
+                if (size() > SaleListingResultCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Identifies a result page by the normalised parameters of the search. Search queries are normalised in the same
+     * way as by the SearchPlanCache, prices are compared without trailing zeros and business types are compared
+     * without their order, as none of these change the sale items which are matched. The day is only set when the
+     * closing date facet is counted.
+     */
+    @EqualsAndHashCode
+    private static final class Key {
+        private final BigDecimal priceLowerBound;
+        private final BigDecimal priceUpperBound;
+        private final LocalDate closingDateLowerBound;
+        private final LocalDate closingDateUpperBound;
+        private final Set<BusinessType> businessTypes;
+        private final List<String> queries;
+        private final SearchArea area;
+        private final Pageable pageable;
+        private final Sort.Direction distanceDirection;
+        private final Set<SaleListingFacet> facets;
+        private final boolean countTotal;
+        private final LocalDate day;
+
+        private Key(SaleListingSearchDTO searchDTO, SearchArea area, Pageable pageable, Sort.Direction distanceDirection,
+                    Set<SaleListingFacet> facets, boolean countTotal, LocalDate day) {
+            this.priceLowerBound = stripTrailingZeros(searchDTO.getPriceLowerBound());
+            this.priceUpperBound = stripTrailingZeros(searchDTO.getPriceUpperBound());
+            this.closingDateLowerBound = searchDTO.getClosingDateLowerBound();
+            this.closingDateUpperBound = searchDTO.getClosingDateUpperBound();
+            this.businessTypes = searchDTO.getBusinessTypes() == null ? Set.of() : Set.copyOf(searchDTO.getBusinessTypes());
+            this.queries = Arrays.asList(normalise(searchDTO.getBasicSearchQuery()), normalise(searchDTO.getProductSearchQuery()),
+                    normalise(searchDTO.getBusinessSearchQuery()), normalise(searchDTO.getLocationSearchQuery()));
+            this.area = area;
+            this.pageable = pageable;
+            this.distanceDirection = distanceDirection;
+            this.facets = Set.copyOf(facets);
+            this.countTotal = countTotal;
+            this.day = facets.contains(SaleListingFacet.CLOSES) ? day : null;
+        }
+
+        private static BigDecimal stripTrailingZeros(BigDecimal value) {
+            return value == null ? null : value.stripTrailingZeros();
+        }
+
+        private static String normalise(String query) {
+            return query == null || query.isBlank() ? null : SearchPlanCache.normalise(query.strip());
+        }
+    }
+
+    /**
+     * Result page and the version of the sale listings it was found at
+     */
+    private static final class CachedPage {
+        private final SaleListingSearchResultDTO result;
+        private final long version;
+
+        private CachedPage(SaleListingSearchResultDTO result, long version) {
+            this.result = result;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Returns the cached result page of a sale listing search if it is still current, or finds the page and caches
+     * it otherwise. Searches which fail, such as searches with an invalid query, are not cached.
+     * @param searchDTO Search queries and filters of the search
+     * @param area Area of the search, or null if it has no area
+     * @param pageable Page to fetch and the order of the sale items
+     * @param distanceDirection Direction of the ordering by distance, or null if the sale items are not ordered by
+     *                          distance
+     * @param facets Facets the results are counted by
+     * @param countTotal True if the total number of results is counted
+     * @param find Finds the result page
+     * @return The result page
+     */
+    public SaleListingSearchResultDTO get(SaleListingSearchDTO searchDTO, SearchArea area, Pageable pageable,
+                                          Sort.Direction distanceDirection, Set<SaleListingFacet> facets,
+                                          boolean countTotal, Supplier<SaleListingSearchResultDTO> find) {
+        Key key = new Key(searchDTO, area, pageable, distanceDirection, facets, countTotal, LocalDate.now(clock));
+        long foundAtVersion;
+        synchronized (this) {
+            CachedPage cachedPage = pages.get(key);
+            if (cachedPage != null && cachedPage.version == version) {
+                hits++;
+                return cachedPage.result;
+            }
+            misses++;
+            foundAtVersion = version;
+        }
+        SaleListingSearchResultDTO result = find.get();
+        if (result.getResults().size() <= maxPageSize) {
+            synchronized (this) {
+                pages.put(key, new CachedPage(result, foundAtVersion));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Marks every cached page as out of date. Called after a change which may affect the results of a search has been
+     * committed.
+     */
+    public synchronized void invalidate() {
+        version++;
+    }
+
+    /**
+     * Removes every page from the cache and resets the metrics
+     */
+    public synchronized void clear() {
+        pages.clear();
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /**
+     * @return Number of searches which used a cached page
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Number of searches which had to find their page
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return Number of pages removed to keep the cache within its maximum size
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return Fraction of searches which used a cached page, or 0 if there have been no searches
+     */
+    public synchronized double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * @return Number of pages in the cache, including any which are out of date but have not been removed yet
+     */
+    public synchronized int size() {
+        return pages.size();
+    }
+
+    /**
+     * @return Current version of the sale listings, which is incremented by every change
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+}
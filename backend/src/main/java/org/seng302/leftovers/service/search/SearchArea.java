@@ -0,0 +1,218 @@
+package org.seng302.leftovers.service.search;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.seng302.leftovers.exceptions.ValidationResponseException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The area parameters of a search. Results can be restricted to a radius around a centre point, to a bounding box,
+ * or to both, and can be ordered by their distance from the centre point.
+ * Distances are in kilometres and coordinates are in degrees.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class SearchArea {
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private final Double latitude;
+    private final Double longitude;
+    private final Double radius;
+    private final Double north;
+    private final Double south;
+    private final Double east;
+    private final Double west;
+
+    private SearchArea(Double latitude, Double longitude, Double radius, Double north, Double south, Double east, Double west) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.radius = radius;
+        this.north = north;
+        this.south = south;
+        this.east = east;
+        this.west = west;
+    }
+
+    /**
+     * Creates the search area from the parameters of a search request.
+     * A centre point needs both a latitude and a longitude, and a radius can only be given with a centre point.
+     * A bounding box needs all four of its edges, and crosses the antimeridian if its west edge is east of its east edge.
+     * @param latitude Latitude of the centre point
+     * @param longitude Longitude of the centre point
+     * @param radius Maximum distance of results from the centre point
+     * @param north Northern edge of the bounding box
+     * @param south Southern edge of the bounding box
+     * @param east Eastern edge of the bounding box
+     * @param west Western edge of the bounding box
+     * @return The search area, or null if none of the parameters are given
+     */
+    public static SearchArea fromParameters(Double latitude, Double longitude, Double radius,
+                                            Double north, Double south, Double east, Double west) {
+        if (latitude == null && longitude == null && radius == null && north == null && south == null && east == null && west == null) {
+            return null;
+        }
+        if ((latitude == null) != (longitude == null)) {
+            throw new ValidationResponseException("Both a latitude and a longitude must be provided");
+        }
+        if (latitude != null && !isValidCoordinate(latitude, longitude)) {
+            throw new ValidationResponseException("Invalid latitude or longitude provided");
+        }
+        if (radius != null && (latitude == null || !(radius > 0))) {
+            throw new ValidationResponseException("A radius must be positive and requires a latitude and longitude");
+        }
+        boolean anyEdge = north != null || south != null || east != null || west != null;
+        if (anyEdge) {
+            if (north == null || south == null || east == null || west == null) {
+                throw new ValidationResponseException("All four edges of the bounding box must be provided");
+            }
+            if (!isValidCoordinate(north, east) || !isValidCoordinate(south, west) || south > north) {
+                throw new ValidationResponseException("Invalid bounding box provided");
+            }
+        }
+        return new SearchArea(latitude, longitude, radius, north, south, east, west);
+    }
+
+    private static boolean isValidCoordinate(double latitude, double longitude) {
+        return latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180;
+    }
+
+    /**
+     * @return True if a centre point was given, which results can be ordered by their distance from
+     */
+    public boolean hasCentre() {
+        return latitude != null;
+    }
+
+    /**
+     * @return True if the area restricts the results to a radius or bounding box
+     */
+    public boolean hasBounds() {
+        return radius != null || north != null;
+    }
+
+    /**
+     * Checks whether a point is in the area
+     * @param pointLatitude Latitude of the point
+     * @param pointLongitude Longitude of the point
+     * @return True if the point is within the radius and bounding box of the area
+     */
+    public boolean contains(double pointLatitude, double pointLongitude) {
+        if (north != null) {
+            boolean inLongitude = west <= east
+                    ? pointLongitude >= west && pointLongitude <= east
+                    : pointLongitude >= west || pointLongitude <= east;
+            if (pointLatitude < south || pointLatitude > north || !inLongitude) {
+                return false;
+            }
+        }
+        return radius == null || distanceFromCentre(pointLatitude, pointLongitude) <= radius;
+    }
+
+    /**
+     * @param pointLatitude Latitude of the point
+     * @param pointLongitude Longitude of the point
+     * @return Great circle distance of the point from the centre of the area
+     */
+    public double distanceFromCentre(double pointLatitude, double pointLongitude) {
+        return distance(latitude, longitude, pointLatitude, pointLongitude);
+    }
+
+    /**
+     * Finds the great circle distance between two points with the haversine formula
+     * @return Distance between the points in kilometres
+     */
+    public static double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double latitudeSin = Math.sin(Math.toRadians(latitude2 - latitude1) / 2);
+        double longitudeSin = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+        double a = latitudeSin * latitudeSin
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * longitudeSin * longitudeSin;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Finds the haversine of the angle at the centre of the earth spanned by the radius. A point is within the radius
+     * if the haversine of its angle from the centre point is at most this, so the radius can be checked with the same
+     * formula as distance without taking an inverse sine.
+     * @return Haversine of the angle spanned by the radius, or 1 if the radius reaches every point
+     */
+    public double getRadiusHaversine() {
+        double sin = Math.sin(Math.min(Math.PI / 2, radius / EARTH_RADIUS_KM / 2));
+        return sin * sin;
+    }
+
+    /**
+     * Finds latitude and longitude ranges which together cover the area. Ranges never cross the antimeridian, so an
+     * area crossing it is covered by two ranges.
+     * @return The ranges as arrays of {south, north, west, east}, or an empty list if the area has no bounds
+     */
+    public List<double[]> getBoundingRanges() {
+        if (!hasBounds()) {
+            return List.of();
+        }
+        double minLatitude = -90;
+        double maxLatitude = 90;
+        List<double[]> longitudeRanges = List.of(new double[] {-180, 180});
+        if (radius != null) {
+            double latitudeDelta = Math.toDegrees(radius / EARTH_RADIUS_KM);
+            minLatitude = Math.max(-90, latitude - latitudeDelta);
+            maxLatitude = Math.min(90, latitude + latitudeDelta);
+            // Near the poles the circle can include every longitude
+            double widestLatitude = Math.max(Math.abs(minLatitude), Math.abs(maxLatitude));
+            if (widestLatitude < 90) {
+                double longitudeDelta = latitudeDelta / Math.cos(Math.toRadians(widestLatitude));
+                if (longitudeDelta < 180) {
+                    longitudeRanges = splitAtAntimeridian(longitude - longitudeDelta, longitude + longitudeDelta);
+                }
+            }
+        }
+        if (north != null) {
+            minLatitude = Math.max(minLatitude, south);
+            maxLatitude = Math.min(maxLatitude, north);
+            List<double[]> boxRanges = west <= east
+                    ? List.of(new double[] {west, east})
+                    : List.of(new double[] {west, 180}, new double[] {-180, east});
+            longitudeRanges = intersect(longitudeRanges, boxRanges);
+        }
+
+        List<double[]> result = new ArrayList<>();
+        if (minLatitude <= maxLatitude) {
+            for (double[] longitudeRange : longitudeRanges) {
+                result.add(new double[] {minLatitude, maxLatitude, longitudeRange[0], longitudeRange[1]});
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Converts a longitude range which may extend past -180 or 180 degrees into ranges within them
+     */
+    private static List<double[]> splitAtAntimeridian(double west, double east) {
+        if (west < -180) {
+            return List.of(new double[] {west + 360, 180}, new double[] {-180, east});
+        } else if (east > 180) {
+            return List.of(new double[] {west, 180}, new double[] {-180, east - 360});
+        }
+        return List.of(new double[] {west, east});
+    }
+
+    /**
+     * Intersects two lists of longitude ranges
+     */
+    private static List<double[]> intersect(List<double[]> ranges, List<double[]> otherRanges) {
+        List<double[]> result = new ArrayList<>();
+        for (double[] range : ranges) {
+            for (double[] otherRange : otherRanges) {
+                double west = Math.max(range[0], otherRange[0]);
+                double east = Math.min(range[1], otherRange[1]);
+                if (west <= east) {
+                    result.add(new double[] {west, east});
+                }
+            }
+        }
+        return result;
+    }
+}
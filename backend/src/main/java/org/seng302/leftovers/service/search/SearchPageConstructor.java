@@ -1,9 +1,15 @@
 package org.seng302.leftovers.service.search;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 public class SearchPageConstructor {
     private static final int DEFAULT_RESULTS_PER_PAGE = 15;
@@ -99,4 +105,26 @@ public class SearchPageConstructor {
     public static Sort.Direction getSortDirection(Boolean reverse) {
         return Boolean.TRUE.equals(reverse) ? Sort.Direction.DESC : Sort.Direction.ASC;
     }
+
+    /**
+     * Puts entities loaded by id into the order of a page of ids. Ids without an entity, such as entities deleted since
+     * the page was selected, are left out.
+     * @param pageIds Page of ids
+     * @param entities Entities with the ids on the page, in any order
+     * @param getId Gets the id of an entity
+     * @param <T> Type of entity
+     * @return Page of entities in the order of the ids
+     */
+    public static <T> Page<T> orderLikePage(Page<Long> pageIds, Iterable<T> entities, Function<T, Long> getId) {
+        Map<Long, T> entitiesById = new HashMap<>();
+        entities.forEach(entity -> entitiesById.put(getId.apply(entity), entity));
+        List<T> content = new ArrayList<>();
+        for (Long id : pageIds) {
+            T entity = entitiesById.get(id);
+            if (entity != null) {
+                content.add(entity);
+            }
+        }
+        return new PageImpl<>(content, pageIds.getPageable(), pageIds.getTotalElements());
+    }
 }
@@ -0,0 +1,195 @@
+package org.seng302.leftovers.service.search;
+
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+/**
+ * Bounded least recently used cache of the specifications built from search queries, so that a query which is searched
+ * for again is not tokenised, parsed and built into a tree of specifications again.
+ *
+ * Specifications built from a search query are stateless, so one instance can be shared between requests. Plans
+ * correct misspelt product and business names with the dictionaries of the NameDictionaryService. The corrections are
+ * looked up each time a specification is applied, so a cached specification still uses the current dictionaries.
+ *
+ * Only the tree of specifications is cached. Spring Data still applies the specifications to a new criteria query
+ * and Hibernate renders that query to JPQL on every search, as a criteria query cannot be reused between sessions.
+ * The translation of the JPQL to SQL is reused though, because string literals such as search terms are bound as
+ * parameters, so searches of the same shape share an entry in the query plan cache of Hibernate. The
+ * hibernate.query.plan_cache_max_size property bounds that cache, and its hit count is in the session factory
+ * statistics.
+ *
+ * Queries are normalised before they are looked up, by collapsing runs of spaces outside of quoted phrases and
+ * converting them to lower case, which does not change the users, businesses or sale items they match as every term
+ * is matched without case sensitivity. The spacing within a quoted phrase is kept, as it is part of the phrase.
+ */
+@Component
+public class SearchPlanCache {
+    private final int maxEntries;
+    private final NameDictionaryService nameDictionaryService;
+    private final LinkedHashMap<Key, Specification<?>> plans;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Creates a cache holding at most the given number of plans
+     * @param maxEntries Maximum number of plans to keep
+     * @param nameDictionaryService Service owning the dictionaries used to correct misspelt names
+     */
+    @Autowired
+    public SearchPlanCache(@Value("${search-plan-cache.max-entries:1024}") int maxEntries,
+                           NameDictionaryService nameDictionaryService) {
+        this.maxEntries = maxEntries;
+        this.nameDictionaryService = nameDictionaryService;
+        this.plans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Specification<?>> eldest) {
+                if (size() > SearchPlanCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Identifies a plan by the entity type it searches, the normalised query and the fields the query is matched
+     * against
+     */
+    @EqualsAndHashCode
+    private static final class Key {
+        private final Class<?> entityType;
+        private final String query;
+        private final List<String> fieldNames;
+
+        private Key(Class<?> entityType, String query, List<String> fieldNames) {
+            this.entityType = entityType;
+            this.query = query;
+            this.fieldNames = List.copyOf(fieldNames);
+        }
+    }
+
+    /**
+     * Normalises a search query so that queries which match the same entities share a plan. Runs of spaces between
+     * terms are collapsed, while the spacing within a quoted phrase is kept.
+     * @param searchQuery Query entered by the user
+     * @return Normalised query
+     */
+    public static String normalise(String searchQuery) {
+        String[] words = searchQuery.split("[ ]+");
+        int[] wordStarts = SearchQueryParser.findWordStarts(searchQuery, words);
+        StringJoiner normalised = new StringJoiner(" ");
+        int termStartingIndex = 0;
+        while (termStartingIndex < words.length) {
+            int termEndingIndex = Math.max(SearchQueryParser.findTermEndingIndex(words, termStartingIndex), termStartingIndex);
+            normalised.add(searchQuery.substring(wordStarts[termStartingIndex],
+                    wordStarts[termEndingIndex] + words[termEndingIndex].length()));
+            termStartingIndex = termEndingIndex + 1;
+        }
+        return normalised.toString().toLowerCase();
+    }
+
+    /**
+     * Finds the name dictionaries which plans use to correct the spelling of the terms matched against the given
+     * fields
+     * @param entityType Type of entity being searched
+     * @param fieldNames Fields which each term of the query is matched against
+     * @return Dictionary for each field which has one, by field name
+     */
+    public Map<String, NameDictionary> getNameDictionaries(Class<?> entityType, List<String> fieldNames) {
+        return nameDictionaryService.getNameDictionaries(entityType, fieldNames);
+    }
+
+    /**
+     * Returns the cached plan for a search query, or builds and caches the plan if there is no cached plan. Queries
+     * which fail to build, such as a blank query, are not cached.
+     * @param entityType Type of entity the query searches
+     * @param searchQuery Query entered by the user
+     * @param fieldNames Fields the query is matched against
+     * @param build Builds the plan from the normalised query
+     * @param <T> Type of entity the query searches
+     * @return Specification matching the query
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Specification<T> get(Class<T> entityType, String searchQuery, List<String> fieldNames,
+                                    Function<String, Specification<T>> build) {
+        String normalisedQuery = normalise(searchQuery);
+        Key key = new Key(entityType, normalisedQuery, fieldNames);
+        synchronized (this) {
+            Specification<?> plan = plans.get(key);
+            if (plan != null) {
+                hits++;
+                return (Specification<T>) plan;
+            }
+            misses++;
+        }
+        Specification<T> plan = build.apply(normalisedQuery);
+        synchronized (this) {
+            plans.put(key, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Removes every plan from the cache and resets the metrics
+     */
+    public synchronized void clear() {
+        plans.clear();
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /**
+     * @return Number of searches which used a cached plan
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Number of searches which had to build a plan
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return Number of plans removed to keep the cache within its maximum size
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return Fraction of searches which used a cached plan, or 0 if there have been no searches
+     */
+    public synchronized double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * @return Number of plans in the cache
+     */
+    public synchronized int size() {
+        return plans.size();
+    }
+
+    /**
+     * @return Maximum number of plans kept in the cache
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+}
@@ -3,13 +3,16 @@ package org.seng302.leftovers.service.search;
 import lombok.Data;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.seng302.leftovers.controllers.UserController;
 import org.seng302.leftovers.entities.User;
 import org.seng302.leftovers.exceptions.ValidationResponseException;
 import org.seng302.leftovers.persistence.UserRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
+import javax.persistence.criteria.Expression;
 import java.util.*;
 
 public class SearchQueryParser {
@@ -30,6 +33,15 @@ public class SearchQueryParser {
         private final List<PredicateType> predicateTypes;
     }
 
+    /**
+     * Object representing the terms of a query, without any quotation marks, and the predicate types joining them
+     */
+    @Data
+    static class SearchTerms {
+        private final List<String> terms;
+        private final List<PredicateType> predicateTypes;
+    }
+
     /**
      * This method parses a list of search tokens taken from a search string entered by a user. If the token is in
      * quotation marks, a specification which will only match attributes which are exactly the same as that token is
@@ -42,17 +54,48 @@ public class SearchQueryParser {
      * @return SearchQuery is a list of specifications matching a field and a parallel list of predicate types.
      */
     static <T> SearchQuery<T> parseSearchTokens(List<String> searchTokens, List<String> fieldNames) {
+        return parseSearchTokens(searchTokens, fieldNames, Map.of());
+    }
+
+    /**
+     * This method parses a list of search tokens in the same way as parseSearchTokens(searchTokens, fieldNames), except
+     * that each term also matches the words it may be a misspelling of in the fields which have a name dictionary.
+     * @param searchTokens A list of single words or phrases in quotes from the user's search string.
+     * @param fieldNames A list of field names to compare against
+     * @param dictionaries Dictionaries used to correct the spelling of terms, by the name of the field they correct
+     * @return SearchQuery is a list of specifications matching a field and a parallel list of predicate types.
+     */
+    static <T> SearchQuery<T> parseSearchTokens(List<String> searchTokens, List<String> fieldNames,
+                                                Map<String, NameDictionary> dictionaries) {
+        SearchTerms searchTerms = parseSearchTerms(searchTokens);
         List<Specification<T>> searchSpecs = new ArrayList<>();
+        for (String term : searchTerms.getTerms()) {
+            Specification<T> spec = SearchSpecConstructor.buildPartialMatchSpec(term, fieldNames);
+            if (!dictionaries.isEmpty()) {
+                spec = spec.or(SearchSpecConstructor.buildSimilarWordsSpec(term, dictionaries));
+            }
+            searchSpecs.add(spec);
+        }
+        return new SearchQuery<>(searchSpecs, searchTerms.getPredicateTypes());
+    }
+
+    /**
+     * This method parses a list of search tokens into the terms to match and the predicate types joining them. Quotation
+     * marks are removed from quoted terms, and 'AND' and 'OR' tokens determine the predicate type following the term
+     * before them, with AND being the default if no predicate token is present.
+     * @param searchTokens A list of single words or phrases in quotes from the user's search string.
+     * @return SearchTerms is a list of terms and a parallel list of predicate types.
+     */
+    static SearchTerms parseSearchTerms(List<String> searchTokens) {
+        List<String> terms = new ArrayList<>();
         List<PredicateType> predicateTypesByIndex = new ArrayList<>();
         int i = 0;
         while (i < searchTokens.size()) {
             String token = searchTokens.get(i);
             if ((token.startsWith("\"") || token.startsWith("'")) && token.length() > 1) {
-                String termWithoutQuotes = token.substring(1, token.length() - 1);
-                searchSpecs.add(SearchSpecConstructor.buildPartialMatchSpec(termWithoutQuotes, fieldNames));
-
+                terms.add(token.substring(1, token.length() - 1));
             } else if (!(token.equalsIgnoreCase("and") || token.equalsIgnoreCase("or"))) {
-                searchSpecs.add(SearchSpecConstructor.buildPartialMatchSpec(token, fieldNames));
+                terms.add(token);
             } else {
                 i++;
                 continue; // The current token is an operator so skip it
@@ -64,13 +107,13 @@ public class SearchQueryParser {
             i++;
         }
 
-        if (searchSpecs.isEmpty()) {
+        if (terms.isEmpty()) {
             ValidationResponseException searchFormatException = new ValidationResponseException("No valid search terms in query.");
             logger.error(searchFormatException.getMessage());
             throw(searchFormatException);
         }
 
-        return new SearchQuery<>(searchSpecs, predicateTypesByIndex);
+        return new SearchTerms(terms, predicateTypesByIndex);
     }
 
     /**
@@ -90,7 +133,8 @@ public class SearchQueryParser {
 
     /**
      * This method separates a search string by its whitespace and then identifies the terms in the string - either
-     * individual words or phrases joined with double or single quotes.
+     * individual words or phrases joined with double or single quotes. The spacing within a quoted phrase is kept as
+     * it was entered.
      * @param searchString A string to be parsed into an array of individual terms.
      * @return An array containing each term from the search string.
      */
@@ -101,15 +145,21 @@ public class SearchQueryParser {
             throw(searchFormatException);
         }
         String[] words = searchString.split("[ ]+");
+        int[] wordStarts = findWordStarts(searchString, words);
         ArrayList<String> searchTerms = new ArrayList<>();
         int termStartingIndex = 0;
         while (termStartingIndex < words.length) {
 
             int termEndingIndex = findTermEndingIndex(words, termStartingIndex);
+            if (termEndingIndex < 0) {
+                ValidationResponseException searchFormatException = new ValidationResponseException("Search string contains opening quote but " +
+                        "no closing quote.");
+                logger.error(searchFormatException.getMessage());
+                throw(searchFormatException);
+            }
 
-            String[] wordsInSearchTerm = Arrays.copyOfRange(words, termStartingIndex, termEndingIndex+1);
-            String joinedTerm = joinStringArrayWithSpace(wordsInSearchTerm);
-            searchTerms.add(joinedTerm);
+            searchTerms.add(searchString.substring(wordStarts[termStartingIndex],
+                    wordStarts[termEndingIndex] + words[termEndingIndex].length()));
 
             termStartingIndex = termEndingIndex+1;
         }
@@ -117,52 +167,41 @@ public class SearchQueryParser {
     }
 
     /**
-     * This method takes an array of Strings and joins them with a space between strings.
-     * @param stringArray An array of strings to be joined.
-     * @return A String of words with a space between them.
+     * This method finds where each of the words a search string was split into starts in the search string.
+     * @param searchString The search string which was split.
+     * @param words The words of the search string, in the order they appear in it.
+     * @return The index in the search string of the first character of each word.
      */
-    private static String joinStringArrayWithSpace(String[] stringArray) {
-        StringJoiner joiner = new StringJoiner(" ");
-        for (String word : stringArray) {
-            joiner.add(word);
+    static int[] findWordStarts(String searchString, String[] words) {
+        int[] wordStarts = new int[words.length];
+        int position = 0;
+        for (int i = 0; i < words.length; i++) {
+            position = searchString.indexOf(words[i], position);
+            wordStarts[i] = position;
+            position += words[i].length();
         }
-        return joiner.toString();
+        return wordStarts;
     }
 
     /**
      * This method finds the index of the final word in a term. If the first word does not start with a quote then
      * the final index will be the same as the starting index. If the term does start with a quote, the array will be
-     * searched until a string ending in a quote is found. A ResponseStatusException will be thrown if no string ending
-     * in a quote is found.
+     * searched until a string ending in a quote is found.
      * @param words An array of words from which terms need to be identified.
      * @param termStartingIndex The index of the first word in the term.
-     * @return The index of the final word in the term.
+     * @return The index of the final word in the term, or -1 if the term starts with a quote which is never closed.
      */
-    private static int findTermEndingIndex(String[] words, int termStartingIndex) {
-        int termEndingIndex;
-
+    static int findTermEndingIndex(String[] words, int termStartingIndex) {
         if (words[termStartingIndex].startsWith("\"") || words[termStartingIndex].startsWith("'")) {
             String openingQuote = words[termStartingIndex].substring(0, 1);
-            boolean foundClosingQuote = false;
-            termEndingIndex = termStartingIndex;
-            while (termEndingIndex < words.length) {
+            for (int termEndingIndex = termStartingIndex; termEndingIndex < words.length; termEndingIndex++) {
                 if (words[termEndingIndex].endsWith(openingQuote)) {
-                    foundClosingQuote = true;
-                    break;
+                    return termEndingIndex;
                 }
-                termEndingIndex++;
-            }
-            if (!foundClosingQuote) {
-                ValidationResponseException searchFormatException = new ValidationResponseException("Search string contains opening quote but " +
-                        "no closing quote.");
-                logger.error(searchFormatException.getMessage());
-                throw(searchFormatException);
             }
-        } else {
-            termEndingIndex = termStartingIndex;
+            return -1;
         }
-
-        return termEndingIndex;
+        return termStartingIndex;
     }
 
     /**
@@ -240,45 +279,94 @@ public class SearchQueryParser {
      * @return List of users
      */
     public static List<User> getSearchResultsOrderedByRelevance(String originalSearchQuery, UserRepository userRepository, Boolean reverse) {
-        Sort idSort = UserController.getSort("userID", false);
-
-        String fullMatchSomeTermsQuery = getFullMatchesQueryString(originalSearchQuery);
-        String fullMatchAllTermsQuery = getQueryStringWithoutOr(fullMatchSomeTermsQuery);
-
-        Specification<User> fullMatchAllTermsSpec = SearchSpecConstructor.constructUserSpecificationFromSearchQuery(fullMatchAllTermsQuery);
-        Specification<User> fullMatchSomeTermsSpec = SearchSpecConstructor.constructUserSpecificationFromSearchQuery(fullMatchSomeTermsQuery);
-        Specification<User> partialMatchSomeTermsSpec = SearchSpecConstructor.constructUserSpecificationFromSearchQuery(originalSearchQuery);
+        return userRepository.findAll(getSpecificationOrderedByRelevance(originalSearchQuery, reverse, null));
+    }
 
-        List<User> fullMatchesAllTerms = userRepository.findAll(fullMatchAllTermsSpec, idSort);
-        List<User> fullMatchesSomeTerms = userRepository.findAll(fullMatchSomeTermsSpec, idSort);
-        List<User> partialMatchesSomeTerms = userRepository.findAll(partialMatchSomeTermsSpec, idSort);
+    /**
+     * This method returns a single page of the users matching a search query, in the same order as
+     * getSearchResultsOrderedByRelevance. The relevance of each user is computed by the database in the same query
+     * which selects the page, so only the users on the page are loaded. If the total is counted, a page after the last
+     * page of results returns the last page.
+     * @param originalSearchQuery A search query entered by the user.
+     * @param userRepository The repository containing all the User entities.
+     * @param resultCountCache Cache of the number of users matching recent search queries
+     * @param requestedPage The page number in the results which has been requested. Defaults to 1.
+     * @param resultsPerPage The number of results which will be returned. Defaults to 15.
+     * @param reverse Whether to return the least relevant users first
+     * @param countTotal Whether to count the total number of matching users
+     * @return Page of users if the total is counted, otherwise a slice of users
+     */
+    public static Slice<User> getSearchResultPageOrderedByRelevance(String originalSearchQuery, UserRepository userRepository,
+                                                                    ResultCountCache resultCountCache, Integer requestedPage,
+                                                                    Integer resultsPerPage, Boolean reverse, boolean countTotal) {
+        return getSearchResultPageOrderedByRelevance(originalSearchQuery, userRepository, resultCountCache, requestedPage,
+                resultsPerPage, reverse, countTotal, null);
+    }
 
-        List<User> matchList = new ArrayList<>();
-        HashSet<Long> addedIds = new HashSet<>();
-        addNewToList(matchList, addedIds, fullMatchesAllTerms);
-        addNewToList(matchList, addedIds, fullMatchesSomeTerms);
-        addNewToList(matchList, addedIds, partialMatchesSomeTerms);
+    /**
+     * Returns the same page as getSearchResultPageOrderedByRelevance, reusing the plans of the search queries from the
+     * given cache.
+     * @param originalSearchQuery A search query entered by the user.
+     * @param userRepository The repository containing all the User entities.
+     * @param resultCountCache Cache of the number of users matching recent search queries
+     * @param requestedPage The page number in the results which has been requested. Defaults to 1.
+     * @param resultsPerPage The number of results which will be returned. Defaults to 15.
+     * @param reverse Whether to return the least relevant users first
+     * @param countTotal Whether to count the total number of matching users
+     * @param searchPlanCache Cache of the plans of recent search queries, or null to always build the plans
+     * @return Page of users if the total is counted, otherwise a slice of users
+     */
+    public static Slice<User> getSearchResultPageOrderedByRelevance(String originalSearchQuery, UserRepository userRepository,
+                                                                    ResultCountCache resultCountCache, Integer requestedPage,
+                                                                    Integer resultsPerPage, Boolean reverse, boolean countTotal,
+                                                                    SearchPlanCache searchPlanCache) {
+        Specification<User> specification = getSpecificationOrderedByRelevance(originalSearchQuery, reverse, searchPlanCache);
+        PageRequest pageRequest = SearchPageConstructor.getPageRequest(requestedPage, resultsPerPage, Sort.unsorted());
+        String countKey = SearchPlanCache.normalise(originalSearchQuery);
 
-        if (Boolean.TRUE.equals(reverse)) {
-            Collections.reverse(matchList);
+        Slice<User> results = resultCountCache.findPage(userRepository, specification, pageRequest, countTotal, countKey);
+        if (results instanceof Page) {
+            Page<User> page = (Page<User>) results;
+            if (page.getTotalPages() > 0 && pageRequest.getPageNumber() >= page.getTotalPages()) {
+                results = resultCountCache.findPage(userRepository, specification,
+                        PageRequest.of(page.getTotalPages() - 1, pageRequest.getPageSize()), true, countKey);
+            }
         }
-
-        return matchList;
+        return results;
     }
 
     /**
-     * This method checks addedIds to see if the given user has already been added to noDuplicatesList. If they have not,
-     * the user is added to noDuplicatesList and their id is added to addedIds.
-     * @param noDuplicatesList A list which users will be added to if they are not duplicates of users already in the list.
-     * @param addedIds A list of ids of users which have been added to the list.
-     * @param users A list of users which may be added to the list if they are not in it already.
+     * This method constructs a specification which matches the users matching a search query, and orders them by the
+     * relevance categories described by getSearchResultsOrderedByRelevance and then by id. The category of each user is
+     * computed with a CASE expression in the ORDER BY clause, so the ordering does not need separate queries for each
+     * category. The ordering is not applied to count queries.
+     * @param originalSearchQuery A search query entered by the user.
+     * @param reverse Whether to order the least relevant users first
+     * @param searchPlanCache Cache of the plans of recent search queries, or null to always build the plans
+     * @return Specification matching and ordering users
      */
-    private static void addNewToList(List<User> noDuplicatesList, HashSet<Long> addedIds, List<User> users) {
-        for (User user : users) {
-            if (!addedIds.contains(user.getUserID())) {
-                addedIds.add(user.getUserID());
-                noDuplicatesList.add(user);
+    static Specification<User> getSpecificationOrderedByRelevance(String originalSearchQuery, Boolean reverse,
+                                                                  SearchPlanCache searchPlanCache) {
+        String fullMatchSomeTermsQuery = getFullMatchesQueryString(originalSearchQuery);
+        String fullMatchAllTermsQuery = getQueryStringWithoutOr(fullMatchSomeTermsQuery);
+
+        Specification<User> fullMatchAllTermsSpec = SearchSpecConstructor.constructUserSpecificationFromSearchQuery(fullMatchAllTermsQuery, searchPlanCache);
+        Specification<User> fullMatchSomeTermsSpec = SearchSpecConstructor.constructUserSpecificationFromSearchQuery(fullMatchSomeTermsQuery, searchPlanCache);
+        Specification<User> partialMatchSomeTermsSpec = SearchSpecConstructor.constructUserSpecificationFromSearchQuery(originalSearchQuery, searchPlanCache);
+
+        return (root, query, criteriaBuilder) -> {
+            if (!Long.class.equals(query.getResultType())) {
+                Expression<Integer> relevance = criteriaBuilder.<Integer>selectCase()
+                        .when(fullMatchAllTermsSpec.toPredicate(root, query, criteriaBuilder), 0)
+                        .when(fullMatchSomeTermsSpec.toPredicate(root, query, criteriaBuilder), 1)
+                        .otherwise(2);
+                if (Boolean.TRUE.equals(reverse)) {
+                    query.orderBy(criteriaBuilder.desc(relevance), criteriaBuilder.desc(root.get("userID")));
+                } else {
+                    query.orderBy(criteriaBuilder.asc(relevance), criteriaBuilder.asc(root.get("userID")));
+                }
             }
-        }
+            return partialMatchSomeTermsSpec.toPredicate(root, query, criteriaBuilder);
+        };
     }
 }
@@ -8,17 +8,56 @@ import org.seng302.leftovers.dto.user.UserRole;
 import org.seng302.leftovers.entities.*;
 import org.seng302.leftovers.exceptions.ValidationResponseException;
 import org.seng302.leftovers.persistence.SearchCriteria.Pred;
+import org.seng302.leftovers.persistence.NamedSpecification;
 import org.seng302.leftovers.persistence.SpecificationsBuilder;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class SearchSpecConstructor {
+    /**
+     * Fields of a sale item which are matched by the basic query of a sale listing search
+     */
+    public static final List<String> SALE_ITEM_BASIC_FIELDS = List.of(
+            "inventoryItem.product.name",
+            "inventoryItem.product.business.name",
+            "inventoryItem.product.business.address.country",
+            "inventoryItem.product.business.address.city",
+            "inventoryItem.product.business.address.region",
+            "inventoryItem.product.manufacturer",
+            "inventoryItem.product.description",
+            "moreInfo");
+    /**
+     * Fields of a sale item which are matched by the product query of a sale listing search
+     */
+    public static final List<String> SALE_ITEM_PRODUCT_FIELDS = List.of("inventoryItem.product.name");
+    /**
+     * Fields of a sale item which are matched by the business query of a sale listing search
+     */
+    public static final List<String> SALE_ITEM_BUSINESS_FIELDS = List.of("inventoryItem.product.business.name");
+    /**
+     * Fields of a sale item which are matched by the location query of a sale listing search
+     */
+    public static final List<String> SALE_ITEM_LOCATION_FIELDS = List.of(
+            "inventoryItem.product.business.address.country",
+            "inventoryItem.product.business.address.city",
+            "inventoryItem.product.business.address.region");
+    /**
+     * Path from a sale item to the business selling it
+     */
+    public static final String SALE_ITEM_BUSINESS_PATH = "inventoryItem.product.business";
+
     /**
      * Specification for a user that is not the DGAA
      * @return Specification matching any user except DGAA
@@ -46,12 +85,20 @@ public class SearchSpecConstructor {
      * @return A specification which matches the user's search query.
      */
     public static Specification<User> constructUserSpecificationFromSearchQuery(String searchQuery) {
-        List<String> searchTokens = SearchQueryParser.splitSearchStringIntoTerms(searchQuery);
+        return constructUserSpecificationFromSearchQuery(searchQuery, null);
+    }
 
+    /**
+     * Constructs the same specification as constructUserSpecificationFromSearchQuery, reusing the plan of the search
+     * query from the given cache.
+     * @param searchQuery A query entered by the user for searching for users within the database.
+     * @param searchPlanCache Cache of the plans of recent search queries, or null to always build the plan
+     * @return A specification which matches the user's search query.
+     */
+    public static Specification<User> constructUserSpecificationFromSearchQuery(String searchQuery, SearchPlanCache searchPlanCache) {
         var fieldNames = Arrays.asList("firstName", "lastName", "nickname", "middleName");
-        SearchQueryParser.SearchQuery<User> parsedQuery = SearchQueryParser.parseSearchTokens(searchTokens, fieldNames);
-        return buildCompoundSpecification(parsedQuery)
-                .and(isNotDGAASpec());
+        return NamedSpecification.named("constructUserSpecificationFromSearchQuery",
+                compileSearchQuery(searchPlanCache, User.class, searchQuery, fieldNames).and(isNotDGAASpec()));
     }
 
     /**
@@ -64,20 +111,35 @@ public class SearchSpecConstructor {
      * @return A specification for businesses matching the provided search query and type.
      */
     public static Specification<Business> constructSpecificationFromBusinessSearch(String searchQuery, BusinessType businessType) {
+        return constructSpecificationFromBusinessSearch(searchQuery, businessType, null);
+    }
+
+    /**
+     * Constructs the same specification as constructSpecificationFromBusinessSearch, reusing the plan of the search
+     * query from the given cache.
+     * @param searchQuery A search query provided by the user, used to find matching business names.
+     * @param businessType A business type provided by the user, used to find businesses with matching type.
+     * @param searchPlanCache Cache of the plans of recent search queries, or null to always build the plan
+     * @return A specification for businesses matching the provided search query and type.
+     */
+    public static Specification<Business> constructSpecificationFromBusinessSearch(String searchQuery, BusinessType businessType,
+                                                                                   SearchPlanCache searchPlanCache) {
         if (searchQuery == null && businessType == null) {
             ValidationResponseException exception =
                     new ValidationResponseException("Provide either a search query or business type to find matching businesses");
             SearchQueryParser.logger.error(exception.getMessage());
             throw exception;
         }
+        Specification<Business> specification;
         if (searchQuery == null) {
-            return constructBusinessSpecificationFromType(businessType);
-        }
-        if (businessType == null) {
-            return constructBusinessSpecificationFromSearchQuery(searchQuery);
+            specification = constructBusinessSpecificationFromType(businessType);
+        } else if (businessType == null) {
+            specification = constructBusinessSpecificationFromSearchQuery(searchQuery, searchPlanCache);
+        } else {
+            specification = constructBusinessSpecificationFromSearchQuery(searchQuery, searchPlanCache)
+                    .and(constructBusinessSpecificationFromType(businessType));
         }
-        return constructBusinessSpecificationFromSearchQuery(searchQuery)
-                .and(constructBusinessSpecificationFromType(businessType));
+        return NamedSpecification.named("constructSpecificationFromBusinessSearch", specification);
     }
 
     /**
@@ -88,7 +150,22 @@ public class SearchSpecConstructor {
      * @return User product search specification
      */
     public static Specification<Product> constructSpecificationFromProductSearch(Business business, String searchQuery, Set<ProductFilterOption> options) {
-        return productBusinessSpecification(business).and(productFilterSpecification(searchQuery, options));
+        return constructSpecificationFromProductSearch(business, searchQuery, options, null);
+    }
+
+    /**
+     * Constructs the same specification as constructSpecificationFromProductSearch, reusing the plan of the search
+     * query from the given cache.
+     * @param business Business to select products from
+     * @param searchQuery Query to filter product by
+     * @param options Columns to apply the query over
+     * @param searchPlanCache Cache of the plans of recent search queries, or null to always build the plan
+     * @return User product search specification
+     */
+    public static Specification<Product> constructSpecificationFromProductSearch(Business business, String searchQuery, Set<ProductFilterOption> options,
+                                                                                 SearchPlanCache searchPlanCache) {
+        return NamedSpecification.named("constructSpecificationFromProductSearch",
+                productBusinessSpecification(business).and(productFilterSpecification(searchQuery, options, searchPlanCache)));
     }
 
     /**
@@ -101,8 +178,19 @@ public class SearchSpecConstructor {
      * @return Specification for filtering products by user search query
      */
     public static Specification<Product> productFilterSpecification(String searchQuery, Set<ProductFilterOption> options) {
-        List<String> searchTokens = SearchQueryParser.splitSearchStringIntoTerms(searchQuery);
+        return productFilterSpecification(searchQuery, options, null);
+    }
 
+    /**
+     * Creates the same specification as productFilterSpecification, reusing the plan of the search query from the
+     * given cache.
+     * @param searchQuery User provided search query
+     * @param options Set of columns to filter by
+     * @param searchPlanCache Cache of the plans of recent search queries, or null to always build the plan
+     * @return Specification for filtering products by user search query
+     */
+    public static Specification<Product> productFilterSpecification(String searchQuery, Set<ProductFilterOption> options,
+                                                                    SearchPlanCache searchPlanCache) {
         if (options.isEmpty()) {
             options = Set.of(ProductFilterOption.NAME);
         }
@@ -110,7 +198,7 @@ public class SearchSpecConstructor {
         ObjectMapper objectMapper = new ObjectMapper();
         List<String> columnNames = options.stream().map(option -> objectMapper.convertValue(option, String.class)).collect(Collectors.toList());
 
-        return buildCompoundSpecification(SearchQueryParser.parseSearchTokens(searchTokens, columnNames));
+        return compileSearchQuery(searchPlanCache, Product.class, searchQuery, columnNames);
     }
 
     /**
@@ -128,14 +216,11 @@ public class SearchSpecConstructor {
      * specification would match Businesses with the name 'Tim', 'Tim's BBQ' or 'Tim's garage',
      * Also supports operations AND and OR in the search term. Exact matches are given using quotation marks
      * @param searchQuery A term to find exact matches for.
+     * @param searchPlanCache Cache of the plans of recent search queries, or null to always build the plan
      * @return A specification which will match Businesses that partially match the given string in the business name.
      */
-    private static Specification<Business> constructBusinessSpecificationFromSearchQuery(String searchQuery) {
-        List<String> searchTokens = SearchQueryParser.splitSearchStringIntoTerms(searchQuery);
-        List<String> fieldNames = Collections.singletonList("name");
-
-        SearchQueryParser.SearchQuery<Business> searchSpecs = SearchQueryParser.parseSearchTokens(searchTokens, fieldNames);
-        return buildCompoundSpecification(searchSpecs);
+    private static Specification<Business> constructBusinessSpecificationFromSearchQuery(String searchQuery, SearchPlanCache searchPlanCache) {
+        return compileSearchQuery(searchPlanCache, Business.class, searchQuery, Collections.singletonList("name"));
     }
 
     /**
@@ -154,7 +239,8 @@ public class SearchSpecConstructor {
      * @return Specification of type Keyword
      */
     public static Specification<Keyword> constructKeywordSpecificationFromSearchQuery(String searchQuery) {
-        return buildPartialMatchSpec(searchQuery, Collections.singletonList("name"));
+        return NamedSpecification.named("constructKeywordSpecificationFromSearchQuery",
+                buildPartialMatchSpec(searchQuery, Collections.singletonList("name")));
     }
 
     /**
@@ -171,88 +257,106 @@ public class SearchSpecConstructor {
      */
     public static Specification<SaleItem> constructSaleItemSpecificationFromSearchQueries
             (String searchQuery, String productName, String businessName, String businessLocation) {
+        return constructSaleItemSpecificationFromSearchQueries(searchQuery, productName, businessName, businessLocation, null);
+    }
+
+    /**
+     * Constructs the same specification as constructSaleItemSpecificationFromSearchQueries, reusing the plans of the
+     * search queries from the given cache.
+     * @param searchQuery Term to match against all fields
+     * @param productName Term to match against productName
+     * @param businessName Term to match against Business name
+     * @param businessLocation Term to match against Business location
+     * @param searchPlanCache Cache of the plans of recent search queries, or null to always build the plans
+     * @return A specification for Sale Items
+     */
+    public static Specification<SaleItem> constructSaleItemSpecificationFromSearchQueries
+            (String searchQuery, String productName, String businessName, String businessLocation, SearchPlanCache searchPlanCache) {
 
         // build a match for specific fields
         Specification<SaleItem> searchSpec = Specification.where(null);
         if (searchQuery != null && !searchQuery.isBlank()) {
-            searchSpec = searchSpec.and(constructSaleItemSpecificationFromBasicQuery(searchQuery));
+            searchSpec = searchSpec.and(constructSaleItemSpecificationFromBasicQuery(searchQuery, searchPlanCache));
         }
         if (businessName != null && !businessName.isBlank()){
-            searchSpec = searchSpec.and(constructSaleItemSpecificationFromBusinessName(businessName));
+            searchSpec = searchSpec.and(constructSaleItemSpecificationFromBusinessName(businessName, searchPlanCache));
         }
         if (productName != null && !productName.isBlank()) {
-            searchSpec = searchSpec.and(constructSaleItemSpecificationFromProductName(productName));
+            searchSpec = searchSpec.and(constructSaleItemSpecificationFromProductName(productName, searchPlanCache));
         }
         if (businessLocation != null && !businessLocation.isBlank()) {
-            searchSpec = searchSpec.and(constructSaleItemSpecificationFromBusinessLocation(businessLocation));
+            searchSpec = searchSpec.and(constructSaleItemSpecificationFromBusinessLocation(businessLocation, searchPlanCache));
         }
 
-        return searchSpec;
+        return NamedSpecification.named("constructSaleItemSpecificationFromSearchQueries", searchSpec);
     }
 
     /**
      * Returns a specifications which matches sale items with a given product name
      * @param basicQuery The term to search for
+     * @param searchPlanCache Cache of the plans of recent search queries, or null to always build the plan
      * @return Specification for SaleItem
      */
-    private static Specification<SaleItem> constructSaleItemSpecificationFromBasicQuery(String basicQuery) {
-        var allFieldNames = List.of(
-                "inventoryItem.product.name",
-                "inventoryItem.product.business.name",
-                "inventoryItem.product.business.address.country",
-                "inventoryItem.product.business.address.city",
-                "inventoryItem.product.business.address.region",
-                "inventoryItem.product.manufacturer",
-                "inventoryItem.product.description",
-                "moreInfo");
-        List<String> searchTokens = SearchQueryParser.splitSearchStringIntoTerms(basicQuery);
-
-        SearchQueryParser.SearchQuery<SaleItem> searchSpecs = SearchQueryParser.parseSearchTokens(searchTokens, allFieldNames);
-        return buildCompoundSpecification(searchSpecs);
+    private static Specification<SaleItem> constructSaleItemSpecificationFromBasicQuery(String basicQuery, SearchPlanCache searchPlanCache) {
+        return compileSearchQuery(searchPlanCache, SaleItem.class, basicQuery, SALE_ITEM_BASIC_FIELDS);
     }
 
     /**
      * Returns a specifications which matches sale items with a given product name
      * @param productName The product name to search for
+     * @param searchPlanCache Cache of the plans of recent search queries, or null to always build the plan
      * @return Specification for SaleItem
      */
-    private static Specification<SaleItem> constructSaleItemSpecificationFromProductName(String productName) {
-        List<String> fieldNames = Arrays.asList("inventoryItem.product.name");
-        List<String> searchTokens = SearchQueryParser.splitSearchStringIntoTerms(productName);
-
-        SearchQueryParser.SearchQuery<SaleItem> searchSpecs = SearchQueryParser.parseSearchTokens(searchTokens, fieldNames);
-        return buildCompoundSpecification(searchSpecs);
+    private static Specification<SaleItem> constructSaleItemSpecificationFromProductName(String productName, SearchPlanCache searchPlanCache) {
+        return compileSearchQuery(searchPlanCache, SaleItem.class, productName, SALE_ITEM_PRODUCT_FIELDS);
     }
 
     /**
      * Returns a specifications which matches against the name of the business which owns the sale item
      * @param businessName The query to search against business name
+     * @param searchPlanCache Cache of the plans of recent search queries, or null to always build the plan
      * @return Specification for SaleItem
      */
-    private static Specification<SaleItem> constructSaleItemSpecificationFromBusinessName(String businessName) {
-        List<String> fieldNames = Arrays.asList(
-                "inventoryItem.product.business.name");
-        List<String> searchTokens = SearchQueryParser.splitSearchStringIntoTerms(businessName);
-
-        SearchQueryParser.SearchQuery<SaleItem> searchSpecs = SearchQueryParser.parseSearchTokens(searchTokens, fieldNames);
-        return buildCompoundSpecification(searchSpecs);
+    private static Specification<SaleItem> constructSaleItemSpecificationFromBusinessName(String businessName, SearchPlanCache searchPlanCache) {
+        return compileSearchQuery(searchPlanCache, SaleItem.class, businessName, SALE_ITEM_BUSINESS_FIELDS);
     }
 
     /**
      * Returns a specifications which matches against the location of the business which owns the sale item
      * The query will match against country, city and region
      * @param location The query to search against location
+     * @param searchPlanCache Cache of the plans of recent search queries, or null to always build the plan
      * @return Specification for SaleItem
      */
-    private static Specification<SaleItem> constructSaleItemSpecificationFromBusinessLocation(String location) {
-        List<String> fieldNames = Arrays.asList(
-                "inventoryItem.product.business.address.country",
-                "inventoryItem.product.business.address.city",
-                "inventoryItem.product.business.address.region");
-        List<String> searchTokens = SearchQueryParser.splitSearchStringIntoTerms(location);
+    private static Specification<SaleItem> constructSaleItemSpecificationFromBusinessLocation(String location, SearchPlanCache searchPlanCache) {
+        return compileSearchQuery(searchPlanCache, SaleItem.class, location, SALE_ITEM_LOCATION_FIELDS);
+    }
 
-        SearchQueryParser.SearchQuery<SaleItem> searchSpecs = SearchQueryParser.parseSearchTokens(searchTokens, fieldNames);
-        return buildCompoundSpecification(searchSpecs);
+    /**
+     * Tokenises and parses a search query, and combines the specifications for each of its terms into one
+     * specification. If a cache is given the result is kept in it, so a query which has been searched for recently is
+     * not parsed again, and misspelt names are corrected with the name dictionaries of the cache.
+     * @param searchPlanCache Cache of the plans of recent search queries, or null to always build the plan without
+     * correcting misspelt names
+     * @param entityType Type of entity to search
+     * @param searchQuery A query entered by the user
+     * @param fieldNames Fields which each term of the query is matched against
+     * @param <T> Type of entity to search
+     * @return A specification which matches the search query
+     */
+    private static <T> Specification<T> compileSearchQuery(SearchPlanCache searchPlanCache, Class<T> entityType,
+                                                           String searchQuery, List<String> fieldNames) {
+        Function<String, Specification<T>> build = query -> {
+            List<String> searchTokens = SearchQueryParser.splitSearchStringIntoTerms(query);
+            Map<String, NameDictionary> dictionaries = searchPlanCache == null
+                    ? Map.of()
+                    : searchPlanCache.getNameDictionaries(entityType, fieldNames);
+            return buildCompoundSpecification(SearchQueryParser.parseSearchTokens(searchTokens, fieldNames, dictionaries));
+        };
+        if (searchPlanCache == null) {
+            return build.apply(searchQuery);
+        }
+        return searchPlanCache.get(entityType, searchQuery, fieldNames, build);
     }
 
     /**
@@ -309,6 +413,30 @@ public class SearchSpecConstructor {
         return builder.build();
     }
 
+    /**
+     * This method returns a specification matching entities with a field containing one of the words which the search
+     * term may be a misspelling of, according to the dictionary of that field. The words are looked up each time the
+     * specification is applied rather than when it is built, so a cached specification still uses the current
+     * dictionaries. For example, if the search term was 'choclate' and a product is named 'Chocolate Bar', the
+     * specification would match products with 'chocolate' in their name.
+     * @param searchTerm A term which may be misspelt
+     * @param dictionaries Dictionary of each field to correct the term for, by field name
+     * @return A specification matching entities containing a correction of the term. If the term has no corrections
+     * the specification has no predicate, so it does not change a specification it is combined with.
+     */
+    public static <T> Specification<T> buildSimilarWordsSpec(String searchTerm, Map<String, NameDictionary> dictionaries) {
+        return (root, query, criteriaBuilder) -> {
+            SpecificationsBuilder<T> builder = new SpecificationsBuilder<>();
+            for (var entry : dictionaries.entrySet()) {
+                for (String word : entry.getValue().findSimilarWords(searchTerm)) {
+                    builder.with(entry.getKey(), Pred.PARTIAL_MATCH, word, true);
+                }
+            }
+            Specification<T> spec = builder.build();
+            return spec == null ? null : spec.toPredicate(root, query, criteriaBuilder);
+        };
+    }
+
     /**
      * This method constructs a specification which will match only those sale items whose business matches the business
      * provided by calling private methods.
@@ -316,7 +444,8 @@ public class SearchSpecConstructor {
      * @return A specification for sale items which matches the business
      */
     public static Specification<SaleItem> constructSpecificationFromSaleItemsFilter(Business business) {
-        return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("inventoryItem").get("product").get("business"), business);
+        return NamedSpecification.named("constructSpecificationFromSaleItemsFilter", (root, query, criteriaBuilder) ->
+                criteriaBuilder.equal(root.get("inventoryItem").get("product").get("business"), business));
     }
 
     /**
@@ -326,7 +455,8 @@ public class SearchSpecConstructor {
      * @return A specification for inventory items which matches the business
      */
     public static Specification<InventoryItem> constructSpecificationFromInventoryItemsFilter(Business business) {
-        return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("product").get("business"), business);
+        return NamedSpecification.named("constructSpecificationFromInventoryItemsFilter", (root, query, criteriaBuilder) ->
+                criteriaBuilder.equal(root.get("product").get("business"), business));
     }
 
     /**
@@ -395,13 +525,166 @@ public class SearchSpecConstructor {
      * @return A specification for Sale items which matches the business's price, closing date and business type
      */
     public static Specification<SaleItem> constructSaleListingSpecificationForSearch(SaleListingSearchDTO saleListingSearchDTO) {
+        return constructSaleListingSpecificationForSearch(saleListingSearchDTO, (SearchPlanCache) null);
+    }
+
+    /**
+     * Constructs the same specification as constructSaleListingSpecificationForSearch, reusing the plans of the
+     * search queries from the given cache.
+     * @param saleListingSearchDTO containing the price, closing date and business type of the search specification
+     * @param searchPlanCache Cache of the plans of recent search queries, or null to always build the plans
+     * @return A specification for Sale items which matches the business's price, closing date and business type
+     */
+    public static Specification<SaleItem> constructSaleListingSpecificationForSearch(SaleListingSearchDTO saleListingSearchDTO,
+                                                                                     SearchPlanCache searchPlanCache) {
+        return NamedSpecification.named("constructSaleListingSpecificationForSearch",
+                constructSaleListingSpecificationFromFilters(saleListingSearchDTO).
+                and(constructSaleItemSpecificationFromSearchQueries(saleListingSearchDTO.getBasicSearchQuery(), saleListingSearchDTO.getProductSearchQuery(), saleListingSearchDTO.getBusinessSearchQuery(), saleListingSearchDTO.getLocationSearchQuery(), searchPlanCache)));
+    }
+
+    /**
+     * Constructs the same specification as constructSaleListingSpecificationForSearch, except that the search queries
+     * have already been resolved to the ids of the sale items they match, such as by the SaleItemSearchIndex.
+     * @param saleListingSearchDTO containing the price, closing date and business type of the search specification
+     * @param matchingIds ids of the sale items which match the search queries of the DTO
+     * @return A specification for Sale items which matches the given ids, price, closing date and business type
+     */
+    public static Specification<SaleItem> constructSaleListingSpecificationForSearch(SaleListingSearchDTO saleListingSearchDTO, Set<Long> matchingIds) {
+        Specification<SaleItem> idSpec = (root, query, criteriaBuilder) -> matchingIds.isEmpty()
+                ? criteriaBuilder.disjunction()
+                : root.get("id").in(matchingIds);
+        return NamedSpecification.named("constructSaleListingSpecificationForSearchFromIds",
+                constructSaleListingSpecificationFromFilters(saleListingSearchDTO).and(idSpec));
+    }
+
+    /**
+     * Finds the business of the entity at the root of a query
+     * @param root Root of the query
+     * @param businessPath Dot separated path from the root to the business, or null if the root is the business
+     * @return Path to the business
+     */
+    private static Path<?> getBusiness(Root<?> root, String businessPath) {
+        Path<?> path = root;
+        if (businessPath != null) {
+            for (String attribute : businessPath.split("\\.")) {
+                path = path.get(attribute);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Constructs a specification matching entities belonging to any of the given businesses, such as the businesses
+     * found in a search area by the BusinessLocationIndex
+     * @param businessPath Dot separated path from the entity to its business, or null for businesses
+     * @param businessIds Ids of the businesses to match
+     * @param <T> Type of entity to match
+     * @return A specification matching entities of the given businesses
+     */
+    public static <T> Specification<T> constructSpecificationFromBusinessIds(String businessPath, Collection<Long> businessIds) {
+        return NamedSpecification.named("constructSpecificationFromBusinessIds", (root, query, criteriaBuilder) -> businessIds.isEmpty()
+                ? criteriaBuilder.disjunction()
+                : getBusiness(root, businessPath).get("id").in(businessIds));
+    }
+
+    /**
+     * Constructs a specification matching entities whose business has coordinates within a search area.
+     * This is used when the BusinessLocationIndex cannot answer the search. The bounding ranges of the area can use the
+     * coordinates index of the location table, and the radius is checked with the same haversine great circle distance
+     * as the index, so both match the same businesses.
+     * @param businessPath Dot separated path from the entity to its business, or null for businesses
+     * @param area Area to match
+     * @param <T> Type of entity to match
+     * @return A specification matching entities of businesses in the area
+     */
+    public static <T> Specification<T> constructSpecificationFromArea(String businessPath, SearchArea area) {
+        return NamedSpecification.named("constructSpecificationFromArea", (root, query, criteriaBuilder) -> {
+            Path<?> address = getBusiness(root, businessPath).get("address");
+            Path<Double> latitude = address.get("latitude");
+            Path<Double> longitude = address.get("longitude");
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(criteriaBuilder.isNotNull(latitude));
+            predicates.add(criteriaBuilder.isNotNull(longitude));
+            if (area.hasBounds()) {
+                List<Predicate> ranges = new ArrayList<>();
+                for (double[] range : area.getBoundingRanges()) {
+                    ranges.add(criteriaBuilder.and(
+                            criteriaBuilder.between(latitude, range[0], range[1]),
+                            criteriaBuilder.between(longitude, range[2], range[3])));
+                }
+                predicates.add(criteriaBuilder.or(ranges.toArray(new Predicate[0])));
+            }
+            if (area.getRadius() != null) {
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(
+                        haversine(criteriaBuilder, latitude, longitude, area), area.getRadiusHaversine()));
+            }
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        });
+    }
+
+    /**
+     * Constructs a specification which orders entities by the distance of their business from the centre of a search
+     * area, and then by id, in the same order as the BusinessLocationIndex. Entities whose business has no coordinates
+     * are not matched.
+     * The ordering is applied to the query by the specification, so the query must not also be given a Sort.
+     * @param businessPath Dot separated path from the entity to its business, or null for businesses
+     * @param area Search area with a centre point
+     * @param direction Whether the closest entities come first or last
+     * @param <T> Type of entity to match
+     * @return A specification ordering entities by distance
+     */
+    public static <T> Specification<T> constructSpecificationOrderedByDistance(String businessPath, SearchArea area, Sort.Direction direction) {
+        return NamedSpecification.named("constructSpecificationOrderedByDistance", (root, query, criteriaBuilder) -> {
+            Path<?> address = getBusiness(root, businessPath).get("address");
+            Path<Double> latitude = address.get("latitude");
+            Path<Double> longitude = address.get("longitude");
+            // The haversine increases with the great circle distance, so it orders the same way
+            Expression<Double> distance = haversine(criteriaBuilder, latitude, longitude, area);
+            if (direction == Sort.Direction.DESC) {
+                query.orderBy(criteriaBuilder.desc(distance), criteriaBuilder.desc(root.get("id")));
+            } else {
+                query.orderBy(criteriaBuilder.asc(distance), criteriaBuilder.asc(root.get("id")));
+            }
+            return criteriaBuilder.and(criteriaBuilder.isNotNull(latitude), criteriaBuilder.isNotNull(longitude));
+        });
+    }
+
+    /**
+     * Creates an expression for the haversine of the angle at the centre of the earth between a point and the centre
+     * of a search area, which is the value SearchArea.distance takes the inverse sine of. This only needs sine, cosine
+     * and arithmetic, so it can be computed by any database.
+     * @param criteriaBuilder Criteria builder of the query
+     * @param latitude Latitude of the point
+     * @param longitude Longitude of the point
+     * @param area Search area with a centre point
+     * @return Haversine expression
+     */
+    private static Expression<Double> haversine(CriteriaBuilder criteriaBuilder,
+                                                Expression<Double> latitude, Expression<Double> longitude,
+                                                SearchArea area) {
+        Expression<Double> latitudeSin = criteriaBuilder.function("sin", Double.class,
+                criteriaBuilder.prod(criteriaBuilder.diff(latitude, area.getLatitude()), Math.PI / 360));
+        Expression<Double> longitudeSin = criteriaBuilder.function("sin", Double.class,
+                criteriaBuilder.prod(criteriaBuilder.diff(longitude, area.getLongitude()), Math.PI / 360));
+        Expression<Double> latitudeCos = criteriaBuilder.function("cos", Double.class,
+                criteriaBuilder.prod(latitude, Math.PI / 180));
+        return criteriaBuilder.sum(criteriaBuilder.prod(latitudeSin, latitudeSin),
+                criteriaBuilder.prod(criteriaBuilder.prod(latitudeCos, Math.cos(Math.toRadians(area.getLatitude()))),
+                        criteriaBuilder.prod(longitudeSin, longitudeSin)));
+    }
+
+    /**
+     * Constructs a specification matching the price, closing date and business type filters of a sale listing search
+     * @param saleListingSearchDTO containing the price, closing date and business type of the search specification
+     * @return A specification for Sale items which matches the price, closing date and business type
+     */
+    private static Specification<SaleItem> constructSaleListingSpecificationFromFilters(SaleListingSearchDTO saleListingSearchDTO) {
         return Specification.where(constructSaleListingSpecificationFromPrice(
                         saleListingSearchDTO.getPriceLowerBound(), saleListingSearchDTO.getPriceUpperBound())).
                 and(constructSaleListingSpecificationFromClosingDate(
                         saleListingSearchDTO.getClosingDateLowerBound(), saleListingSearchDTO.getClosingDateUpperBound())).
                 and(constructSaleListingSpecificationFromBusinessType(
-                        saleListingSearchDTO.getBusinessTypes())).
-                and(constructSaleItemSpecificationFromSearchQueries(saleListingSearchDTO.getBasicSearchQuery(), saleListingSearchDTO.getProductSearchQuery(), saleListingSearchDTO.getBusinessSearchQuery(), saleListingSearchDTO.getLocationSearchQuery()));
+                        saleListingSearchDTO.getBusinessTypes()));
     }
 
     /**
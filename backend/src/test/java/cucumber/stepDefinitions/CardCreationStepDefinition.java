@@ -15,6 +15,8 @@ import org.seng302.leftovers.persistence.MarketplaceCardRepository;
 import org.seng302.leftovers.persistence.UserRepository;
 import org.seng302.leftovers.persistence.event.ExpiryEventRepository;
 import org.seng302.leftovers.service.CardService;
+import org.seng302.leftovers.service.search.MarketplaceCardKeywordIndex;
+import org.seng302.leftovers.service.search.ResultCountCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -44,6 +46,10 @@ public class CardCreationStepDefinition {
     private ExpiryEventRepository expiryEventRepository;
     @Autowired
     private CardService cardService;
+    @Autowired
+    private MarketplaceCardKeywordIndex marketplaceCardKeywordIndex;
+    @Autowired
+    private ResultCountCache resultCountCache;
     private MarketplaceCard createdCard;
 
     /**
@@ -106,7 +112,7 @@ public class CardCreationStepDefinition {
 
         }
         CardController controller = new CardController(marketplaceCardRepository, keywordRepository, userRepository,
-                expiryEventRepository, cardService);
+                expiryEventRepository, cardService, marketplaceCardKeywordIndex, resultCountCache);
         mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
     }
 
@@ -20,6 +20,11 @@ import org.seng302.leftovers.persistence.ImageRepository;
 import org.seng302.leftovers.persistence.UserRepository;
 import org.seng302.leftovers.service.ImageService;
 import org.seng302.leftovers.tools.AuthenticationTokenManager;
+import org.seng302.leftovers.service.search.BusinessLocationIndex;
+import org.seng302.leftovers.service.search.ResultCountCache;
+import org.seng302.leftovers.service.search.SaleListingResultCache;
+import org.seng302.leftovers.service.search.NameDictionaryService;
+import org.seng302.leftovers.service.search.SearchPlanCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
@@ -65,6 +70,10 @@ class BusinessControllerMockedTest {
     @Mock
     private ImageService imageService;
     @Mock
+    private BusinessLocationIndex businessLocationIndex;
+    @Mock
+    private SaleListingResultCache saleListingResultCache;
+    @Mock
     private Business mockBusiness;
     @Mock
     private User mockOwner;
@@ -114,7 +123,8 @@ class BusinessControllerMockedTest {
         when(businessRepository.findById(not(eq(mockBusinessId)))).thenReturn(Optional.empty());
         when(businessRepository.getBusinessById(any())).thenAnswer(CALLS_REAL_METHODS);
 
-        BusinessController businessController = new BusinessController(businessRepository, userRepository, imageService);
+        BusinessController businessController = new BusinessController(businessRepository, userRepository, imageService, new ResultCountCache(0, 1),
+                businessLocationIndex, saleListingResultCache, new SearchPlanCache(1, new NameDictionaryService(null)));
         mockMvc = MockMvcBuilders.standaloneSetup(businessController).build();
     }
 
@@ -459,6 +469,7 @@ class BusinessControllerMockedTest {
 
         verify(mockBusiness, times(1)).setImages(any());
         verify(businessRepository, times(1)).save(mockBusiness);
+        verify(saleListingResultCache, times(1)).invalidate();
     }
 
     @Test
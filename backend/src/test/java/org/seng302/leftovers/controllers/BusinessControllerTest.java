@@ -35,7 +35,9 @@ import javax.annotation.Resource;
 import javax.servlet.http.Cookie;
 import java.io.IOException;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -1183,4 +1185,136 @@ class BusinessControllerTest {
                 .cookie(authCookie))
                 .andExpect(status().isBadRequest());
     }
+
+    /**
+     * Creates a business with an address at the given coordinates
+     * @param name Name of the business
+     * @param latitude Latitude of the business address
+     * @param longitude Longitude of the business address
+     */
+    private void createBusinessAt(String name, double latitude, double longitude) {
+        Location address = Location.covertAddressStringToLocation("4,Rountree Street,Ashburton,Christchurch,New Zealand," +
+                "Canterbury,8041");
+        address.setCoordinates(latitude, longitude);
+        businessRepository.save(new Business.Builder()
+                .withBusinessType(BusinessType.RETAIL_TRADE)
+                .withAddress(address)
+                .withDescription("Some description")
+                .withName(name)
+                .withPrimaryOwner(owner)
+                .build());
+    }
+
+    /**
+     * Creates businesses about 1km, 10km and 300km from the centre of Christchurch
+     */
+    private void createBusinessesWithCoordinates() {
+        createBusinessAt("Near Shop", -43.52, 172.62);
+        createBusinessAt("Middle Shop", -43.60, 172.70);
+        createBusinessAt("Far Shop", -41.29, 174.78);
+    }
+
+    /**
+     * Gets the names of the businesses in a search response
+     * @param result Result of the search request
+     * @return Names of the businesses in the order they were returned
+     */
+    private List<String> getResultNames(MvcResult result) throws Exception {
+        JSONObject response = (JSONObject) new JSONParser(JSONParser.MODE_PERMISSIVE).parse(result.getResponse().getContentAsString());
+        JSONArray results = (JSONArray) response.get("results");
+        List<String> names = new ArrayList<>();
+        for (Object business : results) {
+            names.add(((JSONObject) business).getAsString("name"));
+        }
+        return names;
+    }
+
+    @Test
+    void searchWithinRadius_orderedByDistance_closestBusinessesInRadiusFirst() throws Exception {
+        createBusinessesWithCoordinates();
+
+        MvcResult result = mockMvc.perform(get("/businesses/search")
+                .param("latitude", "-43.53")
+                .param("longitude", "172.63")
+                .param("radius", "50")
+                .param("orderBy", "distance")
+                .sessionAttrs(sessionAuthToken)
+                .cookie(authCookie))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertEquals(List.of("Near Shop", "Middle Shop"), getResultNames(result));
+    }
+
+    @Test
+    void searchWithinRadius_orderedByDistanceReversed_furthestBusinessesInRadiusFirst() throws Exception {
+        createBusinessesWithCoordinates();
+
+        MvcResult result = mockMvc.perform(get("/businesses/search")
+                .param("latitude", "-43.53")
+                .param("longitude", "172.63")
+                .param("radius", "500")
+                .param("orderBy", "distance")
+                .param("reverse", "true")
+                .sessionAttrs(sessionAuthToken)
+                .cookie(authCookie))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertEquals(List.of("Far Shop", "Middle Shop", "Near Shop"), getResultNames(result));
+    }
+
+    @Test
+    void searchWithinRadiusAndQuery_orderedByDistance_onlyBusinessesMatchingBoth() throws Exception {
+        createBusinessesWithCoordinates();
+
+        MvcResult result = mockMvc.perform(get("/businesses/search")
+                .param("searchQuery", "Shop")
+                .param("latitude", "-43.53")
+                .param("longitude", "172.63")
+                .param("radius", "50")
+                .param("orderBy", "distance")
+                .sessionAttrs(sessionAuthToken)
+                .cookie(authCookie))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertEquals(List.of("Near Shop", "Middle Shop"), getResultNames(result));
+    }
+
+    @Test
+    void searchWithinBoundingBox_onlyBusinessesInBoxReturned() throws Exception {
+        createBusinessesWithCoordinates();
+
+        MvcResult result = mockMvc.perform(get("/businesses/search")
+                .param("north", "-41")
+                .param("south", "-42")
+                .param("east", "175")
+                .param("west", "174")
+                .sessionAttrs(sessionAuthToken)
+                .cookie(authCookie))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertEquals(List.of("Far Shop"), getResultNames(result));
+    }
+
+    @Test
+    void searchOrderedByDistance_noCentre_returns400Error() throws Exception {
+        mockMvc.perform(get("/businesses/search")
+                .param("searchQuery", "o")
+                .param("orderBy", "distance")
+                .sessionAttrs(sessionAuthToken)
+                .cookie(authCookie))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchWithRadius_noCentre_returns400Error() throws Exception {
+        mockMvc.perform(get("/businesses/search")
+                .param("radius", "10")
+                .sessionAttrs(sessionAuthToken)
+                .cookie(authCookie))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -26,7 +26,9 @@ import org.seng302.leftovers.persistence.UserRepository;
 import org.seng302.leftovers.persistence.event.ExpiryEventRepository;
 import org.seng302.leftovers.service.CardService;
 import org.seng302.leftovers.tools.AuthenticationTokenManager;
+import org.seng302.leftovers.service.search.MarketplaceCardKeywordIndex;
 import org.seng302.leftovers.service.search.SearchPageConstructor;
+import org.seng302.leftovers.service.search.ResultCountCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -44,8 +46,10 @@ import org.springframework.web.server.ResponseStatusException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -75,6 +79,8 @@ class CardControllerTest {
     @Mock
     private CardService cardService;
     @Mock
+    private MarketplaceCardKeywordIndex marketplaceCardKeywordIndex;
+    @Mock
     private MarketplaceCard mockCard;
     @Mock
     private ExpiryEvent mockEvent;
@@ -245,7 +251,7 @@ class CardControllerTest {
 
         // Tell MockMvc to use controller with mocked repositories for tests
         cardController = new CardController(marketplaceCardRepository, keywordRepository, userRepository,
-                expiryEventRepository, cardService);
+                expiryEventRepository, cardService, marketplaceCardKeywordIndex, new ResultCountCache(0, 1));
         mockMvc = MockMvcBuilders.standaloneSetup(cardController).build();
 
         constructValidCreateCardJson();
@@ -641,6 +647,7 @@ class CardControllerTest {
         verify(mockCard).setKeywords(keywords);
 
         verify(marketplaceCardRepository, times(1)).save(mockCard);
+        verify(marketplaceCardKeywordIndex).putWhenCommitted(mockCard);
     }
 
 
@@ -842,6 +849,88 @@ class CardControllerTest {
         assertEquals(2, responseBody.size());
     }
 
+    @Test
+    void searchCards_indexCanOrderCards_onlyCardsOnPageLoaded() throws Exception {
+        BitSet matchingIds = new BitSet();
+        matchingIds.set(3);
+        matchingIds.set(5);
+        var expectedPageRequest = SearchPageConstructor.getPageRequest(1, 8, Sort.by(new Sort.Order(Sort.Direction.ASC, "created").ignoreCase()));
+        when(marketplaceCardKeywordIndex.findMatchingIds(MarketplaceCard.Section.WANTED, Set.of(keywordId1), false))
+                .thenReturn(Optional.of(matchingIds));
+        when(marketplaceCardKeywordIndex.getPage(matchingIds, expectedPageRequest))
+                .thenReturn(Optional.of(new PageImpl<>(List.of(5L), expectedPageRequest, 12)));
+        when(mockCard.getID()).thenReturn(5L);
+        when(marketplaceCardRepository.findAllById(List.of(5L))).thenReturn(List.of(mockCard));
+
+        var result = mockMvc.perform(get("/cards/search")
+                .param("section", "Wanted")
+                .param("keywordIds",  String.valueOf(keywordId1))
+                .param("union", "false")
+                .param("resultsPerPage", "8")
+                .param("page", "1")
+                .param("orderBy", "created"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        verify(marketplaceCardRepository, never()).findAll(any(), any(Pageable.class));
+        JSONParser parser = new JSONParser(JSONParser.MODE_PERMISSIVE);
+        JSONObject responseBody = (JSONObject) parser.parse(result.getResponse().getContentAsString());
+        assertEquals(12, responseBody.get("count"));
+        assertEquals(1, ((JSONArray) responseBody.get("results")).size());
+    }
+
+    @Test
+    void searchCards_countNotIncluded_hasNextReturnedInsteadOfCount() throws Exception {
+        BitSet matchingIds = new BitSet();
+        matchingIds.set(5);
+        var expectedPageRequest = SearchPageConstructor.getPageRequest(1, 1, Sort.by(new Sort.Order(Sort.Direction.ASC, "created").ignoreCase()));
+        when(marketplaceCardKeywordIndex.findMatchingIds(MarketplaceCard.Section.WANTED, Set.of(keywordId1), false))
+                .thenReturn(Optional.of(matchingIds));
+        when(marketplaceCardKeywordIndex.getPage(matchingIds, expectedPageRequest))
+                .thenReturn(Optional.of(new PageImpl<>(List.of(5L), expectedPageRequest, 3)));
+        when(mockCard.getID()).thenReturn(5L);
+        when(marketplaceCardRepository.findAllById(List.of(5L))).thenReturn(List.of(mockCard));
+
+        var result = mockMvc.perform(get("/cards/search")
+                .param("section", "Wanted")
+                .param("keywordIds",  String.valueOf(keywordId1))
+                .param("union", "false")
+                .param("resultsPerPage", "1")
+                .param("page", "1")
+                .param("orderBy", "created")
+                .param("includeCount", "false"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        JSONParser parser = new JSONParser(JSONParser.MODE_PERMISSIVE);
+        JSONObject responseBody = (JSONObject) parser.parse(result.getResponse().getContentAsString());
+        assertFalse(responseBody.containsKey("count"));
+        assertEquals(true, responseBody.get("hasNext"));
+        assertEquals(1, ((JSONArray) responseBody.get("results")).size());
+    }
+
+    @Test
+    void searchCards_indexCannotOrderCards_matchingIdsPagedByDatabase() throws Exception {
+        BitSet matchingIds = new BitSet();
+        matchingIds.set(3);
+        var expectedPageRequest = SearchPageConstructor.getPageRequest(1, 8, Sort.by(new Sort.Order(Sort.Direction.ASC, "creatorFirstName").ignoreCase()));
+        when(marketplaceCardKeywordIndex.findMatchingIds(MarketplaceCard.Section.WANTED, Set.of(keywordId1), false))
+                .thenReturn(Optional.of(matchingIds));
+        when(marketplaceCardKeywordIndex.getPage(matchingIds, expectedPageRequest)).thenReturn(Optional.empty());
+        searchMarketplaceCardHelper.when(() -> SearchMarketplaceCardHelper.cardIdIn(matchingIds)).thenReturn(combinedSpec);
+
+        mockMvc.perform(get("/cards/search")
+                .param("section", "Wanted")
+                .param("keywordIds",  String.valueOf(keywordId1))
+                .param("union", "false")
+                .param("resultsPerPage", "8")
+                .param("page", "1")
+                .param("orderBy", "creatorFirstName"))
+                .andExpect(status().isOk());
+
+        verify(marketplaceCardRepository).findAll(combinedSpec, expectedPageRequest);
+    }
+
     @ParameterizedTest
     @EnumSource(MarketplaceCard.Section.class)
     void searchCards_validSection_canViewCardsForSection(MarketplaceCard.Section section) throws Exception {
@@ -65,10 +65,6 @@ class ConversationControllerTest {
     @Captor
     private ArgumentCaptor<Message> messageArgumentCaptor;
     @Captor
-    private ArgumentCaptor<User> buyerArgumentCaptor;
-    @Captor
-    private ArgumentCaptor<User> ownerArgumentCaptor;
-    @Captor
     private ArgumentCaptor<Conversation> conversationArgumentCaptor;
     @Captor
     private ArgumentCaptor<PageRequest> pageRequestArgumentCaptor;
@@ -288,7 +284,7 @@ class ConversationControllerTest {
     }
 
     @Test
-    void postMarketplaceCardMessage_canPost_notifyConversationParticipantsCalled() throws Exception {
+    void postMarketplaceCardMessage_canPost_conversationNotificationQueued() throws Exception {
         when(conversationRepository.findByCardAndBuyer(any(),any())).thenReturn(Optional.empty()); // first message
         when(messageRepository.save(any())).thenReturn(message);
 
@@ -296,11 +292,8 @@ class ConversationControllerTest {
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(createMessageBody(1L)));
 
-        Mockito.verify(messageService, times(1)).notifyConversationParticipants(
-                messageArgumentCaptor.capture(), buyerArgumentCaptor.capture(), ownerArgumentCaptor.capture());
+        Mockito.verify(messageService, times(1)).queueConversationNotification(messageArgumentCaptor.capture());
         Assertions.assertEquals(message, messageArgumentCaptor.getValue());
-        Assertions.assertEquals(buyer, buyerArgumentCaptor.getValue());
-        Assertions.assertEquals(owner, ownerArgumentCaptor.getValue());
     }
 
     @Test
@@ -8,35 +8,50 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.runner.RunWith;
 import org.mockito.*;
+import org.seng302.leftovers.dto.event.EventCursor;
 import org.seng302.leftovers.dto.event.EventDTO;
+import org.seng302.leftovers.dto.event.EventFilterDTO;
 import org.seng302.leftovers.dto.event.EventStatus;
 import org.seng302.leftovers.dto.event.EventTag;
+import org.seng302.leftovers.dto.event.FeedSummaryDTO;
+import org.seng302.leftovers.dto.event.GlobalMessageJobDTO;
 import org.seng302.leftovers.entities.User;
 import org.seng302.leftovers.entities.event.Event;
-import org.seng302.leftovers.entities.event.GlobalMessageEvent;
 import org.seng302.leftovers.exceptions.AccessTokenResponseException;
 import org.seng302.leftovers.persistence.UserRepository;
 import org.seng302.leftovers.persistence.event.EventRepository;
+import org.seng302.leftovers.service.EventRetentionService;
+import org.seng302.leftovers.service.EventStreamService;
+import org.seng302.leftovers.service.FeedService;
+import org.seng302.leftovers.service.FeedSummaryService;
+import org.seng302.leftovers.service.GlobalMessageService;
 import org.seng302.leftovers.tools.AuthenticationTokenManager;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.text.ParseException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.AdditionalMatchers.not;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -50,6 +65,30 @@ class EventControllerTest {
     @Mock
     private EventRepository eventRepository;
 
+    @Mock
+    private EventStreamService eventStreamService;
+
+    @Mock
+    private GlobalMessageService globalMessageService;
+
+    @Mock
+    private GlobalMessageService.GlobalMessageJob mockJob;
+
+    @Mock
+    private FeedService feedService;
+
+    @Mock
+    private FeedSummaryService feedSummaryService;
+
+    @Mock
+    private EventRetentionService eventRetentionService;
+
+    @Mock
+    private EventRetentionService.RetentionRun mockRetentionRun;
+
+    @Captor
+    private ArgumentCaptor<EventFilterDTO> filterCaptor;
+
     @Mock
     private User mockUser;
 
@@ -88,6 +127,7 @@ class EventControllerTest {
         when(userRepository.findAll()).thenReturn(List.of(mockUser));
         when(userRepository.findById(7L)).thenReturn(Optional.of(mockUser));
         when(userRepository.findById(not(eq(7L)))).thenReturn(Optional.empty());
+        when(userRepository.existsById(7L)).thenReturn(true);
 
         when(eventRepository.findById(2L)).thenReturn(Optional.of(mockEvent1));
         when(eventRepository.findById(not(eq(2L)))).thenReturn(Optional.empty());
@@ -97,7 +137,28 @@ class EventControllerTest {
         when(mockEvent1.asDTO()).thenReturn(mockEventDTO1);
         when(mockEvent2.asDTO()).thenReturn(mockEventDTO2);
 
-        eventController = new EventController(userRepository, eventRepository);
+        when(eventStreamService.subscribe(anyLong())).thenAnswer(invocation -> new SseEmitter());
+        when(eventStreamService.subscribe(anyLong(), any())).thenAnswer(invocation -> new SseEmitter());
+
+        when(mockJob.getId()).thenReturn(1L);
+        when(mockJob.getMessage()).thenReturn("this that");
+        when(mockJob.getStatus()).thenReturn(GlobalMessageService.JobStatus.RUNNING);
+        when(mockJob.getTotalUsers()).thenReturn(100L);
+        when(mockJob.getNotifiedUsers()).thenReturn(50L);
+        when(globalMessageService.startJob(any())).thenReturn(mockJob);
+        when(globalMessageService.getJob(1L)).thenReturn(Optional.of(mockJob));
+        when(globalMessageService.getJob(not(eq(1L)))).thenReturn(Optional.empty());
+
+        when(mockRetentionRun.getStarted()).thenReturn(Instant.parse("2021-05-01T03:00:00Z"));
+        when(mockRetentionRun.getDuration()).thenReturn(Duration.ofSeconds(2));
+        when(mockRetentionRun.getArchived()).thenReturn(40L);
+        when(mockRetentionRun.getArchivedByType()).thenReturn(Map.of("GlobalMessageEvent", 40L));
+        when(eventRetentionService.getRules()).thenReturn(EventRetentionService.Rule.parseAll("read archived 90d"));
+        when(eventRetentionService.getTotalRuns()).thenReturn(3L);
+        when(eventRetentionService.getTotalArchived()).thenReturn(100L);
+        when(eventRetentionService.getLastRun()).thenReturn(Optional.of(mockRetentionRun));
+
+        eventController = new EventController(userRepository, eventRepository, eventStreamService, globalMessageService, feedService, feedSummaryService, eventRetentionService);
         mockMvc = MockMvcBuilders.standaloneSetup(eventController).build();
     }
 
@@ -243,20 +304,51 @@ class EventControllerTest {
     }
 
     @Test
-    void postDemoEvent_validRequest_notifiedAllUsers() throws Exception {
+    void postDemoEvent_validRequest_202ResponseAndJobStarted() throws Exception {
         var json = new JSONObject();
         json.put("message", "this that");
         mockMvc.perform(post("/events/globalmessage").contentType(MediaType.APPLICATION_JSON)
                 .content(json.toString()))
-                .andExpect(status().isCreated())
+                .andExpect(status().isAccepted())
                 .andReturn();
 
-        ArgumentCaptor<GlobalMessageEvent> eventCaptor = ArgumentCaptor.forClass(GlobalMessageEvent.class);
+        verify(globalMessageService).startJob("this that");
+        verify(eventRepository, times(0)).save(any());
+        verify(userRepository, times(0)).findAll();
+    }
+
+    @Test
+    void getGlobalMessageJob_noAuthToken_401Response() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.checkAuthenticationToken(any()))
+                .thenThrow(new AccessTokenResponseException());
 
-        verify(eventRepository).save(eventCaptor.capture());
+        mockMvc.perform(get("/events/globalmessage/1"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void getGlobalMessageJob_notAdmin_403Response() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionIsAdmin(any())).thenReturn(false);
 
-        assertEquals("this that", eventCaptor.getValue().getGlobalMessage());
-        assertEquals(mockUser, eventCaptor.getValue().getNotifiedUser());
+        mockMvc.perform(get("/events/globalmessage/1"))
+                .andExpect(status().isForbidden());
+
+        verify(globalMessageService, times(0)).getJob(anyLong());
+    }
+
+    @Test
+    void getGlobalMessageJob_jobDoesNotExist_406Response() throws Exception {
+        mockMvc.perform(get("/events/globalmessage/9999"))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void getGlobalMessageJob_jobExists_jobProgressReturned() {
+        var result = eventController.getGlobalMessageJob(1L, mockRequest);
+
+        assertEquals(new GlobalMessageJobDTO(mockJob), result);
+        assertEquals(50L, result.getNotifiedUsers());
+        assertEquals(GlobalMessageService.JobStatus.RUNNING, result.getStatus());
     }
 
     @Test
@@ -346,6 +438,206 @@ class EventControllerTest {
         assertEquals(result, List.of(mockEventDTO1, mockEventDTO2));
     }
 
+    @Test
+    void getEventPage_noAuthToken_401Response() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.checkAuthenticationToken(any()))
+                .thenThrow(new AccessTokenResponseException());
+
+        mockMvc.perform(get("/users/7/feed/page"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void getEventPage_differentUser_403Response() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionCanSeePrivate(any(), any())).thenReturn(false);
+
+        mockMvc.perform(get("/users/7/feed/page"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void getEventPage_userNotFound_406Response() throws Exception {
+        mockMvc.perform(get("/users/999/feed/page"))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void getEventPage_invalidCursor_400Response() throws Exception {
+        mockMvc.perform(get("/users/7/feed/page").param("cursor", "INVALID"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getEventPage_noCursorAndFewerEventsThanPage_allEventsReturnedWithNoNextCursor() {
+        when(eventRepository.findEventPageForUser(eq(mockUser), any())).thenReturn(List.of(mockEvent1, mockEvent2));
+
+        var result = eventController.getEventPage(7L, null, 5, mockRequest);
+
+        verify(eventRepository).findEventPageForUser(mockUser, PageRequest.of(0, 6));
+        assertEquals(List.of(mockEventDTO1, mockEventDTO2), result.getResults());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void getEventPage_moreEventsThanPage_pageTruncatedAndNextCursorIsLastEvent() {
+        when(mockEvent1.getCreated()).thenReturn(Instant.parse("2021-09-08T08:47:59Z"));
+        when(mockEvent1.getId()).thenReturn(2L);
+        when(eventRepository.findEventPageForUser(eq(mockUser), any())).thenReturn(List.of(mockEvent1, mockEvent2));
+
+        var result = eventController.getEventPage(7L, null, 1, mockRequest);
+
+        assertEquals(List.of(mockEventDTO1), result.getResults());
+        assertEquals(new EventCursor(Instant.parse("2021-09-08T08:47:59Z"), 2L), EventCursor.decode(result.getNextCursor()));
+    }
+
+    @Test
+    void getEventPage_cursorProvided_eventsAfterCursorQueried() {
+        var cursor = new EventCursor(Instant.parse("2021-09-08T08:47:59Z"), 2L);
+        when(eventRepository.findEventPageForUserAfter(eq(mockUser), any(), any(), any())).thenReturn(List.of(mockEvent2));
+
+        var result = eventController.getEventPage(7L, cursor.encode(), null, mockRequest);
+
+        verify(eventRepository).findEventPageForUserAfter(mockUser, Instant.parse("2021-09-08T08:47:59Z"), 2L, PageRequest.of(0, 16));
+        assertEquals(List.of(mockEventDTO2), result.getResults());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void getEventPage_pageSizeAboveMaximum_pageSizeCapped() {
+        when(eventRepository.findEventPageForUser(eq(mockUser), any())).thenReturn(List.of());
+
+        eventController.getEventPage(7L, null, 100000, mockRequest);
+
+        verify(eventRepository).findEventPageForUser(mockUser, PageRequest.of(0, 101));
+    }
+
+    @Test
+    void streamEvents_noAuthToken_401Response() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.checkAuthenticationToken(any()))
+                .thenThrow(new AccessTokenResponseException());
+
+        mockMvc.perform(get("/users/7/feed/stream"))
+                .andExpect(status().isUnauthorized());
+
+        verify(eventStreamService, times(0)).subscribe(anyLong());
+        verify(eventStreamService, times(0)).subscribe(anyLong(), any());
+    }
+
+    @Test
+    void streamEvents_differentUser_403Response() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionCanSeePrivate(any(), any())).thenReturn(false);
+
+        mockMvc.perform(get("/users/7/feed/stream"))
+                .andExpect(status().isForbidden());
+
+        verify(eventStreamService, times(0)).subscribe(anyLong());
+        verify(eventStreamService, times(0)).subscribe(anyLong(), any());
+    }
+
+    @Test
+    void streamEvents_userNotFound_406Response() throws Exception {
+        mockMvc.perform(get("/users/999/feed/stream"))
+                .andExpect(status().isNotAcceptable());
+
+        verify(eventStreamService, times(0)).subscribe(anyLong());
+        verify(eventStreamService, times(0)).subscribe(anyLong(), any());
+    }
+
+    @Test
+    void streamEvents_invalidLastEventId_400Response() throws Exception {
+        mockMvc.perform(get("/users/7/feed/stream").header("Last-Event-ID", "INVALID"))
+                .andExpect(status().isBadRequest());
+
+        verify(eventStreamService, times(0)).subscribe(anyLong());
+        verify(eventStreamService, times(0)).subscribe(anyLong(), any());
+    }
+
+    /**
+     * Gets the events which would be replayed on the stream opened by the last call to subscribe
+     * @return Missed events read for the stream
+     */
+    @SuppressWarnings("unchecked")
+    private List<EventDTO> getReplayedEvents() {
+        ArgumentCaptor<Supplier<List<EventDTO>>> missedEventsCaptor = ArgumentCaptor.forClass(Supplier.class);
+        verify(eventStreamService).subscribe(eq(7L), missedEventsCaptor.capture());
+        return missedEventsCaptor.getValue().get();
+    }
+
+    @Test
+    void streamEvents_noLastEventId_subscribedWithoutReplay() {
+        var emitter = eventController.streamEvents(7L, null, null, mockRequest);
+
+        verify(eventStreamService).subscribe(7L);
+        verify(eventStreamService, times(0)).subscribe(anyLong(), any());
+        verify(eventRepository, times(0)).findEventsForUserModifiedFrom(any(), any());
+        assertEquals(SseEmitter.class, emitter.getClass());
+    }
+
+    @Test
+    void streamEvents_lastEventIdProvided_eventsAfterLastEventReplayed() {
+        Instant lastModified = Instant.parse("2021-09-08T08:47:59.018528Z");
+        when(mockEvent1.getLastModified()).thenReturn(lastModified);
+        when(mockEvent1.getId()).thenReturn(4L);
+        when(mockEvent2.getLastModified()).thenReturn(Instant.parse("2021-09-08T08:49:00Z"));
+        when(mockEvent2.getId()).thenReturn(2L);
+        when(eventRepository.findEventsForUserModifiedFrom(mockUser, lastModified)).thenReturn(List.of(mockEvent1, mockEvent2));
+
+        eventController.streamEvents(7L, "2021-09-08T08:47:59.018528Z:3", null, mockRequest);
+
+        assertEquals(List.of(mockEventDTO1, mockEventDTO2), getReplayedEvents());
+        verify(eventRepository).findEventsForUserModifiedFrom(mockUser, lastModified);
+    }
+
+    @Test
+    void streamEvents_lastEventIdProvided_eventsModifiedWithLastEventBeforeItNotReplayed() {
+        Instant lastModified = Instant.parse("2021-09-08T08:47:59.018528Z");
+        when(mockEvent1.getLastModified()).thenReturn(lastModified);
+        when(mockEvent1.getId()).thenReturn(2L);
+        when(mockEvent2.getLastModified()).thenReturn(lastModified);
+        when(mockEvent2.getId()).thenReturn(3L);
+        when(eventRepository.findEventsForUserModifiedFrom(mockUser, lastModified)).thenReturn(List.of(mockEvent1, mockEvent2));
+
+        eventController.streamEvents(7L, "2021-09-08T08:47:59.018528Z:3", null, mockRequest);
+
+        assertEquals(List.of(), getReplayedEvents());
+    }
+
+    @Test
+    void streamEvents_lastEventIdWithoutEventId_eventsModifiedAfterDateReplayed() {
+        Instant lastModified = Instant.parse("2021-09-08T08:47:59.018528Z");
+        when(mockEvent1.getLastModified()).thenReturn(lastModified);
+        when(mockEvent1.getId()).thenReturn(5L);
+        when(mockEvent2.getLastModified()).thenReturn(Instant.parse("2021-09-08T08:49:00Z"));
+        when(mockEvent2.getId()).thenReturn(2L);
+        when(eventRepository.findEventsForUserModifiedFrom(mockUser, lastModified)).thenReturn(List.of(mockEvent1, mockEvent2));
+
+        eventController.streamEvents(7L, "2021-09-08T08:47:59.018528Z", null, mockRequest);
+
+        assertEquals(List.of(mockEventDTO2), getReplayedEvents());
+    }
+
+    @Test
+    void streamEvents_modifiedSinceProvided_missedEventsReplayed() {
+        Instant modifiedSince = Instant.parse("2021-09-08T08:47:59.018528Z");
+        when(mockEvent1.getLastModified()).thenReturn(Instant.parse("2021-09-08T08:49:00Z"));
+        when(mockEvent1.getId()).thenReturn(1L);
+        when(mockEvent2.getLastModified()).thenReturn(Instant.parse("2021-09-08T08:50:00Z"));
+        when(mockEvent2.getId()).thenReturn(2L);
+        when(eventRepository.findEventsForUserModifiedFrom(mockUser, modifiedSince)).thenReturn(List.of(mockEvent1, mockEvent2));
+
+        eventController.streamEvents(7L, null, "2021-09-08T08:47:59.018528Z", mockRequest);
+
+        assertEquals(List.of(mockEventDTO1, mockEventDTO2), getReplayedEvents());
+    }
+
+    @Test
+    void streamEvents_invalidLastEventIdWithEventId_400Response() throws Exception {
+        mockMvc.perform(get("/users/7/feed/stream").header("Last-Event-ID", "INVALID:3"))
+                .andExpect(status().isBadRequest());
+
+        verify(eventStreamService, times(0)).subscribe(anyLong(), any());
+    }
+
     @Test
     void deleteEvent_validIdAndUser_200ResponseAndEventDeleted() throws Exception {
         mockMvc.perform(
@@ -499,4 +791,225 @@ class EventControllerTest {
         verify(mockEvent1, times(1)).updateEventStatus(newStatus);
         verify(eventRepository, times(1)).save(mockEvent1);
     }
+
+    @Test
+    void markEventsAsRead_noAuthToken_401ResponseAndNoEventsChanged() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.checkAuthenticationToken(any())).thenThrow(new AccessTokenResponseException());
+        mockMvc.perform(put("/users/7/feed/read"))
+                .andExpect(status().isUnauthorized());
+        verifyNoInteractions(feedService);
+    }
+
+    @Test
+    void markEventsAsRead_doesNotHavePermission_403ResponseAndNoEventsChanged() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionCanSeePrivate(any(), eq(7L))).thenReturn(false);
+        mockMvc.perform(put("/users/7/feed/read"))
+                .andExpect(status().isForbidden());
+        verifyNoInteractions(feedService);
+    }
+
+    @Test
+    void markEventsAsRead_userDoesNotExist_406ResponseAndNoEventsChanged() throws Exception {
+        mockMvc.perform(put("/users/8/feed/read"))
+                .andExpect(status().isNotAcceptable());
+        verifyNoInteractions(feedService);
+    }
+
+    @Test
+    void markEventsAsRead_noBody_allEventsMarkedAsReadAndCountReturned() throws Exception {
+        when(feedService.markAsRead(eq(mockUser), any())).thenReturn(12);
+
+        mockMvc.perform(put("/users/7/feed/read"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(12));
+
+        verify(feedService, times(1)).markAsRead(eq(mockUser), filterCaptor.capture());
+        assertEquals(new EventFilterDTO(), filterCaptor.getValue());
+    }
+
+    @Test
+    void markEventsAsRead_eventIdsProvided_filterPassedToService() throws Exception {
+        var json = new JSONObject();
+        json.put("eventIds", List.of(2L, 3L));
+
+        mockMvc.perform(put("/users/7/feed/read")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json.toString()))
+                .andExpect(status().isOk());
+
+        verify(feedService, times(1)).markAsRead(eq(mockUser), filterCaptor.capture());
+        assertEquals(List.of(2L, 3L), filterCaptor.getValue().getEventIds());
+    }
+
+    @Test
+    void setEventTags_validTagAndFilter_serviceCalledWithTagAndFilter() throws Exception {
+        var json = new JSONObject();
+        json.put("value", "red");
+        json.put("status", "starred");
+
+        mockMvc.perform(put("/users/7/feed/tag")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json.toString()))
+                .andExpect(status().isOk());
+
+        verify(feedService, times(1)).setTag(eq(mockUser), filterCaptor.capture(), eq(EventTag.RED));
+        assertEquals(EventStatus.STARRED, filterCaptor.getValue().getStatus());
+    }
+
+    @Test
+    void setEventTags_noTagProvided_400ResponseAndNoEventsChanged() throws Exception {
+        var json = new JSONObject();
+        json.put("status", "starred");
+
+        mockMvc.perform(put("/users/7/feed/tag")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json.toString()))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(feedService);
+    }
+
+    @Test
+    void setEventTags_doesNotHavePermission_403ResponseAndNoEventsChanged() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionCanSeePrivate(any(), eq(7L))).thenReturn(false);
+        var json = new JSONObject();
+        json.put("value", "red");
+
+        mockMvc.perform(put("/users/7/feed/tag")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json.toString()))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(feedService);
+    }
+
+    @ParameterizedTest
+    @EnumSource(EventStatus.class)
+    void updateEventStatuses_validStatus_serviceCalledWithStatus(EventStatus newStatus) throws Exception {
+        var json = new JSONObject();
+        json.put("value", newStatus.toString().toLowerCase());
+        json.put("tag", "blue");
+
+        mockMvc.perform(put("/users/7/feed/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json.toString()))
+                .andExpect(status().isOk());
+
+        verify(feedService, times(1)).setStatus(eq(mockUser), filterCaptor.capture(), eq(newStatus));
+        assertEquals(EventTag.BLUE, filterCaptor.getValue().getTag());
+    }
+
+    @Test
+    void updateEventStatuses_invalidStatus_400ResponseAndNoEventsChanged() throws Exception {
+        var json = new JSONObject();
+        json.put("value", "invalid");
+
+        mockMvc.perform(put("/users/7/feed/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json.toString()))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(feedService);
+    }
+
+    @Test
+    void deleteEvents_validFilter_serviceCalledAndCountReturned() throws Exception {
+        when(feedService.delete(eq(mockUser), any())).thenReturn(3);
+        var json = new JSONObject();
+        json.put("status", "archived");
+
+        mockMvc.perform(delete("/users/7/feed")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(3));
+
+        verify(feedService, times(1)).delete(eq(mockUser), filterCaptor.capture());
+        assertEquals(EventStatus.ARCHIVED, filterCaptor.getValue().getStatus());
+    }
+
+    @Test
+    void deleteEvents_doesNotHavePermission_403ResponseAndNoEventsDeleted() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionCanSeePrivate(any(), eq(7L))).thenReturn(false);
+
+        mockMvc.perform(delete("/users/7/feed")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(feedService);
+    }
+
+    @Test
+    void getFeedSummary_noAuthToken_401Response() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.checkAuthenticationToken(any())).thenThrow(new AccessTokenResponseException());
+        mockMvc.perform(get("/users/7/feed/summary"))
+                .andExpect(status().isUnauthorized());
+        verifyNoInteractions(feedSummaryService);
+    }
+
+    @Test
+    void getFeedSummary_doesNotHavePermission_403Response() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionCanSeePrivate(any(), eq(7L))).thenReturn(false);
+        mockMvc.perform(get("/users/7/feed/summary"))
+                .andExpect(status().isForbidden());
+        verifyNoInteractions(feedSummaryService);
+    }
+
+    @Test
+    void getFeedSummary_userDoesNotExist_406Response() throws Exception {
+        mockMvc.perform(get("/users/8/feed/summary"))
+                .andExpect(status().isNotAcceptable());
+        verifyNoInteractions(feedSummaryService);
+    }
+
+    @Test
+    void getFeedSummary_userExists_summaryFromServiceReturned() throws Exception {
+        var summary = new FeedSummaryDTO(5, 2, Map.of(EventTag.NONE, 4L, EventTag.RED, 1L),
+                Map.of(EventStatus.NORMAL, 3L, EventStatus.STARRED, 2L));
+        when(feedSummaryService.getSummary(7L)).thenReturn(summary);
+
+        mockMvc.perform(get("/users/7/feed/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(5))
+                .andExpect(jsonPath("$.unread").value(2))
+                .andExpect(jsonPath("$.tags.red").value(1))
+                .andExpect(jsonPath("$.statuses.starred").value(2));
+
+        verify(feedSummaryService, times(1)).getSummary(7L);
+    }
+
+    @Test
+    void getEventRetentionStats_noAuthToken_401Response() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.checkAuthenticationToken(any())).thenThrow(new AccessTokenResponseException());
+        mockMvc.perform(get("/events/retention"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void getEventRetentionStats_notAdmin_403Response() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionIsAdmin(any())).thenReturn(false);
+        mockMvc.perform(get("/events/retention"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void getEventRetentionStats_isAdmin_rulesAndMetricsReturned() throws Exception {
+        mockMvc.perform(get("/events/retention"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rules[0]").value("read archived 90d"))
+                .andExpect(jsonPath("$.totalRuns").value(3))
+                .andExpect(jsonPath("$.totalArchived").value(100))
+                .andExpect(jsonPath("$.lastRun.durationMillis").value(2000))
+                .andExpect(jsonPath("$.lastRun.archived").value(40))
+                .andExpect(jsonPath("$.lastRun.archivedByType.GlobalMessageEvent").value(40));
+    }
+
+    @Test
+    void getEventRetentionStats_notRunYet_lastRunNull() throws Exception {
+        when(eventRetentionService.getLastRun()).thenReturn(Optional.empty());
+        mockMvc.perform(get("/events/retention"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastRun").doesNotExist());
+    }
 }
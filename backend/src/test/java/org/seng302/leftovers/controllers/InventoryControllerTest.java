@@ -20,6 +20,7 @@ import org.seng302.leftovers.persistence.ProductRepository;
 import org.seng302.leftovers.tools.AuthenticationTokenManager;
 import org.seng302.leftovers.service.search.SearchPageConstructor;
 import org.seng302.leftovers.service.search.SearchSpecConstructor;
+import org.seng302.leftovers.service.search.ResultCountCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -156,7 +157,7 @@ class InventoryControllerTest {
         when(businessRepository.getBusinessById(any())).thenReturn(businessSpy); // use our business
         doNothing().when(businessSpy).checkSessionPermissions(any()); // mock successful authentication
 
-        inventoryController = new InventoryController(businessRepository, inventoryItemRepository, productRepository);
+        inventoryController = new InventoryController(businessRepository, inventoryItemRepository, productRepository, new ResultCountCache(0, 1));
         mockMvc = MockMvcBuilders.standaloneSetup(inventoryController).build();
     }
 
@@ -315,7 +316,7 @@ class InventoryControllerTest {
 
     @Test
     void getInventory_insufficientPermissions_403Thrown() {
-        inventoryController = new InventoryController(businessRepository, inventoryItemRepository, productRepository);
+        inventoryController = new InventoryController(businessRepository, inventoryItemRepository, productRepository, new ResultCountCache(0, 1));
         when(businessRepository.getBusinessById(1L)).thenReturn(mockBusiness);
         doThrow(new ResponseStatusException(HttpStatus.FORBIDDEN)).when(mockBusiness).checkSessionPermissions(any());
         ResponseStatusException exception = assertThrows(ResponseStatusException.class,
@@ -18,6 +18,7 @@ import org.seng302.leftovers.persistence.KeywordRepository;
 import org.seng302.leftovers.persistence.UserRepository;
 import org.seng302.leftovers.persistence.event.CreateKeywordEventRepository;
 import org.seng302.leftovers.service.KeywordService;
+import org.seng302.leftovers.service.search.KeywordPrefixIndex;
 import org.seng302.leftovers.tools.AuthenticationTokenManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -62,6 +63,9 @@ class KeywordControllerTest {
 
     @Mock
     private UserRepository userRepository;
+
+    @Mock
+    private KeywordPrefixIndex keywordPrefixIndex;
     
     @Mock
     private KeywordCreatedEvent mockEvent;
@@ -90,7 +94,7 @@ class KeywordControllerTest {
 
         sessionAttributes.put("accountId", 12L);
 
-        var keywordController = new KeywordController(keywordRepository, keywordService, createKeywordEventRepository, userRepository);
+        var keywordController = new KeywordController(keywordRepository, keywordService, createKeywordEventRepository, userRepository, keywordPrefixIndex);
         mockMvc = MockMvcBuilders.standaloneSetup(keywordController).build();
     }
 
@@ -140,7 +144,8 @@ class KeywordControllerTest {
 
         JSONArray expected = new JSONArray();
 
-        expected.addAll(keywords.stream().map(keyword -> objectMapper.convertValue(new KeywordDTO(keyword), JSONObject.class)).collect(Collectors.toList()));
+        expected.addAll(keywords.stream().map(KeywordDTO::new).sorted(KeywordPrefixIndex.BY_NAME)
+                .map(keyword -> objectMapper.convertValue(keyword, JSONObject.class)).collect(Collectors.toList()));
 
         assertEquals(
                 objectMapper.readTree(objectMapper.writeValueAsString(expected)),
@@ -173,7 +178,8 @@ class KeywordControllerTest {
 
         JSONArray expected = new JSONArray();
 
-        expected.addAll(keywords.stream().map(keyword -> objectMapper.convertValue(new KeywordDTO(keyword), JSONObject.class)).collect(Collectors.toList()));
+        expected.addAll(keywords.stream().map(KeywordDTO::new).sorted(KeywordPrefixIndex.BY_NAME)
+                .map(keyword -> objectMapper.convertValue(keyword, JSONObject.class)).collect(Collectors.toList()));
 
         assertEquals(
                 objectMapper.readTree(objectMapper.writeValueAsString(expected)),
@@ -190,6 +196,117 @@ class KeywordControllerTest {
         verify(keywordRepository).findAll(any(Specification.class)); // couldn't find a way to mock the abstract method
     }
 
+    @Test
+    void searchKeywords_indexReady_keywordsFromIndexReturned() throws Exception {
+        var keywords = List.of(new KeywordDTO(1L, "One", Instant.now()), new KeywordDTO(2L, "Someone", Instant.now()));
+        when(keywordPrefixIndex.search("One", 5)).thenReturn(Optional.of(keywords));
+
+        MvcResult result = mockMvc.perform(get("/keywords/search")
+                .param("searchQuery", "One")
+                .param("limit", "5"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        verify(keywordRepository, never()).findAll(any(Specification.class));
+        assertEquals(
+                objectMapper.readTree(objectMapper.writeValueAsString(keywords)),
+                objectMapper.readTree(result.getResponse().getContentAsString()));
+    }
+
+    @Test
+    void searchKeywords_noQueryAndIndexReady_keywordsFromIndexLimited() throws Exception {
+        var keywords = List.of(new KeywordDTO(1L, "Apple", Instant.now()), new KeywordDTO(2L, "Banana", Instant.now()));
+        when(keywordPrefixIndex.findAll()).thenReturn(Optional.of(keywords));
+
+        MvcResult result = mockMvc.perform(get("/keywords/search")
+                .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        verify(keywordRepository, never()).findByOrderByNameAsc();
+        assertEquals(
+                objectMapper.readTree(objectMapper.writeValueAsString(keywords.subList(0, 1))),
+                objectMapper.readTree(result.getResponse().getContentAsString()));
+    }
+
+    @Test
+    void searchKeywords_indexNotReady_prefixMatchesFirstAndLimited() throws Exception {
+        List<Keyword> keywords = new ArrayList<>();
+        for (String keywordName : List.of("Someone", "Anyone", "One Off", "Ones")) {
+            Keyword mockKeyword = mock(Keyword.class);
+            when(mockKeyword.getID()).thenReturn(1L);
+            when(mockKeyword.getCreated()).thenReturn(Instant.now());
+            when(mockKeyword.getName()).thenReturn(keywordName);
+            keywords.add(mockKeyword);
+        }
+        when(keywordRepository.findAll(any(Specification.class))).thenReturn(keywords);
+
+        MvcResult result = mockMvc.perform(get("/keywords/search")
+                .param("searchQuery", "one")
+                .param("limit", "3"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<String> names = new ArrayList<>();
+        objectMapper.readTree(result.getResponse().getContentAsString()).forEach(node -> names.add(node.get("name").asText()));
+        assertEquals(List.of("One Off", "Ones", "Anyone"), names);
+    }
+
+    @Test
+    void searchKeywords_noQueryMixedCase_orderedWithoutCase() throws Exception {
+        List<Keyword> keywords = new ArrayList<>();
+        for (String keywordName : List.of("Banana", "Cherry", "apple", "banana")) {
+            Keyword mockKeyword = mock(Keyword.class);
+            when(mockKeyword.getID()).thenReturn(1L);
+            when(mockKeyword.getCreated()).thenReturn(Instant.now());
+            when(mockKeyword.getName()).thenReturn(keywordName);
+            keywords.add(mockKeyword);
+        }
+        // Ordered as a case sensitive database collation would
+        when(keywordRepository.findByOrderByNameAsc()).thenReturn(keywords);
+
+        MvcResult result = mockMvc.perform(get("/keywords/search"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<String> names = new ArrayList<>();
+        objectMapper.readTree(result.getResponse().getContentAsString()).forEach(node -> names.add(node.get("name").asText()));
+        assertEquals(List.of("apple", "Banana", "banana", "Cherry"), names);
+    }
+
+    @Test
+    void searchKeywords_indexNotReadyMixedCase_orderedLikeIndex() throws Exception {
+        List<Keyword> keywords = new ArrayList<>();
+        for (String keywordName : List.of("one", "Zone", "Ones", "alone", "One Off")) {
+            Keyword mockKeyword = mock(Keyword.class);
+            when(mockKeyword.getID()).thenReturn(1L);
+            when(mockKeyword.getCreated()).thenReturn(Instant.now());
+            when(mockKeyword.getName()).thenReturn(keywordName);
+            keywords.add(mockKeyword);
+        }
+        when(keywordRepository.findAll(any(Specification.class))).thenReturn(keywords);
+
+        MvcResult result = mockMvc.perform(get("/keywords/search")
+                .param("searchQuery", "ONE"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<String> names = new ArrayList<>();
+        objectMapper.readTree(result.getResponse().getContentAsString()).forEach(node -> names.add(node.get("name").asText()));
+        assertEquals(List.of("one", "One Off", "Ones", "alone", "Zone"), names);
+    }
+
+    @Test
+    void searchKeywords_limitNotPositive_400Response() throws Exception {
+        mockMvc.perform(get("/keywords/search")
+                .param("searchQuery", "One")
+                .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+
+        verify(keywordPrefixIndex, never()).search(any(), any());
+        verify(keywordRepository, never()).findAll(any(Specification.class));
+    }
+
     @Test
     void deleteKeyword_noAuthentication_401Response() throws Exception {
         // Mock the AuthenticationTokenManager to respond as it would when the authentication token is missing or invalid
@@ -327,7 +444,7 @@ class KeywordControllerTest {
                 .andReturn();
 
         verify(keywordRepository, times(1)).save(any());
-        verify(keywordService, times(1)).sendNewKeywordEvent(any(), userArgumentCaptor.capture());
+        verify(keywordService, times(1)).queueNewKeywordEvent(any(), userArgumentCaptor.capture());
         assertEquals(mockUser, userArgumentCaptor.getValue());
     }
 }
@@ -1,6 +1,7 @@
 package org.seng302.leftovers.controllers;
 
 import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
@@ -12,6 +13,7 @@ import org.seng302.leftovers.persistence.BusinessRepository;
 import org.seng302.leftovers.persistence.ImageRepository;
 import org.seng302.leftovers.persistence.ProductRepository;
 import org.seng302.leftovers.persistence.UserRepository;
+import org.seng302.leftovers.service.search.SaleListingResultCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -42,6 +44,8 @@ class ProductControllerDeleteImageTests {
     private ProductRepository productRepository;
     @Autowired
     private ImageRepository imageRepository;
+    @Autowired
+    private SaleListingResultCache saleListingResultCache;
 
     private User testUser;
     private Business testBusiness;
@@ -199,6 +203,25 @@ class ProductControllerDeleteImageTests {
                 .andExpect(status().isOk());
     }
 
+    /**
+     * Tests that deleting a product image invalidates the cached sale listing search results which show the image
+     */
+    @Test
+    void deleteProductImage_hasImage_cachedSaleListingsInvalidated() throws Exception {
+        String url = String.format("/businesses/%d/products/%s/images/%d",
+                testBusiness.getId(), testProduct.getProductCode(), testImage.getID());
+        setActiveUser(testUser.getUserID());
+        long version = saleListingResultCache.getVersion();
+
+        mockMvc.perform( MockMvcRequestBuilders
+                .delete(url)
+                .sessionAttrs(sessionAuthToken)
+                .cookie(authCookie))
+                .andExpect(status().isOk());
+
+        Assertions.assertTrue(saleListingResultCache.getVersion() > version);
+    }
+
     /**
      * Tests using the delete product image method to see if a product without an image will respond with the not
      * acceptable response code.
@@ -16,6 +16,10 @@ import org.seng302.leftovers.exceptions.AccessTokenResponseException;
 import org.seng302.leftovers.persistence.BusinessRepository;
 import org.seng302.leftovers.persistence.ProductRepository;
 import org.seng302.leftovers.tools.AuthenticationTokenManager;
+import org.seng302.leftovers.service.search.ResultCountCache;
+import org.seng302.leftovers.service.search.SaleListingResultCache;
+import org.seng302.leftovers.service.search.NameDictionaryService;
+import org.seng302.leftovers.service.search.SearchPlanCache;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -73,7 +77,8 @@ class ProductControllerEditTest {
         when(productRepository.findByBusinessAndProductCode(eq(business), not(eq("APPLE-1")))).thenReturn(Optional.empty());
         when(productRepository.findByBusinessAndProductCode(not(eq(business)), any(String.class))).thenReturn(Optional.empty());
 
-        productController = new ProductController(productRepository, businessRepository, null, null);
+        productController = new ProductController(productRepository, businessRepository, null, null, new ResultCountCache(0, 1),
+                new SaleListingResultCache(0, 1), new SearchPlanCache(1, new NameDictionaryService(null)));
         mockMvc = MockMvcBuilders.standaloneSetup(productController).build();
     }
 
@@ -20,6 +20,7 @@ import org.seng302.leftovers.persistence.ImageRepository;
 import org.seng302.leftovers.persistence.ProductRepository;
 import org.seng302.leftovers.persistence.UserRepository;
 import org.seng302.leftovers.service.ImageService;
+import org.seng302.leftovers.service.search.SaleListingResultCache;
 import org.seng302.leftovers.service.search.SearchPageConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -67,6 +68,8 @@ class ProductControllerTest {
     private ImageRepository imageRepository;
     @Autowired
     private SessionFactory sessionFactory;
+    @Autowired
+    private SaleListingResultCache saleListingResultCache;
 
     private final HashMap<String, Object> sessionAuthToken = new HashMap<>();
     private Cookie authCookie;
@@ -1032,6 +1035,28 @@ class ProductControllerTest {
 
     }
 
+    /**
+     * Tests that changing the primary image of a product, which only reorders its images, invalidates the cached sale
+     * listing search results which show the images
+     */
+    @Test
+    void makeImagePrimary_valid_cachedSaleListingsInvalidated() throws Exception {
+        setCurrentUser(ownerUser.getUserID());
+        addSeveralProductsToACatalogue();
+        Product product = productRepository.getAllByBusiness(testBusiness1, templateRequest).getContent().get(0);
+        product = addImagesToProduct(product);
+        Image image2 = product.getImages().get(1);
+        long version = saleListingResultCache.getVersion();
+
+        mockMvc.perform(
+                put(String.format("/businesses/%d/products/%s/images/%d/makeprimary", testBusiness1.getId(), product.getProductCode(), image2.getID()))
+                .sessionAttrs(sessionAuthToken)
+                .cookie(authCookie))
+                .andExpect(status().isOk());
+
+        assertTrue(saleListingResultCache.getVersion() > version);
+    }
+
     /**
      * Tests that using the make image primary method with a business that does not exist,
      * a 406 response is thrown
@@ -1156,6 +1181,22 @@ class ProductControllerTest {
         assertArrayEquals(data, actualFile.getBytes());
     }
 
+    @Test
+    void uploadProductImage_validImageData_cachedSaleListingsInvalidated() throws Exception {
+        setCurrentUser(ownerUser.getUserID());
+        addSeveralProductsToACatalogue();
+        long version = saleListingResultCache.getVersion();
+
+        MockMultipartFile file = new MockMultipartFile("file", "filename.txt", "image/carrot", new byte[] {1, 2, 3, 5});
+        mockMvc.perform(multipart(String.format("/businesses/%d/products/NATHAN-APPLE-70/images", testBusiness1.getId()))
+                .file(file)
+                .sessionAttrs(sessionAuthToken)
+                .cookie(authCookie))
+                .andExpect(status().isCreated());
+
+        assertTrue(saleListingResultCache.getVersion() > version);
+    }
+
     /**
      * Tests that uploading an image with a non-authorised user returns a 403 response
      */
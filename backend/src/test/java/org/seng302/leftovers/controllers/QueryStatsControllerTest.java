@@ -0,0 +1,99 @@
+package org.seng302.leftovers.controllers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.seng302.leftovers.dto.stats.QueryStatsDTO;
+import org.seng302.leftovers.exceptions.AccessTokenResponseException;
+import org.seng302.leftovers.service.QueryStatsService;
+import org.seng302.leftovers.tools.AuthenticationTokenManager;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class QueryStatsControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private QueryStatsService queryStatsService;
+
+    private MockedStatic<AuthenticationTokenManager> authenticationTokenManager;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        authenticationTokenManager = Mockito.mockStatic(AuthenticationTokenManager.class);
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionIsAdmin(any())).thenReturn(true);
+
+        when(queryStatsService.getStats()).thenReturn(new QueryStatsDTO(500, List.of(), List.of(), List.of(), List.of(), null, null));
+
+        mockMvc = MockMvcBuilders.standaloneSetup(new QueryStatsController(queryStatsService)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        authenticationTokenManager.close();
+    }
+
+    @Test
+    void getQueryStats_noAuthentication_401Response() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.checkAuthenticationToken(any()))
+                .thenThrow(new AccessTokenResponseException());
+
+        mockMvc.perform(get("/admin/query-stats"))
+                .andExpect(status().isUnauthorized());
+
+        verify(queryStatsService, never()).getStats();
+    }
+
+    @Test
+    void getQueryStats_notAdmin_403Response() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionIsAdmin(any())).thenReturn(false);
+
+        mockMvc.perform(get("/admin/query-stats"))
+                .andExpect(status().isForbidden());
+
+        verify(queryStatsService, never()).getStats();
+    }
+
+    @Test
+    void getQueryStats_admin_statsReturned() throws Exception {
+        mockMvc.perform(get("/admin/query-stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.slowQueryThresholdMs").value(500));
+
+        verify(queryStatsService).getStats();
+    }
+
+    @Test
+    void resetQueryStats_notAdmin_403Response() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionIsAdmin(any())).thenReturn(false);
+
+        mockMvc.perform(delete("/admin/query-stats"))
+                .andExpect(status().isForbidden());
+
+        verify(queryStatsService, never()).clear();
+    }
+
+    @Test
+    void resetQueryStats_admin_statsCleared() throws Exception {
+        mockMvc.perform(delete("/admin/query-stats"))
+                .andExpect(status().isOk());
+
+        verify(queryStatsService).clear();
+    }
+}
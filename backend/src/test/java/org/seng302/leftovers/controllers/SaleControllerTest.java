@@ -18,22 +18,31 @@ import org.mockito.internal.matchers.apachecommons.ReflectionEquals;
 import org.seng302.leftovers.dto.business.BusinessType;
 import org.seng302.leftovers.dto.saleitem.BoughtSaleItemRecord;
 import org.seng302.leftovers.dto.saleitem.ReportGranularity;
+import org.seng302.leftovers.dto.saleitem.SaleListingFacet;
+import org.seng302.leftovers.dto.saleitem.SaleListingFacetsDTO;
 import org.seng302.leftovers.dto.saleitem.SaleListingSearchDTO;
+import org.seng302.leftovers.dto.saleitem.SalesExportFormat;
 import org.seng302.leftovers.entities.*;
-import org.seng302.leftovers.entities.event.Event;
 import org.seng302.leftovers.entities.event.InterestEvent;
-import org.seng302.leftovers.entities.event.InterestPurchasedEvent;
-import org.seng302.leftovers.entities.event.PurchasedEvent;
 import org.seng302.leftovers.exceptions.AccessTokenResponseException;
 import org.seng302.leftovers.exceptions.InsufficientPermissionResponseException;
 import org.seng302.leftovers.persistence.*;
-import org.seng302.leftovers.persistence.event.EventRepository;
 import org.seng302.leftovers.persistence.event.InterestEventRepository;
 import org.seng302.leftovers.service.ReportService;
+import org.seng302.leftovers.service.SalesExportService;
+import org.seng302.leftovers.service.SalesRollupService;
 import org.seng302.leftovers.service.search.SearchQueryParser;
 import org.seng302.leftovers.tools.AuthenticationTokenManager;
+import org.seng302.leftovers.service.search.BusinessLocationIndex;
+import org.seng302.leftovers.service.search.SaleItemSearchIndex;
+import org.seng302.leftovers.service.search.SearchArea;
+import org.seng302.leftovers.service.search.SaleListingFacetService;
 import org.seng302.leftovers.service.search.SearchPageConstructor;
+import org.seng302.leftovers.service.search.NameDictionaryService;
+import org.seng302.leftovers.service.search.SearchPlanCache;
 import org.seng302.leftovers.service.search.SearchSpecConstructor;
+import org.seng302.leftovers.service.search.ResultCountCache;
+import org.seng302.leftovers.service.search.SaleListingResultCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
@@ -49,6 +58,7 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.text.ParseException;
 import java.time.Instant;
@@ -61,6 +71,9 @@ import static org.mockito.AdditionalMatchers.not;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -85,10 +98,21 @@ class SaleControllerTest {
     @Mock
     private BoughtSaleItemRepository boughtSaleItemRepository;
     @Mock
-    private EventRepository eventRepository;
+    private OutboxEntryRepository outboxEntryRepository;
     @Mock
     private ReportService reportService;
     @Mock
+    private SalesRollupService salesRollupService;
+    @Mock
+    private SalesExportService salesExportService;
+    @Mock
+    private SaleItemSearchIndex saleItemSearchIndex;
+    @Mock
+    private SaleListingFacetService saleListingFacetService;
+    @Mock
+    private BusinessLocationIndex businessLocationIndex;
+    private SaleListingResultCache saleListingResultCache;
+    @Mock
     private Business business;
     @Mock
     private User user;
@@ -116,7 +140,7 @@ class SaleControllerTest {
     @Captor
     ArgumentCaptor<PageRequest> pageRequestArgumentCaptor;
     @Captor
-    ArgumentCaptor<Event> eventCaptor;
+    ArgumentCaptor<OutboxEntry> outboxEntryCaptor;
 
     private MockedStatic<SearchPageConstructor> searchPageConstructor;
     private MockedStatic<SearchSpecConstructor> searchSpecConstructor;
@@ -134,7 +158,7 @@ class SaleControllerTest {
         searchPageConstructor.when(() -> SearchPageConstructor.getSortDirection(any())).thenReturn(Sort.Direction.DESC);
         searchPageConstructor.when(() -> SearchPageConstructor.getPageRequest(any(), any(), any()))
                 .thenReturn(PageRequest.of(1, 1, Sort.unsorted()));
-        searchSpecConstructor.when(() -> SearchSpecConstructor.constructSaleListingSpecificationForSearch(any()))
+        searchSpecConstructor.when(() -> SearchSpecConstructor.constructSaleListingSpecificationForSearch(any(), any(SearchPlanCache.class)))
                 .thenReturn(Specification.where(null));
         searchSpecConstructor.when(() -> SearchSpecConstructor.constructSpecificationFromSaleItemsFilter(any()))
                 .thenReturn(Specification.where(null));
@@ -171,8 +195,13 @@ class SaleControllerTest {
         when(userRepository.findById(4L)).thenReturn(Optional.of(user));
         when(userRepository.findById(not(eq(4L)))).thenReturn(Optional.empty());
 
+        createController(spy(new SaleListingResultCache(0, 100)));
+    }
+
+    private void createController(SaleListingResultCache resultCache) {
+        saleListingResultCache = resultCache;
         saleController = spy(new SaleController(userRepository, businessRepository, saleItemRepository,
-                inventoryItemRepository, interestEventRepository, boughtSaleItemRepository, eventRepository, reportService, objectMapper));
+                inventoryItemRepository, interestEventRepository, boughtSaleItemRepository, outboxEntryRepository, reportService, salesRollupService, salesExportService, saleItemSearchIndex, new ResultCountCache(0, 1), saleListingFacetService, businessLocationIndex, saleListingResultCache, new SearchPlanCache(10, new NameDictionaryService(null)), objectMapper));
         mockMvc = MockMvcBuilders.standaloneSetup(saleController).build();
     }
 
@@ -663,6 +692,18 @@ class SaleControllerTest {
         verify(saleItemRepository, times(1)).save(saleItem);
     }
 
+    @Test
+    void setSaleItemInterest_setInterested_searchResultCacheInvalidated() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionCanSeePrivate(any(), any())).thenReturn(true);
+
+        mockMvc.perform(put(String.format("/listings/%s/interest", saleItem.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createUpdateInterestRequest(4, true).toString()))
+                .andExpect(status().isOk());
+
+        verify(saleListingResultCache).invalidate();
+    }
+
     @Test
     void setSaleItemInterest_setUnInterested_200ResponseAndUserRemoved() throws Exception {
         authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionCanSeePrivate(any(), any())).thenReturn(true);
@@ -789,7 +830,7 @@ class SaleControllerTest {
         when(saleItemRepository.findAll(any(), any(PageRequest.class))).thenReturn(new PageImpl<>(items));
 
         ArgumentCaptor<SaleListingSearchDTO> specArgCaptor = ArgumentCaptor.forClass(SaleListingSearchDTO.class);
-        searchSpecConstructor.when(() -> SearchSpecConstructor.constructSaleListingSpecificationForSearch(specArgCaptor.capture())).thenReturn(Specification.where(null));
+        searchSpecConstructor.when(() -> SearchSpecConstructor.constructSaleListingSpecificationForSearch(specArgCaptor.capture(), any(SearchPlanCache.class))).thenReturn(Specification.where(null));
 
         mockMvc.perform(get("/businesses/listings/search")
                 .param("productSearchQuery", "Cheese")
@@ -812,6 +853,176 @@ class SaleControllerTest {
         assertNull(specArgCaptor.getValue().getClosingDateUpperBound());
     }
 
+    @Test
+    void saleSearch_sameSearchRepeated_resultPageCached() throws Exception {
+        createController(new SaleListingResultCache(10, 100));
+        var items = generateMockSaleItems();
+        when(saleItemRepository.findAll(any(), any(PageRequest.class))).thenReturn(new PageImpl<>(items));
+
+        for (String query : List.of("Cheese", "cheese", "CHEESE  ")) {
+            mockMvc.perform(get("/businesses/listings/search")
+                    .param("basicSearchQuery", query))
+                    .andExpect(status().isOk());
+        }
+
+        verify(saleItemRepository, times(1)).findAll(any(), any(PageRequest.class));
+        assertEquals(2, saleListingResultCache.getHits());
+        assertEquals(1, saleListingResultCache.getMisses());
+    }
+
+    @Test
+    void saleSearch_saleListingsChangedBetweenSearches_resultPageFoundAgain() throws Exception {
+        createController(new SaleListingResultCache(10, 100));
+        var items = generateMockSaleItems();
+        when(saleItemRepository.findAll(any(), any(PageRequest.class))).thenReturn(new PageImpl<>(items));
+
+        mockMvc.perform(get("/businesses/listings/search").param("basicSearchQuery", "Cheese"))
+                .andExpect(status().isOk());
+        saleListingResultCache.invalidate();
+        mockMvc.perform(get("/businesses/listings/search").param("basicSearchQuery", "Cheese"))
+                .andExpect(status().isOk());
+
+        verify(saleItemRepository, times(2)).findAll(any(), any(PageRequest.class));
+    }
+
+    @Test
+    void saleSearch_differentPagesOfSearch_eachPageFound() throws Exception {
+        createController(new SaleListingResultCache(10, 100));
+        var items = generateMockSaleItems();
+        when(saleItemRepository.findAll(any(), any(PageRequest.class))).thenReturn(new PageImpl<>(items));
+        searchPageConstructor.when(() -> SearchPageConstructor.getPageRequest(eq(1), any(), any()))
+                .thenReturn(PageRequest.of(0, 1, Sort.unsorted()));
+        searchPageConstructor.when(() -> SearchPageConstructor.getPageRequest(eq(2), any(), any()))
+                .thenReturn(PageRequest.of(1, 1, Sort.unsorted()));
+
+        mockMvc.perform(get("/businesses/listings/search").param("page", "1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/businesses/listings/search").param("page", "2"))
+                .andExpect(status().isOk());
+
+        verify(saleItemRepository, times(2)).findAll(any(), any(PageRequest.class));
+    }
+
+    @Test
+    void saleSearch_indexCanAnswerQuery_matchingIdsUsedInSpecification() throws Exception {
+        var items = generateMockSaleItems();
+        when(saleItemRepository.findAll(any(), any(PageRequest.class))).thenReturn(new PageImpl<>(items));
+        when(saleItemSearchIndex.findMatchingIds(any())).thenReturn(Optional.of(Set.of(3L, 5L)));
+        Specification<SaleItem> idSpecification = Specification.where(null);
+        searchSpecConstructor.when(() -> SearchSpecConstructor.constructSaleListingSpecificationForSearch(any(), eq(Set.of(3L, 5L))))
+                .thenReturn(idSpecification);
+
+        mockMvc.perform(get("/businesses/listings/search")
+                .param("basicSearchQuery", "Cheese"))
+                .andExpect(status().isOk());
+
+        searchSpecConstructor.verify(() -> SearchSpecConstructor.constructSaleListingSpecificationForSearch(any(), eq(Set.of(3L, 5L))));
+        searchSpecConstructor.verify(() -> SearchSpecConstructor.constructSaleListingSpecificationForSearch(any(), any(SearchPlanCache.class)), never());
+        verify(saleItemRepository).findAll(eq(idSpecification), any(PageRequest.class));
+    }
+
+    @Test
+    void saleSearch_indexCannotAnswerQuery_searchQueriesMatchedByDatabase() throws Exception {
+        var items = generateMockSaleItems();
+        when(saleItemRepository.findAll(any(), any(PageRequest.class))).thenReturn(new PageImpl<>(items));
+        when(saleItemSearchIndex.findMatchingIds(any())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/businesses/listings/search")
+                .param("basicSearchQuery", "Cheese"))
+                .andExpect(status().isOk());
+
+        searchSpecConstructor.verify(() -> SearchSpecConstructor.constructSaleListingSpecificationForSearch(any(), any(SearchPlanCache.class)));
+        searchSpecConstructor.verify(() -> SearchSpecConstructor.constructSaleListingSpecificationForSearch(any(), anySet()), never());
+    }
+
+    @Test
+    void saleSearch_facetsRequested_facetsCountedWithSearchSpecification() throws Exception {
+        var items = generateMockSaleItems();
+        when(saleItemRepository.findAll(any(), any(PageRequest.class))).thenReturn(new PageImpl<>(items));
+        Specification<SaleItem> searchSpecification = Specification.where(null);
+        searchSpecConstructor.when(() -> SearchSpecConstructor.constructSaleListingSpecificationForSearch(any(), any(SearchPlanCache.class)))
+                .thenReturn(searchSpecification);
+        SaleListingFacetsDTO facets = new SaleListingFacetsDTO();
+        facets.setBusinessType(Map.of("Retail Trade", 3L));
+        facets.setPrice(Map.of("0-5", 2L, "5+", 1L));
+        when(saleListingFacetService.countFacets(searchSpecification, Set.of(SaleListingFacet.BUSINESS_TYPE, SaleListingFacet.PRICE)))
+                .thenReturn(facets);
+
+        MvcResult result = mockMvc.perform(get("/businesses/listings/search")
+                .param("facets", "businessType", "price"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        JSONObject response = (JSONObject) new JSONParser(JSONParser.MODE_PERMISSIVE).parse(result.getResponse().getContentAsString());
+        JSONObject responseFacets = (JSONObject) response.get("facets");
+        assertEquals(3, ((Number) ((JSONObject) responseFacets.get("businessType")).get("Retail Trade")).intValue());
+        assertEquals(1, ((Number) ((JSONObject) responseFacets.get("price")).get("5+")).intValue());
+        assertFalse(responseFacets.containsKey("closes"));
+    }
+
+    @Test
+    void saleSearch_noFacetsRequested_facetsNotInResponse() throws Exception {
+        var items = generateMockSaleItems();
+        when(saleItemRepository.findAll(any(), any(PageRequest.class))).thenReturn(new PageImpl<>(items));
+
+        MvcResult result = mockMvc.perform(get("/businesses/listings/search"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        JSONObject response = (JSONObject) new JSONParser(JSONParser.MODE_PERMISSIVE).parse(result.getResponse().getContentAsString());
+        assertFalse(response.containsKey("facets"));
+        verify(saleListingFacetService).countFacets(any(), eq(Set.of()));
+    }
+
+    @Test
+    void saleSearch_withinRadius_areaMatchedByBusinessLocationIndex() throws Exception {
+        var items = generateMockSaleItems();
+        when(saleItemRepository.findAll(any(), any(PageRequest.class))).thenReturn(new PageImpl<>(items));
+        when(businessLocationIndex.findBusinessIds(any())).thenReturn(Optional.of(List.of(5L, 6L)));
+
+        mockMvc.perform(get("/businesses/listings/search")
+                .param("latitude", "-43.53")
+                .param("longitude", "172.63")
+                .param("radius", "10"))
+                .andExpect(status().isOk());
+
+        verify(businessLocationIndex).findBusinessIds(
+                SearchArea.fromParameters(-43.53, 172.63, 10.0, null, null, null, null));
+        searchSpecConstructor.verify(() -> SearchSpecConstructor.constructSpecificationFromBusinessIds(
+                SearchSpecConstructor.SALE_ITEM_BUSINESS_PATH, List.of(5L, 6L)));
+    }
+
+    @Test
+    void saleSearch_orderedByDistance_sortAppliedBySpecification() throws Exception {
+        var items = generateMockSaleItems();
+        when(saleItemRepository.findAll(any(), any(PageRequest.class))).thenReturn(new PageImpl<>(items));
+
+        mockMvc.perform(get("/businesses/listings/search")
+                .param("latitude", "-43.53")
+                .param("longitude", "172.63")
+                .param("orderBy", "distance"))
+                .andExpect(status().isOk());
+
+        verify(saleItemRepository).findAll(any(), eq(PageRequest.of(0, 15, Sort.unsorted())));
+        searchSpecConstructor.verify(() -> SearchSpecConstructor.constructSpecificationOrderedByDistance(
+                eq(SearchSpecConstructor.SALE_ITEM_BUSINESS_PATH), any(), eq(Sort.Direction.ASC)));
+    }
+
+    @Test
+    void saleSearch_orderedByDistanceWithoutCentre_400() throws Exception {
+        mockMvc.perform(get("/businesses/listings/search")
+                .param("orderBy", "distance"))
+                .andExpect(status().isBadRequest());
+        verify(saleItemRepository, never()).findAll(any(), any(PageRequest.class));
+    }
+
+    @Test
+    void saleSearch_invalidFacet_400() throws Exception {
+        mockMvc.perform(get("/businesses/listings/search")
+                .param("facets", "colour"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void saleSearch_invalidSearchParametersType_400() throws Exception {
         mockMvc.perform(get("/businesses/listings/search")
@@ -1108,6 +1319,23 @@ class SaleControllerTest {
         assertEquals(product, boughtSaleItemCaptor.getValue().getProduct());
     }
 
+    @Test
+    void purchaseSaleItem_validRequest_saleAddedToDailyRollup() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionCanSeePrivate(any(), any())).thenReturn(true);
+
+        JSONObject validBody = new JSONObject();
+        validBody.put("purchaserId", user.getUserID());
+
+        mockMvc.perform(post(String.format("/listings/%d/purchase", saleItem.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(validBody.toString()))
+                .andExpect(status().isOk());
+
+        var boughtSaleItemCaptor = ArgumentCaptor.forClass(BoughtSaleItem.class);
+        verify(boughtSaleItemRepository, times(1)).save(boughtSaleItemCaptor.capture());
+        verify(salesRollupService, times(1)).recordSale(boughtSaleItemCaptor.getValue());
+    }
+
     @Test
     void purchaseSaleItem_validRequest_invItemUpdated() throws Exception {
         authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionCanSeePrivate(any(), any())).thenReturn(true);
@@ -1151,9 +1379,8 @@ class SaleControllerTest {
 
 
     @Test
-    void purchaseSaleItem_validRequest_purchaseEventCreated() throws Exception {
+    void purchaseSaleItem_validRequest_singleOutboxEntryCreated() throws Exception {
         authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionCanSeePrivate(any(), any())).thenReturn(true);
-        var product = Mockito.mock(Product.class);
         JSONObject validBody = new JSONObject();
         validBody.put("purchaserId", user.getUserID());
 
@@ -1162,13 +1389,14 @@ class SaleControllerTest {
                 .content(validBody.toString()))
                 .andExpect(status().isOk());
 
-        var purchasedEventArgumentCaptor = ArgumentCaptor.forClass(PurchasedEvent.class);
-        verify(eventRepository, times(1)).save(purchasedEventArgumentCaptor.capture());
-        assertEquals(user, purchasedEventArgumentCaptor.getValue().getBoughtSaleItem().getBuyer());
+        verify(outboxEntryRepository, times(1)).save(outboxEntryCaptor.capture());
+        assertEquals(OutboxEntry.Type.PURCHASE, outboxEntryCaptor.getValue().getType());
+        assertEquals(user.getUserID(), outboxEntryCaptor.getValue().getActorId());
     }
 
     @Test
-    void purchaseSaleItem_userLikedSaleItemBoughtByAnotherUser_eventCreatedForTheInterestedUser() throws Exception {
+    void purchaseSaleItem_userLikedSaleItemBoughtByAnotherUser_interestedUserRecordedInOutboxEntry() throws Exception {
+        when(interestedUser1.getUserID()).thenReturn(5L);
         when(saleItem.getInterestedUsers()).thenReturn(Set.of(interestedUser1));
         authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionCanSeePrivate(any(), any())).thenReturn(true);
         JSONObject validBody = new JSONObject();
@@ -1179,14 +1407,12 @@ class SaleControllerTest {
                 .content(validBody.toString()))
                 .andExpect(status().isOk());
 
-        verify(eventRepository, times(2)).save(eventCaptor.capture());
-        List<Event> allSavedEvents = eventCaptor.getAllValues();
-        assertEquals(allSavedEvents.get(0).getClass(), InterestPurchasedEvent.class);
-        assertEquals(allSavedEvents.get(1).getClass(), PurchasedEvent.class);
+        verify(outboxEntryRepository, times(1)).save(outboxEntryCaptor.capture());
+        assertEquals(List.of(5L), outboxEntryCaptor.getValue().getRecipientIds());
     }
 
     @Test
-    void purchaseSaleItem_noUserLikedSaleItemBoughtByAnotherUser_noEventsCreated() throws Exception {
+    void purchaseSaleItem_noUserLikedSaleItemBoughtByAnotherUser_noInterestedUsersRecordedInOutboxEntry() throws Exception {
         when(saleItem.getInterestedUsers()).thenReturn(Set.of());
         authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionCanSeePrivate(any(), any())).thenReturn(true);
         JSONObject validBody = new JSONObject();
@@ -1197,13 +1423,15 @@ class SaleControllerTest {
                 .content(validBody.toString()))
                 .andExpect(status().isOk());
 
-        verify(eventRepository, times(1)).save(eventCaptor.capture());
-        List<Event> allSavedEvents = eventCaptor.getAllValues();
-        assertEquals(allSavedEvents.get(0).getClass(), PurchasedEvent.class);
+        verify(outboxEntryRepository, times(1)).save(outboxEntryCaptor.capture());
+        assertEquals(List.of(), outboxEntryCaptor.getValue().getRecipientIds());
     }
 
     @Test
-    void purchaseSaleItem_multipleUsersLikedSaleItemBoughtByAnotherUser_eventsCreatedForTheInterestedUsers() throws Exception {
+    void purchaseSaleItem_multipleUsersLikedSaleItemBoughtByAnotherUser_interestedUsersRecordedInOutboxEntry() throws Exception {
+        when(interestedUser1.getUserID()).thenReturn(5L);
+        when(interestedUser2.getUserID()).thenReturn(6L);
+        when(interestedUser3.getUserID()).thenReturn(7L);
         when(saleItem.getInterestedUsers()).thenReturn(Set.of(interestedUser1, interestedUser2, interestedUser3));
         authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionCanSeePrivate(any(), any())).thenReturn(true);
         JSONObject validBody = new JSONObject();
@@ -1214,12 +1442,25 @@ class SaleControllerTest {
                 .content(validBody.toString()))
                 .andExpect(status().isOk());
 
-        verify(eventRepository, times(4)).save(eventCaptor.capture());
-        List<Event> allSavedEvents = eventCaptor.getAllValues();
-        assertEquals(allSavedEvents.get(0).getClass(), InterestPurchasedEvent.class);
-        assertEquals(allSavedEvents.get(1).getClass(), InterestPurchasedEvent.class);
-        assertEquals(allSavedEvents.get(2).getClass(), InterestPurchasedEvent.class);
-        assertEquals(allSavedEvents.get(3).getClass(), PurchasedEvent.class);
+        verify(outboxEntryRepository, times(1)).save(outboxEntryCaptor.capture());
+        assertEquals(Set.of(5L, 6L, 7L), new HashSet<>(outboxEntryCaptor.getValue().getRecipientIds()));
+    }
+
+    @Test
+    void purchaseSaleItem_purchaserLikedSaleItem_purchaserNotRecordedAsInterestedUser() throws Exception {
+        when(interestedUser1.getUserID()).thenReturn(5L);
+        when(saleItem.getInterestedUsers()).thenReturn(Set.of(interestedUser1, user));
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionCanSeePrivate(any(), any())).thenReturn(true);
+        JSONObject validBody = new JSONObject();
+        validBody.put("purchaserId", user.getUserID());
+
+        mockMvc.perform(post(String.format("/listings/%d/purchase", saleItem.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(validBody.toString()))
+                .andExpect(status().isOk());
+
+        verify(outboxEntryRepository, times(1)).save(outboxEntryCaptor.capture());
+        assertEquals(List.of(5L), outboxEntryCaptor.getValue().getRecipientIds());
     }
 
     @Test
@@ -1343,4 +1584,89 @@ class SaleControllerTest {
 
         verify(reportService, times(1)).generateReport(business, LocalDate.parse("2021-01-01"), LocalDate.now(), ReportGranularity.YEARLY);
     }
+
+    @Test
+    void exportSalesForBusiness_notLoggedIn_401Response() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.checkAuthenticationToken(any()))
+                .thenThrow(new AccessTokenResponseException());
+
+        mockMvc.perform(get("/businesses/1/reports/export"))
+                .andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(salesExportService);
+    }
+
+    @Test
+    void exportSalesForBusiness_invalidBusiness_406Response() throws Exception {
+        mockMvc.perform(get("/businesses/9999/reports/export"))
+                .andExpect(status().isNotAcceptable());
+
+        verifyNoInteractions(salesExportService);
+    }
+
+    @Test
+    void exportSalesForBusiness_doesNotHavePermission_403Response() throws Exception {
+        doThrow(new InsufficientPermissionResponseException("foo")).when(business).checkSessionPermissions(any());
+
+        mockMvc.perform(get("/businesses/1/reports/export"))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(salesExportService);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "2021-aa-01,2021-11-01,csv",
+            "2020-01-01,2021-aa-01,csv",
+            "2021-01-01,2021-11-01,xml",
+            "2021-10-01,2021-05-01,csv", // End date before start date
+    })
+    void exportSalesForBusiness_invalidQueryParams_400Response(String startDate, String endDate, String format) throws Exception {
+        mockMvc.perform(get("/businesses/1/reports/export")
+                .param("startDate", startDate)
+                .param("endDate", endDate)
+                .param("format", format))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(salesExportService);
+    }
+
+    @Test
+    void exportSalesForBusiness_validParameters_exportStreamedAsAttachment() throws Exception {
+        when(salesExportService.exportSales(anyLong(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(4).write("id\n".getBytes());
+            return 0L;
+        });
+
+        var result = mockMvc.perform(get("/businesses/1/reports/export")
+                .param("startDate", "2021-01-01")
+                .param("endDate", "2021-01-10")
+                .param("format", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"sales-1-2021-01-01-2021-01-10.ndjson\""))
+                .andExpect(content().string("id\n"));
+
+        var range = new ReportService.DateRange(LocalDate.parse("2021-01-01"), LocalDate.parse("2021-01-10"));
+        verify(salesExportService, times(1)).exportSales(eq(1L), eq(range.startInstant()), eq(range.endInstant()),
+                eq(SalesExportFormat.NDJSON), any());
+    }
+
+    @Test
+    void exportSalesForBusiness_noFormat_exportedAsCsv() throws Exception {
+        var result = mockMvc.perform(get("/businesses/1/reports/export")
+                .param("startDate", "2021-01-01"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"));
+
+        var range = new ReportService.DateRange(LocalDate.parse("2021-01-01"), LocalDate.now());
+        verify(salesExportService, times(1)).exportSales(eq(1L), eq(range.startInstant()), eq(range.endInstant()),
+                eq(SalesExportFormat.CSV), any());
+    }
 }
@@ -0,0 +1,136 @@
+package org.seng302.leftovers.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.seng302.leftovers.dto.analytics.SalesAnalyticsDTO;
+import org.seng302.leftovers.dto.analytics.SalesAnalyticsDimension;
+import org.seng302.leftovers.dto.analytics.SalesAnalyticsMetric;
+import org.seng302.leftovers.exceptions.AccessTokenResponseException;
+import org.seng302.leftovers.service.analytics.SalesAnalyticsService;
+import org.seng302.leftovers.tools.AuthenticationTokenManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+class SalesAnalyticsControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Mock
+    private SalesAnalyticsService salesAnalyticsService;
+
+    private MockedStatic<AuthenticationTokenManager> authenticationTokenManager;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        authenticationTokenManager = Mockito.mockStatic(AuthenticationTokenManager.class);
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionIsAdmin(any())).thenReturn(true);
+
+        when(salesAnalyticsService.groupSales(any(), any(), anyInt(), any(), any())).thenAnswer(invocation ->
+                new SalesAnalyticsDTO(invocation.getArgument(0), invocation.getArgument(1), 0, null, List.of()));
+
+        mockMvc = MockMvcBuilders.standaloneSetup(new SalesAnalyticsController(salesAnalyticsService, objectMapper)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        authenticationTokenManager.close();
+    }
+
+    @Test
+    void getSalesAnalytics_noAuthentication_401Response() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.checkAuthenticationToken(any()))
+                .thenThrow(new AccessTokenResponseException());
+
+        mockMvc.perform(get("/admin/analytics/sales"))
+                .andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(salesAnalyticsService);
+    }
+
+    @Test
+    void getSalesAnalytics_notAdmin_403Response() throws Exception {
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionIsAdmin(any())).thenReturn(false);
+
+        mockMvc.perform(get("/admin/analytics/sales"))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(salesAnalyticsService);
+    }
+
+    @Test
+    void getSalesAnalytics_noParameters_defaultsUsed() throws Exception {
+        mockMvc.perform(get("/admin/analytics/sales"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.groupBy").value("businessType"))
+                .andExpect(jsonPath("$.orderBy").value("revenue"));
+
+        verify(salesAnalyticsService).groupSales(SalesAnalyticsDimension.BUSINESS_TYPE, SalesAnalyticsMetric.REVENUE,
+                10, null, null);
+    }
+
+    @Test
+    void getSalesAnalytics_allParameters_parametersPassedToService() throws Exception {
+        mockMvc.perform(get("/admin/analytics/sales")
+                        .param("groupBy", "region")
+                        .param("orderBy", "averageDaysToSell")
+                        .param("limit", "5")
+                        .param("startDate", "2021-08-12")
+                        .param("endDate", "2021-09-15"))
+                .andExpect(status().isOk());
+
+        verify(salesAnalyticsService).groupSales(SalesAnalyticsDimension.REGION, SalesAnalyticsMetric.AVERAGE_DAYS_TO_SELL,
+                5, LocalDate.parse("2021-08-12"), LocalDate.parse("2021-09-15"));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "groupBy,business",
+            "orderBy,price",
+            "limit,0",
+            "limit,1001",
+            "limit,ten",
+            "startDate,yesterday"
+    })
+    void getSalesAnalytics_invalidParameter_400Response(String name, String value) throws Exception {
+        mockMvc.perform(get("/admin/analytics/sales").param(name, value))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(salesAnalyticsService);
+    }
+
+    @Test
+    void getSalesAnalytics_endDateBeforeStartDate_400Response() throws Exception {
+        mockMvc.perform(get("/admin/analytics/sales")
+                        .param("startDate", "2021-09-15")
+                        .param("endDate", "2021-08-12"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(salesAnalyticsService);
+    }
+}
@@ -26,6 +26,9 @@ import org.seng302.leftovers.persistence.ImageRepository;
 import org.seng302.leftovers.persistence.UserRepository;
 import org.seng302.leftovers.tools.AuthenticationTokenManager;
 import org.seng302.leftovers.tools.PasswordAuthenticator;
+import org.seng302.leftovers.service.search.ResultCountCache;
+import org.seng302.leftovers.service.search.NameDictionaryService;
+import org.seng302.leftovers.service.search.SearchPlanCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -96,7 +99,7 @@ class UserControllerModifyTest {
                 PasswordAuthenticator.generateAuthenticationCode(validCurrentPassword));
         when(mockUser.getAddress()).thenReturn(mockLocation);
 
-        userController = new UserController(userRepository, imageRepository);
+        userController = new UserController(userRepository, imageRepository, new ResultCountCache(0, 1), new SearchPlanCache(1, new NameDictionaryService(null)));
         mockMvc = MockMvcBuilders.standaloneSetup(userController).build();
     }
 
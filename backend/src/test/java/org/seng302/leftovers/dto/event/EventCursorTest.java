@@ -0,0 +1,56 @@
+package org.seng302.leftovers.dto.event;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.seng302.leftovers.entities.event.Event;
+import org.seng302.leftovers.exceptions.ValidationResponseException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EventCursorTest {
+
+    @Test
+    void encode_decode_originalCursorReturned() {
+        var cursor = new EventCursor(Instant.parse("2021-09-08T08:47:59.018528Z"), 42L);
+        assertEquals(cursor, EventCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void encode_noPaddingOrUrlUnsafeCharacters() {
+        var encoded = new EventCursor(Instant.parse("2021-09-08T08:47:59.018528Z"), 12345L).encode();
+        assertFalse(encoded.contains("="));
+        assertFalse(encoded.contains("+"));
+        assertFalse(encoded.contains("/"));
+    }
+
+    @Test
+    void after_event_cursorUsesEventCreatedAndId() {
+        Event event = mock(Event.class);
+        when(event.getCreated()).thenReturn(Instant.parse("2021-09-08T08:47:59Z"));
+        when(event.getId()).thenReturn(9L);
+
+        var cursor = EventCursor.after(event);
+
+        assertEquals(Instant.parse("2021-09-08T08:47:59Z"), cursor.getCreated());
+        assertEquals(9L, cursor.getId());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "not a cursor", "!!!!", "MTIz"})
+    void decode_invalidCursor_validationExceptionThrown(String encoded) {
+        assertThrows(ValidationResponseException.class, () -> EventCursor.decode(encoded));
+    }
+
+    @Test
+    void decode_nonNumericParts_validationExceptionThrown() {
+        var encoded = Base64.getUrlEncoder().encodeToString("a:b:c".getBytes(StandardCharsets.UTF_8));
+        assertThrows(ValidationResponseException.class, () -> EventCursor.decode(encoded));
+    }
+}
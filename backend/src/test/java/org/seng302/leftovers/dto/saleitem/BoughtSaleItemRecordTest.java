@@ -9,6 +9,7 @@ import org.seng302.leftovers.dto.saleitem.BoughtSaleItemRecord;
 import org.seng302.leftovers.entities.BoughtSaleItem;
 import org.seng302.leftovers.entities.Product;
 import org.seng302.leftovers.entities.User;
+import org.seng302.leftovers.persistence.SalesAggregate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
@@ -167,4 +168,28 @@ class BoughtSaleItemRecordTest {
         var record = new BoughtSaleItemRecord(startDate, endDate, List.of(item1, item2));
         assertEquals(6.0, record.getAverageDaysToSell());
     }
+
+    @Test
+    void construct_fromAggregate_sameAsFromItems() {
+        var items = List.of(item1, item2, item3);
+        long totalSecondsToSell = 0;
+        long totalLikes = 0;
+        long quantitySold = 0;
+        BigDecimal totalPrice = BigDecimal.ZERO;
+        for (var item : items) {
+            totalSecondsToSell += ChronoUnit.SECONDS.between(item.getListingDate(), item.getSaleDate());
+            totalLikes += item.getInterestCount();
+            quantitySold += item.getQuantity();
+            totalPrice = totalPrice.add(item.getPrice());
+        }
+        var aggregate = new SalesAggregate(0, 3, quantitySold, totalPrice, totalLikes, totalSecondsToSell, 2, 2);
+
+        assertEquals(new BoughtSaleItemRecord(startDate, endDate, items), new BoughtSaleItemRecord(startDate, endDate, aggregate));
+    }
+
+    @Test
+    void construct_noAggregate_sameAsFromNoItems() {
+        assertEquals(new BoughtSaleItemRecord(startDate, endDate, List.of()),
+                new BoughtSaleItemRecord(startDate, endDate, (SalesAggregate) null));
+    }
 }
@@ -0,0 +1,50 @@
+package org.seng302.leftovers.dto.saleitem;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SalesExportRowTest {
+
+    private SalesExportRow rowWithName(String productName) {
+        return new SalesExportRow(3L, Instant.parse("2021-09-14T03:07:30Z"), Instant.parse("2021-09-10T01:00:00Z"),
+                "FISH-1", productName, 2, new BigDecimal("10.50"), 4);
+    }
+
+    @Test
+    void csvHeader_columnNamesInOrder() {
+        assertEquals("id,saleDate,listingDate,productCode,productName,quantity,price,interestCount", SalesExportRow.csvHeader());
+    }
+
+    @Test
+    void toCsv_plainValues_fieldsInColumnOrder() {
+        assertEquals("3,2021-09-14T03:07:30Z,2021-09-10T01:00:00Z,FISH-1,Fish,2,10.50,4", rowWithName("Fish").toCsv());
+    }
+
+    @Test
+    void toCsv_nameWithSeparatorAndQuotes_nameQuoted() {
+        assertEquals("3,2021-09-14T03:07:30Z,2021-09-10T01:00:00Z,FISH-1,\"Fish, \"\"fresh\"\"\",2,10.50,4",
+                rowWithName("Fish, \"fresh\"").toCsv());
+    }
+
+    @Test
+    void toCsv_nameStartingWithFormula_namePrefixedWithQuote() {
+        assertEquals("3,2021-09-14T03:07:30Z,2021-09-10T01:00:00Z,FISH-1,'=SUM(A1:A2),2,10.50,4",
+                rowWithName("=SUM(A1:A2)").toCsv());
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+            "plain|plain",
+            "a,b|\"a,b\"",
+            "a\"b|\"a\"\"b\"",
+    }, delimiter = '|')
+    void escapeCsv_value_escapedAsExpected(String value, String expected) {
+        assertEquals(expected, SalesExportRow.escapeCsv(value));
+    }
+}
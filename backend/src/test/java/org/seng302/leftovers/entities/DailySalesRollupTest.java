@@ -0,0 +1,80 @@
+package org.seng302.leftovers.entities;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DailySalesRollupTest {
+
+    private final LocalDate day = LocalDate.parse("2021-09-14");
+
+    @Test
+    void new_withBusinessAndDay_noSales() {
+        var business = mock(Business.class);
+        var rollup = new DailySalesRollup(business, day);
+
+        assertEquals(business, rollup.getBusiness());
+        assertEquals(day, rollup.getDay());
+        assertEquals(0, rollup.getListingsSold());
+        assertEquals(0, rollup.getQuantitySold());
+        assertEquals(0, BigDecimal.ZERO.compareTo(rollup.getTotalPrice()));
+        assertEquals(0, rollup.getTotalLikes());
+        assertEquals(0, rollup.getTotalSecondsToSell());
+        assertEquals(0, rollup.getBuyerSketch().estimate());
+        assertEquals(0, rollup.getProductSketch().estimate());
+    }
+
+    @Test
+    void addSale_boughtSaleItem_totalsIncreased() {
+        var item = mock(BoughtSaleItem.class);
+        when(item.getQuantity()).thenReturn(3);
+        when(item.getPrice()).thenReturn(new BigDecimal("12.50"));
+        when(item.getInterestCount()).thenReturn(4);
+        when(item.getListingDate()).thenReturn(Instant.parse("2021-09-14T03:00:00Z"));
+        when(item.getSaleDate()).thenReturn(Instant.parse("2021-09-14T03:01:30Z"));
+        var buyer = mock(User.class);
+        when(buyer.getUserID()).thenReturn(5L);
+        when(item.getBuyer()).thenReturn(buyer);
+        var product = mock(Product.class);
+        when(product.getID()).thenReturn(6L);
+        when(item.getProduct()).thenReturn(product);
+
+        var rollup = new DailySalesRollup(mock(Business.class), day);
+        rollup.addSale(item);
+        rollup.addSale(item);
+
+        assertEquals(2, rollup.getListingsSold());
+        assertEquals(6, rollup.getQuantitySold());
+        assertEquals(0, new BigDecimal("25.00").compareTo(rollup.getTotalPrice()));
+        assertEquals(8, rollup.getTotalLikes());
+        assertEquals(180, rollup.getTotalSecondsToSell());
+        assertEquals(1, rollup.getBuyerSketch().estimate());
+        assertEquals(1, rollup.getProductSketch().estimate());
+    }
+
+    @Test
+    void addSale_differentBuyersAndProducts_sketchesCountEach() {
+        var rollup = new DailySalesRollup(mock(Business.class), day);
+        Instant saleDate = Instant.parse("2021-09-14T03:00:00Z");
+        rollup.addSale(1, BigDecimal.ONE, 0, saleDate, saleDate, 1L, 10L);
+        rollup.addSale(1, BigDecimal.ONE, 0, saleDate, saleDate, 2L, 10L);
+        rollup.addSale(1, BigDecimal.ONE, 0, saleDate, saleDate, 2L, 11L);
+
+        assertEquals(2, rollup.getBuyerSketch().estimate());
+        assertEquals(2, rollup.getProductSketch().estimate());
+    }
+
+    @Test
+    void dayOf_instant_dayInSystemTimeZone() {
+        var instant = Instant.parse("2021-09-14T23:30:00Z");
+
+        assertEquals(instant.atZone(ZoneId.systemDefault()).toLocalDate(), DailySalesRollup.dayOf(instant));
+    }
+}
@@ -790,4 +790,50 @@ class LocationTests {
     assertEquals(location.getRegion(), json.getAsString("region"));
     assertEquals(location.getCountry(), json.getAsString("country"));
   }
+
+  /**
+   * Checks that coordinates within range are valid, and that a location can have no coordinates
+   */
+  @Test
+  void checkValidCoordinatesInRange() {
+    assertTrue(testLocation.checkValidCoordinates(-43.53, 172.63));
+    assertTrue(testLocation.checkValidCoordinates(90.0, -180.0));
+    assertTrue(testLocation.checkValidCoordinates(null, null));
+  }
+
+  /**
+   * Checks that coordinates out of range, or with only a latitude or longitude, are invalid
+   */
+  @Test
+  void checkInvalidCoordinates() {
+    assertFalse(testLocation.checkValidCoordinates(90.5, 0.0));
+    assertFalse(testLocation.checkValidCoordinates(0.0, 180.5));
+    assertFalse(testLocation.checkValidCoordinates(-43.53, null));
+    assertFalse(testLocation.checkValidCoordinates(null, 172.63));
+  }
+
+  /**
+   * Checks that the builder rejects invalid coordinates
+   */
+  @Test
+  void buildWithInvalidCoordinatesThrowsException() {
+    locationBuilder.atCoordinates(-100.0, 172.63);
+    assertThrows(ValidationResponseException.class, () -> locationBuilder.build());
+  }
+
+  /**
+   * Test that the full JSON of a location includes its coordinates, and that a location created from the JSON has the
+   * same coordinates
+   */
+  @Test
+  void constructFullJsonIncludesCoordinatesTest() {
+    Location location = locationBuilder.atCoordinates(-43.53, 172.63).build();
+    var json = objectMapper.convertValue(new LocationDTO(location, true), JSONObject.class);
+    assertEquals(-43.53, json.get("latitude"));
+    assertEquals(172.63, json.get("longitude"));
+
+    Location created = objectMapper.convertValue(json, LocationDTO.class).createLocation();
+    assertEquals(-43.53, created.getLatitude());
+    assertEquals(172.63, created.getLongitude());
+  }
 }
@@ -12,6 +12,8 @@ import org.springframework.test.context.junit4.SpringRunner;
 import javax.transaction.Transactional;
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -117,4 +119,86 @@ class BoughtSaleItemRepositoryTest {
         var found = boughtSaleItemRepository.findById(boughtSaleItem.getId() + 1L);
         assertTrue(found.isEmpty());
     }
-}
+
+    @Test
+    void aggregateSales_salesInPeriod_totalsReturnedForPeriod() {
+        when(saleItem.getPrice()).thenReturn(new BigDecimal("50.50"));
+        when(saleItem.getQuantity()).thenReturn(2);
+        when(saleItem.getLikeCount()).thenReturn(1);
+        var secondItem = boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+
+        Instant now = Instant.now();
+        var aggregates = boughtSaleItemRepository.aggregateSales(business.getId(),
+                List.of(now.minus(2, ChronoUnit.DAYS), now.minus(1, ChronoUnit.DAYS)),
+                List.of(now.minus(1, ChronoUnit.DAYS), now.plus(1, ChronoUnit.DAYS)));
+
+        assertEquals(1, aggregates.size());
+        var aggregate = aggregates.get(0);
+        assertEquals(1, aggregate.getPeriod());
+        assertEquals(2, aggregate.getListingsSold());
+        assertEquals(8, aggregate.getQuantitySold());
+        assertEquals(0, new BigDecimal("150.50").compareTo(aggregate.getTotalPrice()));
+        assertEquals(6, aggregate.getTotalLikes());
+        assertEquals(1, aggregate.getUniqueBuyers());
+        assertEquals(1, aggregate.getUniqueProducts());
+        long expectedSecondsToSell = ChronoUnit.SECONDS.between(boughtSaleItem.getListingDate(), boughtSaleItem.getSaleDate())
+                + ChronoUnit.SECONDS.between(secondItem.getListingDate(), secondItem.getSaleDate());
+        assertTrue(Math.abs(expectedSecondsToSell - aggregate.getTotalSecondsToSell()) <= 2);
+    }
+
+    @Test
+    void aggregateSales_equalPeriodsWithGap_totalsReturnedForPeriod() {
+        Instant now = Instant.now();
+        var aggregates = boughtSaleItemRepository.aggregateSales(business.getId(),
+                List.of(now.minus(60, ChronoUnit.HOURS), now.minus(12, ChronoUnit.HOURS)),
+                List.of(now.minus(36, ChronoUnit.HOURS), now.plus(12, ChronoUnit.HOURS)));
+
+        assertEquals(1, aggregates.size());
+        assertEquals(1, aggregates.get(0).getPeriod());
+        assertEquals(1, aggregates.get(0).getListingsSold());
+    }
+
+    @Test
+    void aggregateSales_equalPeriodsWithSalesInGap_noTotalsReturned() {
+        Instant now = Instant.now();
+        var aggregates = boughtSaleItemRepository.aggregateSales(business.getId(),
+                List.of(now.minus(36, ChronoUnit.HOURS), now.plus(12, ChronoUnit.HOURS)),
+                List.of(now.minus(12, ChronoUnit.HOURS), now.plus(36, ChronoUnit.HOURS)));
+
+        assertEquals(List.of(), aggregates);
+    }
+
+    @Test
+    void aggregateSales_periodsOfDifferentLengths_totalsReturnedForEachPeriod() {
+        Instant now = Instant.now();
+        var aggregates = boughtSaleItemRepository.aggregateSales(business.getId(),
+                List.of(now.minus(3, ChronoUnit.DAYS), now.minus(1, ChronoUnit.DAYS), now.plus(1, ChronoUnit.DAYS)),
+                List.of(now.minus(1, ChronoUnit.DAYS), now.plus(1, ChronoUnit.DAYS), now.plus(4, ChronoUnit.DAYS)));
+
+        assertEquals(1, aggregates.size());
+        assertEquals(1, aggregates.get(0).getPeriod());
+        assertEquals(1, aggregates.get(0).getListingsSold());
+    }
+
+    @Test
+    void aggregateSales_salesOutsidePeriods_noTotalsReturned() {
+        Instant now = Instant.now();
+        var aggregates = boughtSaleItemRepository.aggregateSales(business.getId(),
+                List.of(now.minus(2, ChronoUnit.DAYS)), List.of(now.minus(1, ChronoUnit.DAYS)));
+
+        assertEquals(List.of(), aggregates);
+    }
+
+    @Test
+    void aggregateSales_otherBusiness_noTotalsReturned() {
+        Instant now = Instant.now();
+        var aggregates = boughtSaleItemRepository.aggregateSales(business.getId() + 1,
+                List.of(now.minus(1, ChronoUnit.DAYS)), List.of(now.plus(1, ChronoUnit.DAYS)));
+
+        assertEquals(List.of(), aggregates);
+    }
+
+    @Test
+    void aggregateSales_noPeriods_noTotalsReturned() {
+        assertEquals(List.of(), boughtSaleItemRepository.aggregateSales(business.getId(), List.of(), List.of()));
+    }}
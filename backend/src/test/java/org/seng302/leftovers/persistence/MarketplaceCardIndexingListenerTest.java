@@ -0,0 +1,126 @@
+package org.seng302.leftovers.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.seng302.leftovers.controllers.CardController;
+import org.seng302.leftovers.dto.card.ModifyMarketplaceCardDTO;
+import org.seng302.leftovers.entities.Keyword;
+import org.seng302.leftovers.entities.Location;
+import org.seng302.leftovers.entities.MarketplaceCard;
+import org.seng302.leftovers.entities.User;
+import org.seng302.leftovers.service.search.MarketplaceCardKeywordIndex;
+import org.seng302.leftovers.tools.AuthenticationTokenManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+
+@SpringBootTest
+class MarketplaceCardIndexingListenerTest {
+
+    @Autowired
+    private MarketplaceCardRepository marketplaceCardRepository;
+    @Autowired
+    private KeywordRepository keywordRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private MarketplaceCardKeywordIndex marketplaceCardKeywordIndex;
+    @Autowired
+    private CardController cardController;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private MockedStatic<AuthenticationTokenManager> authenticationTokenManager;
+
+    private Keyword fruit;
+    private Keyword vegetables;
+    private MarketplaceCard card;
+
+    @BeforeEach
+    void setUp() {
+        authenticationTokenManager = Mockito.mockStatic(AuthenticationTokenManager.class);
+        authenticationTokenManager.when(() -> AuthenticationTokenManager.sessionCanSeePrivate(any(), anyLong()))
+                .thenReturn(true);
+
+        marketplaceCardRepository.deleteAll();
+        keywordRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = userRepository.save(new User.Builder()
+                .withEmail("john@smith.com")
+                .withFirstName("John")
+                .withLastName("Smith")
+                .withAddress(Location.covertAddressStringToLocation("4,Rountree Street,Ashburton,Christchurch,New Zealand," +
+                        "Canterbury,8041"))
+                .withPassword("password123")
+                .withDob("2000-08-04")
+                .build());
+        fruit = keywordRepository.save(new Keyword("Fruit"));
+        vegetables = keywordRepository.save(new Keyword("Vegetables"));
+
+        card = new MarketplaceCard.Builder()
+                .withTitle("Feijoas")
+                .withDescription("A bag of feijoas")
+                .withCreator(user)
+                .withSection("ForSale")
+                .build();
+        card.setKeywords(List.of(fruit));
+        card = marketplaceCardRepository.save(card);
+        marketplaceCardKeywordIndex.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        authenticationTokenManager.close();
+        marketplaceCardRepository.deleteAll();
+        keywordRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private BitSet findCards(Keyword keyword) {
+        return marketplaceCardKeywordIndex.findMatchingIds(MarketplaceCard.Section.FOR_SALE, Set.of(keyword.getID()), false)
+                .orElseThrow();
+    }
+
+    @Test
+    void save_newCard_cardIndexed() {
+        assertTrue(findCards(fruit).get(card.getID().intValue()));
+        assertFalse(findCards(vegetables).get(card.getID().intValue()));
+    }
+
+    @Test
+    void delete_card_cardRemovedFromIndex() {
+        marketplaceCardRepository.delete(card);
+
+        assertFalse(findCards(fruit).get(card.getID().intValue()));
+    }
+
+    @Test
+    void modifyCard_onlyKeywordsChanged_cardFoundByNewKeywords() {
+        var cardProperties = objectMapper.convertValue(Map.of(
+                "section", "ForSale",
+                "title", card.getTitle(),
+                "description", card.getDescription(),
+                "keywordIds", List.of(vegetables.getID())
+        ), ModifyMarketplaceCardDTO.class);
+
+        cardController.modifyCard(mock(HttpServletRequest.class), card.getID(), cardProperties);
+
+        assertTrue(findCards(vegetables).get(card.getID().intValue()));
+        assertFalse(findCards(fruit).get(card.getID().intValue()));
+    }
+}
@@ -0,0 +1,89 @@
+package org.seng302.leftovers.persistence;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.dto.business.BusinessType;
+import org.seng302.leftovers.dto.stats.OperationStatsDTO;
+import org.seng302.leftovers.entities.Business;
+import org.seng302.leftovers.service.QueryStatsService;
+import org.seng302.leftovers.service.search.SearchSpecConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class QueryStatsConfigurationTest {
+
+    @Autowired
+    BusinessRepository businessRepository;
+    @Autowired
+    SaleItemRepository saleItemRepository;
+    @Autowired
+    QueryStatsService queryStatsService;
+
+    @BeforeEach
+    void setUp() {
+        queryStatsService.clear();
+    }
+
+    private List<String> getSpecificationNames() {
+        return queryStatsService.getStats().getSpecifications().stream()
+                .map(OperationStatsDTO::getName)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void specificationType_noNamedSpecifications_domainType() {
+        assertEquals("Business", QueryStatsConfiguration.specificationType("Business", Set.of()));
+    }
+
+    @Test
+    void specificationType_namedSpecifications_namesAfterDomainType() {
+        assertEquals("Business first+second",
+                QueryStatsConfiguration.specificationType("Business", List.of("first", "second")));
+    }
+
+    @Test
+    void findAll_namedSpecification_recordedUnderName() {
+        businessRepository.findAll(SearchSpecConstructor.constructSpecificationFromBusinessSearch(null,
+                BusinessType.RETAIL_TRADE));
+
+        assertEquals(List.of("Business constructSpecificationFromBusinessSearch"), getSpecificationNames());
+    }
+
+    @Test
+    void findAll_namedSpecificationCombined_recordedUnderName() {
+        Specification<Business> specification = SearchSpecConstructor
+                .constructSpecificationFromBusinessSearch(null, BusinessType.RETAIL_TRADE)
+                .and((root, query, criteriaBuilder) -> criteriaBuilder.isNotNull(root.get("id")));
+
+        businessRepository.findAll(specification);
+
+        assertEquals(List.of("Business constructSpecificationFromBusinessSearch"), getSpecificationNames());
+    }
+
+    @Test
+    void findAll_differentConstructorsOfSameEntity_recordedSeparately() {
+        saleItemRepository.findAll(SearchSpecConstructor.constructSaleItemSpecificationFromSearchQueries(
+                "apple", null, null, null));
+        saleItemRepository.findAll(SearchSpecConstructor.constructSpecificationFromBusinessIds(
+                SearchSpecConstructor.SALE_ITEM_BUSINESS_PATH, List.of(1L)));
+
+        assertEquals(List.of("SaleItem constructSaleItemSpecificationFromSearchQueries",
+                "SaleItem constructSpecificationFromBusinessIds"), getSpecificationNames());
+    }
+
+    @Test
+    void findAll_unnamedSpecification_recordedUnderDomainType() {
+        businessRepository.findAll((root, query, criteriaBuilder) -> criteriaBuilder.isNotNull(root.get("id")));
+
+        assertEquals(List.of("Business"), getSpecificationNames());
+    }
+}
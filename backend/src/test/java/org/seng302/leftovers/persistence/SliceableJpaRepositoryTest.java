@@ -0,0 +1,87 @@
+package org.seng302.leftovers.persistence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.entities.Location;
+import org.seng302.leftovers.entities.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class SliceableJpaRepositoryTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final Specification<User> sliceTestUsers = (root, query, criteriaBuilder) ->
+            criteriaBuilder.like(root.get("email"), "%@slice.test");
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        for (String name : List.of("Alice", "Bob", "Carol", "Dave", "Erin")) {
+            userRepository.save(new User.Builder()
+                    .withAddress(Location.covertAddressStringToLocation("4,Rountree Street,Ashburton,Christchurch,New Zealand," +
+                            "Canterbury,8041"))
+                    .withDob("2000-01-01")
+                    .withEmail(name.toLowerCase() + "@slice.test")
+                    .withFirstName(name)
+                    .withLastName("Smith")
+                    .withPassword("password123").build());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    private List<String> firstNames(Slice<User> slice) {
+        return slice.getContent().stream().map(User::getFirstName).collect(Collectors.toList());
+    }
+
+    @Test
+    void findSlice_firstPage_pageOfEntitiesWithNextPage() {
+        Slice<User> slice = userRepository.findSlice(sliceTestUsers, PageRequest.of(0, 2, Sort.by("firstName")));
+
+        assertFalse(slice instanceof Page);
+        assertEquals(List.of("Alice", "Bob"), firstNames(slice));
+        assertTrue(slice.hasNext());
+    }
+
+    @Test
+    void findSlice_lastFullPage_noNextPage() {
+        Slice<User> slice = userRepository.findSlice(sliceTestUsers, PageRequest.of(0, 5, Sort.by("firstName")));
+
+        assertEquals(5, slice.getNumberOfElements());
+        assertFalse(slice.hasNext());
+    }
+
+    @Test
+    void findSlice_lastPartialPage_noNextPage() {
+        Slice<User> slice = userRepository.findSlice(sliceTestUsers, PageRequest.of(2, 2, Sort.by(Sort.Direction.DESC, "firstName")));
+
+        assertEquals(List.of("Alice"), firstNames(slice));
+        assertFalse(slice.hasNext());
+    }
+
+    @Test
+    void findSlice_unpaged_allMatchingEntities() {
+        Slice<User> slice = userRepository.findSlice(sliceTestUsers, Pageable.unpaged());
+
+        assertEquals(5, slice.getNumberOfElements());
+        assertFalse(slice.hasNext());
+    }
+}
@@ -0,0 +1,164 @@
+package org.seng302.leftovers.persistence.event;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.dto.event.EventDTO;
+import org.seng302.leftovers.entities.Keyword;
+import org.seng302.leftovers.entities.Location;
+import org.seng302.leftovers.entities.MarketplaceCard;
+import org.seng302.leftovers.entities.User;
+import org.seng302.leftovers.entities.event.Event;
+import org.seng302.leftovers.entities.event.ExpiryEvent;
+import org.seng302.leftovers.entities.event.GlobalMessageEvent;
+import org.seng302.leftovers.entities.event.KeywordCreatedEvent;
+import org.seng302.leftovers.persistence.KeywordRepository;
+import org.seng302.leftovers.persistence.MarketplaceCardRepository;
+import org.seng302.leftovers.persistence.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that rendering a newsfeed takes the same number of SQL statements no matter how many events are on it, since
+ * the associations of the events are batch fetched rather than loaded one event at a time
+ */
+@SpringBootTest
+class EventFetchingTest {
+
+    @Autowired
+    EventRepository eventRepository;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    KeywordRepository keywordRepository;
+    @Autowired
+    MarketplaceCardRepository marketplaceCardRepository;
+    @Autowired
+    EntityManager entityManager;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    User user;
+    int createdUsers = 0;
+
+    @BeforeEach
+    void setUp() {
+        clearDatabase();
+        user = createUser();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clearDatabase();
+    }
+
+    private void clearDatabase() {
+        eventRepository.deleteAll();
+        marketplaceCardRepository.deleteAll();
+        keywordRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private User createUser() {
+        createdUsers++;
+        return userRepository.save(new User.Builder()
+                .withFirstName("John")
+                .withLastName("Smith")
+                .withEmail("user" + createdUsers + "@testing")
+                .withPassword("12345678abc")
+                .withDob("2001-03-11")
+                .withAddress(Location.covertAddressStringToLocation("4,Rountree Street,Ashburton,Christchurch,New Zealand," +
+                        "Canterbury,8041"))
+                .build());
+    }
+
+    /**
+     * Converts a number into a distinct string of letters, since keyword names can only contain letters
+     * @param number Number to convert
+     * @return Letters for the number
+     */
+    private String lettersFor(int number) {
+        StringBuilder letters = new StringBuilder();
+        do {
+            letters.append((char) ('a' + number % 26));
+            number /= 26;
+        } while (number > 0);
+        return letters.toString();
+    }
+
+    /**
+     * Adds events of several types to the user's feed, each referring to different entities created by a different
+     * user, so that loading each event one at a time would take extra statements for every event
+     * @param count Number of events of each type to add
+     */
+    private void addEvents(int count) {
+        for (int i = 0; i < count; i++) {
+            User creator = createUser();
+
+            Keyword keyword = keywordRepository.save(new Keyword("Keyword " + lettersFor(createdUsers)));
+            eventRepository.save(new KeywordCreatedEvent(user, creator, keyword));
+
+            MarketplaceCard card = marketplaceCardRepository.save(new MarketplaceCard.Builder()
+                    .withTitle("Card " + createdUsers)
+                    .withDescription("Some description")
+                    .withCreator(creator)
+                    .withSection("Wanted")
+                    .build());
+            eventRepository.save(new ExpiryEvent(card));
+
+            eventRepository.save(new GlobalMessageEvent(user, "Message " + i));
+        }
+    }
+
+    /**
+     * Renders the user's feed the same way the feed endpoints do, and counts the SQL statements this takes
+     * @param render Loads the user's events
+     * @return Number of statements prepared while loading and converting the events
+     */
+    private long countStatements(Supplier<List<Event>> render) {
+        AtomicLong statements = new AtomicLong();
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).addEventListeners(new BaseSessionEventListener() {
+                @Override
+                public void jdbcPrepareStatementStart() {
+                    statements.incrementAndGet();
+                }
+            });
+            List<EventDTO> dtos = render.get().stream().map(Event::asDTO).collect(Collectors.toList());
+            assertEquals(dtos.size(), dtos.stream().map(EventDTO::getId).distinct().count());
+        });
+        return statements.get();
+    }
+
+    @Test
+    void findEventsForUser_moreEvents_sameNumberOfStatements() {
+        addEvents(2);
+        long fewEventsStatements = countStatements(() -> eventRepository.findEventsForUser(user));
+
+        addEvents(10);
+        long manyEventsStatements = countStatements(() -> eventRepository.findEventsForUser(user));
+
+        assertEquals(fewEventsStatements, manyEventsStatements);
+    }
+
+    @Test
+    void findEventPageForUser_largerPage_sameNumberOfStatements() {
+        addEvents(12);
+        long smallPageStatements = countStatements(() -> eventRepository.findEventPageForUser(user, PageRequest.of(0, 6)));
+        long largePageStatements = countStatements(() -> eventRepository.findEventPageForUser(user, PageRequest.of(0, 30)));
+
+        assertEquals(smallPageStatements, largePageStatements);
+    }
+}
@@ -15,6 +15,7 @@ import org.seng302.leftovers.entities.event.GlobalMessageEvent;
 import org.seng302.leftovers.persistence.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
 
 import javax.annotation.Resource;
 import java.lang.reflect.Field;
@@ -213,6 +214,55 @@ class EventRepositoryTest {
         assertFalse(queryResult.contains(testUserEvent3));
     }
 
+    @Test
+    void findEventPageForUser_pageSmallerThanFeed_newestEventsForGivenUserReturned() {
+        List<Event> queryResult = eventRepository.findEventPageForUser(testUser, PageRequest.of(0, 2));
+
+        assertEquals(List.of(testUserEvent3, testUserEvent2), queryResult);
+    }
+
+    @Test
+    void findEventPageForUser_pageLargerThanFeed_allEventsForGivenUserReturned() {
+        List<Event> queryResult = eventRepository.findEventPageForUser(testUser, PageRequest.of(0, 10));
+
+        assertEquals(List.of(testUserEvent3, testUserEvent2, testUserEvent1), queryResult);
+    }
+
+    @Test
+    void findEventPageForUserAfter_afterNewestEvent_olderEventsReturned() {
+        Event newest = eventRepository.findEventPageForUser(testUser, PageRequest.of(0, 1)).get(0);
+
+        List<Event> queryResult = eventRepository.findEventPageForUserAfter(testUser, newest.getCreated(), newest.getId(), PageRequest.of(0, 10));
+
+        assertEquals(List.of(testUserEvent2, testUserEvent1), queryResult);
+    }
+
+    @Test
+    void findEventPageForUserAfter_afterOldestEvent_noEventsReturned() {
+        Event oldest = eventRepository.findEventPageForUser(testUser, PageRequest.of(0, 10)).get(2);
+
+        List<Event> queryResult = eventRepository.findEventPageForUserAfter(testUser, oldest.getCreated(), oldest.getId(), PageRequest.of(0, 10));
+
+        assertTrue(queryResult.isEmpty());
+    }
+
+    @Test
+    void findEventPageForUserAfter_eventsWithSameCreatedDate_orderedByDescendingId() {
+        Instant created = Instant.parse("2021-09-12T12:00:00Z");
+        setCreatedForEventInDatabase(testUserEvent1, created);
+        setCreatedForEventInDatabase(testUserEvent2, created);
+        setCreatedForEventInDatabase(testUserEvent3, created);
+
+        List<Event> firstPage = eventRepository.findEventPageForUser(testUser, PageRequest.of(0, 1));
+        Event first = firstPage.get(0);
+        List<Event> rest = eventRepository.findEventPageForUserAfter(testUser, first.getCreated(), first.getId(), PageRequest.of(0, 10));
+
+        assertEquals(2, rest.size());
+        assertTrue(first.getId() > rest.get(0).getId());
+        assertTrue(rest.get(0).getId() > rest.get(1).getId());
+        assertFalse(rest.contains(first));
+    }
+
     @Test
     @SneakyThrows
     void onUpdate_lastModifiedOneDayAgo_lastModifiedChangedToCurrentInstant() {
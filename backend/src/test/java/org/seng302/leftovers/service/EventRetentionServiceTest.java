@@ -0,0 +1,262 @@
+package org.seng302.leftovers.service;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.dto.event.EventStatus;
+import org.seng302.leftovers.dto.event.EventTag;
+import org.seng302.leftovers.entities.Location;
+import org.seng302.leftovers.entities.User;
+import org.seng302.leftovers.entities.event.ArchivedEvent;
+import org.seng302.leftovers.entities.event.Event;
+import org.seng302.leftovers.entities.event.GlobalMessageEvent;
+import org.seng302.leftovers.persistence.UserRepository;
+import org.seng302.leftovers.persistence.event.ArchivedEventRepository;
+import org.seng302.leftovers.persistence.event.EventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class EventRetentionServiceTest {
+
+    @Autowired
+    SessionFactory sessionFactory;
+    @Autowired
+    FeedSummaryService feedSummaryService;
+    @Autowired
+    EventRepository eventRepository;
+    @Autowired
+    ArchivedEventRepository archivedEventRepository;
+    @Autowired
+    UserRepository userRepository;
+
+    User user;
+    Instant now;
+
+    @BeforeEach
+    void setUp() {
+        archivedEventRepository.deleteAll();
+        eventRepository.deleteAll();
+        userRepository.deleteAll();
+
+        user = userRepository.save(new User.Builder()
+                .withFirstName("John")
+                .withLastName("Smith")
+                .withEmail("user@testing")
+                .withPassword("12345678abc")
+                .withDob("2001-03-11")
+                .withAddress(Location.covertAddressStringToLocation("4,Rountree Street,Ashburton,Christchurch,New Zealand," +
+                        "Canterbury,8041"))
+                .build());
+        now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        archivedEventRepository.deleteAll();
+        eventRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private EventRetentionService createService(String rules, int batchSize, int maxEventsPerRun) {
+        return new EventRetentionService(sessionFactory, feedSummaryService, EventRetentionService.Rule.parseAll(rules),
+                batchSize, maxEventsPerRun, Duration.ZERO, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    /**
+     * Saves a global message event for the user which was last modified the given number of days ago
+     * @param daysOld Days since the event was last modified
+     * @param read Whether the event has been read
+     * @param status Status of the event
+     * @return The saved event
+     */
+    private Event createEvent(int daysOld, boolean read, EventStatus status) {
+        Event event = new GlobalMessageEvent(user, "Message");
+        if (read) event.markAsRead();
+        event.updateEventStatus(status);
+        event = eventRepository.save(event);
+
+        try (Session session = sessionFactory.openSession()) {
+            var transaction = session.beginTransaction();
+            session.createQuery("update GlobalMessageEvent e set e.lastModified = :modified where e.id = :id")
+                    .setParameter("modified", now.minus(Duration.ofDays(daysOld)))
+                    .setParameter("id", event.getId())
+                    .executeUpdate();
+            transaction.commit();
+        }
+        return event;
+    }
+
+    private Set<Long> remainingEventIds() {
+        Set<Long> ids = new HashSet<>();
+        eventRepository.findAll().forEach(event -> ids.add(event.getId()));
+        return ids;
+    }
+
+    @Test
+    void parse_readAndStatusConditions_ruleParsed() {
+        var rule = EventRetentionService.Rule.parse("read archived 90d");
+
+        assertEquals(Duration.ofDays(90), rule.getAge());
+        assertEquals(true, rule.getRead());
+        assertEquals(Set.of(EventStatus.ARCHIVED), rule.getStatuses());
+    }
+
+    @Test
+    void parse_onlyAge_ruleMatchesAnyEvent() {
+        var rule = EventRetentionService.Rule.parse("365d");
+
+        assertEquals(Duration.ofDays(365), rule.getAge());
+        assertNull(rule.getRead());
+        assertTrue(rule.getStatuses().isEmpty());
+    }
+
+    @Test
+    void parseAll_multipleRules_allRulesParsedInOrder() {
+        var rules = EventRetentionService.Rule.parseAll("read archived 90d, unread normal starred 400d");
+
+        assertEquals(2, rules.size());
+        assertEquals(false, rules.get(1).getRead());
+        assertEquals(Set.of(EventStatus.NORMAL, EventStatus.STARRED), rules.get(1).getStatuses());
+    }
+
+    @Test
+    void parse_noAge_exceptionThrown() {
+        assertThrows(IllegalArgumentException.class, () -> EventRetentionService.Rule.parse("read archived"));
+    }
+
+    @Test
+    void parse_unknownCondition_exceptionThrown() {
+        assertThrows(IllegalArgumentException.class, () -> EventRetentionService.Rule.parse("read deleted 90d"));
+    }
+
+    @Test
+    void parse_readAndUnread_exceptionThrown() {
+        assertThrows(IllegalArgumentException.class, () -> EventRetentionService.Rule.parse("read unread 90d"));
+    }
+
+    @Test
+    void run_eventMatchesRule_eventMovedToArchive() {
+        Event event = createEvent(100, true, EventStatus.ARCHIVED);
+
+        var run = createService("read archived 90d", 10, 100).run();
+
+        assertEquals(1, run.getArchived());
+        assertFalse(remainingEventIds().contains(event.getId()));
+        ArchivedEvent archived = archivedEventRepository.findById(event.getId()).orElseThrow();
+        assertEquals("GlobalMessageEvent", archived.getEventType());
+        assertEquals(EventStatus.ARCHIVED, archived.getStatus());
+        assertEquals(EventTag.NONE, archived.getTag());
+        assertTrue(archived.isRead());
+        assertEquals(now, archived.getArchived());
+    }
+
+    @Test
+    void run_eventsDoNotMatchRule_eventsKept() {
+        Event recent = createEvent(80, true, EventStatus.ARCHIVED);
+        Event unread = createEvent(100, false, EventStatus.ARCHIVED);
+        Event starred = createEvent(100, true, EventStatus.STARRED);
+
+        var run = createService("read archived 90d", 10, 100).run();
+
+        assertEquals(0, run.getArchived());
+        assertEquals(Set.of(recent.getId(), unread.getId(), starred.getId()), remainingEventIds());
+        assertEquals(0, archivedEventRepository.count());
+    }
+
+    @Test
+    void run_moreEventsThanBatchSize_allEventsArchived() {
+        for (int i = 0; i < 7; i++) {
+            createEvent(100, true, EventStatus.ARCHIVED);
+        }
+
+        var run = createService("read archived 90d", 3, 100).run();
+
+        assertEquals(7, run.getArchived());
+        assertFalse(run.isLimitReached());
+        assertTrue(remainingEventIds().isEmpty());
+        assertEquals(7, archivedEventRepository.count());
+    }
+
+    @Test
+    void run_moreEventsThanLimit_onlyLimitArchivedAndRestArchivedNextRun() {
+        for (int i = 0; i < 5; i++) {
+            createEvent(100, true, EventStatus.ARCHIVED);
+        }
+        var service = createService("read archived 90d", 2, 3);
+
+        var firstRun = service.run();
+
+        assertEquals(3, firstRun.getArchived());
+        assertTrue(firstRun.isLimitReached());
+        assertEquals(2, remainingEventIds().size());
+
+        var secondRun = service.run();
+
+        assertEquals(2, secondRun.getArchived());
+        assertFalse(secondRun.isLimitReached());
+        assertTrue(remainingEventIds().isEmpty());
+    }
+
+    @Test
+    void run_multipleRules_eventsMatchingAnyRuleArchived() {
+        Event readArchived = createEvent(100, true, EventStatus.ARCHIVED);
+        Event oldNormal = createEvent(400, false, EventStatus.NORMAL);
+        Event recentNormal = createEvent(100, false, EventStatus.NORMAL);
+
+        createService("read archived 90d, 365d", 10, 100).run();
+
+        assertEquals(Set.of(recentNormal.getId()), remainingEventIds());
+        assertTrue(archivedEventRepository.existsById(readArchived.getId()));
+        assertTrue(archivedEventRepository.existsById(oldNormal.getId()));
+    }
+
+    @Test
+    void run_eventsArchived_feedSummaryReflectsArchive() {
+        createEvent(100, true, EventStatus.ARCHIVED);
+        createEvent(10, false, EventStatus.NORMAL);
+        assertEquals(2, feedSummaryService.getSummary(user.getUserID()).getTotal());
+
+        createService("read archived 90d", 10, 100).run();
+
+        assertEquals(1, feedSummaryService.getSummary(user.getUserID()).getTotal());
+    }
+
+    @Test
+    void run_eventsArchived_metricsUpdated() {
+        createEvent(100, true, EventStatus.ARCHIVED);
+        var service = createService("read archived 90d", 10, 100);
+        assertTrue(service.getLastRun().isEmpty());
+
+        service.run();
+        service.run();
+
+        assertEquals(2, service.getTotalRuns());
+        assertEquals(1, service.getTotalArchived());
+        var lastRun = service.getLastRun().orElseThrow();
+        assertEquals(0, lastRun.getArchived());
+        assertEquals(now, lastRun.getStarted());
+    }
+
+    @Test
+    void run_eventsArchived_archivedCountedByType() {
+        createEvent(100, true, EventStatus.ARCHIVED);
+        createEvent(100, true, EventStatus.ARCHIVED);
+
+        var run = createService("read archived 90d", 10, 100).run();
+
+        assertEquals(2L, run.getArchivedByType().get("GlobalMessageEvent"));
+    }
+}
@@ -0,0 +1,156 @@
+package org.seng302.leftovers.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.seng302.leftovers.dto.event.EventDTO;
+import org.seng302.leftovers.entities.User;
+import org.seng302.leftovers.entities.event.Event;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class EventStreamServiceTest {
+
+    EventStreamService eventStreamService;
+
+    @Mock
+    User mockUser;
+    @Mock
+    Event mockEvent;
+    @Mock
+    EventDTO mockEventDTO;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        when(mockUser.getUserID()).thenReturn(7L);
+        when(mockEvent.getNotifiedUser()).thenReturn(mockUser);
+        when(mockEvent.asDTO()).thenReturn(mockEventDTO);
+        when(mockEventDTO.getLastModified()).thenReturn(Instant.parse("2021-09-08T08:47:59Z"));
+        when(mockEventDTO.getId()).thenReturn(3L);
+
+        // Only two events can wait to be sent on each stream
+        eventStreamService = new EventStreamService(2, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventStreamService.shutdown();
+    }
+
+    @Test
+    void subscribe_noExistingStreams_subscriberCountIsOne() {
+        eventStreamService.subscribe(7L);
+        assertEquals(1, eventStreamService.getSubscriberCount(7L));
+    }
+
+    @Test
+    void subscribe_multipleStreamsForUser_eachStreamIsDistinct() {
+        var first = eventStreamService.subscribe(7L);
+        var second = eventStreamService.subscribe(7L);
+
+        assertNotSame(first, second);
+        assertEquals(2, eventStreamService.getSubscriberCount(7L));
+    }
+
+    @Test
+    void subscribe_otherUser_subscriberCountNotAffected() {
+        eventStreamService.subscribe(8L);
+        assertEquals(0, eventStreamService.getSubscriberCount(7L));
+        assertEquals(1, eventStreamService.getSubscriberCount(8L));
+    }
+
+    @Test
+    void publish_noSubscribers_eventNotConverted() {
+        eventStreamService.publish(mockEvent);
+        verify(mockEvent, times(0)).asDTO();
+    }
+
+    @Test
+    void publish_userSubscribed_eventConvertedOnce() {
+        eventStreamService.subscribe(7L);
+        eventStreamService.subscribe(7L);
+
+        eventStreamService.publish(mockEvent);
+
+        verify(mockEvent, times(1)).asDTO();
+    }
+
+    @Test
+    void publish_otherUserSubscribed_eventNotConverted() {
+        eventStreamService.subscribe(8L);
+
+        eventStreamService.publish(mockEvent);
+
+        verify(mockEvent, times(0)).asDTO();
+    }
+
+    /**
+     * Creates an event DTO with the same last modified time as the mock event DTO
+     * @param id Id of the event
+     * @return Event DTO
+     */
+    private EventDTO otherEvent(long id) {
+        EventDTO event = mock(EventDTO.class);
+        when(event.getLastModified()).thenReturn(mockEventDTO.getLastModified());
+        when(event.getId()).thenReturn(id);
+        return event;
+    }
+
+    @Test
+    void toStreamEventId_event_lastModifiedAndId() {
+        assertEquals("2021-09-08T08:47:59Z:3", EventStreamService.toStreamEventId(mockEventDTO));
+    }
+
+    @Test
+    void subscribe_missedEvents_missedEventsRead() {
+        List<EventDTO> missed = List.of(mockEventDTO);
+        Supplier<List<EventDTO>> missedEvents = mock(Supplier.class);
+        when(missedEvents.get()).thenReturn(missed);
+
+        eventStreamService.subscribe(7L, missedEvents);
+
+        verify(missedEvents).get();
+        assertEquals(1, eventStreamService.getSubscriberCount(7L));
+    }
+
+    @Test
+    void subscribe_readingMissedEventsFails_streamRemoved() {
+        Supplier<List<EventDTO>> missedEvents = () -> {
+            throw new IllegalStateException("Database unavailable");
+        };
+
+        assertThrows(IllegalStateException.class, () -> eventStreamService.subscribe(7L, missedEvents));
+        assertEquals(0, eventStreamService.getSubscriberCount(7L));
+    }
+
+    @Test
+    void subscribe_missedEventPublishedDuringReplay_eventNotSentTwice() {
+        // The replayed events are queued together, so a duplicate of a missed event would overflow the queue
+        eventStreamService.subscribe(7L, () -> {
+            eventStreamService.publish(mockEvent);
+            return List.of(otherEvent(2L), mockEventDTO);
+        });
+
+        assertEquals(1, eventStreamService.getSubscriberCount(7L));
+    }
+
+    @Test
+    void subscribe_newEventPublishedDuringReplay_eventAlsoSent() {
+        // The replayed events are queued together, so the new event overflows the queue if it is sent
+        eventStreamService.subscribe(7L, () -> {
+            eventStreamService.publish(mockEvent);
+            return List.of(otherEvent(1L), otherEvent(2L));
+        });
+
+        assertEquals(0, eventStreamService.getSubscriberCount(7L));
+    }
+}
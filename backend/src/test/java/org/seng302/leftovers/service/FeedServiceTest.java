@@ -0,0 +1,225 @@
+package org.seng302.leftovers.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.dto.event.EventFilterDTO;
+import org.seng302.leftovers.dto.event.EventStatus;
+import org.seng302.leftovers.dto.event.EventTag;
+import org.seng302.leftovers.entities.Location;
+import org.seng302.leftovers.entities.User;
+import org.seng302.leftovers.entities.event.Event;
+import org.seng302.leftovers.entities.event.GlobalMessageEvent;
+import org.seng302.leftovers.persistence.UserRepository;
+import org.seng302.leftovers.persistence.event.EventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class FeedServiceTest {
+
+    @Autowired
+    FeedService feedService;
+    @Autowired
+    EventRepository eventRepository;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    FeedSummaryService feedSummaryService;
+
+    User user;
+    User otherUser;
+    List<Event> userEvents;
+    Event otherUserEvent;
+
+    @BeforeEach
+    void setUp() {
+        eventRepository.deleteAll();
+        userRepository.deleteAll();
+
+        user = userRepository.save(createUser("user@testing"));
+        otherUser = userRepository.save(createUser("other@testing"));
+
+        userEvents = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            userEvents.add(eventRepository.save(new GlobalMessageEvent(user, "Message " + i)));
+        }
+        otherUserEvent = eventRepository.save(new GlobalMessageEvent(otherUser, "Other message"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private User createUser(String email) {
+        return new User.Builder()
+                .withFirstName("John")
+                .withLastName("Smith")
+                .withEmail(email)
+                .withPassword("12345678abc")
+                .withDob("2001-03-11")
+                .withAddress(Location.covertAddressStringToLocation("4,Rountree Street,Ashburton,Christchurch,New Zealand," +
+                        "Canterbury,8041"))
+                .build();
+    }
+
+    /**
+     * Reloads the given user's events from the database
+     * @param owner User to load the events of
+     * @return Events of the user mapped by id
+     */
+    private Map<Long, Event> reloadEvents(User owner) {
+        return eventRepository.findEventsForUser(owner).stream()
+                .collect(Collectors.toMap(Event::getId, Function.identity()));
+    }
+
+    @Test
+    void markAsRead_emptyFilter_allUserEventsMarkedAsRead() {
+        int count = feedService.markAsRead(user, new EventFilterDTO());
+
+        assertEquals(3, count);
+        for (Event event : reloadEvents(user).values()) {
+            assertTrue(event.isRead());
+        }
+    }
+
+    @Test
+    void markAsRead_emptyFilter_otherUsersEventsUnchanged() {
+        feedService.markAsRead(user, new EventFilterDTO());
+
+        assertFalse(reloadEvents(otherUser).get(otherUserEvent.getId()).isRead());
+    }
+
+    @Test
+    void markAsRead_eventIdsProvided_onlyThoseEventsMarkedAsRead() {
+        Long readId = userEvents.get(0).getId();
+
+        int count = feedService.markAsRead(user, new EventFilterDTO(List.of(readId), null, null));
+
+        assertEquals(1, count);
+        Map<Long, Event> events = reloadEvents(user);
+        assertTrue(events.get(readId).isRead());
+        assertFalse(events.get(userEvents.get(1).getId()).isRead());
+        assertFalse(events.get(userEvents.get(2).getId()).isRead());
+    }
+
+    @Test
+    void markAsRead_otherUsersEventIdProvided_eventUnchanged() {
+        int count = feedService.markAsRead(user, new EventFilterDTO(List.of(otherUserEvent.getId()), null, null));
+
+        assertEquals(0, count);
+        assertFalse(reloadEvents(otherUser).get(otherUserEvent.getId()).isRead());
+    }
+
+    @Test
+    void markAsRead_emptyEventIdList_noEventsChanged() {
+        int count = feedService.markAsRead(user, new EventFilterDTO(List.of(), null, null));
+
+        assertEquals(0, count);
+        for (Event event : reloadEvents(user).values()) {
+            assertFalse(event.isRead());
+        }
+    }
+
+    @Test
+    void markAsRead_eventsChanged_lastModifiedUpdated() throws InterruptedException {
+        Thread.sleep(10); // Make sure the update happens after the events were created
+        Instant before = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        feedService.markAsRead(user, new EventFilterDTO());
+
+        for (Event event : reloadEvents(user).values()) {
+            assertFalse(event.getLastModified().isBefore(before));
+        }
+        assertTrue(reloadEvents(otherUser).get(otherUserEvent.getId()).getLastModified().isBefore(before));
+    }
+
+    @Test
+    void markAsRead_eventsChanged_feedSummaryReflectsChange() {
+        assertEquals(3, feedSummaryService.getSummary(user.getUserID()).getUnread());
+
+        feedService.markAsRead(user, new EventFilterDTO());
+
+        assertEquals(0, feedSummaryService.getSummary(user.getUserID()).getUnread());
+    }
+
+    @Test
+    void setTag_statusFilter_onlyEventsWithStatusTagged() {
+        Event starred = userEvents.get(0);
+        starred.updateEventStatus(EventStatus.STARRED);
+        eventRepository.save(starred);
+
+        int count = feedService.setTag(user, new EventFilterDTO(null, null, EventStatus.STARRED), EventTag.RED);
+
+        assertEquals(1, count);
+        Map<Long, Event> events = reloadEvents(user);
+        assertEquals(EventTag.RED, events.get(starred.getId()).getTag());
+        assertEquals(EventTag.NONE, events.get(userEvents.get(1).getId()).getTag());
+    }
+
+    @Test
+    void setStatus_emptyFilter_nonArchivedEventsChanged() {
+        int count = feedService.setStatus(user, new EventFilterDTO(), EventStatus.STARRED);
+
+        assertEquals(3, count);
+        for (Event event : reloadEvents(user).values()) {
+            assertEquals(EventStatus.STARRED, event.getStatus());
+        }
+    }
+
+    @Test
+    void setStatus_archivedEvent_archivedEventUnchanged() {
+        Event archived = userEvents.get(0);
+        archived.updateEventStatus(EventStatus.ARCHIVED);
+        eventRepository.save(archived);
+
+        int count = feedService.setStatus(user, new EventFilterDTO(), EventStatus.STARRED);
+
+        assertEquals(2, count);
+        assertEquals(EventStatus.ARCHIVED, reloadEvents(user).get(archived.getId()).getStatus());
+    }
+
+    @Test
+    void delete_tagFilter_onlyEventsWithTagDeleted() {
+        Event tagged = userEvents.get(0);
+        tagged.setTag(EventTag.BLUE);
+        eventRepository.save(tagged);
+
+        int count = feedService.delete(user, new EventFilterDTO(null, EventTag.BLUE, null));
+
+        assertEquals(1, count);
+        Map<Long, Event> events = reloadEvents(user);
+        assertFalse(events.containsKey(tagged.getId()));
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    void delete_eventsDeleted_feedSummaryReflectsChange() {
+        assertEquals(3, feedSummaryService.getSummary(user.getUserID()).getTotal());
+
+        feedService.delete(user, new EventFilterDTO());
+
+        assertEquals(0, feedSummaryService.getSummary(user.getUserID()).getTotal());
+    }
+
+    @Test
+    void delete_emptyFilter_onlyUsersEventsDeleted() {
+        int count = feedService.delete(user, new EventFilterDTO());
+
+        assertEquals(3, count);
+        assertTrue(reloadEvents(user).isEmpty());
+        assertEquals(1, reloadEvents(otherUser).size());
+    }
+}
@@ -0,0 +1,307 @@
+package org.seng302.leftovers.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.dto.event.EventStatus;
+import org.seng302.leftovers.dto.event.EventTag;
+import org.seng302.leftovers.dto.event.FeedSummaryDTO;
+import org.seng302.leftovers.entities.Location;
+import org.seng302.leftovers.entities.User;
+import org.seng302.leftovers.entities.event.Event;
+import org.seng302.leftovers.entities.event.GlobalMessageEvent;
+import org.seng302.leftovers.persistence.UserRepository;
+import org.seng302.leftovers.persistence.event.EventCount;
+import org.seng302.leftovers.persistence.event.EventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class FeedSummaryServiceTest {
+
+    @Autowired
+    FeedSummaryService feedSummaryService;
+    @Autowired
+    EventRepository eventRepository;
+    @Autowired
+    UserRepository userRepository;
+
+    User user;
+    User otherUser;
+    List<Event> userEvents;
+
+    @BeforeEach
+    void setUp() {
+        eventRepository.deleteAll();
+        userRepository.deleteAll();
+
+        user = userRepository.save(createUser("user@testing"));
+        otherUser = userRepository.save(createUser("other@testing"));
+
+        userEvents = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            userEvents.add(eventRepository.save(new GlobalMessageEvent(user, "Message " + i)));
+        }
+        eventRepository.save(new GlobalMessageEvent(otherUser, "Other message"));
+
+        Event read = userEvents.get(0);
+        read.markAsRead();
+        read.setTag(EventTag.RED);
+        read.updateEventStatus(EventStatus.STARRED);
+        userEvents.set(0, eventRepository.save(read));
+
+        feedSummaryService.invalidate(user.getUserID());
+        feedSummaryService.invalidate(otherUser.getUserID());
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private User createUser(String email) {
+        return new User.Builder()
+                .withFirstName("John")
+                .withLastName("Smith")
+                .withEmail(email)
+                .withPassword("12345678abc")
+                .withDob("2001-03-11")
+                .withAddress(Location.covertAddressStringToLocation("4,Rountree Street,Ashburton,Christchurch,New Zealand," +
+                        "Canterbury,8041"))
+                .build();
+    }
+
+    @Test
+    void getSummary_userWithEvents_countsMatchUsersEvents() {
+        FeedSummaryDTO summary = feedSummaryService.getSummary(user.getUserID());
+
+        assertEquals(3, summary.getTotal());
+        assertEquals(2, summary.getUnread());
+        assertEquals(1, summary.getTags().get(EventTag.RED));
+        assertEquals(2, summary.getTags().get(EventTag.NONE));
+        assertEquals(1, summary.getStatuses().get(EventStatus.STARRED));
+        assertEquals(2, summary.getStatuses().get(EventStatus.NORMAL));
+    }
+
+    @Test
+    void getSummary_userWithEvents_everyTagAndStatusIncluded() {
+        FeedSummaryDTO summary = feedSummaryService.getSummary(user.getUserID());
+
+        assertEquals(EventTag.values().length, summary.getTags().size());
+        assertEquals(0, summary.getTags().get(EventTag.BLUE));
+        assertEquals(EventStatus.values().length, summary.getStatuses().size());
+        assertEquals(0, summary.getStatuses().get(EventStatus.ARCHIVED));
+    }
+
+    @Test
+    void getSummary_userWithNoEvents_allCountsZero() {
+        eventRepository.deleteAll();
+
+        FeedSummaryDTO summary = feedSummaryService.getSummary(user.getUserID());
+
+        assertEquals(0, summary.getTotal());
+        assertEquals(0, summary.getUnread());
+        assertEquals(0, summary.getTags().get(EventTag.NONE));
+    }
+
+    @Test
+    void getSummary_userNotTracked_userTracked() {
+        assertFalse(feedSummaryService.isTracked(user.getUserID()));
+
+        feedSummaryService.getSummary(user.getUserID());
+
+        assertTrue(feedSummaryService.isTracked(user.getUserID()));
+        assertFalse(feedSummaryService.isTracked(otherUser.getUserID()));
+    }
+
+    @Test
+    void eventCreated_userTracked_eventCounted() {
+        feedSummaryService.getSummary(user.getUserID());
+
+        eventRepository.save(new GlobalMessageEvent(user, "New message"));
+
+        FeedSummaryDTO summary = feedSummaryService.getSummary(user.getUserID());
+        assertEquals(4, summary.getTotal());
+        assertEquals(3, summary.getUnread());
+        assertEquals(3, summary.getTags().get(EventTag.NONE));
+        assertEquals(3, summary.getStatuses().get(EventStatus.NORMAL));
+    }
+
+    @Test
+    void eventCreated_userNotTracked_userStillNotTracked() {
+        eventRepository.save(new GlobalMessageEvent(user, "New message"));
+
+        assertFalse(feedSummaryService.isTracked(user.getUserID()));
+    }
+
+    @Test
+    void eventMarkedAsRead_userTracked_unreadCountDecremented() {
+        feedSummaryService.getSummary(user.getUserID());
+
+        Event event = userEvents.get(1);
+        event.markAsRead();
+        eventRepository.save(event);
+
+        FeedSummaryDTO summary = feedSummaryService.getSummary(user.getUserID());
+        assertEquals(3, summary.getTotal());
+        assertEquals(1, summary.getUnread());
+    }
+
+    @Test
+    void eventRetagged_userTracked_eventMovedBetweenTagCounts() {
+        feedSummaryService.getSummary(user.getUserID());
+
+        Event event = userEvents.get(0);
+        event.setTag(EventTag.GREEN);
+        eventRepository.save(event);
+
+        FeedSummaryDTO summary = feedSummaryService.getSummary(user.getUserID());
+        assertEquals(0, summary.getTags().get(EventTag.RED));
+        assertEquals(1, summary.getTags().get(EventTag.GREEN));
+        assertEquals(3, summary.getTotal());
+    }
+
+    @Test
+    void eventStatusChanged_userTracked_eventMovedBetweenStatusCounts() {
+        feedSummaryService.getSummary(user.getUserID());
+
+        Event event = userEvents.get(1);
+        event.updateEventStatus(EventStatus.ARCHIVED);
+        eventRepository.save(event);
+
+        FeedSummaryDTO summary = feedSummaryService.getSummary(user.getUserID());
+        assertEquals(1, summary.getStatuses().get(EventStatus.NORMAL));
+        assertEquals(1, summary.getStatuses().get(EventStatus.ARCHIVED));
+    }
+
+    @Test
+    void eventDeleted_userTracked_eventRemovedFromCounts() {
+        feedSummaryService.getSummary(user.getUserID());
+
+        eventRepository.delete(userEvents.get(0));
+
+        FeedSummaryDTO summary = feedSummaryService.getSummary(user.getUserID());
+        assertEquals(2, summary.getTotal());
+        assertEquals(2, summary.getUnread());
+        assertEquals(0, summary.getTags().get(EventTag.RED));
+        assertEquals(0, summary.getStatuses().get(EventStatus.STARRED));
+    }
+
+    @Test
+    void eventChanged_otherUserTracked_otherUsersCountsUnchanged() {
+        FeedSummaryDTO before = feedSummaryService.getSummary(otherUser.getUserID());
+
+        Event event = userEvents.get(1);
+        event.markAsRead();
+        eventRepository.save(event);
+        eventRepository.save(new GlobalMessageEvent(user, "New message"));
+
+        assertEquals(before, feedSummaryService.getSummary(otherUser.getUserID()));
+    }
+
+    @Test
+    void invalidate_userTracked_countsReloaded() {
+        feedSummaryService.getSummary(user.getUserID());
+        feedSummaryService.recordChange(user.getUserID(), null, new Event.CountedState(false, EventTag.NONE, EventStatus.NORMAL));
+
+        feedSummaryService.invalidate(user.getUserID());
+
+        assertFalse(feedSummaryService.isTracked(user.getUserID()));
+        assertEquals(3, feedSummaryService.getSummary(user.getUserID()).getTotal());
+    }
+
+    @Test
+    void reconcile_countsHaveDrifted_countsCorrected() {
+        feedSummaryService.getSummary(user.getUserID());
+        feedSummaryService.recordChange(user.getUserID(), null, new Event.CountedState(false, EventTag.BLUE, EventStatus.NORMAL));
+        assertEquals(4, feedSummaryService.getSummary(user.getUserID()).getTotal());
+
+        feedSummaryService.reconcile();
+
+        FeedSummaryDTO summary = feedSummaryService.getSummary(user.getUserID());
+        assertEquals(3, summary.getTotal());
+        assertEquals(0, summary.getTags().get(EventTag.BLUE));
+    }
+
+    @Test
+    void reconcile_userIdle_userNoLongerTracked() {
+        Clock clock = mock(Clock.class);
+        Instant start = Instant.now();
+        when(clock.instant()).thenReturn(start);
+        var service = new FeedSummaryService(eventRepository, clock);
+        service.getSummary(user.getUserID());
+        service.getSummary(otherUser.getUserID());
+
+        when(clock.instant()).thenReturn(start.plus(Duration.ofMinutes(30)));
+        service.getSummary(otherUser.getUserID());
+        when(clock.instant()).thenReturn(start.plus(Duration.ofMinutes(61)));
+        service.reconcile();
+
+        assertFalse(service.isTracked(user.getUserID()));
+        assertTrue(service.isTracked(otherUser.getUserID()));
+    }
+
+    /**
+     * Creates a service whose count query returns one unread event for the user, and runs the given action while the
+     * query is running
+     * @param duringLoad Action run while the counters are being loaded
+     * @return Feed summary service backed by a mock repository
+     */
+    private FeedSummaryService serviceWithSlowLoad(Runnable duringLoad) {
+        EventCount count = mock(EventCount.class);
+        when(count.getUserId()).thenReturn(user.getUserID());
+        when(count.getRead()).thenReturn(false);
+        when(count.getTag()).thenReturn(EventTag.NONE);
+        when(count.getStatus()).thenReturn(EventStatus.NORMAL);
+        when(count.getTotal()).thenReturn(1L);
+
+        EventRepository mockRepository = mock(EventRepository.class);
+        when(mockRepository.countEventsForUsers(any())).thenAnswer(invocation -> {
+            duringLoad.run();
+            return List.of(count);
+        });
+        return new FeedSummaryService(mockRepository, Clock.systemUTC());
+    }
+
+    @Test
+    void getSummary_eventCreatedDuringLoad_countsNotKept() {
+        FeedSummaryService[] service = new FeedSummaryService[1];
+        service[0] = serviceWithSlowLoad(() -> service[0].recordChange(user.getUserID(), null,
+                new Event.CountedState(false, EventTag.NONE, EventStatus.NORMAL)));
+
+        assertEquals(1, service[0].getSummary(user.getUserID()).getTotal());
+        assertFalse(service[0].isTracked(user.getUserID()));
+        assertEquals(1, service[0].getSummary(user.getUserID()).getTotal());
+    }
+
+    @Test
+    void reconcile_eventCreatedDuringLoad_countsNotReplaced() {
+        boolean[] created = new boolean[1];
+        FeedSummaryService[] service = new FeedSummaryService[1];
+        service[0] = serviceWithSlowLoad(() -> {
+            if (created[0]) {
+                service[0].recordChange(user.getUserID(), null, new Event.CountedState(false, EventTag.BLUE, EventStatus.NORMAL));
+            }
+        });
+        service[0].getSummary(user.getUserID());
+        created[0] = true;
+
+        service[0].reconcile();
+
+        FeedSummaryDTO summary = service[0].getSummary(user.getUserID());
+        assertEquals(2, summary.getTotal());
+        assertEquals(1, summary.getTags().get(EventTag.BLUE));
+    }
+}
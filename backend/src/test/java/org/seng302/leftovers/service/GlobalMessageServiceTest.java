@@ -0,0 +1,144 @@
+package org.seng302.leftovers.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.entities.Location;
+import org.seng302.leftovers.entities.User;
+import org.seng302.leftovers.entities.event.Event;
+import org.seng302.leftovers.entities.event.GlobalMessageEvent;
+import org.seng302.leftovers.persistence.UserRepository;
+import org.seng302.leftovers.persistence.event.EventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class GlobalMessageServiceTest {
+
+    @Autowired
+    GlobalMessageService globalMessageService;
+    @Autowired
+    EventRepository eventRepository;
+    @Autowired
+    UserRepository userRepository;
+
+    List<User> users;
+
+    @BeforeEach
+    void setUp() {
+        eventRepository.deleteAll();
+        userRepository.deleteAll();
+
+        users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User user = new User.Builder()
+                    .withFirstName("John")
+                    .withLastName("Smith")
+                    .withEmail("user" + i + "@testing")
+                    .withPassword("12345678abc")
+                    .withDob("2001-03-11")
+                    .withAddress(Location.covertAddressStringToLocation("4,Rountree Street,Ashburton,Christchurch,New Zealand," +
+                            "Canterbury,8041"))
+                    .build();
+            users.add(userRepository.save(user));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void runJob_multipleUsers_everyUserSentMessage() {
+        var job = new GlobalMessageService.GlobalMessageJob(1L, "Hello everyone");
+
+        globalMessageService.runJob(job);
+
+        for (User user : users) {
+            List<Event> events = eventRepository.findEventsForUser(user);
+            assertEquals(1, events.size());
+            assertEquals("Hello everyone", ((GlobalMessageEvent) events.get(0)).getGlobalMessage());
+        }
+    }
+
+    @Test
+    void runJob_multipleUsers_eventsHaveDistinctIds() {
+        var job = new GlobalMessageService.GlobalMessageJob(1L, "Hello everyone");
+
+        globalMessageService.runJob(job);
+
+        List<Long> ids = users.stream()
+                .flatMap(user -> eventRepository.findEventsForUser(user).stream())
+                .map(Event::getId)
+                .collect(Collectors.toList());
+        assertEquals(users.size(), ids.stream().distinct().count());
+    }
+
+    @Test
+    void runJob_multipleUsers_progressCompleted() {
+        var job = new GlobalMessageService.GlobalMessageJob(1L, "Hello everyone");
+
+        globalMessageService.runJob(job);
+
+        assertEquals(GlobalMessageService.JobStatus.COMPLETED, job.getStatus());
+        assertTrue(job.getTotalUsers() >= users.size());
+        assertEquals(job.getTotalUsers(), job.getNotifiedUsers());
+    }
+
+    @Test
+    void runJob_eventSavedAfterwards_idDoesNotCollide() {
+        var job = new GlobalMessageService.GlobalMessageJob(1L, "Hello everyone");
+        globalMessageService.runJob(job);
+
+        var event = eventRepository.save(new GlobalMessageEvent(users.get(0), "Another message"));
+
+        assertEquals(2, eventRepository.findEventsForUser(users.get(0)).size());
+        assertNotNull(event.getId());
+    }
+
+    @Test
+    void startJob_newJob_jobCanBeRetrieved() throws InterruptedException {
+        var job = globalMessageService.startJob("Hello everyone");
+
+        assertTrue(globalMessageService.getJob(job.getId()).isPresent());
+        assertEquals("Hello everyone", globalMessageService.getJob(job.getId()).get().getMessage());
+        waitForJob(job);
+    }
+
+    @Test
+    void startJob_newJob_jobRunsInBackground() throws InterruptedException {
+        var job = globalMessageService.startJob("Hello everyone");
+
+        waitForJob(job);
+
+        assertEquals(GlobalMessageService.JobStatus.COMPLETED, job.getStatus());
+        assertEquals(1, eventRepository.findEventsForUser(users.get(0)).size());
+    }
+
+    /**
+     * Waits for a background job to finish so that it does not interfere with other tests
+     * @param job Job to wait for
+     */
+    private void waitForJob(GlobalMessageService.GlobalMessageJob job) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            if (job.getStatus() == GlobalMessageService.JobStatus.COMPLETED || job.getStatus() == GlobalMessageService.JobStatus.FAILED) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("Global message job did not finish");
+    }
+
+    @Test
+    void getJob_unknownJob_emptyReturned() {
+        assertTrue(globalMessageService.getJob(-1L).isEmpty());
+    }
+}
@@ -5,9 +5,11 @@ import org.junit.jupiter.api.Test;
 import org.mockito.*;
 import org.seng302.leftovers.dto.user.UserRole;
 import org.seng302.leftovers.entities.Keyword;
+import org.seng302.leftovers.entities.OutboxEntry;
 import org.seng302.leftovers.entities.User;
 import org.seng302.leftovers.entities.event.Event;
 import org.seng302.leftovers.entities.event.KeywordCreatedEvent;
+import org.seng302.leftovers.persistence.OutboxEntryRepository;
 import org.seng302.leftovers.persistence.UserRepository;
 import org.seng302.leftovers.persistence.event.EventRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,6 +23,7 @@ import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
@@ -34,6 +37,8 @@ class KeywordServiceTest {
     EventRepository eventRepository;
     @MockBean
     UserRepository userRepository;
+    @MockBean
+    OutboxEntryRepository outboxEntryRepository;
     @Autowired
     KeywordService keywordService;
 
@@ -41,6 +46,8 @@ class KeywordServiceTest {
     ArgumentCaptor<UserRole> roleArgumentCaptor;
     @Captor
     ArgumentCaptor<KeywordCreatedEvent> eventArgumentCaptor;
+    @Captor
+    ArgumentCaptor<OutboxEntry> outboxEntryArgumentCaptor;
 
     Keyword keyword;
     @Mock
@@ -91,5 +98,23 @@ class KeywordServiceTest {
             assertEquals(mockUser, keywordCreatedEvent.getCreator());
         }
     }
-}
 
+    @Test
+    void queueNewKeywordEvent_singleOutboxEntrySavedForKeywordAndCreator() {
+        when(mockUser.getUserID()).thenReturn(9L);
+
+        keywordService.queueNewKeywordEvent(keyword, mockUser);
+
+        verify(outboxEntryRepository, Mockito.times(1)).save(outboxEntryArgumentCaptor.capture());
+        assertEquals(OutboxEntry.Type.NEW_KEYWORD, outboxEntryArgumentCaptor.getValue().getType());
+        assertEquals(9L, outboxEntryArgumentCaptor.getValue().getActorId());
+    }
+
+    @Test
+    void queueNewKeywordEvent_noEventsSaved() {
+        keywordService.queueNewKeywordEvent(keyword, mockUser);
+
+        verifyNoInteractions(eventRepository);
+        verifyNoInteractions(userRepository);
+    }
+}
@@ -6,8 +6,10 @@ import org.mockito.*;
 import org.seng302.leftovers.entities.Conversation;
 import org.seng302.leftovers.entities.MarketplaceCard;
 import org.seng302.leftovers.entities.Message;
+import org.seng302.leftovers.entities.OutboxEntry;
 import org.seng302.leftovers.entities.User;
 import org.seng302.leftovers.entities.event.MessageEvent;
+import org.seng302.leftovers.persistence.OutboxEntryRepository;
 import org.seng302.leftovers.persistence.event.EventRepository;
 import org.seng302.leftovers.persistence.event.MessageEventRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,9 +21,12 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
@@ -33,6 +38,10 @@ class MessageServiceTest {
     EventRepository eventRepository;
     @MockBean
     MessageEventRepository messageEventRepository;
+    @MockBean
+    OutboxEntryRepository outboxEntryRepository;
+    @Captor
+    ArgumentCaptor<OutboxEntry> outboxEntryArgumentCaptor;
     @Captor
     ArgumentCaptor<MessageEvent> messageEventArgumentCaptor;
     @Mock
@@ -123,4 +132,38 @@ class MessageServiceTest {
         assertTrue(notifiedUsers.contains(seller));
     }
 
-}
\ No newline at end of file
+    @Test
+    void notifyConversationParticipants_participantsNotifiedOfNewerMessage_eventsNotChanged() {
+        when(firstMessage.getId()).thenReturn(5L);
+        when(secondMessage.getId()).thenReturn(6L);
+        var buyerNewerEvent = new MessageEvent(buyer, secondMessage);
+        var sellerNewerEvent = new MessageEvent(seller, secondMessage);
+        when(messageEventRepository.findByNotifiedUserAndConversation(buyer, eventConversation)).thenReturn(Optional.of(buyerNewerEvent));
+        when(messageEventRepository.findByNotifiedUserAndConversation(seller, eventConversation)).thenReturn(Optional.of(sellerNewerEvent));
+
+        messageService.notifyConversationParticipants(firstMessage, buyer, seller);
+
+        Mockito.verify(eventRepository, times(0)).save(any());
+        assertEquals(secondMessage, buyerNewerEvent.getMessage());
+        assertEquals(secondMessage, sellerNewerEvent.getMessage());
+    }
+
+    @Test
+    void queueConversationNotification_singleOutboxEntrySavedForMessage() {
+        when(firstMessage.getId()).thenReturn(5L);
+
+        messageService.queueConversationNotification(firstMessage);
+
+        Mockito.verify(outboxEntryRepository, times(1)).save(outboxEntryArgumentCaptor.capture());
+        assertEquals(OutboxEntry.Type.NEW_MESSAGE, outboxEntryArgumentCaptor.getValue().getType());
+        assertEquals(5L, outboxEntryArgumentCaptor.getValue().getSubjectId());
+    }
+
+    @Test
+    void queueConversationNotification_noEventsSaved() {
+        messageService.queueConversationNotification(firstMessage);
+
+        verifyNoInteractions(eventRepository);
+        verifyNoInteractions(messageEventRepository);
+    }
+}
@@ -0,0 +1,288 @@
+package org.seng302.leftovers.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.seng302.leftovers.entities.*;
+import org.seng302.leftovers.entities.event.Event;
+import org.seng302.leftovers.entities.event.InterestPurchasedEvent;
+import org.seng302.leftovers.entities.event.PurchasedEvent;
+import org.seng302.leftovers.persistence.*;
+import org.seng302.leftovers.persistence.event.EventRepository;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class OutboxServiceTest {
+
+    @Mock
+    OutboxEntryRepository outboxEntryRepository;
+    @Mock
+    BoughtSaleItemRepository boughtSaleItemRepository;
+    @Mock
+    KeywordRepository keywordRepository;
+    @Mock
+    MessageRepository messageRepository;
+    @Mock
+    UserRepository userRepository;
+    @Mock
+    EventRepository eventRepository;
+    @Mock
+    KeywordService keywordService;
+    @Mock
+    MessageService messageService;
+    @Mock
+    TransactionTemplate transactionTemplate;
+
+    @Mock
+    User buyer;
+    @Mock
+    User interestedUser;
+    @Mock
+    User seller;
+    @Mock
+    BoughtSaleItem boughtSaleItem;
+    @Mock
+    Keyword keyword;
+    @Mock
+    Message message;
+    @Mock
+    Conversation conversation;
+    @Mock
+    MarketplaceCard card;
+
+    @Captor
+    ArgumentCaptor<Event> eventCaptor;
+
+    OutboxService outboxService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        doAnswer(invocation -> {
+            Consumer<TransactionStatus> action = invocation.getArgument(0);
+            action.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        when(buyer.getUserID()).thenReturn(1L);
+        when(interestedUser.getUserID()).thenReturn(2L);
+        when(seller.getUserID()).thenReturn(3L);
+
+        when(boughtSaleItem.getId()).thenReturn(4L);
+        when(boughtSaleItem.getBuyer()).thenReturn(buyer);
+        when(boughtSaleItemRepository.findById(4L)).thenReturn(Optional.of(boughtSaleItem));
+
+        when(keyword.getID()).thenReturn(5L);
+        when(keywordRepository.findById(5L)).thenReturn(Optional.of(keyword));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(buyer));
+
+        when(message.getId()).thenReturn(6L);
+        when(message.getConversation()).thenReturn(conversation);
+        when(conversation.getBuyer()).thenReturn(buyer);
+        when(conversation.getCard()).thenReturn(card);
+        when(card.getCreator()).thenReturn(seller);
+        when(messageRepository.findById(6L)).thenReturn(Optional.of(message));
+
+        outboxService = new OutboxService(outboxEntryRepository, boughtSaleItemRepository, keywordRepository,
+                messageRepository, userRepository, eventRepository, keywordService, messageService, transactionTemplate, 7);
+    }
+
+    @AfterEach
+    void tearDown() {
+        outboxService.shutdown();
+    }
+
+    @Test
+    void processEntry_purchaseWithInterestedUser_interestPurchasedEventThenPurchasedEventSaved() {
+        when(userRepository.findAllById(List.of(2L))).thenReturn(List.of(interestedUser));
+        var entry = OutboxEntry.purchase(boughtSaleItem, List.of(2L));
+
+        assertTrue(outboxService.processEntry(entry));
+
+        verify(eventRepository, times(2)).save(eventCaptor.capture());
+        List<Event> savedEvents = eventCaptor.getAllValues();
+        assertEquals(InterestPurchasedEvent.class, savedEvents.get(0).getClass());
+        assertEquals(interestedUser, savedEvents.get(0).getNotifiedUser());
+        assertEquals(PurchasedEvent.class, savedEvents.get(1).getClass());
+        assertEquals(buyer, savedEvents.get(1).getNotifiedUser());
+    }
+
+    @Test
+    void processEntry_purchaseWithNoInterestedUsers_onlyPurchasedEventSaved() {
+        when(userRepository.findAllById(List.of())).thenReturn(List.of());
+        var entry = OutboxEntry.purchase(boughtSaleItem, List.of());
+
+        assertTrue(outboxService.processEntry(entry));
+
+        verify(eventRepository, times(1)).save(eventCaptor.capture());
+        assertEquals(PurchasedEvent.class, eventCaptor.getValue().getClass());
+    }
+
+    @Test
+    void processEntry_success_entryDeleted() {
+        var entry = OutboxEntry.purchase(boughtSaleItem, List.of());
+
+        outboxService.processEntry(entry);
+
+        verify(outboxEntryRepository, times(1)).delete(entry);
+    }
+
+    @Test
+    void processEntry_purchaseRecordDeleted_noEventsSavedAndEntryDeleted() {
+        var entry = OutboxEntry.purchase(boughtSaleItem, List.of());
+        when(boughtSaleItemRepository.findById(4L)).thenReturn(Optional.empty());
+
+        assertTrue(outboxService.processEntry(entry));
+
+        verifyNoInteractions(eventRepository);
+        verify(outboxEntryRepository, times(1)).delete(entry);
+    }
+
+    @Test
+    void processEntry_newKeyword_keywordEventsSentForKeywordAndCreator() {
+        var entry = OutboxEntry.newKeyword(keyword, buyer);
+
+        assertTrue(outboxService.processEntry(entry));
+
+        verify(keywordService, times(1)).sendNewKeywordEvent(keyword, buyer);
+    }
+
+    @Test
+    void processEntry_newKeywordForDeletedKeyword_noKeywordEventsSent() {
+        var entry = OutboxEntry.newKeyword(keyword, buyer);
+        when(keywordRepository.findById(5L)).thenReturn(Optional.empty());
+
+        assertTrue(outboxService.processEntry(entry));
+
+        verify(keywordService, times(0)).sendNewKeywordEvent(any(), any());
+    }
+
+    @Test
+    void processEntry_newMessage_conversationParticipantsNotified() {
+        var entry = OutboxEntry.newMessage(message);
+
+        assertTrue(outboxService.processEntry(entry));
+
+        verify(messageService, times(1)).notifyConversationParticipants(message, buyer, seller);
+    }
+
+    @Test
+    void processEntry_eventsCannotBeSaved_attemptsIncrementedAndEntryKept() {
+        var entry = OutboxEntry.purchase(boughtSaleItem, List.of());
+        when(eventRepository.save(any())).thenThrow(new RuntimeException("Database unavailable"));
+
+        assertFalse(outboxService.processEntry(entry));
+
+        assertEquals(1, entry.getAttempts());
+        verify(outboxEntryRepository, times(0)).delete(any());
+        verify(outboxEntryRepository, times(1)).save(entry);
+    }
+
+    @Test
+    void processBatch_multipleEntries_allEntriesProcessed() {
+        var entries = List.of(
+                OutboxEntry.purchase(boughtSaleItem, List.of()),
+                OutboxEntry.newKeyword(keyword, buyer),
+                OutboxEntry.newMessage(message));
+
+        assertEquals(3, outboxService.processBatch(entries));
+
+        verify(outboxEntryRepository, times(3)).delete(any());
+    }
+
+    @Test
+    void drainOutbox_noPendingEntries_nothingProcessed() {
+        when(outboxEntryRepository.findPendingEntries(anyInt(), any())).thenReturn(List.of());
+
+        outboxService.drainOutbox();
+
+        verifyNoInteractions(transactionTemplate);
+    }
+
+    @Test
+    void drainOutbox_onlyRetriesEntriesWithFewerThanMaxAttempts() {
+        when(outboxEntryRepository.findPendingEntries(anyInt(), any())).thenReturn(List.of());
+
+        outboxService.drainOutbox();
+
+        verify(outboxEntryRepository, times(1)).findPendingEntries(eq(OutboxService.MAX_ATTEMPTS), any());
+    }
+
+    @Test
+    void drainOutbox_entryFails_noFurtherBatchesFetched() {
+        var entry = OutboxEntry.purchase(boughtSaleItem, List.of());
+        when(outboxEntryRepository.findPendingEntries(anyInt(), any())).thenReturn(List.of(entry));
+        when(eventRepository.save(any())).thenThrow(new RuntimeException("Database unavailable"));
+
+        outboxService.drainOutbox();
+
+        verify(outboxEntryRepository, times(1)).findPendingEntries(anyInt(), any());
+    }
+
+    @Test
+    void constructor_negativeRetention_exceptionThrown() {
+        assertThrows(IllegalArgumentException.class, () -> new OutboxService(outboxEntryRepository,
+                boughtSaleItemRepository, keywordRepository, messageRepository, userRepository, eventRepository,
+                keywordService, messageService, transactionTemplate, -1));
+    }
+
+    @Test
+    void processEntry_failsForLastAttempt_entryKeptWithMaxAttempts() {
+        var entry = OutboxEntry.purchase(boughtSaleItem, List.of());
+        when(eventRepository.save(any())).thenThrow(new RuntimeException("Database unavailable"));
+
+        for (int i = 0; i < OutboxService.MAX_ATTEMPTS; i++) {
+            assertFalse(outboxService.processEntry(entry));
+        }
+
+        assertEquals(OutboxService.MAX_ATTEMPTS, entry.getAttempts());
+        verify(outboxEntryRepository, times(0)).delete(any());
+    }
+
+    @Test
+    void purgeFailedEntries_noFailedEntries_nothingDeleted() {
+        when(outboxEntryRepository.findFailedEntriesCreatedBefore(anyInt(), any(), any())).thenReturn(List.of());
+
+        assertEquals(0, outboxService.purgeFailedEntries());
+
+        verify(outboxEntryRepository, times(1)).findFailedEntriesCreatedBefore(anyInt(), any(), any());
+    }
+
+    @Test
+    void purgeFailedEntries_failedEntriesOlderThanRetention_entriesDeleted() {
+        var entries = List.of(OutboxEntry.purchase(boughtSaleItem, List.of()), OutboxEntry.newMessage(message));
+        when(outboxEntryRepository.findFailedEntriesCreatedBefore(anyInt(), any(), any())).thenReturn(entries);
+
+        assertEquals(2, outboxService.purgeFailedEntries());
+
+        verify(outboxEntryRepository, times(1)).deleteAll(entries);
+    }
+
+    @Test
+    void purgeFailedEntries_onlyEntriesWithMaxAttemptsOlderThanRetentionFound() {
+        when(outboxEntryRepository.findFailedEntriesCreatedBefore(anyInt(), any(), any())).thenReturn(List.of());
+        Instant before = Instant.now();
+
+        outboxService.purgeFailedEntries();
+
+        verify(outboxEntryRepository).findFailedEntriesCreatedBefore(eq(OutboxService.MAX_ATTEMPTS),
+                argThat(cutoff -> !cutoff.isBefore(before.minus(7, ChronoUnit.DAYS))
+                        && !cutoff.isAfter(Instant.now().minus(7, ChronoUnit.DAYS))), any());
+    }
+}
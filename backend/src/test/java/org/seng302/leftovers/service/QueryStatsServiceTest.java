@@ -0,0 +1,133 @@
+package org.seng302.leftovers.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.dto.stats.OperationStatsDTO;
+import org.seng302.leftovers.dto.stats.QueryStatsDTO;
+import org.seng302.leftovers.service.search.NameDictionaryService;
+import org.seng302.leftovers.service.search.SaleListingResultCache;
+import org.seng302.leftovers.service.search.SearchPlanCache;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryStatsServiceTest {
+
+    private QueryStatsService queryStatsService;
+
+    @BeforeEach
+    void setUp() {
+        queryStatsService = new QueryStatsService(500, new SaleListingResultCache(10, 10),
+                new SearchPlanCache(10, new NameDictionaryService(null)));
+    }
+
+    @Test
+    void normalise_differentParameters_sameStatement() {
+        String first = QueryStatsService.normalise("select * from product p where p.name = 'Apple' and p.id in (1, 2, 3)");
+        String second = QueryStatsService.normalise("SELECT *  FROM product p\n where p.name = 'Pear''s' and p.id in (4)");
+
+        assertEquals("select * from product p where p.name = ? and p.id in (?...)", first);
+        assertEquals("select * from product p where p.name = ? and p.id in (?)", second);
+    }
+
+    @Test
+    void normalise_generatedAliases_aliasesKept() {
+        assertEquals("select product0_.id as id1_7_ from product product0_ where product0_.id=?",
+                QueryStatsService.normalise("select product0_.id as id1_7_ from product product0_ where product0_.id=?"));
+    }
+
+    @Test
+    void percentile_sortedLatencies_nearestRankReturned() {
+        long[] sorted = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+        assertEquals(5, QueryStatsService.percentile(sorted, 0.5));
+        assertEquals(10, QueryStatsService.percentile(sorted, 0.95));
+        assertEquals(1, QueryStatsService.percentile(sorted, 0));
+        assertEquals(0, QueryStatsService.percentile(new long[0], 0.5));
+    }
+
+    @Test
+    void startQuery_statementsPrepared_fingerprintsAttributedToQuery() {
+        try (var query = queryStatsService.startQuery("ProductRepository.findAll", "Product")) {
+            queryStatsService.recordStatement("select * from product where id = 1");
+            queryStatsService.recordStatement("select * from product where id = 2");
+            query.setRows(3);
+        }
+        queryStatsService.recordStatement("select * from business");
+
+        QueryStatsDTO stats = queryStatsService.getStats();
+        OperationStatsDTO method = stats.getRepositoryMethods().get(0);
+        String fingerprint = QueryStatsService.fingerprint("select * from product where id = ?");
+        assertEquals("ProductRepository.findAll", method.getName());
+        assertEquals(1, method.getCount());
+        assertEquals(3, method.getRows());
+        assertEquals(List.of(fingerprint), method.getFingerprints());
+        assertEquals("Product", stats.getSpecifications().get(0).getName());
+        assertEquals(2, stats.getStatements().size());
+        assertEquals(fingerprint, stats.getStatements().get(0).getFingerprint());
+        assertEquals(2, stats.getStatements().get(0).getCount());
+    }
+
+    @Test
+    void startQuery_nestedQueries_statementAttributedToBoth() {
+        try (var outer = queryStatsService.startQuery("ProductRepository.save", null)) {
+            try (var inner = queryStatsService.startQuery("BusinessRepository.findById", null)) {
+                queryStatsService.recordStatement("select * from business where id = 1");
+            }
+        }
+
+        QueryStatsDTO stats = queryStatsService.getStats();
+        assertEquals(2, stats.getRepositoryMethods().size());
+        stats.getRepositoryMethods().forEach(method -> assertEquals(1, method.getFingerprints().size()));
+        assertEquals(List.of(), stats.getSpecifications());
+    }
+
+    @Test
+    void recordEndpoint_multipleRequests_percentilesCalculated() {
+        for (int i = 1; i <= 100; i++) {
+            queryStatsService.recordEndpoint("GET /businesses/{id}", i * 1_000_000L);
+        }
+
+        OperationStatsDTO endpoint = queryStatsService.getStats().getEndpoints().get(0);
+        assertEquals("GET /businesses/{id}", endpoint.getName());
+        assertEquals(100, endpoint.getCount());
+        assertEquals(50.0, endpoint.getP50Ms());
+        assertEquals(95.0, endpoint.getP95Ms());
+        assertEquals(99.0, endpoint.getP99Ms());
+        assertEquals(100.0, endpoint.getMaxMs());
+        assertEquals(50.5, endpoint.getMeanMs());
+    }
+
+    @Test
+    void getStats_multipleOperations_orderedByTotalTime() {
+        queryStatsService.recordEndpoint("GET /fast", 1_000_000L);
+        queryStatsService.recordEndpoint("GET /slow", 5_000_000L);
+        queryStatsService.recordEndpoint("GET /fast", 1_000_000L);
+
+        List<OperationStatsDTO> endpoints = queryStatsService.getStats().getEndpoints();
+        assertEquals("GET /slow", endpoints.get(0).getName());
+        assertEquals("GET /fast", endpoints.get(1).getName());
+    }
+
+    @Test
+    void getStats_searchCachesUsed_cacheMetricsIncluded() {
+        QueryStatsDTO stats = queryStatsService.getStats();
+
+        assertEquals(500, stats.getSlowQueryThresholdMs());
+        assertNotNull(stats.getSearchPlanCache());
+        assertEquals(0, stats.getSaleListingResultCache().getHits());
+    }
+
+    @Test
+    void clear_recordedStats_statsRemoved() {
+        queryStatsService.recordEndpoint("GET /businesses/{id}", 1_000_000L);
+        queryStatsService.recordStatement("select 1");
+
+        queryStatsService.clear();
+
+        QueryStatsDTO stats = queryStatsService.getStats();
+        assertEquals(List.of(), stats.getEndpoints());
+        assertEquals(List.of(), stats.getStatements());
+    }
+}
@@ -0,0 +1,112 @@
+package org.seng302.leftovers.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.dto.saleitem.BoughtSaleItemRecord;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ReportBucketCacheTest {
+
+    private final LocalDate start = LocalDate.parse("2021-09-01");
+    private final LocalDate end = LocalDate.parse("2021-09-30");
+
+    private ReportBucketCache cache;
+    private BoughtSaleItemRecord record;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ReportBucketCache(2);
+        record = mock(BoughtSaleItemRecord.class);
+    }
+
+    @Test
+    void get_recordCached_recordReturnedAndHitCounted() {
+        cache.put(1L, start, end, record, cache.getVersion(1L));
+
+        assertEquals(Optional.of(record), cache.get(1L, start, end));
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    void get_differentBusinessOrPeriod_emptyReturnedAndMissCounted() {
+        cache.put(1L, start, end, record, cache.getVersion(1L));
+
+        assertEquals(Optional.empty(), cache.get(2L, start, end));
+        assertEquals(Optional.empty(), cache.get(1L, start, end.minusDays(1)));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void get_businessInvalidatedSinceCached_emptyReturned() {
+        cache.put(1L, start, end, record, cache.getVersion(1L));
+        cache.put(2L, start, end, record, cache.getVersion(2L));
+
+        cache.invalidate(1L);
+
+        assertEquals(Optional.empty(), cache.get(1L, start, end));
+        assertEquals(Optional.of(record), cache.get(2L, start, end));
+    }
+
+    @Test
+    void get_allInvalidatedSinceCached_emptyReturned() {
+        cache.put(1L, start, end, record, cache.getVersion(1L));
+        cache.put(2L, start, end, record, cache.getVersion(2L));
+
+        cache.invalidateAll();
+
+        assertEquals(Optional.empty(), cache.get(1L, start, end));
+        assertEquals(Optional.empty(), cache.get(2L, start, end));
+    }
+
+    @Test
+    void put_invalidatedWhileTotalling_recordNotCached() {
+        long version = cache.getVersion(1L);
+        cache.invalidate(1L);
+
+        cache.put(1L, start, end, record, version);
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void getVersion_businessThenAllInvalidated_versionAlwaysIncreases() {
+        long initial = cache.getVersion(1L);
+        cache.invalidate(1L);
+        long afterBusiness = cache.getVersion(1L);
+        cache.invalidateAll();
+
+        assertTrue(afterBusiness > initial);
+        assertTrue(cache.getVersion(1L) > afterBusiness);
+    }
+
+    @Test
+    void put_moreThanMaximumEntries_leastRecentlyUsedEvicted() {
+        cache.put(1L, start, end, record, cache.getVersion(1L));
+        cache.put(2L, start, end, record, cache.getVersion(2L));
+        cache.get(1L, start, end);
+        cache.put(3L, start, end, record, cache.getVersion(3L));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertTrue(cache.get(1L, start, end).isPresent());
+        assertTrue(cache.get(2L, start, end).isEmpty());
+    }
+
+    @Test
+    void clear_cachedRecords_recordsAndMetricsRemoved() {
+        cache.put(1L, start, end, record, cache.getVersion(1L));
+        cache.get(1L, start, end);
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+}
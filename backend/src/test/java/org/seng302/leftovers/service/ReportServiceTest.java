@@ -11,22 +11,29 @@ import org.seng302.leftovers.dto.saleitem.BoughtSaleItemRecord;
 import org.seng302.leftovers.dto.saleitem.ReportGranularity;
 import org.seng302.leftovers.entities.BoughtSaleItem;
 import org.seng302.leftovers.entities.Business;
+import org.seng302.leftovers.entities.DailySalesRollup;
 import org.seng302.leftovers.entities.Product;
 import org.seng302.leftovers.persistence.BoughtSaleItemRepository;
+import org.seng302.leftovers.persistence.DailySalesRollupRepository;
+import org.seng302.leftovers.persistence.SalesAggregate;
 import org.seng302.leftovers.service.search.SearchSpecConstructor;
+import org.seng302.leftovers.tools.DistinctCountSketch;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -39,6 +46,10 @@ class ReportServiceTest {
     @Mock
     private BoughtSaleItemRepository boughtSaleItemRepository;
     @Mock
+    private DailySalesRollupRepository dailySalesRollupRepository;
+    @Mock
+    private SalesRollupService salesRollupService;
+    @Mock
     private Business business;
     @Mock
     private Specification<BoughtSaleItem> businessSpec;
@@ -47,24 +58,27 @@ class ReportServiceTest {
     @Mock
     private Specification<BoughtSaleItem> combinedSpec;
     @Mock
+    private ReportBucketCache reportBucketCache;
     private ReportService.DateRange range1;
-    @Mock
     private ReportService.DateRange range2;
-    @Mock
-    private BoughtSaleItem boughtSaleItem;
 
     private MockedStatic<SearchSpecConstructor> searchSpecConstructor;
     private MockedConstruction<BoughtSaleItemRecord> boughtSaleItemRecordConstruction;
+    private final List<List<?>> constructorArguments = new ArrayList<>();
 
     private final Instant referenceInstant = Instant.parse("2021-09-08T08:47:59Z");
 
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
+        range1 = spy(new ReportService.DateRange(LocalDate.parse("2021-09-08"), LocalDate.parse("2021-09-08")));
+        range2 = spy(new ReportService.DateRange(LocalDate.parse("2021-09-09"), LocalDate.parse("2021-09-09")));
         when(granularity.adjustEnd(any())).thenAnswer(invocation -> ((LocalDate) invocation.getArgument(0)).with(TemporalAdjusters.lastDayOfMonth()));
 
         searchSpecConstructor = Mockito.mockStatic(SearchSpecConstructor.class);
-        boughtSaleItemRecordConstruction = Mockito.mockConstruction(BoughtSaleItemRecord.class);
+        constructorArguments.clear();
+        boughtSaleItemRecordConstruction = Mockito.mockConstruction(BoughtSaleItemRecord.class,
+                (mock, context) -> constructorArguments.add(context.arguments()));
 
         searchSpecConstructor.when(() -> SearchSpecConstructor.constructBoughtSaleListingSpecificationFromBusiness(business)).thenReturn(businessSpec);
         searchSpecConstructor.when(() -> SearchSpecConstructor.constructBoughtSaleListingSpecificationFromPeriod(any(), any())).thenReturn(periodSpec);
@@ -74,7 +88,7 @@ class ReportServiceTest {
 
         when(boughtSaleItemRepository.findAll(combinedSpec)).thenReturn(List.of());
 
-        reportService = mock(ReportService.class, withSettings().spiedInstance(new ReportService(boughtSaleItemRepository)).defaultAnswer(RETURNS_DEFAULTS));
+        reportService = mock(ReportService.class, withSettings().spiedInstance(new ReportService(boughtSaleItemRepository, dailySalesRollupRepository, salesRollupService, reportBucketCache)).defaultAnswer(RETURNS_DEFAULTS));
     }
 
     @AfterEach
@@ -83,6 +97,14 @@ class ReportServiceTest {
         boughtSaleItemRecordConstruction.close();
     }
 
+    private static DistinctCountSketch sketchOf(long... ids) {
+        var sketch = new DistinctCountSketch();
+        for (long id : ids) {
+            sketch.add(id);
+        }
+        return sketch;
+    }
+
 
     @ParameterizedTest
     @CsvSource({
@@ -171,8 +193,9 @@ class ReportServiceTest {
     }
 
     @Test
-    void generateReport_singleRange_expectedFilteringOccurred() {
+    void generateReport_singleRange_salesAggregatedForBusinessAndRange() {
         when(reportService.generateReport(any(), any(), any(), any())).thenCallRealMethod();
+        when(business.getId()).thenReturn(7L);
 
         when(range1.startInstant()).thenReturn(referenceInstant.plus(0, ChronoUnit.DAYS));
         when(range1.endInstant()).thenReturn(referenceInstant.plus(1, ChronoUnit.DAYS));
@@ -184,21 +207,16 @@ class ReportServiceTest {
         reportService.generateReport(business, LocalDate.parse("2021-08-02"), LocalDate.parse("2021-08-10"), granularity);
 
         verify(reportService, times(1)).getRanges(LocalDate.parse("2021-08-02"), LocalDate.parse("2021-08-10"), granularity);
-
-        searchSpecConstructor.verify(times(1),
-                () -> SearchSpecConstructor.constructBoughtSaleListingSpecificationFromPeriod(referenceInstant.plus(0, ChronoUnit.DAYS), referenceInstant.plus(1, ChronoUnit.DAYS))
-        );
-        searchSpecConstructor.verify(times(1),
-                () -> SearchSpecConstructor.constructBoughtSaleListingSpecificationFromBusiness(business)
-        );
-        searchSpecConstructor.verifyNoMoreInteractions();
-
-        verify(boughtSaleItemRepository, times(1)).findAll(combinedSpec);
+        verify(boughtSaleItemRepository, times(1)).aggregateSales(7L,
+                List.of(referenceInstant.plus(0, ChronoUnit.DAYS)),
+                List.of(referenceInstant.plus(1, ChronoUnit.DAYS)));
+        verify(boughtSaleItemRepository, never()).findAll(any(Specification.class));
     }
 
     @Test
-    void generateReport_multipleRanges_rangesConstructed() {
+    void generateReport_multipleRanges_oneQueryAndRecordForEachRange() {
         when(reportService.generateReport(any(), any(), any(), any())).thenCallRealMethod();
+        when(business.getId()).thenReturn(7L);
 
         when(range1.startInstant()).thenReturn(referenceInstant.plus(0, ChronoUnit.DAYS));
         when(range1.endInstant()).thenReturn(referenceInstant.plus(1, ChronoUnit.DAYS));
@@ -210,23 +228,114 @@ class ReportServiceTest {
                 range2
         ));
 
-        when(boughtSaleItemRepository.findAll(combinedSpec)).thenReturn(List.of(boughtSaleItem));
+        when(boughtSaleItemRepository.aggregateSales(anyLong(), any(), any())).thenReturn(List.of(
+                new SalesAggregate(1, 1, 2, new BigDecimal("3.00"), 4, 5, 1, 1)
+        ));
 
 
         var results = reportService.generateReport(business, LocalDate.parse("2021-08-02"), LocalDate.parse("2021-08-10"), granularity);
 
 
-        searchSpecConstructor.verify(times(1),
-                () -> SearchSpecConstructor.constructBoughtSaleListingSpecificationFromPeriod(referenceInstant.plus(0, ChronoUnit.DAYS), referenceInstant.plus(1, ChronoUnit.DAYS))
-        );
-        searchSpecConstructor.verify(times(1),
-                () -> SearchSpecConstructor.constructBoughtSaleListingSpecificationFromPeriod(referenceInstant.plus(1, ChronoUnit.DAYS), referenceInstant.plus(2, ChronoUnit.DAYS))
-        );
-        verify(boughtSaleItemRepository, times(2)).findAll(combinedSpec);
+        verify(boughtSaleItemRepository, times(1)).aggregateSales(7L,
+                List.of(referenceInstant.plus(0, ChronoUnit.DAYS), referenceInstant.plus(1, ChronoUnit.DAYS)),
+                List.of(referenceInstant.plus(1, ChronoUnit.DAYS), referenceInstant.plus(2, ChronoUnit.DAYS)));
 
         List<BoughtSaleItemRecord> records = boughtSaleItemRecordConstruction.constructed();
 
         assertEquals(2, records.size());
         assertEquals(records, results);
+        assertNull(constructorArguments.get(0).get(2));
+        assertEquals(new SalesAggregate(1, 1, 2, new BigDecimal("3.00"), 4, 5, 1, 1), constructorArguments.get(1).get(2));
+    }
+
+    @Test
+    void generateReport_rollupsNotReady_salesAggregatedFromSaleItems() {
+        when(reportService.generateReport(any(), any(), any(), any())).thenCallRealMethod();
+        when(salesRollupService.isReady()).thenReturn(false);
+        when(business.getId()).thenReturn(7L);
+        when(reportService.getRanges(any(), any(), any())).thenReturn(List.of(
+                new ReportService.DateRange(LocalDate.parse("2021-08-02"), LocalDate.parse("2021-08-10"))
+        ));
+
+        reportService.generateReport(business, LocalDate.parse("2021-08-02"), LocalDate.parse("2021-08-10"), granularity);
+
+        verify(boughtSaleItemRepository, times(1)).aggregateSales(eq(7L), any(), any());
+        verifyNoInteractions(dailySalesRollupRepository);
+    }
+
+    @Test
+    void generateReport_rollupsReady_daysAddedUpForEachRange() {
+        when(reportService.generateReport(any(), any(), any(), any())).thenCallRealMethod();
+        when(salesRollupService.isReady()).thenReturn(true);
+        when(business.getId()).thenReturn(7L);
+
+        var firstRange = new ReportService.DateRange(LocalDate.parse("2021-08-02"), LocalDate.parse("2021-08-31"));
+        var secondRange = new ReportService.DateRange(LocalDate.parse("2021-09-01"), LocalDate.parse("2021-09-30"));
+        var thirdRange = new ReportService.DateRange(LocalDate.parse("2021-10-01"), LocalDate.parse("2021-10-10"));
+        when(reportService.getRanges(any(), any(), any())).thenReturn(List.of(firstRange, secondRange, thirdRange));
+
+        when(dailySalesRollupRepository.findDaysForBusiness(7L, LocalDate.parse("2021-08-02"), LocalDate.parse("2021-10-10")))
+                .thenReturn(List.of(
+                        new DailySalesRollup(business, LocalDate.parse("2021-08-02"), 1, 2, new BigDecimal("3.00"), 4, 5,
+                                sketchOf(1, 2), sketchOf(10, 11)),
+                        new DailySalesRollup(business, LocalDate.parse("2021-08-31"), 2, 3, new BigDecimal("4.50"), 5, 6,
+                                sketchOf(2), sketchOf(12)),
+                        new DailySalesRollup(business, LocalDate.parse("2021-10-10"), 1, 1, new BigDecimal("1.00"), 0, 7,
+                                sketchOf(3), sketchOf(10))
+                ));
+
+        var results = reportService.generateReport(business, LocalDate.parse("2021-08-02"), LocalDate.parse("2021-10-10"), granularity);
+
+        verifyNoInteractions(boughtSaleItemRepository);
+
+        assertEquals(3, results.size());
+        assertEquals(new SalesAggregate(0, 3, 5, new BigDecimal("7.50"), 9, 11, 2, 3), constructorArguments.get(0).get(2));
+        assertNull(constructorArguments.get(1).get(2));
+        assertEquals(new SalesAggregate(2, 1, 1, new BigDecimal("1.00"), 0, 7, 1, 1), constructorArguments.get(2).get(2));
+    }
+
+    @Test
+    void generateReport_closedRangeCached_onlyOpenRangeTotalledAgain() {
+        var service = new ReportService(boughtSaleItemRepository, dailySalesRollupRepository, salesRollupService, new ReportBucketCache(10));
+        when(business.getId()).thenReturn(7L);
+        LocalDate today = LocalDate.now();
+        LocalDate start = today.minusMonths(1).withDayOfMonth(1);
+        var openRange = new ReportService.DateRange(today.withDayOfMonth(1), today);
+
+        service.generateReport(business, start, today, granularity);
+        service.generateReport(business, start, today, granularity);
+
+        verify(boughtSaleItemRepository, times(1)).aggregateSales(eq(7L), argThat(starts -> starts.size() == 2), any());
+        verify(boughtSaleItemRepository, times(1)).aggregateSales(7L, List.of(openRange.startInstant()), List.of(openRange.endInstant()));
+        assertEquals(3, boughtSaleItemRecordConstruction.constructed().size());
+    }
+
+    @Test
+    void generateReport_cacheInvalidated_closedRangeTotalledAgain() {
+        var cache = new ReportBucketCache(10);
+        var service = new ReportService(boughtSaleItemRepository, dailySalesRollupRepository, salesRollupService, cache);
+        when(business.getId()).thenReturn(7L);
+        LocalDate start = LocalDate.parse("2021-08-01");
+        LocalDate end = LocalDate.parse("2021-09-30");
+
+        service.generateReport(business, start, end, granularity);
+        cache.invalidate(7L);
+        service.generateReport(business, start, end, granularity);
+
+        verify(boughtSaleItemRepository, times(2)).aggregateSales(eq(7L), argThat(starts -> starts.size() == 2), any());
+    }
+
+    @Test
+    void generateReport_closedRangesCached_sameRecordsReturned() {
+        var service = new ReportService(boughtSaleItemRepository, dailySalesRollupRepository, salesRollupService, new ReportBucketCache(10));
+        when(business.getId()).thenReturn(7L);
+        LocalDate start = LocalDate.parse("2021-08-01");
+        LocalDate end = LocalDate.parse("2021-09-30");
+
+        var first = service.generateReport(business, start, end, granularity);
+        var second = service.generateReport(business, start, end, granularity);
+
+        verify(boughtSaleItemRepository, times(1)).aggregateSales(anyLong(), any(), any());
+        assertEquals(first, second);
     }
 }
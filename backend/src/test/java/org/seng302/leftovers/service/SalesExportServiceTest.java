@@ -0,0 +1,168 @@
+package org.seng302.leftovers.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.dto.business.BusinessType;
+import org.seng302.leftovers.dto.saleitem.SalesExportFormat;
+import org.seng302.leftovers.dto.saleitem.SalesExportRow;
+import org.seng302.leftovers.entities.*;
+import org.seng302.leftovers.persistence.BoughtSaleItemRepository;
+import org.seng302.leftovers.persistence.BusinessRepository;
+import org.seng302.leftovers.persistence.ProductRepository;
+import org.seng302.leftovers.persistence.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class SalesExportServiceTest {
+
+    @Autowired
+    SessionFactory sessionFactory;
+    @Autowired
+    ObjectMapper objectMapper;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    BusinessRepository businessRepository;
+    @Autowired
+    ProductRepository productRepository;
+    @Autowired
+    BoughtSaleItemRepository boughtSaleItemRepository;
+
+    User user;
+    Business business;
+    Product product;
+    SaleItem saleItem;
+    SalesExportService salesExportService;
+
+    @BeforeEach
+    void setUp() {
+        tearDown();
+
+        user = userRepository.save(new User.Builder()
+                .withFirstName("John")
+                .withLastName("Smith")
+                .withEmail("user@testing")
+                .withPassword("12345678abc")
+                .withDob("2001-03-11")
+                .withAddress(Location.covertAddressStringToLocation("4,Rountree Street,Ashburton,Christchurch,New Zealand," +
+                        "Canterbury,8041"))
+                .build());
+        business = businessRepository.save(new Business.Builder()
+                .withPrimaryOwner(user)
+                .withName("Help Industries")
+                .withAddress(Location.covertAddressStringToLocation("6,Help Street,Place,Dunedin,New Zelaand,Otago,6959"))
+                .withBusinessType(BusinessType.ACCOMMODATION_AND_FOOD_SERVICES)
+                .withDescription("Helps industries hopefully")
+                .build());
+        product = productRepository.save(new Product.Builder()
+                .withBusiness(business)
+                .withProductCode("PIECEOFFISH69")
+                .withName("A Piece of Fish")
+                .withDescription("A fish but only a piece of it remains")
+                .withManufacturer("Tokyo Fishing LTD")
+                .withRecommendedRetailPrice("3.20")
+                .build());
+
+        saleItem = mock(SaleItem.class);
+        when(saleItem.getProduct()).thenReturn(product);
+        when(saleItem.getPrice()).thenReturn(new BigDecimal("10.00"));
+        when(saleItem.getQuantity()).thenReturn(2);
+        when(saleItem.getCreated()).thenReturn(Instant.now().minus(1, ChronoUnit.HOURS));
+        when(saleItem.getLikeCount()).thenReturn(3);
+
+        // A small fetch size so that the rows are fetched in more than one batch
+        salesExportService = new SalesExportService(sessionFactory, objectMapper, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        boughtSaleItemRepository.deleteAll();
+        productRepository.deleteAll();
+        businessRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private String export(long businessId, SalesExportFormat format) throws IOException {
+        var outputStream = new ByteArrayOutputStream();
+        Instant now = Instant.now();
+        salesExportService.exportSales(businessId, now.minus(1, ChronoUnit.DAYS), now.plus(1, ChronoUnit.DAYS),
+                format, outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void new_nonPositiveFetchSize_exceptionThrown() {
+        assertThrows(IllegalArgumentException.class, () -> new SalesExportService(sessionFactory, objectMapper, 0));
+    }
+
+    @Test
+    void exportSales_csv_headerAndLineForEachSale() throws IOException {
+        var first = boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        var second = boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        var third = boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+
+        String[] lines = export(business.getId(), SalesExportFormat.CSV).split("\n");
+
+        assertEquals(4, lines.length);
+        assertEquals(SalesExportRow.csvHeader(), lines[0]);
+        assertTrue(lines[1].startsWith(first.getId() + ","));
+        assertTrue(lines[2].startsWith(second.getId() + ","));
+        assertTrue(lines[3].startsWith(third.getId() + ","));
+        assertTrue(lines[1].contains(",PIECEOFFISH69,A Piece of Fish,2,10.00,3"));
+    }
+
+    @Test
+    void exportSales_ndjson_objectForEachSale() throws IOException {
+        var item = boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+
+        String[] lines = export(business.getId(), SalesExportFormat.NDJSON).split("\n");
+
+        assertEquals(1, lines.length);
+        JsonNode row = objectMapper.readTree(lines[0]);
+        assertEquals(item.getId(), row.get("id").asLong());
+        assertEquals("PIECEOFFISH69", row.get("productCode").asText());
+        assertEquals("A Piece of Fish", row.get("productName").asText());
+        assertEquals(2, row.get("quantity").asInt());
+        assertEquals(0, new BigDecimal("10.00").compareTo(row.get("price").decimalValue()));
+        assertEquals(3, row.get("interestCount").asInt());
+        assertTrue(row.get("saleDate").isTextual());
+    }
+
+    @Test
+    void exportSales_otherBusiness_onlyHeaderWritten() throws IOException {
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+
+        String export = export(business.getId() + 1, SalesExportFormat.CSV);
+
+        assertEquals(SalesExportRow.csvHeader() + "\n", export);
+    }
+
+    @Test
+    void exportSales_salesOutsideRange_nothingWritten() throws IOException {
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        var outputStream = new ByteArrayOutputStream();
+        Instant now = Instant.now();
+
+        long exported = salesExportService.exportSales(business.getId(), now.minus(2, ChronoUnit.DAYS),
+                now.minus(1, ChronoUnit.DAYS), SalesExportFormat.NDJSON, outputStream);
+
+        assertEquals(0, exported);
+        assertEquals(0, outputStream.size());
+    }
+}
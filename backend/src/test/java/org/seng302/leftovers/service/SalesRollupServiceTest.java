@@ -0,0 +1,317 @@
+package org.seng302.leftovers.service;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.seng302.leftovers.dto.business.BusinessType;
+import org.seng302.leftovers.entities.*;
+import org.seng302.leftovers.exceptions.DoesNotExistResponseException;
+import org.seng302.leftovers.persistence.BoughtSaleItemRepository;
+import org.seng302.leftovers.persistence.BusinessRepository;
+import org.seng302.leftovers.persistence.DailySalesRollupRepository;
+import org.seng302.leftovers.persistence.ProductRepository;
+import org.seng302.leftovers.persistence.UserRepository;
+import org.seng302.leftovers.tools.DistinctCountSketch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+class SalesRollupServiceTest {
+
+    @Autowired
+    SessionFactory sessionFactory;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    BusinessRepository businessRepository;
+    @Autowired
+    ProductRepository productRepository;
+    @Autowired
+    BoughtSaleItemRepository boughtSaleItemRepository;
+    @Autowired
+    DailySalesRollupRepository dailySalesRollupRepository;
+
+    User user;
+    Business business;
+    Product product;
+    SaleItem saleItem;
+    ReportBucketCache reportBucketCache;
+
+    @BeforeEach
+    void setUp() {
+        tearDown();
+
+        user = userRepository.save(new User.Builder()
+                .withFirstName("John")
+                .withLastName("Smith")
+                .withEmail("user@testing")
+                .withPassword("12345678abc")
+                .withDob("2001-03-11")
+                .withAddress(Location.covertAddressStringToLocation("4,Rountree Street,Ashburton,Christchurch,New Zealand," +
+                        "Canterbury,8041"))
+                .build());
+        business = businessRepository.save(new Business.Builder()
+                .withPrimaryOwner(user)
+                .withName("Help Industries")
+                .withAddress(Location.covertAddressStringToLocation("6,Help Street,Place,Dunedin,New Zelaand,Otago,6959"))
+                .withBusinessType(BusinessType.ACCOMMODATION_AND_FOOD_SERVICES)
+                .withDescription("Helps industries hopefully")
+                .build());
+        product = productRepository.save(new Product.Builder()
+                .withBusiness(business)
+                .withProductCode("PIECEOFFISH69")
+                .withName("A Piece of Fish")
+                .withDescription("A fish but only a piece of it remains")
+                .withManufacturer("Tokyo Fishing LTD")
+                .withRecommendedRetailPrice("3.20")
+                .build());
+
+        reportBucketCache = new ReportBucketCache(10);
+        saleItem = mock(SaleItem.class);
+        when(saleItem.getProduct()).thenReturn(product);
+        when(saleItem.getPrice()).thenReturn(new BigDecimal("10.00"));
+        when(saleItem.getQuantity()).thenReturn(2);
+        when(saleItem.getCreated()).thenReturn(Instant.now().minus(1, ChronoUnit.HOURS));
+        when(saleItem.getLikeCount()).thenReturn(3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dailySalesRollupRepository.deleteAll();
+        boughtSaleItemRepository.deleteAll();
+        productRepository.deleteAll();
+        businessRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private SalesRollupService createService() {
+        return new SalesRollupService(sessionFactory, businessRepository, dailySalesRollupRepository, reportBucketCache);
+    }
+
+    private List<DailySalesRollup> rollups() {
+        List<DailySalesRollup> rollups = new ArrayList<>();
+        dailySalesRollupRepository.findAll().forEach(rollups::add);
+        return rollups;
+    }
+
+    @Test
+    void backfill_salesOnOneDay_oneRollupWithTotals() {
+        var first = boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        var second = boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        var service = createService();
+
+        assertEquals(1, service.backfill());
+
+        var rollups = rollups();
+        assertEquals(1, rollups.size());
+        var rollup = rollups.get(0);
+        assertEquals(DailySalesRollup.dayOf(first.getSaleDate()), rollup.getDay());
+        assertEquals(2, rollup.getListingsSold());
+        assertEquals(4, rollup.getQuantitySold());
+        assertEquals(0, new BigDecimal("20.00").compareTo(rollup.getTotalPrice()));
+        assertEquals(6, rollup.getTotalLikes());
+        long expectedSecondsToSell = ChronoUnit.SECONDS.between(first.getListingDate(), first.getSaleDate())
+                + ChronoUnit.SECONDS.between(second.getListingDate(), second.getSaleDate());
+        assertTrue(Math.abs(expectedSecondsToSell - rollup.getTotalSecondsToSell()) <= 2);
+        assertEquals(1, rollup.getBuyerSketch().estimate());
+        assertEquals(1, rollup.getProductSketch().estimate());
+        assertTrue(service.isReady());
+    }
+
+    @Test
+    void backfill_differentBuyersAndProducts_sketchesCountEach() {
+        var otherUser = userRepository.save(new User.Builder()
+                .withFirstName("Jane")
+                .withLastName("Smith")
+                .withEmail("other@testing")
+                .withPassword("12345678abc")
+                .withDob("2001-03-11")
+                .withAddress(Location.covertAddressStringToLocation("4,Rountree Street,Ashburton,Christchurch,New Zealand," +
+                        "Canterbury,8041"))
+                .build());
+        var otherProduct = productRepository.save(new Product.Builder()
+                .withBusiness(business)
+                .withProductCode("PIECEOFFISH70")
+                .withName("Another Piece of Fish")
+                .withDescription("A fish but only a piece of it remains")
+                .withManufacturer("Tokyo Fishing LTD")
+                .withRecommendedRetailPrice("3.20")
+                .build());
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, otherUser));
+        when(saleItem.getProduct()).thenReturn(otherProduct);
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+
+        createService().backfill();
+
+        var rollup = rollups().get(0);
+        assertEquals(2, rollup.getBuyerSketch().estimate());
+        assertEquals(2, rollup.getProductSketch().estimate());
+    }
+
+    @Test
+    void backfill_cachedReportRecords_recordsInvalidated() {
+        long version = reportBucketCache.getVersion(business.getId());
+
+        createService().backfill();
+
+        assertNotEquals(version, reportBucketCache.getVersion(business.getId()));
+    }
+
+    @Test
+    void backfill_existingRollups_rollupsReplaced() {
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        dailySalesRollupRepository.save(new DailySalesRollup(business, LocalDate.now().minusDays(5), 1, 1,
+                BigDecimal.ONE, 1, 1, new DistinctCountSketch(), new DistinctCountSketch()));
+        var service = createService();
+
+        service.backfill();
+        service.backfill();
+
+        var rollups = rollups();
+        assertEquals(1, rollups.size());
+        assertEquals(1, rollups.get(0).getListingsSold());
+    }
+
+    @Test
+    void initialise_salesWithoutRollups_rollupsBackfilled() {
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        var service = createService();
+        assertFalse(service.isReady());
+
+        service.initialise();
+
+        assertEquals(1, rollups().size());
+        assertTrue(service.isReady());
+    }
+
+    @Test
+    void initialise_existingRollups_rollupsNotBackfilled() {
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        dailySalesRollupRepository.save(new DailySalesRollup(business, LocalDate.now().minusDays(5), 1, 1,
+                BigDecimal.ONE, 1, 1, new DistinctCountSketch(), new DistinctCountSketch()));
+        var service = createService();
+
+        service.initialise();
+
+        var rollups = rollups();
+        assertEquals(1, rollups.size());
+        assertEquals(LocalDate.now().minusDays(5), rollups.get(0).getDay());
+        assertTrue(service.isReady());
+    }
+
+    @Test
+    void initialise_rollupsWithoutSketches_rollupsBackfilled() {
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        var service = createService();
+        service.backfill();
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            session.createQuery("update DailySalesRollup r set r.buyerSketch = null, r.productSketch = null")
+                    .executeUpdate();
+            transaction.commit();
+        }
+
+        service.initialise();
+
+        var rollups = rollups();
+        assertEquals(1, rollups.size());
+        assertEquals(1, rollups.get(0).getBuyerSketch().estimate());
+        assertEquals(1, rollups.get(0).getProductSketch().estimate());
+    }
+
+    @Test
+    void initialise_noSales_readyWithoutBackfill() {
+        var service = createService();
+
+        service.initialise();
+
+        assertEquals(List.of(), rollups());
+        assertTrue(service.isReady());
+    }
+
+    @Test
+    void recordSale_existingRollupForDay_saleAddedToRollup() {
+        var mockBusinessRepository = mock(BusinessRepository.class);
+        var mockRollupRepository = mock(DailySalesRollupRepository.class);
+        var mockBusiness = mock(Business.class);
+        when(mockBusiness.getId()).thenReturn(4L);
+        var mockProduct = mock(Product.class);
+        when(mockProduct.getBusiness()).thenReturn(mockBusiness);
+        when(mockProduct.getID()).thenReturn(9L);
+        when(saleItem.getProduct()).thenReturn(mockProduct);
+        var item = new BoughtSaleItem(saleItem, user);
+        var rollup = new DailySalesRollup(mockBusiness, DailySalesRollup.dayOf(item.getSaleDate()), 1, 1,
+                BigDecimal.ONE, 1, 1, new DistinctCountSketch(), new DistinctCountSketch());
+        when(mockBusinessRepository.findByIdForUpdate(4L)).thenReturn(Optional.of(mockBusiness));
+        when(mockRollupRepository.findByBusinessAndDay(mockBusiness, rollup.getDay())).thenReturn(Optional.of(rollup));
+
+        new SalesRollupService(sessionFactory, mockBusinessRepository, mockRollupRepository, reportBucketCache).recordSale(item);
+
+        verify(mockBusinessRepository, times(1)).findByIdForUpdate(4L);
+        verify(mockRollupRepository, times(1)).save(rollup);
+        assertEquals(2, rollup.getListingsSold());
+        assertEquals(3, rollup.getQuantitySold());
+        assertEquals(0, new BigDecimal("11.00").compareTo(rollup.getTotalPrice()));
+        assertEquals(4, rollup.getTotalLikes());
+        assertEquals(1, rollup.getBuyerSketch().estimate());
+    }
+
+    @Test
+    void recordSale_noRollupForDay_rollupCreated() {
+        var mockBusinessRepository = mock(BusinessRepository.class);
+        var mockRollupRepository = mock(DailySalesRollupRepository.class);
+        var mockBusiness = mock(Business.class);
+        when(mockBusiness.getId()).thenReturn(4L);
+        var mockProduct = mock(Product.class);
+        when(mockProduct.getBusiness()).thenReturn(mockBusiness);
+        when(mockProduct.getID()).thenReturn(9L);
+        when(saleItem.getProduct()).thenReturn(mockProduct);
+        var item = new BoughtSaleItem(saleItem, user);
+        when(mockBusinessRepository.findByIdForUpdate(4L)).thenReturn(Optional.of(mockBusiness));
+        when(mockRollupRepository.findByBusinessAndDay(any(), any())).thenReturn(Optional.empty());
+
+        new SalesRollupService(sessionFactory, mockBusinessRepository, mockRollupRepository, reportBucketCache).recordSale(item);
+
+        var captor = ArgumentCaptor.forClass(DailySalesRollup.class);
+        verify(mockRollupRepository, times(1)).save(captor.capture());
+        var rollup = captor.getValue();
+        assertEquals(mockBusiness, rollup.getBusiness());
+        assertEquals(DailySalesRollup.dayOf(item.getSaleDate()), rollup.getDay());
+        assertEquals(1, rollup.getListingsSold());
+        assertEquals(2, rollup.getQuantitySold());
+    }
+
+    @Test
+    void recordSale_businessDoesNotExist_exceptionThrown() {
+        var mockBusinessRepository = mock(BusinessRepository.class);
+        var mockRollupRepository = mock(DailySalesRollupRepository.class);
+        var mockBusiness = mock(Business.class);
+        when(mockBusiness.getId()).thenReturn(4L);
+        var mockProduct = mock(Product.class);
+        when(mockProduct.getBusiness()).thenReturn(mockBusiness);
+        when(saleItem.getProduct()).thenReturn(mockProduct);
+        var item = new BoughtSaleItem(saleItem, user);
+        when(mockBusinessRepository.findByIdForUpdate(4L)).thenReturn(Optional.empty());
+        var service = new SalesRollupService(sessionFactory, mockBusinessRepository, mockRollupRepository, reportBucketCache);
+
+        assertThrows(DoesNotExistResponseException.class, () -> service.recordSale(item));
+        verify(mockRollupRepository, never()).save(any());
+    }
+}
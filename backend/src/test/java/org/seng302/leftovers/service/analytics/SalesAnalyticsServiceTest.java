@@ -0,0 +1,202 @@
+package org.seng302.leftovers.service.analytics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.dto.analytics.SalesAnalyticsDimension;
+import org.seng302.leftovers.dto.analytics.SalesAnalyticsGroupDTO;
+import org.seng302.leftovers.dto.analytics.SalesAnalyticsMetric;
+import org.seng302.leftovers.dto.business.BusinessType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SalesAnalyticsServiceTest {
+
+    private final SalesFactSnapshot.Region canterbury = new SalesFactSnapshot.Region("New Zealand", "Canterbury");
+    private final SalesFactSnapshot.Region otago = new SalesFactSnapshot.Region("New Zealand", "Otago");
+    private final LocalDate day = LocalDate.parse("2021-09-14");
+    private final Instant saleDate = day.atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant();
+
+    private SalesFactStore salesFactStore;
+    private SalesAnalyticsService salesAnalyticsService;
+    private SalesFactSnapshot.Builder builder;
+    private long nextSaleId = 1;
+
+    @BeforeEach
+    void setUp() {
+        salesFactStore = mock(SalesFactStore.class);
+        salesAnalyticsService = new SalesAnalyticsService(salesFactStore, 2);
+        builder = SalesFactSnapshot.EMPTY.toBuilder();
+    }
+
+    @AfterEach
+    void tearDown() {
+        salesAnalyticsService.shutdown();
+    }
+
+    private void addSale(Instant saleDate, long daysToSell, int quantity, String price, long productId,
+                         BusinessType businessType, SalesFactSnapshot.Region region) {
+        builder.addSale(nextSaleId++, saleDate, saleDate.minusSeconds(daysToSell * 60 * 60 * 24), quantity,
+                new BigDecimal(price), productId, "Product " + productId, businessType, region);
+    }
+
+    private List<SalesAnalyticsGroupDTO> groupSales(SalesAnalyticsDimension groupBy, SalesAnalyticsMetric orderBy,
+                                                    int limit, LocalDate startDate, LocalDate endDate) {
+        when(salesFactStore.getSnapshot()).thenReturn(builder.build(Instant.now()));
+        return salesAnalyticsService.groupSales(groupBy, orderBy, limit, startDate, endDate).getGroups();
+    }
+
+    @Test
+    void groupSales_emptySnapshot_noGroups() {
+        when(salesFactStore.getSnapshot()).thenReturn(SalesFactSnapshot.EMPTY);
+
+        var analytics = salesAnalyticsService.groupSales(SalesAnalyticsDimension.PRODUCT, SalesAnalyticsMetric.REVENUE,
+                10, null, null);
+
+        assertEquals(List.of(), analytics.getGroups());
+        assertEquals(0, analytics.getSnapshotSales());
+        assertNull(analytics.getRefreshedAt());
+    }
+
+    @Test
+    void groupSales_byBusinessType_totalsOfEachType() {
+        addSale(saleDate, 1, 2, "10.00", 1, BusinessType.RETAIL_TRADE, canterbury);
+        addSale(saleDate, 3, 1, "5.50", 2, BusinessType.RETAIL_TRADE, otago);
+        addSale(saleDate, 2, 4, "20.00", 3, BusinessType.CHARITABLE, otago);
+
+        var groups = groupSales(SalesAnalyticsDimension.BUSINESS_TYPE, SalesAnalyticsMetric.REVENUE, 10, null, null);
+
+        assertEquals(List.of(
+                new SalesAnalyticsGroupDTO(null, null, BusinessType.CHARITABLE, null, null, 1, 4,
+                        new BigDecimal("20.00"), 2.0),
+                new SalesAnalyticsGroupDTO(null, null, BusinessType.RETAIL_TRADE, null, null, 2, 3,
+                        new BigDecimal("15.50"), 2.0)
+        ), groups);
+    }
+
+    @Test
+    void groupSales_byRegion_averageDaysToSellOfEachRegion() {
+        addSale(saleDate, 1, 1, "1.00", 1, BusinessType.RETAIL_TRADE, canterbury);
+        addSale(saleDate, 4, 1, "1.00", 2, BusinessType.RETAIL_TRADE, otago);
+        addSale(saleDate, 6, 1, "1.00", 3, BusinessType.CHARITABLE, otago);
+
+        var groups = groupSales(SalesAnalyticsDimension.REGION, SalesAnalyticsMetric.AVERAGE_DAYS_TO_SELL, 10, null, null);
+
+        assertEquals(2, groups.size());
+        assertEquals("Otago", groups.get(0).getRegion());
+        assertEquals("New Zealand", groups.get(0).getCountry());
+        assertEquals(5.0, groups.get(0).getAverageDaysToSell());
+        assertEquals("Canterbury", groups.get(1).getRegion());
+        assertEquals(1.0, groups.get(1).getAverageDaysToSell());
+        assertNull(groups.get(0).getBusinessType());
+        assertNull(groups.get(0).getProductId());
+    }
+
+    @Test
+    void groupSales_byProductWithLimit_topProductsReturned() {
+        for (int product = 1; product <= 20; product++) {
+            for (int sale = 0; sale < product; sale++) {
+                addSale(saleDate, 1, 1, "1.00", product, BusinessType.RETAIL_TRADE, canterbury);
+            }
+        }
+
+        var groups = groupSales(SalesAnalyticsDimension.PRODUCT, SalesAnalyticsMetric.QUANTITY_SOLD, 3, null, null);
+
+        assertEquals(3, groups.size());
+        assertEquals(20L, groups.get(0).getProductId());
+        assertEquals("Product 20", groups.get(0).getProductName());
+        assertEquals(20, groups.get(0).getQuantitySold());
+        assertEquals(19L, groups.get(1).getProductId());
+        assertEquals(18L, groups.get(2).getProductId());
+    }
+
+    @Test
+    void groupSales_byProductWithManyProducts_topProductsReturned() {
+        // More products than are totalled into arrays, sold in more than one chunk
+        int products = 3000;
+        for (int round = 0; round < 2; round++) {
+            for (int product = 0; product < products; product++) {
+                addSale(saleDate, 1, 1 + product % 5, "1.00", product, BusinessType.RETAIL_TRADE, canterbury);
+            }
+        }
+        addSale(saleDate, 1, 10, "1.00", 2999, BusinessType.RETAIL_TRADE, canterbury);
+
+        var groups = groupSales(SalesAnalyticsDimension.PRODUCT, SalesAnalyticsMetric.QUANTITY_SOLD, 2, null, null);
+
+        assertEquals(2, groups.size());
+        assertEquals(2999L, groups.get(0).getProductId());
+        assertEquals(20, groups.get(0).getQuantitySold());
+        assertEquals(3, groups.get(0).getListingsSold());
+        assertEquals(4L, groups.get(1).getProductId());
+        assertEquals(10, groups.get(1).getQuantitySold());
+    }
+
+    @Test
+    void groupSales_tiedTotals_orderedByFirstSale() {
+        addSale(saleDate, 1, 1, "1.00", 5, BusinessType.RETAIL_TRADE, canterbury);
+        addSale(saleDate, 1, 1, "1.00", 3, BusinessType.RETAIL_TRADE, canterbury);
+        addSale(saleDate, 1, 1, "1.00", 4, BusinessType.RETAIL_TRADE, canterbury);
+
+        var groups = groupSales(SalesAnalyticsDimension.PRODUCT, SalesAnalyticsMetric.LISTINGS_SOLD, 2, null, null);
+
+        assertEquals(2, groups.size());
+        assertEquals(5L, groups.get(0).getProductId());
+        assertEquals(3L, groups.get(1).getProductId());
+    }
+
+    @Test
+    void groupSales_dateRange_onlySalesInRangeTotalled() {
+        addSale(saleDate.minusSeconds(60 * 60 * 24), 1, 1, "1.00", 1, BusinessType.RETAIL_TRADE, canterbury);
+        addSale(saleDate, 1, 2, "2.00", 1, BusinessType.RETAIL_TRADE, canterbury);
+        addSale(saleDate.plusSeconds(60 * 60 * 24), 1, 4, "4.00", 1, BusinessType.RETAIL_TRADE, canterbury);
+
+        var groups = groupSales(SalesAnalyticsDimension.BUSINESS_TYPE, SalesAnalyticsMetric.REVENUE, 10, day, day);
+
+        assertEquals(1, groups.size());
+        assertEquals(1, groups.get(0).getListingsSold());
+        assertEquals(new BigDecimal("2.00"), groups.get(0).getTotalRevenue());
+    }
+
+    @Test
+    void groupSales_manyChunks_sameTotalsAsOneChunk() {
+        int sales = SalesFactChunk.CAPACITY * 5 + 17;
+        for (int i = 0; i < sales; i++) {
+            addSale(saleDate, i % 3, 1 + i % 2, "1.25", i % 7, BusinessType.values()[i % 4], i % 2 == 0 ? canterbury : otago);
+        }
+
+        var groups = groupSales(SalesAnalyticsDimension.PRODUCT, SalesAnalyticsMetric.REVENUE, 10, null, null);
+
+        assertEquals(7, groups.size());
+        long listingsSold = groups.stream().mapToLong(SalesAnalyticsGroupDTO::getListingsSold).sum();
+        BigDecimal revenue = groups.stream().map(SalesAnalyticsGroupDTO::getTotalRevenue).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(sales, listingsSold);
+        assertEquals(new BigDecimal("1.25").multiply(BigDecimal.valueOf(sales)), revenue);
+        // Product 0 is sold first, so it is sold once more than the other products
+        assertEquals(0L, groups.get(0).getProductId());
+        assertEquals(groups.get(1).getListingsSold() + 1, groups.get(0).getListingsSold());
+    }
+
+    @Test
+    void groupSales_snapshotSize_includedInResult() {
+        addSale(saleDate, 1, 1, "1.00", 1, BusinessType.RETAIL_TRADE, canterbury);
+        addSale(saleDate, 1, 1, "1.00", 1, BusinessType.RETAIL_TRADE, canterbury);
+        var snapshot = builder.build(Instant.now());
+        when(salesFactStore.getSnapshot()).thenReturn(snapshot);
+
+        var analytics = salesAnalyticsService.groupSales(SalesAnalyticsDimension.REGION, SalesAnalyticsMetric.REVENUE,
+                10, null, null);
+
+        assertEquals(2, analytics.getSnapshotSales());
+        assertEquals(snapshot.getRefreshedAt(), analytics.getRefreshedAt());
+        assertEquals(SalesAnalyticsDimension.REGION, analytics.getGroupBy());
+        assertEquals(SalesAnalyticsMetric.REVENUE, analytics.getOrderBy());
+    }
+}
@@ -0,0 +1,174 @@
+package org.seng302.leftovers.service.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.dto.business.BusinessType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SalesFactSnapshotTest {
+
+    private final Instant saleDate = Instant.parse("2021-09-14T03:00:00Z");
+    private final SalesFactSnapshot.Region canterbury = new SalesFactSnapshot.Region("New Zealand", "Canterbury");
+
+    private void addSales(SalesFactSnapshot.Builder builder, long firstId, int count) {
+        for (int i = 0; i < count; i++) {
+            builder.addSale(firstId + i, saleDate, saleDate.minusSeconds(60), 1, new BigDecimal("2.50"), 1,
+                    "Beans", BusinessType.RETAIL_TRADE, canterbury);
+        }
+    }
+
+    @Test
+    void empty_noSales() {
+        var snapshot = SalesFactSnapshot.EMPTY;
+
+        assertEquals(0, snapshot.size());
+        assertEquals(0, snapshot.getLastSaleId());
+        assertNull(snapshot.getRefreshedAt());
+        assertTrue(snapshot.getChunks().isEmpty());
+    }
+
+    @Test
+    void addSale_oneSale_columnsSet() {
+        var builder = SalesFactSnapshot.EMPTY.toBuilder();
+        builder.addSale(7, saleDate, saleDate.minusSeconds(90), 3, new BigDecimal("12.5"), 4, "Beans",
+                BusinessType.CHARITABLE, canterbury);
+        Instant refreshedAt = Instant.now();
+
+        var snapshot = builder.build(refreshedAt);
+
+        assertEquals(1, snapshot.size());
+        assertEquals(7, snapshot.getLastSaleId());
+        assertEquals(refreshedAt, snapshot.getRefreshedAt());
+        var chunk = snapshot.getChunks().get(0);
+        assertEquals(1, chunk.size);
+        assertEquals(saleDate.getEpochSecond(), chunk.saleSeconds[0]);
+        assertEquals(90, chunk.secondsToSell[0]);
+        assertEquals(3, chunk.quantities[0]);
+        assertEquals(1250, chunk.priceCents[0]);
+        assertEquals(BusinessType.CHARITABLE.ordinal(), chunk.businessTypes[0]);
+        assertEquals(4, snapshot.getProductId(chunk.productCodes[0]));
+        assertEquals("Beans", snapshot.getProductName(chunk.productCodes[0]));
+        assertEquals(canterbury, snapshot.getRegion(chunk.regionCodes[0]));
+    }
+
+    @Test
+    void addSale_sameProductAndRegion_codesShared() {
+        var builder = SalesFactSnapshot.EMPTY.toBuilder();
+        addSales(builder, 1, 2);
+        builder.addSale(3, saleDate, saleDate, 1, BigDecimal.ONE, 2, "Fish", BusinessType.RETAIL_TRADE,
+                new SalesFactSnapshot.Region("New Zealand", "Otago"));
+
+        var snapshot = builder.build(Instant.now());
+
+        assertEquals(2, snapshot.getProductCount());
+        assertEquals(2, snapshot.getRegionCount());
+        var chunk = snapshot.getChunks().get(0);
+        assertEquals(chunk.productCodes[0], chunk.productCodes[1]);
+        assertNotEquals(chunk.productCodes[0], chunk.productCodes[2]);
+        assertEquals(chunk.regionCodes[0], chunk.regionCodes[1]);
+        assertNotEquals(chunk.regionCodes[0], chunk.regionCodes[2]);
+    }
+
+    @Test
+    void addSale_saleAlreadyAdded_exceptionThrown() {
+        var builder = SalesFactSnapshot.EMPTY.toBuilder();
+        addSales(builder, 5, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> addSales(builder, 5, 1));
+    }
+
+    @Test
+    void addSale_lowerIdThanLastSale_saleAdded() {
+        var builder = SalesFactSnapshot.EMPTY.toBuilder();
+        addSales(builder, 5, 1);
+        addSales(builder, 3, 1);
+
+        var snapshot = builder.build(Instant.now());
+
+        assertEquals(2, snapshot.size());
+        assertEquals(5, snapshot.getLastSaleId());
+        assertEquals(Set.of(3L, 5L), snapshot.getRecentSaleIds());
+    }
+
+    @Test
+    void settle_recentSales_idsUpToSettledIdDropped() {
+        var builder = SalesFactSnapshot.EMPTY.toBuilder();
+        addSales(builder, 1, 5);
+
+        builder.settle(3);
+        var snapshot = builder.build(Instant.now());
+
+        assertEquals(3, snapshot.getSettledSaleId());
+        assertEquals(Set.of(4L, 5L), snapshot.getRecentSaleIds());
+        assertEquals(5, snapshot.size());
+    }
+
+    @Test
+    void settle_lowerThanSettledId_settledIdUnchanged() {
+        var builder = SalesFactSnapshot.EMPTY.toBuilder();
+        addSales(builder, 1, 5);
+        builder.settle(3);
+
+        builder.settle(1);
+
+        assertEquals(3, builder.build(Instant.now()).getSettledSaleId());
+    }
+
+    @Test
+    void addSale_idNotAfterSettledId_exceptionThrown() {
+        var builder = SalesFactSnapshot.EMPTY.toBuilder();
+        addSales(builder, 5, 1);
+        builder.settle(5);
+
+        assertThrows(IllegalArgumentException.class, () -> addSales(builder, 4, 1));
+    }
+
+    @Test
+    void build_moreSalesThanChunkCapacity_salesSplitIntoChunks() {
+        var builder = SalesFactSnapshot.EMPTY.toBuilder();
+        addSales(builder, 1, SalesFactChunk.CAPACITY + 1);
+
+        var snapshot = builder.build(Instant.now());
+
+        assertEquals(SalesFactChunk.CAPACITY + 1, snapshot.size());
+        assertEquals(2, snapshot.getChunks().size());
+        assertEquals(SalesFactChunk.CAPACITY, snapshot.getChunks().get(0).size);
+        assertEquals(1, snapshot.getChunks().get(1).size);
+    }
+
+    @Test
+    void toBuilder_fullChunks_chunksShared() {
+        var builder = SalesFactSnapshot.EMPTY.toBuilder();
+        addSales(builder, 1, SalesFactChunk.CAPACITY);
+        var first = builder.build(Instant.now());
+
+        var nextBuilder = first.toBuilder();
+        addSales(nextBuilder, SalesFactChunk.CAPACITY + 1, 2);
+        var second = nextBuilder.build(Instant.now());
+
+        assertSame(first.getChunks().get(0), second.getChunks().get(0));
+        assertEquals(2, second.getChunks().size());
+        assertEquals(SalesFactChunk.CAPACITY + 2, second.size());
+        assertEquals(SalesFactChunk.CAPACITY + 2, second.getLastSaleId());
+    }
+
+    @Test
+    void toBuilder_lastChunkNotFull_salesAddedToLastChunk() {
+        var builder = SalesFactSnapshot.EMPTY.toBuilder();
+        addSales(builder, 1, 3);
+        var first = builder.build(Instant.now());
+
+        var nextBuilder = first.toBuilder();
+        addSales(nextBuilder, 4, 2);
+        var second = nextBuilder.build(Instant.now());
+
+        assertEquals(1, second.getChunks().size());
+        assertEquals(5, second.getChunks().get(0).size);
+        assertEquals(3, first.getChunks().get(0).size);
+        assertEquals(3, first.size());
+    }
+}
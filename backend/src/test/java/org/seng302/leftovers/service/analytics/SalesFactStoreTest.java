@@ -0,0 +1,226 @@
+package org.seng302.leftovers.service.analytics;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.dto.business.BusinessType;
+import org.seng302.leftovers.entities.*;
+import org.seng302.leftovers.persistence.BoughtSaleItemRepository;
+import org.seng302.leftovers.persistence.BusinessRepository;
+import org.seng302.leftovers.persistence.ProductRepository;
+import org.seng302.leftovers.persistence.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class SalesFactStoreTest {
+
+    @Autowired
+    SessionFactory sessionFactory;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    BusinessRepository businessRepository;
+    @Autowired
+    ProductRepository productRepository;
+    @Autowired
+    BoughtSaleItemRepository boughtSaleItemRepository;
+
+    User user;
+    Business business;
+    Product product;
+    SaleItem saleItem;
+    SalesFactStore salesFactStore;
+
+    @BeforeEach
+    void setUp() {
+        tearDown();
+
+        user = userRepository.save(new User.Builder()
+                .withFirstName("John")
+                .withLastName("Smith")
+                .withEmail("user@testing")
+                .withPassword("12345678abc")
+                .withDob("2001-03-11")
+                .withAddress(Location.covertAddressStringToLocation("4,Rountree Street,Ashburton,Christchurch,New Zealand," +
+                        "Canterbury,8041"))
+                .build());
+        business = businessRepository.save(new Business.Builder()
+                .withPrimaryOwner(user)
+                .withName("Help Industries")
+                .withAddress(Location.covertAddressStringToLocation("6,Help Street,Place,Dunedin,New Zelaand,Otago,6959"))
+                .withBusinessType(BusinessType.ACCOMMODATION_AND_FOOD_SERVICES)
+                .withDescription("Helps industries hopefully")
+                .build());
+        product = productRepository.save(new Product.Builder()
+                .withBusiness(business)
+                .withProductCode("PIECEOFFISH69")
+                .withName("A Piece of Fish")
+                .withDescription("A fish but only a piece of it remains")
+                .withManufacturer("Tokyo Fishing LTD")
+                .withRecommendedRetailPrice("3.20")
+                .build());
+
+        saleItem = mock(SaleItem.class);
+        when(saleItem.getProduct()).thenReturn(product);
+        when(saleItem.getPrice()).thenReturn(new BigDecimal("10.00"));
+        when(saleItem.getQuantity()).thenReturn(2);
+        when(saleItem.getCreated()).thenReturn(Instant.now().minus(1, ChronoUnit.HOURS));
+        when(saleItem.getLikeCount()).thenReturn(3);
+
+        // A small fetch size so that the sales are fetched in more than one batch
+        salesFactStore = new SalesFactStore(sessionFactory, 2, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        boughtSaleItemRepository.deleteAll();
+        productRepository.deleteAll();
+        businessRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void new_nonPositiveFetchSize_exceptionThrown() {
+        assertThrows(IllegalArgumentException.class, () -> new SalesFactStore(sessionFactory, 0, 100));
+    }
+
+    @Test
+    void new_negativeRecentIdWindow_exceptionThrown() {
+        assertThrows(IllegalArgumentException.class, () -> new SalesFactStore(sessionFactory, 2, -1));
+    }
+
+    @Test
+    void getSnapshot_notLoaded_emptySnapshot() {
+        assertEquals(0, salesFactStore.getSnapshot().size());
+        assertNull(salesFactStore.getSnapshot().getRefreshedAt());
+    }
+
+    @Test
+    void rebuild_sales_everySaleLoaded() {
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        var last = boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+
+        assertEquals(3, salesFactStore.rebuild());
+
+        var snapshot = salesFactStore.getSnapshot();
+        assertEquals(3, snapshot.size());
+        assertEquals(last.getId(), snapshot.getLastSaleId());
+        assertNotNull(snapshot.getRefreshedAt());
+        var chunk = snapshot.getChunks().get(0);
+        assertEquals(1000, chunk.priceCents[0]);
+        assertEquals(2, chunk.quantities[0]);
+        assertEquals(BusinessType.ACCOMMODATION_AND_FOOD_SERVICES.ordinal(), chunk.businessTypes[0]);
+        assertEquals(product.getID(), snapshot.getProductId(chunk.productCodes[0]));
+        assertEquals("A Piece of Fish", snapshot.getProductName(chunk.productCodes[0]));
+        assertEquals("Otago", snapshot.getRegion(chunk.regionCodes[0]).getRegion());
+    }
+
+    @Test
+    void refresh_newSales_onlyNewSalesLoaded() {
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        salesFactStore.refresh();
+        var first = salesFactStore.getSnapshot();
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+
+        assertEquals(2, salesFactStore.refresh());
+
+        assertEquals(3, salesFactStore.getSnapshot().size());
+        assertEquals(1, first.size());
+    }
+
+    @Test
+    void refresh_noNewSales_nothingLoaded() {
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        salesFactStore.refresh();
+
+        assertEquals(0, salesFactStore.refresh());
+        assertEquals(1, salesFactStore.getSnapshot().size());
+    }
+
+    @Test
+    void refresh_saleDeleted_snapshotRebuilt() {
+        var deleted = boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        salesFactStore.refresh();
+        boughtSaleItemRepository.delete(deleted);
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+
+        assertEquals(2, salesFactStore.refresh());
+
+        assertEquals(2, salesFactStore.getSnapshot().size());
+    }
+
+    /**
+     * Changes the ID of a sale, to simulate a sale which was given an ID before another sale but committed after it
+     * @param sale Sale to change the ID of
+     * @param newId ID to give the sale
+     */
+    private void changeSaleId(BoughtSaleItem sale, long newId) {
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            session.createNativeQuery("update bought_sale_item set id = :newId where id = :id")
+                    .setParameter("newId", newId)
+                    .setParameter("id", sale.getId())
+                    .executeUpdate();
+            transaction.commit();
+        }
+    }
+
+    @Test
+    void refresh_saleCommittedLate_saleAddedWithoutRebuild() {
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        var late = boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        boughtSaleItemRepository.delete(late);
+        salesFactStore.refresh();
+        changeSaleId(boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user)), late.getId());
+
+        assertEquals(1, salesFactStore.refresh());
+
+        assertEquals(3, salesFactStore.getSnapshot().size());
+    }
+
+    @Test
+    void refresh_sales_saleIdsBeforeWindowSettled() {
+        salesFactStore = new SalesFactStore(sessionFactory, 2, 1);
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        var second = boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        var last = boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+
+        salesFactStore.refresh();
+
+        var snapshot = salesFactStore.getSnapshot();
+        assertEquals(second.getId(), snapshot.getSettledSaleId());
+        assertEquals(Set.of(last.getId()), snapshot.getRecentSaleIds());
+        assertEquals(3, snapshot.size());
+    }
+
+    @Test
+    void refresh_saleDeletedBeforeWindow_snapshotNotRebuilt() {
+        salesFactStore = new SalesFactStore(sessionFactory, 2, 0);
+        var deleted = boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+        salesFactStore.refresh();
+        boughtSaleItemRepository.delete(deleted);
+        boughtSaleItemRepository.save(new BoughtSaleItem(saleItem, user));
+
+        assertEquals(1, salesFactStore.refresh());
+
+        assertEquals(3, salesFactStore.getSnapshot().size());
+    }
+}
@@ -0,0 +1,154 @@
+package org.seng302.leftovers.service.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.entities.Location;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BusinessLocationIndexTest {
+
+    private BusinessLocationIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BusinessLocationIndex(null, 100);
+        index.replaceAll(List.of(
+                new BusinessLocationIndex.Entry(1, 11, -43.52, 172.62),  // About 1km from the centre
+                new BusinessLocationIndex.Entry(2, 12, -43.60, 172.70),  // About 10km from the centre
+                new BusinessLocationIndex.Entry(3, 13, -41.29, 174.78),  // About 300km from the centre
+                new BusinessLocationIndex.Entry(4, 14, 0.5, 179.9),
+                new BusinessLocationIndex.Entry(5, 15, 0.5, -179.9)));
+    }
+
+    private static SearchArea radius(double radius) {
+        return SearchArea.fromParameters(-43.53, 172.63, radius, null, null, null, null);
+    }
+
+    @Test
+    void findBusinessIds_notBuilt_emptyReturned() {
+        var unbuiltIndex = new BusinessLocationIndex(null, 100);
+
+        assertEquals(Optional.empty(), unbuiltIndex.findBusinessIds(radius(50)));
+        assertFalse(unbuiltIndex.isReady());
+    }
+
+    @Test
+    void findBusinessIds_radius_businessesInRadiusOrderedByDistance() {
+        assertEquals(Optional.of(List.of(1L, 2L)), index.findBusinessIds(radius(50)));
+    }
+
+    @Test
+    void findBusinessIds_largeRadius_businessesInRadiusOrderedByDistance() {
+        assertEquals(Optional.of(List.of(1L, 2L, 3L)), index.findBusinessIds(radius(500)));
+    }
+
+    @Test
+    void findBusinessIds_centreWithoutBounds_everyBusinessOrderedByDistance() {
+        var area = SearchArea.fromParameters(-41.29, 174.78, null, null, null, null, null);
+
+        assertEquals(Optional.of(List.of(3L, 1L, 2L, 4L, 5L)), index.findBusinessIds(area));
+    }
+
+    @Test
+    void findBusinessIds_boundingBox_businessesInBoxOrderedById() {
+        var area = SearchArea.fromParameters(null, null, null, -41.0, -44.0, 173.0, 172.0);
+
+        assertEquals(Optional.of(List.of(1L, 2L)), index.findBusinessIds(area));
+    }
+
+    @Test
+    void findBusinessIds_boundingBoxAcrossAntimeridian_businessesEitherSideFound() {
+        var area = SearchArea.fromParameters(null, null, null, 1.0, 0.0, -179.0, 179.0);
+
+        assertEquals(Optional.of(List.of(4L, 5L)), index.findBusinessIds(area));
+    }
+
+    @Test
+    void findBusinessIds_radiusAcrossAntimeridian_businessesEitherSideFound() {
+        var area = SearchArea.fromParameters(0.5, 180.0, 50.0, null, null, null, null);
+
+        assertEquals(Optional.of(List.of(4L, 5L)), index.findBusinessIds(area).map(ids -> ids.stream().sorted().collect(Collectors.toList())));
+    }
+
+    @Test
+    void findBusinessIds_moreMatchesThanMaximum_emptyReturned() {
+        var smallIndex = new BusinessLocationIndex(null, 1);
+        smallIndex.replaceAll(List.of(
+                new BusinessLocationIndex.Entry(1, 11, -43.52, 172.62),
+                new BusinessLocationIndex.Entry(2, 12, -43.60, 172.70)));
+
+        assertEquals(Optional.empty(), smallIndex.findBusinessIds(radius(50)));
+    }
+
+    @Test
+    void put_businessMoved_foundAtNewLocation() {
+        index.put(new BusinessLocationIndex.Entry(3, 13, -43.54, 172.64));
+
+        assertEquals(Optional.of(List.of(1L, 3L, 2L)), index.findBusinessIds(radius(50)));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void remove_business_notFound() {
+        index.remove(1);
+
+        assertEquals(Optional.of(List.of(2L)), index.findBusinessIds(radius(50)));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void updateLocation_coordinatesChanged_businessesAtLocationMoved() {
+        Location location = mock(Location.class);
+        when(location.getId()).thenReturn(13L);
+        when(location.getLatitude()).thenReturn(-43.54);
+        when(location.getLongitude()).thenReturn(172.64);
+        when(location.hasCoordinates()).thenReturn(true);
+
+        index.updateLocation(location);
+
+        assertEquals(Optional.of(List.of(1L, 3L, 2L)), index.findBusinessIds(radius(50)));
+    }
+
+    @Test
+    void updateLocation_coordinatesRemoved_businessesAtLocationRemoved() {
+        Location location = mock(Location.class);
+        when(location.getId()).thenReturn(11L);
+
+        index.updateLocation(location);
+
+        assertEquals(Optional.of(List.of(2L)), index.findBusinessIds(radius(50)));
+    }
+
+    @Test
+    void getPage_ascending_pageOfIdsInOrder() {
+        Page<Long> page = BusinessLocationIndex.getPage(List.of(3L, 1L, 2L), PageRequest.of(0, 2), Sort.Direction.ASC);
+
+        assertEquals(List.of(3L, 1L), page.getContent());
+        assertEquals(3, page.getTotalElements());
+    }
+
+    @Test
+    void getPage_descending_pageOfIdsInReverseOrder() {
+        Page<Long> page = BusinessLocationIndex.getPage(List.of(3L, 1L, 2L), PageRequest.of(0, 2), Sort.Direction.DESC);
+
+        assertEquals(List.of(2L, 1L), page.getContent());
+    }
+
+    @Test
+    void getPage_pastLastPage_emptyPageWithTotal() {
+        Page<Long> page = BusinessLocationIndex.getPage(List.of(3L, 1L, 2L), PageRequest.of(5, 2), Sort.Direction.ASC);
+
+        assertTrue(page.getContent().isEmpty());
+        assertEquals(3, page.getTotalElements());
+    }
+}
@@ -0,0 +1,149 @@
+package org.seng302.leftovers.service.search;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.dto.card.KeywordDTO;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class KeywordPrefixIndexTest {
+
+    private KeywordPrefixIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new KeywordPrefixIndex(mock(SessionFactory.class));
+        index.replaceAll(List.of(
+                keyword(1L, "Vegan"),
+                keyword(2L, "Vegetarian"),
+                keyword(3L, "Vegetables"),
+                keyword(4L, "Gluten Free"),
+                keyword(5L, "Free Range"),
+                keyword(6L, "Organic")));
+    }
+
+    private static KeywordDTO keyword(long id, String name) {
+        return new KeywordDTO(id, name, Instant.EPOCH);
+    }
+
+    private static List<String> names(Optional<List<KeywordDTO>> keywords) {
+        return keywords.orElseThrow().stream().map(KeywordDTO::getName).collect(Collectors.toList());
+    }
+
+    @Test
+    void search_notBuilt_emptyReturned() {
+        var unbuiltIndex = new KeywordPrefixIndex(mock(SessionFactory.class));
+
+        assertFalse(unbuiltIndex.isReady());
+        assertTrue(unbuiltIndex.search("veg", null).isEmpty());
+        assertTrue(unbuiltIndex.findAll().isEmpty());
+    }
+
+    @Test
+    void search_prefix_matchesInAlphabeticalOrder() {
+        assertEquals(List.of("Vegan", "Vegetables", "Vegetarian"), names(index.search("veg", null)));
+    }
+
+    @Test
+    void search_differentCase_matchesFound() {
+        assertEquals(List.of("Vegetables", "Vegetarian"), names(index.search("VEGE", null)));
+    }
+
+    @Test
+    void search_containedInName_prefixMatchesFirst() {
+        assertEquals(List.of("Free Range", "Gluten Free"), names(index.search("free", null)));
+    }
+
+    @Test
+    void search_limit_onlyFirstMatchesReturned() {
+        assertEquals(List.of("Vegan", "Vegetables"), names(index.search("veg", 2)));
+        assertEquals(List.of("Free Range"), names(index.search("free", 1)));
+    }
+
+    @Test
+    void search_noMatches_emptyListReturned() {
+        assertEquals(List.of(), names(index.search("dairy", null)));
+    }
+
+    @Test
+    void findAll_built_everyKeywordByName() {
+        assertEquals(List.of("Free Range", "Gluten Free", "Organic", "Vegan", "Vegetables", "Vegetarian"),
+                names(index.findAll()));
+    }
+
+    @Test
+    void findAll_mixedCase_orderedWithoutCase() {
+        index.replaceAll(List.of(
+                keyword(1L, "banana"),
+                keyword(2L, "Cherry"),
+                keyword(3L, "apple"),
+                keyword(4L, "Banana")));
+
+        assertEquals(List.of("apple", "Banana", "banana", "Cherry"), names(index.findAll()));
+    }
+
+    @Test
+    void search_mixedCase_eachGroupOrderedWithoutCase() {
+        index.replaceAll(List.of(
+                keyword(1L, "Zone"),
+                keyword(2L, "Ones"),
+                keyword(3L, "one"),
+                keyword(4L, "alone"),
+                keyword(5L, "One Off")));
+
+        assertEquals(List.of("one", "One Off", "Ones", "alone", "Zone"), names(index.search("ONE", null)));
+    }
+
+    @Test
+    void byName_mixedCase_matchesIndexOrder() {
+        var keywords = List.of(keyword(1L, "Zone"), keyword(2L, "Ones"), keyword(3L, "one"), keyword(4L, "alone"),
+                keyword(5L, "One Off"), keyword(6L, "ONE"));
+        index.replaceAll(keywords);
+
+        var sorted = keywords.stream().sorted(KeywordPrefixIndex.BY_NAME).collect(Collectors.toList());
+
+        assertEquals(sorted, index.findAll().orElseThrow());
+    }
+
+    @Test
+    void put_newKeyword_keywordFound() {
+        index.put(keyword(7L, "Vegemite"));
+
+        assertEquals(List.of("Vegemite", "Vegetables", "Vegetarian"), names(index.search("vege", null)));
+        assertEquals(7, index.size());
+    }
+
+    @Test
+    void put_renamedKeyword_oldNameNotFound() {
+        index.put(keyword(6L, "Local"));
+
+        assertEquals(List.of(), names(index.search("org", null)));
+        assertEquals(List.of("Local"), names(index.search("loc", null)));
+        assertEquals(6, index.size());
+    }
+
+    @Test
+    void remove_keyword_keywordNotFound() {
+        index.remove(1L);
+
+        assertEquals(List.of("Vegetables", "Vegetarian"), names(index.search("veg", null)));
+        assertEquals(List.of(), names(index.search("vegan", null)));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void remove_keywordWithLongerNameRemaining_longerNameStillFound() {
+        index.put(keyword(7L, "Veg"));
+        index.remove(7L);
+        index.remove(1L);
+
+        assertEquals(List.of("Vegetables", "Vegetarian"), names(index.search("veg", null)));
+    }
+}
@@ -0,0 +1,139 @@
+package org.seng302.leftovers.service.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.entities.MarketplaceCard;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketplaceCardKeywordIndexTest {
+
+    private static final Instant NOW = Instant.parse("2021-08-01T00:00:00Z");
+
+    private MarketplaceCardKeywordIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new MarketplaceCardKeywordIndex(null);
+        index.replaceAll(List.of(
+                card(1, MarketplaceCard.Section.FOR_SALE, Set.of(10L, 20L), 3, "Banana"),
+                card(2, MarketplaceCard.Section.FOR_SALE, Set.of(10L), 1, "apple"),
+                card(3, MarketplaceCard.Section.FOR_SALE, Set.of(20L), 2, "Cherry"),
+                card(4, MarketplaceCard.Section.WANTED, Set.of(10L, 20L), 4, "Date"),
+                card(5, MarketplaceCard.Section.FOR_SALE, Set.of(30L), 1, "apple")));
+    }
+
+    private MarketplaceCardKeywordIndex.CardEntry card(long id, MarketplaceCard.Section section, Set<Long> keywordIds,
+                                                        int daysOld, String title) {
+        Instant created = NOW.minusSeconds(daysOld * 24L * 60 * 60);
+        return new MarketplaceCardKeywordIndex.CardEntry(id, section, keywordIds, created, created,
+                created.plusSeconds(14L * 24 * 60 * 60), title);
+    }
+
+    private static BitSet bits(int... ids) {
+        BitSet bitSet = new BitSet();
+        for (int id : ids) {
+            bitSet.set(id);
+        }
+        return bitSet;
+    }
+
+    @Test
+    void findMatchingIds_intersection_cardsWithAllKeywordsInSection() {
+        assertEquals(Optional.of(bits(1)), index.findMatchingIds(MarketplaceCard.Section.FOR_SALE, List.of(10L, 20L), false));
+    }
+
+    @Test
+    void findMatchingIds_union_cardsWithAnyKeywordInSection() {
+        assertEquals(Optional.of(bits(1, 2, 3)), index.findMatchingIds(MarketplaceCard.Section.FOR_SALE, List.of(10L, 20L), true));
+    }
+
+    @Test
+    void findMatchingIds_otherSection_onlyCardsInThatSection() {
+        assertEquals(Optional.of(bits(4)), index.findMatchingIds(MarketplaceCard.Section.WANTED, List.of(10L), true));
+        assertEquals(Optional.of(bits()), index.findMatchingIds(MarketplaceCard.Section.EXCHANGE, List.of(10L), true));
+    }
+
+    @Test
+    void findMatchingIds_unknownKeywordInIntersection_noCards() {
+        assertEquals(Optional.of(bits()), index.findMatchingIds(MarketplaceCard.Section.FOR_SALE, List.of(10L, 99L), false));
+    }
+
+    @Test
+    void findMatchingIds_indexNotBuilt_emptyReturned() {
+        var unbuiltIndex = new MarketplaceCardKeywordIndex(null);
+
+        assertFalse(unbuiltIndex.isReady());
+        assertTrue(unbuiltIndex.findMatchingIds(MarketplaceCard.Section.FOR_SALE, List.of(10L), true).isEmpty());
+    }
+
+    @Test
+    void put_cardChangesKeywordsAndSection_bitmapsUpdated() {
+        index.put(card(2, MarketplaceCard.Section.EXCHANGE, Set.of(30L), 1, "apple"));
+
+        assertEquals(Optional.of(bits(1)), index.findMatchingIds(MarketplaceCard.Section.FOR_SALE, List.of(10L), true));
+        assertEquals(Optional.of(bits(2)), index.findMatchingIds(MarketplaceCard.Section.EXCHANGE, List.of(30L), true));
+    }
+
+    @Test
+    void remove_cardInIndex_cardNoLongerMatched() {
+        index.remove(1);
+
+        assertEquals(Optional.of(bits(2)), index.findMatchingIds(MarketplaceCard.Section.FOR_SALE, List.of(10L), true));
+    }
+
+    @Test
+    void getPage_orderedByCreated_idsInOrderWithTotal() {
+        var page = index.getPage(bits(1, 2, 3, 5), PageRequest.of(0, 3, Sort.by("created")));
+
+        assertTrue(page.isPresent());
+        assertEquals(List.of(1L, 3L, 2L), page.get().getContent());
+        assertEquals(4, page.get().getTotalElements());
+    }
+
+    @Test
+    void getPage_secondPageDescending_tiesOrderedByIdDescending() {
+        var page = index.getPage(bits(1, 2, 3, 5), PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "created")));
+
+        assertEquals(List.of(3L, 1L), page.map(Page::getContent).orElseThrow());
+    }
+
+    @Test
+    void getPage_orderedByTitle_caseIgnored() {
+        var page = index.getPage(bits(1, 2, 3), PageRequest.of(0, 10, Sort.by("title")));
+
+        assertEquals(List.of(2L, 1L, 3L), page.map(Page::getContent).orElseThrow());
+    }
+
+    @Test
+    void getPage_pagePastEnd_emptyPageWithTotal() {
+        var page = index.getPage(bits(1, 2), PageRequest.of(5, 10, Sort.by("created"))).orElseThrow();
+
+        assertTrue(page.getContent().isEmpty());
+        assertEquals(2, page.getTotalElements());
+    }
+
+    @Test
+    void getPage_orderedByCreator_emptyReturned() {
+        assertTrue(index.getPage(bits(1), PageRequest.of(0, 10, Sort.by("creatorFirstName"))).isEmpty());
+    }
+
+    @Test
+    void orderLikePage_entitiesOutOfOrder_orderedLikeIds() {
+        var pageIds = index.getPage(bits(1, 2, 3), PageRequest.of(0, 10, Sort.by("created"))).orElseThrow();
+
+        Page<String> page = SearchPageConstructor.orderLikePage(pageIds, List.of("3", "2", "1", "9"), Long::valueOf);
+
+        assertEquals(List.of("1", "3", "2"), page.getContent());
+        assertEquals(3, page.getTotalElements());
+    }
+}
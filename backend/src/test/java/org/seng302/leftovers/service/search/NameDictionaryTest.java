@@ -0,0 +1,158 @@
+package org.seng302.leftovers.service.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NameDictionaryTest {
+
+    private NameDictionary dictionary;
+
+    @BeforeEach
+    void setUp() {
+        dictionary = new NameDictionary();
+        dictionary.replaceAll(Map.of(
+                1L, "Chocolate Bar",
+                2L, "Dark chocolate",
+                3L, "Sourdough Bread",
+                4L, "Bakery Rolls",
+                5L, "Baker's dozen"));
+    }
+
+    @Test
+    void editDistance_sameWord_zero() {
+        assertEquals(0, NameDictionary.editDistance("bread", "bread"));
+    }
+
+    @Test
+    void editDistance_insertionsDeletionsAndSubstitutions_eachCountOnce() {
+        assertEquals(1, NameDictionary.editDistance("choclate", "chocolate"));
+        assertEquals(1, NameDictionary.editDistance("breads", "bread"));
+        assertEquals(1, NameDictionary.editDistance("brend", "bread"));
+        assertEquals(3, NameDictionary.editDistance("kitten", "sitting"));
+        assertEquals(5, NameDictionary.editDistance("", "bread"));
+    }
+
+    @Test
+    void getMaxEditDistance_termLength_moreTyposAllowedInLongerTerms() {
+        assertEquals(0, NameDictionary.getMaxEditDistance("bar"));
+        assertEquals(1, NameDictionary.getMaxEditDistance("bread"));
+        assertEquals(1, NameDictionary.getMaxEditDistance("choclat"));
+        assertEquals(2, NameDictionary.getMaxEditDistance("choclate"));
+    }
+
+    @Test
+    void toWords_nameWithPunctuation_lowerCaseWords() {
+        assertEquals(List.of("baker", "s", "dozen"), NameDictionary.toWords("Baker's  Dozen!"));
+    }
+
+    @Test
+    void findSimilarWords_misspeltTerm_correctionReturned() {
+        assertEquals(List.of("chocolate"), dictionary.findSimilarWords("choclate"));
+    }
+
+    @Test
+    void findSimilarWords_upperCaseTerm_correctionReturned() {
+        assertEquals(List.of("bakery"), dictionary.findSimilarWords("BAKRY"));
+    }
+
+    @Test
+    void findSimilarWords_multipleCorrections_closestFirst() {
+        assertEquals(List.of("sourdough"), dictionary.findSimilarWords("sordough"));
+        assertEquals(List.of("baker", "bakery"), dictionary.findSimilarWords("bakerx"));
+    }
+
+    @Test
+    void findSimilarWords_termContainedInWord_noCorrections() {
+        assertEquals(List.of(), dictionary.findSimilarWords("choco"));
+    }
+
+    @Test
+    void findSimilarWords_termContainedInRemovedWord_correctionsReturned() {
+        dictionary.put(6L, "Rolled Oats");
+        assertEquals(List.of(), dictionary.findSimilarWords("rolle"));
+
+        dictionary.remove(6L);
+
+        assertEquals(List.of("rolls"), dictionary.findSimilarWords("rolle"));
+    }
+
+    @Test
+    void toTrigrams_word_everyDistinctTrigram() {
+        assertEquals(Set.of("ban", "ana", "nan"), NameDictionary.toTrigrams("banana"));
+        assertEquals(Set.of(), NameDictionary.toTrigrams("ba"));
+    }
+
+    @Test
+    void findSimilarWords_shortTerm_noCorrections() {
+        assertEquals(List.of(), dictionary.findSimilarWords("brr"));
+    }
+
+    @Test
+    void findSimilarWords_tooManyTypos_noCorrections() {
+        assertEquals(List.of(), dictionary.findSimilarWords("brxxd"));
+    }
+
+    @Test
+    void findSimilarWords_phrase_noCorrections() {
+        assertEquals(List.of(), dictionary.findSimilarWords("dark choclate"));
+    }
+
+    @Test
+    void put_nameChanged_oldWordsRemoved() {
+        dictionary.put(3L, "Rye Loaf");
+
+        assertEquals(List.of(), dictionary.findSimilarWords("sordough"));
+        assertEquals(List.of("loaf"), dictionary.findSimilarWords("loaff"));
+    }
+
+    @Test
+    void remove_wordInOtherName_wordKept() {
+        dictionary.remove(1L);
+
+        assertEquals(List.of("chocolate"), dictionary.findSimilarWords("choclate"));
+    }
+
+    @Test
+    void remove_lastNameWithWord_wordRemoved() {
+        dictionary.remove(1L);
+        dictionary.remove(2L);
+
+        assertEquals(List.of(), dictionary.findSimilarWords("choclate"));
+        assertEquals(7, dictionary.size());
+    }
+
+    @Test
+    void remove_mostNames_remainingWordsStillFound() {
+        Map<Long, String> names = new HashMap<>();
+        for (long i = 0; i < 100; i++) {
+            names.put(i, "Product" + i);
+        }
+        names.put(100L, "Sourdough");
+        dictionary.replaceAll(names);
+        for (long i = 0; i < 100; i++) {
+            dictionary.remove(i);
+        }
+
+        assertEquals(1, dictionary.size());
+        assertEquals(List.of("sourdough"), dictionary.findSimilarWords("sordough"));
+    }
+
+    @Test
+    void rebuild_changeWhileLoading_changeKept() {
+        dictionary.rebuild(() -> {
+            dictionary.put(6L, "Croissant");
+            return Map.of(1L, "Chocolate Bar");
+        });
+
+        assertEquals(List.of("croissant"), dictionary.findSimilarWords("crossant"));
+        assertEquals(List.of("chocolate"), dictionary.findSimilarWords("choclate"));
+        assertEquals(List.of(), dictionary.findSimilarWords("sordough"));
+    }
+}
@@ -0,0 +1,173 @@
+package org.seng302.leftovers.service.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.seng302.leftovers.entities.User;
+import org.seng302.leftovers.persistence.UserRepository;
+import org.springframework.data.domain.*;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResultCountCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private Specification<User> specification;
+    @Mock
+    private Clock clock;
+    @Mock
+    private User user;
+
+    private ResultCountCache resultCountCache;
+    private Instant now;
+
+    @BeforeEach
+    void setUp() {
+        now = Instant.parse("2021-09-01T12:00:00Z");
+        lenient().when(clock.instant()).thenAnswer(invocation -> now);
+        resultCountCache = new ResultCountCache(Duration.ofSeconds(30), 2, clock);
+    }
+
+    private void mockFindAll(Pageable pageable, long total) {
+        when(userRepository.findAll(specification, pageable)).thenReturn(new PageImpl<>(List.of(user, user), pageable, total));
+    }
+
+    @Test
+    void findPage_totalNotCounted_sliceReturnedWithoutCount() {
+        Pageable pageable = PageRequest.of(0, 2);
+        when(userRepository.findSlice(specification, pageable)).thenReturn(new SliceImpl<>(List.of(user, user), pageable, true));
+
+        Slice<User> result = resultCountCache.findPage(userRepository, specification, pageable, false, "query");
+
+        assertFalse(result instanceof Page);
+        assertTrue(result.hasNext());
+        verify(userRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+        verify(userRepository, never()).count(any());
+    }
+
+    @Test
+    void findPage_totalNotCached_pageAndTotalFetchedFromDatabase() {
+        Pageable pageable = PageRequest.of(0, 2);
+        mockFindAll(pageable, 10);
+
+        Slice<User> result = resultCountCache.findPage(userRepository, specification, pageable, true, "query");
+
+        assertTrue(result instanceof Page);
+        assertEquals(10, ((Page<User>) result).getTotalElements());
+        assertEquals(1, resultCountCache.size());
+        verify(userRepository, never()).findSlice(any(), any());
+    }
+
+    @Test
+    void findPage_countedRecently_sliceFetchedWithCachedTotal() {
+        mockFindAll(PageRequest.of(0, 2), 10);
+        resultCountCache.findPage(userRepository, specification, PageRequest.of(0, 2), true, "query");
+        Pageable secondPage = PageRequest.of(1, 2);
+        when(userRepository.findSlice(specification, secondPage)).thenReturn(new SliceImpl<>(List.of(user, user), secondPage, true));
+
+        Slice<User> result = resultCountCache.findPage(userRepository, specification, secondPage, true, "query");
+
+        assertEquals(10, ((Page<User>) result).getTotalElements());
+        verify(userRepository, never()).findAll(specification, secondPage);
+    }
+
+    @Test
+    void findPage_countExpired_totalCountedAgain() {
+        Pageable pageable = PageRequest.of(0, 2);
+        mockFindAll(pageable, 10);
+        resultCountCache.findPage(userRepository, specification, pageable, true, "query");
+        now = now.plusSeconds(30);
+
+        resultCountCache.findPage(userRepository, specification, pageable, true, "query");
+
+        verify(userRepository, times(2)).findAll(specification, pageable);
+        verify(userRepository, never()).findSlice(any(), any());
+    }
+
+    @Test
+    void findPage_differentCountKey_totalCountedSeparately() {
+        Pageable pageable = PageRequest.of(0, 2);
+        mockFindAll(pageable, 10);
+        resultCountCache.findPage(userRepository, specification, pageable, true, "query");
+
+        resultCountCache.findPage(userRepository, specification, pageable, true, "other query");
+
+        verify(userRepository, times(2)).findAll(specification, pageable);
+    }
+
+    @Test
+    void findPage_lastPageWithCachedTotal_exactTotalReturned() {
+        mockFindAll(PageRequest.of(0, 2), 10);
+        resultCountCache.findPage(userRepository, specification, PageRequest.of(0, 2), true, "query");
+        Pageable lastPage = PageRequest.of(3, 2);
+        when(userRepository.findSlice(specification, lastPage)).thenReturn(new SliceImpl<>(List.of(user), lastPage, false));
+
+        Slice<User> result = resultCountCache.findPage(userRepository, specification, lastPage, true, "query");
+
+        assertEquals(7, ((Page<User>) result).getTotalElements());
+    }
+
+    @Test
+    void findPage_moreResultsThanCachedTotal_totalIncludesNextPage() {
+        mockFindAll(PageRequest.of(0, 2), 4);
+        resultCountCache.findPage(userRepository, specification, PageRequest.of(0, 2), true, "query");
+        Pageable thirdPage = PageRequest.of(2, 2);
+        when(userRepository.findSlice(specification, thirdPage)).thenReturn(new SliceImpl<>(List.of(user, user), thirdPage, true));
+
+        Slice<User> result = resultCountCache.findPage(userRepository, specification, thirdPage, true, "query");
+
+        assertEquals(7, ((Page<User>) result).getTotalElements());
+        assertTrue(result.hasNext());
+    }
+
+    @Test
+    void findPage_pageAfterLastPageWithCachedTotal_totalNotMoreThanOffset() {
+        mockFindAll(PageRequest.of(0, 2), 10);
+        resultCountCache.findPage(userRepository, specification, PageRequest.of(0, 2), true, "query");
+        Pageable pastEnd = PageRequest.of(3, 2);
+        when(userRepository.findSlice(specification, pastEnd)).thenReturn(new SliceImpl<>(List.of(), pastEnd, false));
+
+        Slice<User> result = resultCountCache.findPage(userRepository, specification, pastEnd, true, "query");
+
+        assertTrue(result.getContent().isEmpty());
+        assertEquals(6, ((Page<User>) result).getTotalElements());
+    }
+
+    @Test
+    void findPage_moreSearchesThanMaximum_leastRecentlyUsedRemoved() {
+        Pageable pageable = PageRequest.of(0, 2);
+        mockFindAll(pageable, 10);
+
+        resultCountCache.findPage(userRepository, specification, pageable, true, "a");
+        resultCountCache.findPage(userRepository, specification, pageable, true, "b");
+        resultCountCache.findPage(userRepository, specification, pageable, true, "c");
+
+        assertEquals(2, resultCountCache.size());
+    }
+
+    @Test
+    void findPage_timeToLiveZero_totalNeverCached() {
+        var uncachedCounts = new ResultCountCache(0, 10);
+        Pageable pageable = PageRequest.of(0, 2);
+        mockFindAll(pageable, 10);
+
+        uncachedCounts.findPage(userRepository, specification, pageable, true, "query");
+        uncachedCounts.findPage(userRepository, specification, pageable, true, "query");
+
+        assertEquals(0, uncachedCounts.size());
+        verify(userRepository, times(2)).findAll(specification, pageable);
+    }
+}
@@ -0,0 +1,262 @@
+package org.seng302.leftovers.service.search;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.seng302.leftovers.dto.business.BusinessType;
+import org.seng302.leftovers.dto.saleitem.SaleListingSearchDTO;
+import org.seng302.leftovers.entities.*;
+import org.seng302.leftovers.persistence.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class SaleItemSearchIndexTest {
+
+    @Autowired
+    private SaleItemSearchIndex saleItemSearchIndex;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BusinessRepository businessRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private InventoryItemRepository inventoryItemRepository;
+    @Autowired
+    private SaleItemRepository saleItemRepository;
+    @Autowired
+    private SearchPlanCache searchPlanCache;
+
+    private Business business;
+    private Product pie;
+    private SaleItem pieSale;
+    private SaleItem juiceSale;
+    private int createdProducts = 0;
+
+    @BeforeEach
+    void setUp() {
+        clearDatabase();
+
+        User user = userRepository.save(new User.Builder()
+                .withAddress(Location.covertAddressStringToLocation("4,Rountree Street,Ashburton,Christchurch,New Zealand," +
+                        "Canterbury,8041"))
+                .withDob("2000-01-01")
+                .withEmail("pog32@gmail.com")
+                .withFirstName("Greg")
+                .withLastName("Jones")
+                .withPassword("password123").build());
+        business = businessRepository.save(new Business.Builder()
+                .withBusinessType(BusinessType.ACCOMMODATION_AND_FOOD_SERVICES)
+                .withAddress(Location.covertAddressStringToLocation("45,Street place,someplace,Canberra,Australia,NSW,5011"))
+                .withName("Gregs pies")
+                .withDescription("We enjoy pies")
+                .withPrimaryOwner(user).build());
+
+        pie = createProduct("Simple Pie", "Good pies", "Yummy");
+        pieSale = createSaleItem(pie, "plz buy my pies");
+        juiceSale = createSaleItem(createProduct("Apple Juice", "Fresh co", "Cold drink"), null);
+
+        saleItemSearchIndex.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clearDatabase();
+    }
+
+    private void clearDatabase() {
+        saleItemRepository.deleteAll();
+        inventoryItemRepository.deleteAll();
+        productRepository.deleteAll();
+        businessRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private Product createProduct(String name, String manufacturer, String description) {
+        createdProducts++;
+        return productRepository.save(new Product.Builder()
+                .withName(name)
+                .withProductCode("PROD" + createdProducts)
+                .withDescription(description)
+                .withBusiness(business)
+                .withManufacturer(manufacturer)
+                .withRecommendedRetailPrice("5")
+                .build());
+    }
+
+    private SaleItem createSaleItem(Product product, String moreInfo) {
+        InventoryItem inventoryItem = inventoryItemRepository.save(new InventoryItem.Builder()
+                .withPricePerItem("2")
+                .withQuantity(3)
+                .withTotalPrice("6")
+                .withProduct(product)
+                .withExpires(LocalDate.now().plusYears(1).toString()).build());
+        return saleItemRepository.save(new SaleItem.Builder()
+                .withInventoryItem(inventoryItem)
+                .withCloses(LocalDate.now().plusYears(1).toString())
+                .withQuantity(1)
+                .withPrice("5")
+                .withMoreInfo(moreInfo).build());
+    }
+
+    private SaleListingSearchDTO basicSearch(String query) {
+        SaleListingSearchDTO searchDTO = new SaleListingSearchDTO();
+        searchDTO.setBasicSearchQuery(query);
+        return searchDTO;
+    }
+
+    private Set<Long> idsMatchedByDatabase(SaleListingSearchDTO searchDTO) {
+        return saleItemRepository.findAll(SearchSpecConstructor.constructSaleListingSpecificationForSearch(searchDTO, searchPlanCache))
+                .stream().map(SaleItem::getId).collect(Collectors.toSet());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"pie", "PIE", "Apple", "yu", "a", "Canberra", "nsw", "Gregs", "fresh co", "plz",
+            "pie or juice", "pie and juice", "pie juice", "\"Simple Pie\"", "'apple juice'", "cold or yummy and pie",
+            "nothing", "pie or nothing", "xyzzy or drink", "simle", "aple or nothing", "gergs and juise"})
+    void findMatchingIds_basicQuery_sameIdsAsDatabase(String query) {
+        SaleListingSearchDTO searchDTO = basicSearch(query);
+
+        assertEquals(Optional.of(idsMatchedByDatabase(searchDTO)), saleItemSearchIndex.findMatchingIds(searchDTO));
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+            "pie:::",
+            ":gregs::",
+            "::canberra:",
+            "::yummy:",
+            "juice:gregs:australia:",
+            "juice::new zealand:",
+            "::canberra:apple",
+            "juise:grgs::",
+    }, delimiter = ':')
+    void findMatchingIds_fieldQueries_sameIdsAsDatabase(String product, String businessName, String location, String basic) {
+        SaleListingSearchDTO searchDTO = new SaleListingSearchDTO();
+        searchDTO.setProductSearchQuery(product);
+        searchDTO.setBusinessSearchQuery(businessName);
+        searchDTO.setLocationSearchQuery(location);
+        searchDTO.setBasicSearchQuery(basic);
+
+        assertEquals(Optional.of(idsMatchedByDatabase(searchDTO)), saleItemSearchIndex.findMatchingIds(searchDTO));
+    }
+
+    @Test
+    void findMatchingIds_misspeltProductName_saleItemFound() {
+        assertEquals(Optional.of(Set.of(pieSale.getId())), saleItemSearchIndex.findMatchingIds(basicSearch("simle")));
+        assertEquals(Set.of(pieSale.getId()), idsMatchedByDatabase(basicSearch("simle")));
+    }
+
+    @Test
+    void findMatchingIds_noQueries_emptyReturned() {
+        assertTrue(saleItemSearchIndex.findMatchingIds(new SaleListingSearchDTO()).isEmpty());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"pi%", "a_p"})
+    void findMatchingIds_queryWithWildcards_emptyReturned(String query) {
+        assertTrue(saleItemSearchIndex.findMatchingIds(basicSearch(query)).isEmpty());
+    }
+
+    @Test
+    void findMatchingIds_moreMatchesThanLimit_emptyReturned() {
+        var index = new SaleItemSearchIndex(null, new NameDictionaryService(null), 1);
+        index.replaceAll(Map.of(
+                1L, new SaleItemSearchIndex.Document(1, 1, 1, "pie", null, null, null, null, null, null, null),
+                2L, new SaleItemSearchIndex.Document(2, 1, 1, "meat pie", null, null, null, null, null, null, null)));
+
+        assertTrue(index.findMatchingIds(basicSearch("pie")).isEmpty());
+        assertEquals(Optional.of(Set.of(2L)), index.findMatchingIds(basicSearch("meat")));
+    }
+
+    @Test
+    void findMatchingIds_indexNotBuilt_emptyReturned() {
+        var index = new SaleItemSearchIndex(null, new NameDictionaryService(null), 100);
+
+        assertFalse(index.isReady());
+        assertTrue(index.findMatchingIds(basicSearch("pie")).isEmpty());
+    }
+
+    @Test
+    void rebuild_saleItemsInDatabase_allSaleItemsIndexed() {
+        assertTrue(saleItemSearchIndex.isReady());
+        assertEquals(2, saleItemSearchIndex.size());
+    }
+
+    @Test
+    void saleItemCreated_saleItemAddedToIndex() {
+        SaleItem cheeseSale = createSaleItem(createProduct("Blue Cheese", "Dairy co", "Smelly"), "Very smelly");
+
+        assertEquals(Optional.of(Set.of(cheeseSale.getId())), saleItemSearchIndex.findMatchingIds(basicSearch("cheese")));
+        assertEquals(Optional.of(Set.of(cheeseSale.getId())), saleItemSearchIndex.findMatchingIds(basicSearch("very")));
+    }
+
+    @Test
+    void saleItemDeleted_saleItemRemovedFromIndex() {
+        saleItemRepository.delete(pieSale);
+
+        assertEquals(Optional.of(Set.of()), saleItemSearchIndex.findMatchingIds(basicSearch("simple")));
+        assertEquals(1, saleItemSearchIndex.size());
+    }
+
+    @Test
+    void productUpdated_saleItemsOfProductReindexed() {
+        pie.setName("Mince Pie");
+        productRepository.save(pie);
+
+        assertEquals(Optional.of(Set.of()), saleItemSearchIndex.findMatchingIds(basicSearch("simple")));
+        assertEquals(Optional.of(Set.of(pieSale.getId())), saleItemSearchIndex.findMatchingIds(basicSearch("mince")));
+    }
+
+    @Test
+    void businessUpdated_saleItemsOfBusinessReindexed() {
+        business = businessRepository.findById(business.getId()).orElseThrow();
+        business.setName("Freds pies");
+        businessRepository.save(business);
+
+        SaleListingSearchDTO searchDTO = new SaleListingSearchDTO();
+        searchDTO.setBusinessSearchQuery("freds");
+        assertEquals(Optional.of(Set.of(pieSale.getId(), juiceSale.getId())), saleItemSearchIndex.findMatchingIds(searchDTO));
+    }
+
+    @Test
+    void businessAddressReplaced_saleItemsOfBusinessMovedToNewAddress() {
+        business = businessRepository.findById(business.getId()).orElseThrow();
+        business.setAddress(Location.covertAddressStringToLocation("4,Rountree Street,Ashburton,Christchurch,New Zealand," +
+                "Canterbury,8041"));
+        businessRepository.save(business);
+
+        SaleListingSearchDTO newCity = new SaleListingSearchDTO();
+        newCity.setLocationSearchQuery("christchurch");
+        assertEquals(Optional.of(Set.of(pieSale.getId(), juiceSale.getId())), saleItemSearchIndex.findMatchingIds(newCity));
+        SaleListingSearchDTO oldCity = new SaleListingSearchDTO();
+        oldCity.setLocationSearchQuery("canberra");
+        assertEquals(Optional.of(Set.of()), saleItemSearchIndex.findMatchingIds(oldCity));
+    }
+
+    @Test
+    void businessAddressReplacedThenNewAddressUpdated_saleItemsReindexed() {
+        business = businessRepository.findById(business.getId()).orElseThrow();
+        business.setAddress(Location.covertAddressStringToLocation("4,Rountree Street,Ashburton,Christchurch,New Zealand," +
+                "Canterbury,8041"));
+        business = businessRepository.save(business);
+        business.getAddress().setCity("Timaru");
+        businessRepository.save(business);
+
+        SaleListingSearchDTO searchDTO = new SaleListingSearchDTO();
+        searchDTO.setLocationSearchQuery("timaru");
+        assertEquals(Optional.of(Set.of(pieSale.getId(), juiceSale.getId())), saleItemSearchIndex.findMatchingIds(searchDTO));
+    }
+}
@@ -0,0 +1,152 @@
+package org.seng302.leftovers.service.search;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.dto.business.BusinessType;
+import org.seng302.leftovers.dto.saleitem.SaleListingFacet;
+import org.seng302.leftovers.dto.saleitem.SaleListingFacetsDTO;
+import org.seng302.leftovers.dto.saleitem.SaleListingSearchDTO;
+import org.seng302.leftovers.entities.*;
+import org.seng302.leftovers.persistence.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class SaleListingFacetServiceTest {
+
+    @Autowired
+    private SaleListingFacetService saleListingFacetService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BusinessRepository businessRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private InventoryItemRepository inventoryItemRepository;
+    @Autowired
+    private SaleItemRepository saleItemRepository;
+
+    private User user;
+    private int createdProducts = 0;
+
+    @BeforeEach
+    void setUp() {
+        clearDatabase();
+
+        user = userRepository.save(new User.Builder()
+                .withAddress(Location.covertAddressStringToLocation("4,Rountree Street,Ashburton,Christchurch,New Zealand," +
+                        "Canterbury,8041"))
+                .withDob("2000-01-01")
+                .withEmail("facets@gmail.com")
+                .withFirstName("Greg")
+                .withLastName("Jones")
+                .withPassword("password123").build());
+        Business shop = createBusiness("Gregs shop", BusinessType.RETAIL_TRADE);
+        Business charity = createBusiness("Gregs charity", BusinessType.CHARITABLE);
+
+        LocalDate today = LocalDate.now();
+        createSaleItem(shop, "2", today.plusDays(3));
+        createSaleItem(shop, "7.50", today.plusDays(20));
+        createSaleItem(charity, "60", today.plusDays(100));
+        createSaleItem(charity, "5", today);
+    }
+
+    @AfterEach
+    void tearDown() {
+        clearDatabase();
+    }
+
+    private void clearDatabase() {
+        saleItemRepository.deleteAll();
+        inventoryItemRepository.deleteAll();
+        productRepository.deleteAll();
+        businessRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private Business createBusiness(String name, BusinessType businessType) {
+        return businessRepository.save(new Business.Builder()
+                .withBusinessType(businessType)
+                .withAddress(Location.covertAddressStringToLocation("45,Street place,someplace,Canberra,Australia,NSW,5011"))
+                .withName(name)
+                .withDescription("We sell things")
+                .withPrimaryOwner(user).build());
+    }
+
+    private void createSaleItem(Business business, String price, LocalDate closes) {
+        createdProducts++;
+        Product product = productRepository.save(new Product.Builder()
+                .withName("Product " + createdProducts)
+                .withProductCode("PROD" + createdProducts)
+                .withBusiness(business)
+                .withRecommendedRetailPrice("5")
+                .build());
+        InventoryItem inventoryItem = inventoryItemRepository.save(new InventoryItem.Builder()
+                .withPricePerItem("2")
+                .withQuantity(3)
+                .withTotalPrice("6")
+                .withProduct(product)
+                .withExpires(LocalDate.now().plusYears(1).toString()).build());
+        saleItemRepository.save(new SaleItem.Builder()
+                .withInventoryItem(inventoryItem)
+                .withCloses(closes.toString())
+                .withQuantity(1)
+                .withPrice(price).build());
+    }
+
+    @Test
+    void countFacets_noFacets_nullReturned() {
+        assertNull(saleListingFacetService.countFacets(null, Set.of()));
+    }
+
+    @Test
+    void countFacets_allFacets_everyValueCounted() {
+        SaleListingFacetsDTO facets = saleListingFacetService.countFacets(
+                SearchSpecConstructor.constructSaleListingSpecificationForSearch(new SaleListingSearchDTO()),
+                Set.of(SaleListingFacet.BUSINESS_TYPE, SaleListingFacet.PRICE, SaleListingFacet.CLOSES));
+
+        assertEquals(Map.of(
+                "Accommodation and Food Services", 0L,
+                "Retail Trade", 2L,
+                "Charitable organisation", 2L,
+                "Non-profit organisation", 0L), facets.getBusinessType());
+        assertEquals(Map.of("0-5", 1L, "5-10", 2L, "10-20", 0L, "20-50", 0L, "50+", 1L), facets.getPrice());
+        assertEquals(Map.of("today", 1L, "week", 1L, "month", 1L, "later", 1L), facets.getCloses());
+    }
+
+    @Test
+    void countFacets_searchFiltersResults_onlyMatchingSaleItemsCounted() {
+        SaleListingSearchDTO searchDTO = new SaleListingSearchDTO();
+        searchDTO.setPriceLowerBound(new BigDecimal("5"));
+
+        SaleListingFacetsDTO facets = saleListingFacetService.countFacets(
+                SearchSpecConstructor.constructSaleListingSpecificationForSearch(searchDTO),
+                Set.of(SaleListingFacet.BUSINESS_TYPE));
+
+        assertEquals(1L, facets.getBusinessType().get("Retail Trade"));
+        assertEquals(2L, facets.getBusinessType().get("Charitable organisation"));
+        assertNull(facets.getPrice());
+        assertNull(facets.getCloses());
+    }
+
+    @Test
+    void countFacets_noMatchingSaleItems_everyValueZero() {
+        SaleListingSearchDTO searchDTO = new SaleListingSearchDTO();
+        searchDTO.setPriceLowerBound(new BigDecimal("1000"));
+
+        SaleListingFacetsDTO facets = saleListingFacetService.countFacets(
+                SearchSpecConstructor.constructSaleListingSpecificationForSearch(searchDTO),
+                Set.of(SaleListingFacet.CLOSES));
+
+        assertEquals(Map.of("today", 0L, "week", 0L, "month", 0L, "later", 0L), facets.getCloses());
+    }
+}
@@ -0,0 +1,216 @@
+package org.seng302.leftovers.service.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.dto.business.BusinessType;
+import org.seng302.leftovers.dto.saleitem.SaleItemResponseDTO;
+import org.seng302.leftovers.dto.saleitem.SaleListingFacet;
+import org.seng302.leftovers.dto.saleitem.SaleListingSearchDTO;
+import org.seng302.leftovers.dto.saleitem.SaleListingSearchResultDTO;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SaleListingResultCacheTest {
+
+    private SaleListingResultCache cache;
+    private AtomicInteger searches;
+    private Supplier<SaleListingSearchResultDTO> find;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SaleListingResultCache(2, 10);
+        searches = new AtomicInteger();
+        find = () -> {
+            searches.incrementAndGet();
+            return resultWithSize(1);
+        };
+    }
+
+    private static SaleListingSearchResultDTO resultWithSize(int size) {
+        return new SaleListingSearchResultDTO(new PageImpl<>(Collections.nCopies(size, mock(SaleItemResponseDTO.class))), null);
+    }
+
+    private static SaleListingSearchDTO search(String basicQuery) {
+        SaleListingSearchDTO searchDTO = new SaleListingSearchDTO();
+        searchDTO.setBasicSearchQuery(basicQuery);
+        return searchDTO;
+    }
+
+    private SaleListingSearchResultDTO get(SaleListingSearchDTO searchDTO) {
+        return cache.get(searchDTO, null, PageRequest.of(0, 10), null, Set.of(), true, find);
+    }
+
+    @Test
+    void get_sameSearchTwice_resultReusedAndHitCounted() {
+        var first = get(search("cheese"));
+        var second = get(search("cheese"));
+
+        assertSame(first, second);
+        assertEquals(1, searches.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRatio());
+    }
+
+    @Test
+    void get_equivalentSearches_resultReused() {
+        SaleListingSearchDTO first = search("Blue  Cheese");
+        first.setPriceLowerBound(new BigDecimal("2.00"));
+        first.setBusinessTypes(List.of(BusinessType.RETAIL_TRADE, BusinessType.CHARITABLE));
+        SaleListingSearchDTO second = search("blue cheese ");
+        second.setPriceLowerBound(new BigDecimal("2"));
+        second.setBusinessTypes(List.of(BusinessType.CHARITABLE, BusinessType.RETAIL_TRADE));
+
+        get(first);
+        get(second);
+
+        assertEquals(1, searches.get());
+    }
+
+    @Test
+    void get_differentSearches_eachResultFound() {
+        get(search("cheese"));
+        get(search("bread"));
+
+        assertEquals(2, searches.get());
+    }
+
+    @Test
+    void get_differentPageOrOrdering_eachResultFound() {
+        cache = new SaleListingResultCache(10, 10);
+        SaleListingSearchDTO searchDTO = search("cheese");
+
+        cache.get(searchDTO, null, PageRequest.of(0, 10), null, Set.of(), true, find);
+        cache.get(searchDTO, null, PageRequest.of(1, 10), null, Set.of(), true, find);
+        cache.get(searchDTO, null, PageRequest.of(0, 10, Sort.by("price")), null, Set.of(), true, find);
+        cache.get(searchDTO, null, PageRequest.of(0, 10), Sort.Direction.ASC, Set.of(), true, find);
+        cache.get(searchDTO, null, PageRequest.of(0, 10), null, Set.of(SaleListingFacet.PRICE), true, find);
+        cache.get(searchDTO, null, PageRequest.of(0, 10), null, Set.of(), false, find);
+
+        assertEquals(6, searches.get());
+    }
+
+    @Test
+    void get_invalidatedSinceCached_resultFoundAgain() {
+        var first = get(search("cheese"));
+        cache.invalidate();
+        var second = get(search("cheese"));
+        var third = get(search("cheese"));
+
+        assertNotSame(first, second);
+        assertSame(second, third);
+        assertEquals(2, searches.get());
+    }
+
+    @Test
+    void get_invalidatedWhileFinding_resultNotReused() {
+        get(search("cheese"));
+        cache.invalidate();
+        cache.get(search("bread"), null, PageRequest.of(0, 10), null, Set.of(), true, () -> {
+            searches.incrementAndGet();
+            cache.invalidate();
+            return resultWithSize(1);
+        });
+        get(search("bread"));
+
+        assertEquals(3, searches.get());
+    }
+
+    @Test
+    void get_moreThanMaximumEntries_leastRecentlyUsedEvicted() {
+        get(search("cheese"));
+        get(search("bread"));
+        get(search("cheese"));
+        get(search("milk"));
+        get(search("cheese"));
+        get(search("bread"));
+
+        assertEquals(4, searches.get());
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getEvictions());
+    }
+
+    @Test
+    void get_pageLargerThanMaximumSize_resultNotCached() {
+        find = () -> {
+            searches.incrementAndGet();
+            return resultWithSize(11);
+        };
+
+        get(search("cheese"));
+        get(search("cheese"));
+
+        assertEquals(2, searches.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void get_searchFails_nothingCached() {
+        Supplier<SaleListingSearchResultDTO> failingFind = () -> {
+            throw new IllegalStateException();
+        };
+        SaleListingSearchDTO searchDTO = search("cheese");
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        Set<SaleListingFacet> facets = Set.of();
+
+        assertThrows(IllegalStateException.class, () -> cache.get(searchDTO, null, pageRequest, null, facets, true, failingFind));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void clear_cachedResults_resultsAndMetricsRemoved() {
+        get(search("cheese"));
+        get(search("cheese"));
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+        assertEquals(0, cache.getHitRatio());
+    }
+
+    @Test
+    void get_closingDateFacetOnNextDay_resultFoundAgain() {
+        Clock clock = mock(Clock.class);
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(clock.instant()).thenReturn(Instant.parse("2021-09-14T23:59:00Z"));
+        cache = new SaleListingResultCache(10, 10, clock);
+        Set<SaleListingFacet> facets = Set.of(SaleListingFacet.CLOSES);
+
+        cache.get(search("cheese"), null, PageRequest.of(0, 10), null, facets, true, find);
+        when(clock.instant()).thenReturn(Instant.parse("2021-09-15T00:01:00Z"));
+        cache.get(search("cheese"), null, PageRequest.of(0, 10), null, facets, true, find);
+
+        assertEquals(2, searches.get());
+    }
+
+    @Test
+    void get_noClosingDateFacetOnNextDay_resultReused() {
+        Clock clock = mock(Clock.class);
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(clock.instant()).thenReturn(Instant.parse("2021-09-14T23:59:00Z"));
+        cache = new SaleListingResultCache(10, 10, clock);
+
+        get(search("cheese"));
+        when(clock.instant()).thenReturn(Instant.parse("2021-09-15T00:01:00Z"));
+        get(search("cheese"));
+
+        assertEquals(1, searches.get());
+    }
+}
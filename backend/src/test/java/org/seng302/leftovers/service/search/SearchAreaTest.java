@@ -0,0 +1,134 @@
+package org.seng302.leftovers.service.search;
+
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.exceptions.ValidationResponseException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchAreaTest {
+
+    @Test
+    void fromParameters_noParameters_nullReturned() {
+        assertNull(SearchArea.fromParameters(null, null, null, null, null, null, null));
+    }
+
+    @Test
+    void fromParameters_latitudeWithoutLongitude_exceptionThrown() {
+        assertThrows(ValidationResponseException.class,
+                () -> SearchArea.fromParameters(-43.5, null, 10.0, null, null, null, null));
+    }
+
+    @Test
+    void fromParameters_radiusWithoutCentre_exceptionThrown() {
+        assertThrows(ValidationResponseException.class,
+                () -> SearchArea.fromParameters(null, null, 10.0, null, null, null, null));
+    }
+
+    @Test
+    void fromParameters_negativeRadius_exceptionThrown() {
+        assertThrows(ValidationResponseException.class,
+                () -> SearchArea.fromParameters(-43.5, 172.6, -1.0, null, null, null, null));
+    }
+
+    @Test
+    void fromParameters_incompleteBoundingBox_exceptionThrown() {
+        assertThrows(ValidationResponseException.class,
+                () -> SearchArea.fromParameters(null, null, null, -41.0, -42.0, 175.0, null));
+    }
+
+    @Test
+    void fromParameters_southOfBoxNorthOfNorth_exceptionThrown() {
+        assertThrows(ValidationResponseException.class,
+                () -> SearchArea.fromParameters(null, null, null, -42.0, -41.0, 175.0, 174.0));
+    }
+
+    @Test
+    void fromParameters_centreOnly_noBounds() {
+        SearchArea area = SearchArea.fromParameters(-43.5, 172.6, null, null, null, null, null);
+
+        assertTrue(area.hasCentre());
+        assertFalse(area.hasBounds());
+        assertTrue(area.getBoundingRanges().isEmpty());
+        assertTrue(area.contains(50, -10));
+    }
+
+    @Test
+    void distance_christchurchToWellington_about300km() {
+        assertEquals(304, SearchArea.distance(-43.5321, 172.6362, -41.2865, 174.7762), 5);
+    }
+
+    @Test
+    void getRadiusHaversine_radiusToPoint_haversineOfPointDistance() {
+        double radius = SearchArea.distance(60, 0, 61, 10);
+        SearchArea area = SearchArea.fromParameters(60.0, 0.0, radius, null, null, null, null);
+        double latitudeSin = Math.sin(Math.toRadians(61 - 60) / 2);
+        double longitudeSin = Math.sin(Math.toRadians(10 - 0) / 2);
+        double haversine = latitudeSin * latitudeSin
+                + Math.cos(Math.toRadians(60)) * Math.cos(Math.toRadians(61)) * longitudeSin * longitudeSin;
+
+        assertEquals(haversine, area.getRadiusHaversine(), 1e-12);
+    }
+
+    @Test
+    void getRadiusHaversine_radiusPastFarSideOfEarth_one() {
+        SearchArea area = SearchArea.fromParameters(0.0, 0.0, 30000.0, null, null, null, null);
+
+        assertEquals(1, area.getRadiusHaversine());
+    }
+
+    @Test
+    void contains_radius_onlyPointsWithinRadius() {
+        SearchArea area = SearchArea.fromParameters(-43.53, 172.63, 10.0, null, null, null, null);
+
+        assertTrue(area.contains(-43.52, 172.62));
+        assertFalse(area.contains(-43.70, 172.63));
+    }
+
+    @Test
+    void contains_boundingBoxAcrossAntimeridian_pointsEitherSideContained() {
+        SearchArea area = SearchArea.fromParameters(null, null, null, 10.0, -10.0, -170.0, 170.0);
+
+        assertTrue(area.contains(0, 175));
+        assertTrue(area.contains(0, -175));
+        assertFalse(area.contains(0, 0));
+        assertFalse(area.contains(20, 175));
+    }
+
+    @Test
+    void getBoundingRanges_radius_rangeContainsCircle() {
+        SearchArea area = SearchArea.fromParameters(0.0, 0.0, 111.195, null, null, null, null);
+
+        List<double[]> ranges = area.getBoundingRanges();
+
+        assertEquals(1, ranges.size());
+        assertEquals(-1, ranges.get(0)[0], 0.01);
+        assertEquals(1, ranges.get(0)[1], 0.01);
+        assertEquals(-1, ranges.get(0)[2], 0.01);
+        assertEquals(1, ranges.get(0)[3], 0.01);
+    }
+
+    @Test
+    void getBoundingRanges_radiusAcrossAntimeridian_splitIntoTwoRanges() {
+        SearchArea area = SearchArea.fromParameters(0.0, 179.5, 111.195, null, null, null, null);
+
+        List<double[]> ranges = area.getBoundingRanges();
+
+        assertEquals(2, ranges.size());
+        assertEquals(178.5, ranges.get(0)[2], 0.01);
+        assertEquals(180, ranges.get(0)[3], 0.01);
+        assertEquals(-180, ranges.get(1)[2], 0.01);
+        assertEquals(-179.5, ranges.get(1)[3], 0.01);
+    }
+
+    @Test
+    void getBoundingRanges_radiusAndBoundingBox_intersectionOfBoth() {
+        SearchArea area = SearchArea.fromParameters(0.0, 0.0, 111.195, 10.0, 0.5, 10.0, 0.5);
+
+        List<double[]> ranges = area.getBoundingRanges();
+
+        assertEquals(1, ranges.size());
+        assertArrayEquals(new double[] {0.5, 1, 0.5, 1}, ranges.get(0), 0.01);
+    }
+}
@@ -0,0 +1,133 @@
+package org.seng302.leftovers.service.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.seng302.leftovers.entities.Business;
+import org.seng302.leftovers.entities.User;
+import org.seng302.leftovers.exceptions.ValidationResponseException;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchPlanCacheTest {
+
+    private SearchPlanCache cache;
+    private List<String> builtQueries;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SearchPlanCache(2, new NameDictionaryService(null));
+        builtQueries = new ArrayList<>();
+    }
+
+    private <T> Specification<T> get(Class<T> entityType, String query, List<String> fieldNames) {
+        return cache.get(entityType, query, fieldNames, normalisedQuery -> {
+            builtQueries.add(normalisedQuery);
+            return (root, criteriaQuery, criteriaBuilder) -> null;
+        });
+    }
+
+    @Test
+    void get_sameQueryTwice_planBuiltOnceAndReused() {
+        var first = get(User.class, "bread", List.of("firstName"));
+        var second = get(User.class, "bread", List.of("firstName"));
+
+        assertSame(first, second);
+        assertEquals(List.of("bread"), builtQueries);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRatio());
+    }
+
+    @Test
+    void get_queryDiffersInCaseAndSpacing_planReused() {
+        get(User.class, "Bread  OR milk", List.of("firstName"));
+        get(User.class, "bread or   MILK", List.of("firstName"));
+
+        assertEquals(List.of("bread or milk"), builtQueries);
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void get_differentFields_separatePlans() {
+        get(User.class, "bread", List.of("firstName"));
+        get(User.class, "bread", List.of("lastName"));
+
+        assertEquals(2, builtQueries.size());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    void get_differentEntityType_separatePlans() {
+        get(User.class, "bread", List.of("name"));
+        get(Business.class, "bread", List.of("name"));
+
+        assertEquals(2, builtQueries.size());
+    }
+
+    @Test
+    void get_moreQueriesThanMaximum_leastRecentlyUsedEvicted() {
+        get(User.class, "bread", List.of("firstName"));
+        get(User.class, "milk", List.of("firstName"));
+        get(User.class, "bread", List.of("firstName"));
+        get(User.class, "eggs", List.of("firstName"));
+        get(User.class, "bread", List.of("firstName"));
+        get(User.class, "milk", List.of("firstName"));
+
+        assertEquals(List.of("bread", "milk", "eggs", "milk"), builtQueries);
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getEvictions());
+    }
+
+    @Test
+    void get_buildFails_planNotCached() {
+        List<String> fieldNames = List.of("firstName");
+        assertThrows(ValidationResponseException.class, () -> cache.get(User.class, "\"bread", fieldNames, query -> {
+            throw new ValidationResponseException("No closing quote");
+        }));
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void clear_plansCached_cacheEmptiedAndMetricsReset() {
+        get(User.class, "bread", List.of("firstName"));
+        get(User.class, "bread", List.of("firstName"));
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    void get_quotedPhrasesDifferInSpacing_separatePlans() {
+        get(User.class, "\"ice  cream\"   OR milk", List.of("firstName"));
+        get(User.class, "\"Ice cream\" or milk", List.of("firstName"));
+
+        assertEquals(List.of("\"ice  cream\" or milk", "\"ice cream\" or milk"), builtQueries);
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    void normalise_unclosedQuote_spacesCollapsed() {
+        assertEquals("\"ice cream", SearchPlanCache.normalise("\"Ice   cream"));
+    }
+
+    @Test
+    void splitSearchStringIntoTerms_quotedPhrase_spacingOfPhraseKept() {
+        assertEquals(List.of("\"ice  cream\"", "or", "milk"), SearchQueryParser.splitSearchStringIntoTerms("\"ice  cream\"   or milk"));
+    }
+
+    @Test
+    void constructUserSpecificationFromSearchQuery_sameQueryTwice_cacheHit() {
+        SearchSpecConstructor.constructUserSpecificationFromSearchQuery("Plan cache test query", cache);
+        SearchSpecConstructor.constructUserSpecificationFromSearchQuery("plan cache TEST query", cache);
+
+        assertEquals(1, cache.getHits());
+    }
+}
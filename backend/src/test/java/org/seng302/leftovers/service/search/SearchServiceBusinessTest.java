@@ -15,9 +15,11 @@ import org.seng302.leftovers.persistence.UserRepository;
 import org.seng302.leftovers.service.search.SearchSpecConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -28,6 +30,8 @@ class SearchServiceBusinessTest {
     private BusinessRepository businessRepository;
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private SearchPlanCache searchPlanCache;
 
     @AfterEach
     void tearDown() {
@@ -88,6 +92,16 @@ class SearchServiceBusinessTest {
         assertEquals(numMatches, businesses.size());
     }
 
+    @ParameterizedTest
+    @CsvSource({"garaje,Joe's Garage", "workshp,Steves Workshop", "wrokshop,Steves Workshop", "frm,"})
+    void constructSpecificationFromBusinessSearch_misspeltSearchTerm_matchesCorrectedBusinessName(String query, String name) {
+        createBusinesses();
+        var specification = SearchSpecConstructor.constructSpecificationFromBusinessSearch(query, null, searchPlanCache);
+        var businesses = businessRepository.findAll(specification);
+        assertEquals(name == null ? List.of() : List.of(name),
+                businesses.stream().map(Business::getName).collect(Collectors.toList()));
+    }
+
     @Test
     void constructSpecificationFromBusinessSearch_randomSearchTerm_matchesNoBusinesses() {
         createBusinesses();
@@ -282,4 +296,65 @@ class SearchServiceBusinessTest {
         var businesses = businessRepository.findAll(specification);
         assertEquals(0, businesses.size());
     }
+
+    /**
+     * Creates businesses 60 degrees north, where the great circle distance differs from an equirectangular
+     * approximation. The first two are the same distance from (60, 0) by the approximation, but the northern one is
+     * about 16km closer.
+     * @return Names of the businesses, from south to north
+     */
+    private List<String> createNorthernBusinesses() {
+        User owner = new User.Builder()
+                .withFirstName("John")
+                .withLastName("Smith")
+                .withEmail("johnsmith99@gmail.com")
+                .withPassword("1337-H%nt3r2")
+                .withDob("2000-03-11")
+                .withAddress(Location.covertAddressStringToLocation("4,Rountree Street,Ashburton,Christchurch,New Zealand," +
+                        "Canterbury,8041"))
+                .build();
+        owner = userRepository.save(owner);
+        List<String> names = List.of("Southern Shop", "Northern Shop", "Distant Shop");
+        double[][] coordinates = {{59, 10}, {61, 10}, {60, 20}};
+        for (int i = 0; i < names.size(); i++) {
+            businessRepository.save(new Business.Builder()
+                    .withBusinessType(BusinessType.RETAIL_TRADE)
+                    .withAddress(new Location.Builder()
+                            .atStreetNumber("4")
+                            .onStreet("Main Street")
+                            .inCity("City")
+                            .inRegion("Region")
+                            .inCountry("Norway")
+                            .withPostCode("1234")
+                            .atCoordinates(coordinates[i][0], coordinates[i][1])
+                            .build())
+                    .withDescription("Some description")
+                    .withName(names.get(i))
+                    .withPrimaryOwner(owner)
+                    .build());
+        }
+        return names;
+    }
+
+    @Test
+    void constructSpecificationFromArea_radius_businessesWithinGreatCircleDistanceMatched() {
+        createNorthernBusinesses();
+        var area = SearchArea.fromParameters(60.0, 0.0, 570.0, null, null, null, null);
+
+        var businesses = businessRepository.findAll(SearchSpecConstructor.constructSpecificationFromArea(null, area));
+
+        assertEquals(List.of("Northern Shop"), businesses.stream().map(Business::getName).collect(Collectors.toList()));
+    }
+
+    @Test
+    void constructSpecificationOrderedByDistance_ascending_orderedByGreatCircleDistance() {
+        List<String> names = createNorthernBusinesses();
+        var area = SearchArea.fromParameters(60.0, 0.0, null, null, null, null, null);
+
+        var businesses = businessRepository.findAll(
+                SearchSpecConstructor.constructSpecificationOrderedByDistance(null, area, Sort.Direction.ASC));
+
+        assertEquals(List.of(names.get(1), names.get(0), names.get(2)),
+                businesses.stream().map(Business::getName).collect(Collectors.toList()));
+    }
 }
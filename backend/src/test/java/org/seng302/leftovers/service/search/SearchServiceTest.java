@@ -6,6 +6,8 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mockito;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.mockito.internal.matchers.apachecommons.ReflectionEquals;
 import org.seng302.leftovers.controllers.DGAAController;
 import org.seng302.leftovers.controllers.UserController;
@@ -18,6 +20,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
@@ -67,6 +70,10 @@ class SearchServiceTest {
     private InventoryItemRepository inventoryItemRepository;
     @Autowired
     private SaleItemRepository saleItemRepository;
+    @Autowired
+    private ResultCountCache resultCountCache;
+    @Autowired
+    private SessionFactory sessionFactory;
 
     /**
      * Speification for repository queries.
@@ -703,6 +710,79 @@ class SearchServiceTest {
         }
     }
 
+    /**
+     * Verify that the pages returned by getSearchResultPageOrderedByRelevance are consecutive slices of the results
+     * returned by getSearchResultsOrderedByRelevance, in either direction.
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void getSearchResultPageOrderedByRelevance_eachPage_sliceOfAllResults(boolean reverse) {
+        List<Long> allIds = SearchQueryParser.getSearchResultsOrderedByRelevance("a or Donna or Percy", userRepository, reverse)
+                .stream().map(User::getUserID).collect(Collectors.toList());
+        assertTrue(allIds.size() > 3);
+
+        List<Long> pagedIds = new ArrayList<>();
+        int pageCount = (allIds.size() + 2) / 3;
+        for (int page = 1; page <= pageCount; page++) {
+            Page<User> result = (Page<User>) SearchQueryParser.getSearchResultPageOrderedByRelevance("a or Donna or Percy",
+                    userRepository, resultCountCache, page, 3, reverse, true);
+            assertEquals(allIds.size(), result.getTotalElements());
+            result.forEach(user -> pagedIds.add(user.getUserID()));
+        }
+
+        assertEquals(allIds, pagedIds);
+    }
+
+    /**
+     * Verify that requesting a page after the last page of results from getSearchResultPageOrderedByRelevance returns
+     * the last page, as paging through the results in memory did.
+     */
+    @Test
+    void getSearchResultPageOrderedByRelevance_pageAfterLastPage_lastPageReturned() {
+        List<User> allUsers = SearchQueryParser.getSearchResultsOrderedByRelevance("andy", userRepository, null);
+        int lastPage = (allUsers.size() + 1) / 2;
+
+        Page<User> expected = (Page<User>) SearchQueryParser.getSearchResultPageOrderedByRelevance("andy", userRepository,
+                resultCountCache, lastPage, 2, null, true);
+        Page<User> result = (Page<User>) SearchQueryParser.getSearchResultPageOrderedByRelevance("andy", userRepository,
+                resultCountCache, lastPage + 5, 2, null, true);
+
+        assertEquals(expected.map(User::getUserID).getContent(), result.map(User::getUserID).getContent());
+        assertEquals(allUsers.size(), result.getTotalElements());
+    }
+
+    /**
+     * Verify that getSearchResultPageOrderedByRelevance returns an empty page when no users match the query
+     */
+    @Test
+    void getSearchResultPageOrderedByRelevance_noMatches_emptyPageReturned() {
+        Page<User> result = (Page<User>) SearchQueryParser.getSearchResultPageOrderedByRelevance("zzzzzzzz", userRepository,
+                resultCountCache, 3, 2, null, true);
+
+        assertTrue(result.isEmpty());
+        assertEquals(0, result.getTotalElements());
+    }
+
+    /**
+     * Verify that getSearchResultPageOrderedByRelevance returns a slice saying whether there is a next page, without
+     * counting the results, when the total is not needed
+     */
+    @Test
+    void getSearchResultPageOrderedByRelevance_totalNotCounted_sliceOfResultsReturned() {
+        List<Long> allIds = SearchQueryParser.getSearchResultsOrderedByRelevance("a or Donna or Percy", userRepository, null)
+                .stream().map(User::getUserID).collect(Collectors.toList());
+
+        Slice<User> first = SearchQueryParser.getSearchResultPageOrderedByRelevance("a or Donna or Percy", userRepository,
+                resultCountCache, 1, 2, null, false);
+        Slice<User> last = SearchQueryParser.getSearchResultPageOrderedByRelevance("a or Donna or Percy", userRepository,
+                resultCountCache, (allIds.size() + 1) / 2, 2, null, false);
+
+        assertFalse(first instanceof Page);
+        assertEquals(allIds.subList(0, 2), first.map(User::getUserID).getContent());
+        assertTrue(first.hasNext());
+        assertFalse(last.hasNext());
+    }
+
     /**
      * Verify that when constructUserSpecificationFromSearchQuery is called with "DGAA" in double or single
      * quotes as its argument, it will not return the DGAA result.
@@ -902,9 +982,10 @@ class SearchServiceTest {
 
         try (var searchHelper = Mockito.mockStatic(SearchSpecConstructor.class)) {
             searchHelper.when(() -> SearchSpecConstructor.productBusinessSpecification(business)).thenReturn(businesSpec);
-            searchHelper.when(() -> SearchSpecConstructor.productFilterSpecification("hello", Set.of(ProductFilterOption.PRODUCT_CODE))).thenReturn(filterSpec);
+            searchHelper.when(() -> SearchSpecConstructor.productFilterSpecification("hello", Set.of(ProductFilterOption.PRODUCT_CODE), null)).thenReturn(filterSpec);
 
             searchHelper.when(() -> SearchSpecConstructor.constructSpecificationFromProductSearch(any(), any(), any())).thenCallRealMethod();
+            searchHelper.when(() -> SearchSpecConstructor.constructSpecificationFromProductSearch(any(), any(), any(), any())).thenCallRealMethod();
 
             var resultSpec = SearchSpecConstructor.constructSpecificationFromProductSearch(business, "hello", Set.of(ProductFilterOption.PRODUCT_CODE));
             assertEquals(combinedSpec, resultSpec);
@@ -982,4 +1063,27 @@ class SearchServiceTest {
         // Sale items from each business should be distinct
         assertFalse(new ReflectionEquals(resultSaleItemsBusiness1).matches(resultSaleItemsBusiness2));
     }
-}
\ No newline at end of file
+
+    /**
+     * Verify that searches of the same shape reuse the translation of their query by Hibernate, even though the
+     * criteria query is rendered again for each search, as the search terms are bound as parameters
+     */
+    @Test
+    void constructUserSpecificationFromSearchQuery_sameShapeDifferentTerms_hibernateQueryPlanReused() {
+        Statistics statistics = sessionFactory.getStatistics();
+        boolean statisticsEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        try {
+            userRepository.findAll(SearchSpecConstructor.constructUserSpecificationFromSearchQuery("Donald or Duck"));
+            long hits = statistics.getQueryPlanCacheHitCount();
+            long misses = statistics.getQueryPlanCacheMissCount();
+
+            userRepository.findAll(SearchSpecConstructor.constructUserSpecificationFromSearchQuery("Percy or Andy"));
+
+            assertTrue(statistics.getQueryPlanCacheHitCount() > hits);
+            assertEquals(misses, statistics.getQueryPlanCacheMissCount());
+        } finally {
+            statistics.setStatisticsEnabled(statisticsEnabled);
+        }
+    }
+}
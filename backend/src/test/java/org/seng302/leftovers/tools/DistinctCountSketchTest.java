@@ -0,0 +1,130 @@
+package org.seng302.leftovers.tools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistinctCountSketchTest {
+
+    private static DistinctCountSketch sketchOfRange(long start, long end) {
+        var sketch = new DistinctCountSketch();
+        for (long id = start; id < end; id++) {
+            sketch.add(id);
+        }
+        return sketch;
+    }
+
+    private static void assertWithinError(long expected, long actual) {
+        assertTrue(Math.abs(expected - actual) <= expected * 0.05,
+                "Expected about " + expected + " but was " + actual);
+    }
+
+    @Test
+    void estimate_empty_zero() {
+        assertEquals(0, new DistinctCountSketch().estimate());
+    }
+
+    @Test
+    void add_sameIdTwice_countedOnce() {
+        var sketch = new DistinctCountSketch();
+        sketch.add(4);
+        sketch.add(4);
+
+        assertEquals(1, sketch.estimate());
+    }
+
+    @Test
+    void estimate_upToExactLimit_exactCount() {
+        var sketch = sketchOfRange(0, DistinctCountSketch.EXACT_LIMIT);
+
+        assertTrue(sketch.isExact());
+        assertEquals(DistinctCountSketch.EXACT_LIMIT, sketch.estimate());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {DistinctCountSketch.EXACT_LIMIT + 1, 1000, 10000, 100000})
+    void estimate_overExactLimit_closeToCount(int count) {
+        var sketch = sketchOfRange(0, count);
+
+        assertFalse(sketch.isExact());
+        assertWithinError(count, sketch.estimate());
+    }
+
+    @Test
+    void merge_exactSketches_unionCounted() {
+        var first = sketchOfRange(0, 10);
+        var second = sketchOfRange(5, 20);
+
+        first.merge(second);
+
+        assertTrue(first.isExact());
+        assertEquals(20, first.estimate());
+        assertEquals(15, second.estimate());
+    }
+
+    @Test
+    void merge_unionOverExactLimit_sameAsAddingEveryId() {
+        var first = sketchOfRange(0, 200);
+        var second = sketchOfRange(100, 400);
+
+        first.merge(second);
+
+        assertFalse(first.isExact());
+        assertArrayEquals(sketchOfRange(0, 400).toBytes(), first.toBytes());
+    }
+
+    @Test
+    void merge_largeSketches_sameAsAddingEveryId() {
+        var first = sketchOfRange(0, 20000);
+        var second = sketchOfRange(10000, 50000);
+
+        first.merge(second);
+
+        assertArrayEquals(sketchOfRange(0, 50000).toBytes(), first.toBytes());
+        assertWithinError(50000, first.estimate());
+    }
+
+    @Test
+    void merge_exactIntoLarge_exactIdsAdded() {
+        var large = sketchOfRange(0, 1000);
+        var small = sketchOfRange(1000, 1010);
+
+        large.merge(small);
+
+        assertArrayEquals(sketchOfRange(0, 1010).toBytes(), large.toBytes());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 3, 1000})
+    void fromBytes_encodedSketch_sameSketch(int count) {
+        var sketch = sketchOfRange(0, count);
+
+        var decoded = DistinctCountSketch.fromBytes(sketch.toBytes());
+
+        assertEquals(sketch.isExact(), decoded.isExact());
+        assertEquals(sketch.estimate(), decoded.estimate());
+        assertArrayEquals(sketch.toBytes(), decoded.toBytes());
+    }
+
+    @Test
+    void fromBytes_null_emptySketch() {
+        assertEquals(0, DistinctCountSketch.fromBytes(null).estimate());
+    }
+
+    @Test
+    void fromBytes_unknownFormat_exceptionThrown() {
+        byte[] bytes = new byte[] {7, 0, 0, 0, 0};
+        assertThrows(IllegalArgumentException.class, () -> DistinctCountSketch.fromBytes(bytes));
+    }
+
+    @Test
+    void fromBytes_truncated_exceptionThrown() {
+        byte[] bytes = sketchOfRange(0, 3).toBytes();
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+        assertThrows(IllegalArgumentException.class, () -> DistinctCountSketch.fromBytes(truncated));
+    }
+}